@@ -0,0 +1,49 @@
+package benchmark;
+
+import model.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the hot paths of the CustomerService, on services populated by {@link HotelState}.
+ * Run with more threads with -t (e.g. -t 4), and report the time per operation with -bm avgt.
+ * @author Cláudia Martins
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class CustomerServiceBenchmark {
+
+    /**
+     * Retrieves all the customers
+     * @param state: the populated services
+     * @return the customers
+     */
+    @Benchmark
+    public Collection<Customer> getAllCustomers(HotelState state) {
+        return state.customerService.getAllCustomers();
+    }
+
+    /**
+     * Finds the first 10 customers whose name starts with a random last name, as typed in a search box
+     * @param state: the populated services
+     * @return the customers found
+     */
+    @Benchmark
+    public List<Customer> findCustomers(HotelState state) {
+        return state.customerService.findCustomers(
+                "last" + ThreadLocalRandom.current().nextInt(state.customers.size()), 10);
+    }
+}
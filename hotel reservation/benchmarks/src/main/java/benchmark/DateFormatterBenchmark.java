@@ -0,0 +1,78 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.DateFormatter;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the parsing and formatting of the dates of the stays by the DateFormatter.
+ * @author Cláudia Martins
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class DateFormatterBenchmark {
+
+    /**
+     * Number of dates parsed and formatted, more than the cache of formatted dates holds
+     */
+    private static final int DATES = 4096;
+
+    /**
+     * Consecutive dates, starting tomorrow
+     */
+    private LocalDate[] dates;
+
+    /**
+     * The dates, formatted
+     */
+    private String[] dateStrings;
+
+    /**
+     * Builds the dates and their formatted strings
+     */
+    @Setup(Level.Trial)
+    public void createDates() {
+        this.dates = new LocalDate[DATES];
+        this.dateStrings = new String[DATES];
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        for (int i = 0; i < DATES; i++) {
+            this.dates[i] = firstDay.plusDays(i);
+            this.dateStrings[i] = DateFormatter.formatDate(this.dates[i]);
+        }
+    }
+
+    /**
+     * Parses a random date
+     * @return the parsed date
+     */
+    @Benchmark
+    public LocalDate getDate() {
+        return DateFormatter.getDate(this.dateStrings[ThreadLocalRandom.current().nextInt(DATES)]);
+    }
+
+    /**
+     * Formats a random date
+     * @return the formatted date
+     */
+    @Benchmark
+    public String formatDate() {
+        return DateFormatter.formatDate(this.dates[ThreadLocalRandom.current().nextInt(DATES)]);
+    }
+}
@@ -0,0 +1,119 @@
+package benchmark;
+
+import model.Customer;
+import model.IRoom;
+import model.Room;
+import model.RoomType;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import service.CustomerService;
+import service.ReservationService;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Populated services shared by the threads of a benchmark.
+ * The services are singletons, so they are populated once per fork: JMH runs every benchmark and every
+ * combination of parameters in a JVM of its own, where they start empty.
+ * @author Cláudia Martins
+ */
+@State(Scope.Benchmark)
+public class HotelState {
+
+    /**
+     * Time zone the stays are expressed in
+     */
+    private static final ZoneId ZONE = ZoneId.of("Europe/Lisbon");
+
+    /**
+     * Number of nights of each reservation made while populating the services
+     */
+    static final int NIGHTS = 2;
+
+    /**
+     * Number of rooms, with one customer per room
+     */
+    @Param({"1000", "10000"})
+    public int rooms;
+
+    /**
+     * Number of reservations made for each room before measuring
+     */
+    @Param({"10"})
+    public int reservationsPerRoom;
+
+    /**
+     * The CustomerService instance being benchmarked
+     */
+    CustomerService customerService;
+
+    /**
+     * The ReservationService instance being benchmarked
+     */
+    ReservationService reservationService;
+
+    /**
+     * The rooms of the ReservationService
+     */
+    List<IRoom> roomList;
+
+    /**
+     * The customers of the CustomerService
+     */
+    List<Customer> customers;
+
+    /**
+     * First day of the reserved stays
+     */
+    LocalDate firstDay;
+
+    /**
+     * Number of days, counted from the first day, covered by the reservations made while populating
+     */
+    int reservedDays;
+
+    /**
+     * Populates the services with one customer per room and non-overlapping reservations of every room
+     */
+    @Setup(Level.Trial)
+    public void populate() {
+        this.customerService = CustomerService.getInstance();
+        this.reservationService = ReservationService.getInstance();
+        this.roomList = new ArrayList<>(this.rooms);
+        this.customers = new ArrayList<>(this.rooms);
+        this.firstDay = LocalDate.now(ZONE).plusDays(1);
+        this.reservedDays = Math.max(1, this.reservationsPerRoom * (NIGHTS + 1));
+
+        RoomType[] roomTypes = RoomType.values();
+        for (int i = 0; i < this.rooms; i++) {
+            String roomNumber = String.valueOf(100 + i);
+            this.reservationService.addRoom(new Room(roomNumber, 50.0 + i % 100, roomTypes[i % roomTypes.length]));
+            this.roomList.add(this.reservationService.getARoom(roomNumber));
+            String email = "customer" + i + "@hotel.com";
+            this.customerService.addCustomer(email, "First" + i, "Last" + i);
+            this.customers.add(this.customerService.getCustomer(email));
+        }
+        for (int i = 0; i < this.rooms; i++) {
+            for (int r = 0; r < this.reservationsPerRoom; r++) {
+                int checkInDay = r * (NIGHTS + 1);
+                this.reservationService.reserveARoom(this.customers.get((i + r) % this.rooms), this.roomList.get(i),
+                        this.getDate(checkInDay), this.getDate(checkInDay + NIGHTS));
+            }
+        }
+    }
+
+    /**
+     * Gets the date a number of days after the first day of the reserved stays
+     * @param days: the number of days after the first day
+     * @return the date
+     */
+    LocalDate getDate(int days) {
+        return this.firstDay.plusDays(days);
+    }
+}
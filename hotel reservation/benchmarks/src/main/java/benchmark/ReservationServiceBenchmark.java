@@ -0,0 +1,100 @@
+package benchmark;
+
+import model.IRoom;
+import model.Reservation;
+import model.RoomSearch;
+import model.RoomType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the hot paths of the ReservationService, on services populated by {@link HotelState}.
+ * Run with more threads with -t (e.g. -t 4), and report the time per operation with -bm avgt.
+ * @author Cláudia Martins
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ReservationServiceBenchmark {
+
+    /**
+     * Reserves a random room for a stay after the reserved days, which may conflict with an earlier booking
+     * @param state: the populated services
+     * @return the created reservation, or the conflict
+     */
+    @Benchmark
+    public Object reserveARoom(HotelState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        IRoom room = state.roomList.get(random.nextInt(state.roomList.size()));
+        int firstDay = state.reservedDays + random.nextInt(state.reservedDays + 1);
+        try {
+            return state.reservationService.reserveARoom(state.customers.get(random.nextInt(state.customers.size())),
+                    room, state.getDate(firstDay), state.getDate(firstDay + 1 + random.nextInt(HotelState.NIGHTS)));
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Finds the rooms available for a random stay within the reserved days
+     * @param state: the populated services
+     * @return the available rooms
+     */
+    @Benchmark
+    public Collection<IRoom> getAvailableRooms(HotelState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int firstDay = random.nextInt(state.reservedDays);
+        return state.reservationService.getAvailableRooms(state.getDate(firstDay),
+                state.getDate(firstDay + 1 + random.nextInt(HotelState.NIGHTS)));
+    }
+
+    /**
+     * Searches the 10 cheapest rooms of a random type and maximum price available for a random stay
+     * @param state: the populated services
+     * @return the rooms found
+     */
+    @Benchmark
+    public List<IRoom> searchRooms(HotelState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int firstDay = random.nextInt(state.reservedDays);
+        LocalDate checkInDate = state.getDate(firstDay);
+        LocalDate checkOutDate = state.getDate(firstDay + 1 + random.nextInt(HotelState.NIGHTS));
+        return state.reservationService.searchRooms(new RoomSearch(checkInDate, checkOutDate,
+                RoomType.values()[random.nextInt(RoomType.values().length)], null, 60.0 + random.nextInt(40),
+                false, 10));
+    }
+
+    /**
+     * Retrieves the reservations of a random customer
+     * @param state: the populated services
+     * @return the reservations of the customer
+     */
+    @Benchmark
+    public Collection<Reservation> getCustomersReservation(HotelState state) {
+        return state.reservationService.getCustomersReservation(
+                state.customers.get(ThreadLocalRandom.current().nextInt(state.customers.size())));
+    }
+
+    /**
+     * Retrieves all the rooms
+     * @param state: the populated services
+     * @return the rooms
+     */
+    @Benchmark
+    public Collection<IRoom> getAllRooms(HotelState state) {
+        return state.reservationService.getAllRooms();
+    }
+}
@@ -1,4 +1,24 @@
 import menu.MainMenu;
+import metrics.MetricsReporter;
+import persistence.DurabilityLevel;
+import server.HotelServer;
+import service.PersistenceService;
+import service.ReservationService;
+import service.RoomPartitioning;
+import service.ShardedReservationService;
+import simulation.LoadGenerator;
+import simulation.LoadProfile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * The main class for the Hotel Reservation Application
@@ -7,16 +27,264 @@ import menu.MainMenu;
 public class HotelApplication {
 
     /**
-     * The main method to start the application
+     * Default directory where the state of the application is persisted
+     */
+    private static final String DEFAULT_DATA_DIRECTORY = "data";
+
+    /**
+     * Maximum time to wait for the requests being handled when the server is stopped, in seconds
+     */
+    private static final int SERVER_STOP_DELAY_SECONDS = 5;
+
+    /**
+     * Default file where the metrics are written periodically
+     */
+    private static final String DEFAULT_METRICS_FILE = "metrics.txt";
+
+    /**
+     * Reporter writing the metrics periodically, or null if they are not written
+     */
+    private static MetricsReporter metricsReporter;
+
+    /**
+     * Engine the rooms are partitioned across when the application runs on shards, or null otherwise
+     */
+    private static ShardedReservationService shardedService;
+
+    /**
+     * The main method to start the application.
+     * Supported options:
+     * <ul>
+     *     <li>--data-dir=&lt;directory&gt;: directory where the state is persisted (defaults to "data")</li>
+     *     <li>--durability=none|async|group_commit: durability level of the write-ahead log
+     *     (defaults to group_commit)</li>
+     *     <li>--snapshot-interval=&lt;minutes&gt;: interval between background snapshots, 0 to disable them
+     *     (defaults to 10)</li>
+     *     <li>--in-memory: do not persist the state</li>
+     *     <li>--server[=&lt;port&gt;]: serve the HTTP API of {@link HotelServer} instead of the console menu,
+     *     until the application is stopped (the port defaults to 8080)</li>
+     *     <li>--loadgen: drive a synthetic load against the hotel and report its throughput, latencies and
+     *     booking invariant violations, configured by the options of {@link LoadProfile}; the state is not
+     *     persisted unless --data-dir is given</li>
+     *     <li>--metrics-interval=&lt;seconds&gt;: write the metrics of the application to a file at this
+     *     interval, and once more when it stops</li>
+     *     <li>--metrics-file=&lt;file&gt;: file where the metrics are written (defaults to "metrics.txt")</li>
+     *     <li>--shards=&lt;count&gt;: partition the rooms across this many shards, each owned by a thread of its
+     *     own (see {@link ShardedReservationService}); each shard is persisted in a directory of its own inside
+     *     the data directory, which must always be run with the same number of shards and partitioning</li>
+     *     <li>--partitioning=hash|floor|property: how the rooms are partitioned across the shards (defaults to
+     *     hash)</li>
+     * </ul>
      * @param args: command-line arguments
      */
     public static void main(String[] args) {
         System.out.println("~ Welcome to the Hotel Reservation Application! ~");
         try {
-            MainMenu.getInstance().handleInputs();
+            Map<String, String> options = parseOptions(args);
+            if (options.containsKey("loadgen") && !options.containsKey("data-dir")) {
+                options.put("in-memory", "");
+            }
+            startShards(options);
+            startPersistence(options);
+            startMetrics(options);
+            if (options.containsKey("server")) {
+                runServer(options.get("server"));
+            } else if (options.containsKey("loadgen")) {
+                LoadProfile profile = new LoadProfile(options);
+                System.out.println("Generating load for " + (profile.getWarmupSeconds()
+                        + profile.getDurationSeconds()) + " seconds...");
+                System.out.println(new LoadGenerator(profile).run());
+            } else {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    stopMetrics();
+                    stopPersistence();
+                    stopShards();
+                }));
+                MainMenu.getInstance().handleInputs();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             System.out.println(e.getLocalizedMessage());
+        } finally {
+            stopMetrics();
+            stopPersistence();
+            stopShards();
         }
         System.out.println("~ Goodbye! We hope to see you again soon. ~");
     }
+
+    /**
+     * Parses the command-line options in the --name=value (or --name) format
+     * @param args: command-line arguments
+     * @return the options by name
+     * @throws IllegalArgumentException if an argument is not an option
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Invalid option " + arg + ". Options must be given as "
+                        + "--name=value.");
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                options.put(arg.substring(2), "");
+            } else {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Starts the shards the rooms are partitioned across and routes the resources to them, if a number of
+     * shards is given
+     * @param options: the command-line options
+     */
+    private static void startShards(Map<String, String> options) {
+        if (!options.containsKey("shards")) {
+            return;
+        }
+        int shardCount;
+        try {
+            shardCount = Integer.parseInt(options.get("shards"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The number of shards must be a whole number.");
+        }
+        RoomPartitioning partitioning;
+        try {
+            partitioning = RoomPartitioning.valueOf(options.getOrDefault("partitioning", "hash")
+                    .toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Partitioning must be hash, floor or property.");
+        }
+        shardedService = new ShardedReservationService(shardCount, partitioning);
+        ReservationService.setActiveService(shardedService);
+    }
+
+    /**
+     * Restores the persisted state and starts persisting changes, unless the application runs in memory.
+     * The customers are persisted in the data directory itself, as are the rooms and reservations unless the
+     * application runs on shards, which are persisted in directories of their own.
+     * @param options: the command-line options
+     * @throws IOException if the persisted state cannot be read
+     */
+    private static void startPersistence(Map<String, String> options) throws IOException {
+        if (options.containsKey("in-memory")) {
+            return;
+        }
+        Path dataDirectory = Path.of(options.getOrDefault("data-dir", DEFAULT_DATA_DIRECTORY));
+        DurabilityLevel durability;
+        try {
+            durability = DurabilityLevel.valueOf(options.getOrDefault("durability", "group_commit")
+                    .toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Durability must be none, async or group_commit.");
+        }
+        Duration snapshotInterval = PersistenceService.DEFAULT_SNAPSHOT_INTERVAL;
+        if (options.containsKey("snapshot-interval")) {
+            try {
+                snapshotInterval = Duration.ofMinutes(Long.parseLong(options.get("snapshot-interval")));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Snapshot interval must be a whole number of minutes.");
+            }
+        }
+        PersistenceService.getInstance().start(dataDirectory, durability, snapshotInterval);
+        if (shardedService == null) {
+            if (Files.isDirectory(ShardedReservationService.shardDirectory(dataDirectory, 0))) {
+                throw new IllegalArgumentException("The data directory holds a sharded hotel, which must be run "
+                        + "with --shards.");
+            }
+            return;
+        }
+        if (ReservationService.getInstance().getRoomCount() > 0) {
+            throw new IllegalArgumentException("The data directory holds a hotel that is not sharded, which must "
+                    + "be run without --shards.");
+        }
+        shardedService.startPersistence(dataDirectory, durability, snapshotInterval);
+    }
+
+    /**
+     * Starts writing the metrics periodically, if a metrics interval is given
+     * @param options: the command-line options
+     */
+    private static void startMetrics(Map<String, String> options) {
+        if (!options.containsKey("metrics-interval")) {
+            return;
+        }
+        Duration interval;
+        try {
+            interval = Duration.ofSeconds(Long.parseLong(options.get("metrics-interval")));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Metrics interval must be a whole number of seconds.");
+        }
+        metricsReporter = new MetricsReporter(Path.of(options.getOrDefault("metrics-file", DEFAULT_METRICS_FILE)),
+                interval);
+    }
+
+    /**
+     * Serves the HTTP API until the application is stopped (e.g. with Ctrl+C), then stops the server
+     * before the persistence, so that the requests being handled are still recorded
+     * @param port: the port to listen on, or an empty string for the default port
+     * @throws IOException if the server cannot listen on the port
+     * @throws InterruptedException if the main thread is interrupted while the server runs
+     */
+    private static void runServer(String port) throws IOException, InterruptedException {
+        int portNumber;
+        try {
+            portNumber = port.isEmpty() ? HotelServer.DEFAULT_PORT : Integer.parseInt(port);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The server port must be a whole number.");
+        }
+        HotelServer server = new HotelServer(new InetSocketAddress(portNumber));
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(SERVER_STOP_DELAY_SECONDS);
+            stopMetrics();
+            stopPersistence();
+            stopShards();
+            stopped.countDown();
+        }));
+        server.start();
+        System.out.println("Serving the hotel API at http://localhost:" + server.getAddress().getPort()
+                + "/ (press Ctrl+C to stop).");
+        stopped.await();
+    }
+
+    /**
+     * Stops writing the metrics periodically, writing them one last time
+     */
+    private static synchronized void stopMetrics() {
+        if (metricsReporter != null) {
+            metricsReporter.stop();
+            metricsReporter = null;
+        }
+    }
+
+    /**
+     * Stops the threads of the shards and their persistence, if the application runs on shards
+     */
+    private static synchronized void stopShards() {
+        if (shardedService != null) {
+            try {
+                shardedService.close();
+            } catch (UncheckedIOException e) {
+                System.out.println("Could not save the hotel data: " + e.getCause().getLocalizedMessage());
+            } finally {
+                shardedService = null;
+            }
+        }
+    }
+
+    /**
+     * Stops persisting changes, making every recorded change durable
+     */
+    private static void stopPersistence() {
+        try {
+            PersistenceService.getInstance().stop();
+        } catch (IOException e) {
+            System.out.println("Could not save the hotel data: " + e.getLocalizedMessage());
+        }
+    }
 }
@@ -1,19 +1,32 @@
 package api;
 
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
 import model.Customer;
 import model.IRoom;
 import model.Reservation;
+import model.RoomType;
 import service.CustomerService;
+import service.IReservationService;
+import service.ImportReport;
+import service.ImportService;
+import service.OccupancyReport;
 import service.ReservationService;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Singleton class that provides an interface for admin operations in a hotel
- * reservation application
+ * reservation application.
+ * Every call is timed and its failures are counted in the {@link MetricsRegistry}.
  * @see CustomerService
  * @see ReservationService
+ * @see ImportService
  * @author Cláudia Martins
  */
 public final class AdminResource {
@@ -29,23 +42,121 @@ public final class AdminResource {
     private final CustomerService customerService;
 
     /**
-     * The ReservationService instance for managing reservation-related operations
+     * The reservation service for managing reservation-related operations, the singleton
+     * ReservationService unless the application runs on another one (e.g. a ShardedReservationService)
      */
-    private final ReservationService reservationService;
+    private final IReservationService reservationService;
+
+    /**
+     * The ImportService instance for importing data in bulk from files
+     */
+    private final ImportService importService;
+
+    /**
+     * Metrics of the calls of {@link #getCustomer}
+     */
+    private final OperationMetrics getCustomerMetrics;
+
+    /**
+     * Metrics of the calls of {@link #addRoom}
+     */
+    private final OperationMetrics addRoomMetrics;
+
+    /**
+     * Metrics of the calls of {@link #importRooms}
+     */
+    private final OperationMetrics importRoomsMetrics;
+
+    /**
+     * Metrics of the calls of {@link #importCustomers}
+     */
+    private final OperationMetrics importCustomersMetrics;
+
+    /**
+     * Metrics of the calls of {@link #importReservations}
+     */
+    private final OperationMetrics importReservationsMetrics;
+
+    /**
+     * Metrics of the calls of {@link #getAllRooms}
+     */
+    private final OperationMetrics getAllRoomsMetrics;
+
+    /**
+     * Metrics of the calls of {@link #getAllCustomers}
+     */
+    private final OperationMetrics getAllCustomersMetrics;
+
+    /**
+     * Metrics of the calls of {@link #findCustomers}
+     */
+    private final OperationMetrics findCustomersMetrics;
+
+    /**
+     * Metrics of the calls of {@link #getAllReservations}
+     */
+    private final OperationMetrics getAllReservationsMetrics;
+
+    /**
+     * Metrics of the calls of {@link #streamAllRooms}
+     */
+    private final OperationMetrics streamAllRoomsMetrics;
+
+    /**
+     * Metrics of the calls of {@link #streamAllCustomers}
+     */
+    private final OperationMetrics streamAllCustomersMetrics;
+
+    /**
+     * Metrics of the calls of {@link #streamAllReservations}
+     */
+    private final OperationMetrics streamAllReservationsMetrics;
+
+    /**
+     * Metrics of the calls of {@link #getCustomerReservations}
+     */
+    private final OperationMetrics getCustomerReservationsMetrics;
+
+    /**
+     * Metrics of the calls of {@link #getOccupancyReport}
+     */
+    private final OperationMetrics getOccupancyReportMetrics;
+
+    /**
+     * Metrics of the calls of {@link #archiveReservations}
+     */
+    private final OperationMetrics archiveReservationsMetrics;
 
     /**
      * Private constructor to prevent instantiation from outside the class
      */
     private AdminResource() {
         this.customerService = CustomerService.getInstance();
-        this.reservationService = ReservationService.getInstance();
+        this.reservationService = ReservationService.getActiveService();
+        this.importService = ImportService.getInstance();
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.getCustomerMetrics = metrics.operation("admin_resource", "getCustomer");
+        this.addRoomMetrics = metrics.operation("admin_resource", "addRoom");
+        this.importRoomsMetrics = metrics.operation("admin_resource", "importRooms");
+        this.importCustomersMetrics = metrics.operation("admin_resource", "importCustomers");
+        this.importReservationsMetrics = metrics.operation("admin_resource", "importReservations");
+        this.getAllRoomsMetrics = metrics.operation("admin_resource", "getAllRooms");
+        this.getAllCustomersMetrics = metrics.operation("admin_resource", "getAllCustomers");
+        this.findCustomersMetrics = metrics.operation("admin_resource", "findCustomers");
+        this.getAllReservationsMetrics = metrics.operation("admin_resource", "getAllReservations");
+        this.streamAllRoomsMetrics = metrics.operation("admin_resource", "streamAllRooms");
+        this.streamAllCustomersMetrics = metrics.operation("admin_resource", "streamAllCustomers");
+        this.streamAllReservationsMetrics = metrics.operation("admin_resource", "streamAllReservations");
+        this.getCustomerReservationsMetrics = metrics.operation("admin_resource", "getCustomerReservations");
+        this.getOccupancyReportMetrics = metrics.operation("admin_resource", "getOccupancyReport");
+        this.archiveReservationsMetrics = metrics.operation("admin_resource", "archiveReservations");
     }
 
     /**
      * Provides access to the singleton instance of AdminResource
      * @return the singleton instance of AdminResource
      */
-    public static AdminResource getInstance() {
+    public static synchronized AdminResource getInstance() {
         if (ADMIN_RESOURCE == null) {
             ADMIN_RESOURCE = new AdminResource();
         }
@@ -58,40 +169,115 @@ public final class AdminResource {
      * @return the Customer associated with the given email
      */
     public Customer getCustomer(String email) {
-        return customerService.getCustomer(email);
+        return this.getCustomerMetrics.time(() -> this.customerService.getCustomer(email));
     }
 
     /**
-     * Adds a list of rooms to the hotel
+     * Adds a list of rooms to the hotel, all at once. The rooms whose room number is new are added even
+     * when some of the others already exist.
      * @param rooms: the list of rooms to be added
+     * @throws IllegalArgumentException if a room with the room number of one of the rooms already exists
      */
     public void addRoom(List<IRoom> rooms) {
-        for (IRoom room : rooms) {
-            this.reservationService.addRoom(room);
-        }
+        this.addRoomMetrics.time(() -> {
+            List<IRoom> rejectedRooms = this.reservationService.addRooms(rooms);
+            if (!rejectedRooms.isEmpty()) {
+                throw new IllegalArgumentException("A room with room number "
+                        + rejectedRooms.get(0).getRoomNumber() + " already exists.");
+            }
+        });
     }
 
     /**
-     * Retrieves all rooms
-     * @return a Collection of all rooms
+     * Imports rooms in bulk from a CSV or TSV file
+     * @param file: the file, with the room number, price and room type of a room in each row
+     * @return the report of the import, listing the rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importRooms(Path file) throws IOException {
+        return this.importRoomsMetrics.time(() -> this.importService.importRooms(file));
+    }
+
+    /**
+     * Imports customers in bulk from a CSV or TSV file
+     * @param file: the file, with the email, first name and last name of a customer in each row
+     * @return the report of the import, listing the rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importCustomers(Path file) throws IOException {
+        return this.importCustomersMetrics.time(() -> this.importService.importCustomers(file));
+    }
+
+    /**
+     * Imports reservations in bulk from a CSV or TSV file
+     * @param file: the file, with the customer email, room number, check-in date and check-out date of a
+     *            reservation in each row
+     * @return the report of the import, listing the rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importReservations(Path file) throws IOException {
+        return this.importReservationsMetrics.time(() -> this.importService.importReservations(file));
+    }
+
+    /**
+     * Retrieves all rooms, without copying nor sorting them
+     * @return an immutable Collection of all rooms, sorted by room number
      */
     public Collection<IRoom> getAllRooms() {
-        return this.reservationService.getAllRooms();
+        return this.getAllRoomsMetrics.time(() -> this.reservationService.getAllRooms());
     }
 
     /**
      * Retrieves all customers
-     * @return a Collection of all customers
+     * @return a Collection of all customers, sorted by full name
      */
     public Collection<Customer> getAllCustomers() {
-        return this.customerService.getAllCustomers();
+        return this.getAllCustomersMetrics.time(() -> this.customerService.getAllCustomers());
+    }
+
+    /**
+     * Finds the customers whose last name, first name or email starts with a prefix, e.g. to suggest them
+     * as their name is being typed
+     * @param prefix: the prefix, in any case and with or without accents
+     * @param limit: the maximum number of customers returned
+     * @return the customers found, sorted by the name or email that matched, at most limit of them
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public List<Customer> findCustomers(String prefix, int limit) {
+        return this.findCustomersMetrics.time(() -> this.customerService.findCustomers(prefix, limit));
+    }
+
+    /**
+     * Retrieves all reservations
+     * @return a list of all reservations, sorted by room number and then by check-in date
+     */
+    public List<Reservation> getAllReservations() {
+        return this.getAllReservationsMetrics.time(() -> this.reservationService.getAllReservationsSorted());
     }
 
     /**
-     * Displays all reservations
+     * Streams all rooms, e.g. to render them page by page
+     * @return a stream of all rooms, sorted by room number
      */
-    public void displayAllReservations() {
-        this.reservationService.printAllReservation();
+    public Stream<IRoom> streamAllRooms() {
+        return this.streamAllRoomsMetrics.time(() -> this.reservationService.getAllRooms().stream());
+    }
+
+    /**
+     * Streams all customers, e.g. to render them page by page
+     * @return a stream of all customers, sorted by full name
+     */
+    public Stream<Customer> streamAllCustomers() {
+        return this.streamAllCustomersMetrics.time(() -> this.customerService.getAllCustomers().stream());
+    }
+
+    /**
+     * Streams all reservations, e.g. to render them page by page. The reservations of each room are
+     * read as the stream is consumed.
+     * @return a stream of all reservations, sorted by room number and then by check-in date
+     */
+    public Stream<Reservation> streamAllReservations() {
+        return this.streamAllReservationsMetrics.time(() -> this.reservationService.streamAllReservationsSorted());
     }
 
     /**
@@ -100,6 +286,31 @@ public final class AdminResource {
      * @return a collection of the reservations the customer has made
      */
     public Collection<Reservation> getCustomerReservations(Customer customer) {
-        return this.reservationService.getCustomersReservation(customer);
+        return this.getCustomerReservationsMetrics.time(
+                () -> this.reservationService.getCustomersReservation(customer));
+    }
+
+    /**
+     * Retrieves how many rooms are booked on each night of a range
+     * @param firstNight: the date of the first night of the range
+     * @param lastNight: the date of the last night of the range (inclusive)
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the occupancy report of the range
+     * @throws IllegalArgumentException if the last night is before the first one or the range is too long
+     */
+    public OccupancyReport getOccupancyReport(LocalDate firstNight, LocalDate lastNight, RoomType roomType) {
+        return this.getOccupancyReportMetrics.time(
+                () -> this.reservationService.getOccupancyReport(firstNight, lastNight, roomType));
+    }
+
+    /**
+     * Archives the stays that checked out before a given date, moving them out of the heap. They are still
+     * listed and taken into account by the bookings.
+     * @param beforeDate: the date before which the stays checked out
+     * @return the number of reservations archived
+     * @throws IllegalArgumentException if the date is after today
+     */
+    public int archiveReservations(LocalDate beforeDate) {
+        return this.archiveReservationsMetrics.time(() -> this.reservationService.archiveReservations(beforeDate));
     }
 }
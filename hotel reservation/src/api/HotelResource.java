@@ -1,18 +1,27 @@
 package api;
 
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+import model.BookingRequest;
 import model.Customer;
 import model.IRoom;
 import model.Reservation;
+import model.RoomSearch;
+import model.RoomType;
+import service.BookingConflictException;
 import service.CustomerService;
+import service.IReservationService;
 import service.ReservationService;
 
+import java.time.LocalDate;
 import java.util.Collection;
-import java.util.Date;
+import java.util.List;
 
 /**
  * Singleton class that provides an interface for hotel-related operations,
  * such as managing customers and reservations in a hotel reservation
- * application
+ * application.
+ * Every call is timed and its failures are counted in the {@link MetricsRegistry}.
  * @see CustomerService
  * @see ReservationService
  * @author Cláudia Martins
@@ -30,16 +39,78 @@ public final class HotelResource {
     private final CustomerService customerService;
 
     /**
-     * The ReservationService instance for managing reservation-related operations
+     * The reservation service for managing reservation-related operations, the singleton
+     * ReservationService unless the application runs on another one (e.g. a ShardedReservationService)
      */
-    private final ReservationService reservationService;
+    private final IReservationService reservationService;
+
+    /**
+     * Metrics of the calls of {@link #getCustomer}
+     */
+    private final OperationMetrics getCustomerMetrics;
+
+    /**
+     * Metrics of the calls of {@link #createACustomer}
+     */
+    private final OperationMetrics createACustomerMetrics;
+
+    /**
+     * Metrics of the calls of {@link #getRoom}
+     */
+    private final OperationMetrics getRoomMetrics;
+
+    /**
+     * Metrics of the calls of {@link #bookARoom}
+     */
+    private final OperationMetrics bookARoomMetrics;
+
+    /**
+     * Metrics of the calls of {@link #bookRooms}
+     */
+    private final OperationMetrics bookRoomsMetrics;
+
+    /**
+     * Metrics of the calls of {@link #cancelReservation}
+     */
+    private final OperationMetrics cancelReservationMetrics;
+
+    /**
+     * Metrics of the calls of {@link #modifyReservation}
+     */
+    private final OperationMetrics modifyReservationMetrics;
+
+    /**
+     * Metrics of the calls of {@link #findARoom}
+     */
+    private final OperationMetrics findARoomMetrics;
+
+    /**
+     * Metrics of the calls of {@link #searchRooms}
+     */
+    private final OperationMetrics searchRoomsMetrics;
+
+    /**
+     * Metrics of the calls of {@link #findEarliestCheckIn}
+     */
+    private final OperationMetrics findEarliestCheckInMetrics;
 
     /**
      * Private constructor to prevent instantiation from outside the class
      */
     private HotelResource() {
         this.customerService = CustomerService.getInstance();
-        this.reservationService = ReservationService.getInstance();
+        this.reservationService = ReservationService.getActiveService();
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.getCustomerMetrics = metrics.operation("hotel_resource", "getCustomer");
+        this.createACustomerMetrics = metrics.operation("hotel_resource", "createACustomer");
+        this.getRoomMetrics = metrics.operation("hotel_resource", "getRoom");
+        this.bookARoomMetrics = metrics.operation("hotel_resource", "bookARoom");
+        this.bookRoomsMetrics = metrics.operation("hotel_resource", "bookRooms");
+        this.cancelReservationMetrics = metrics.operation("hotel_resource", "cancelReservation");
+        this.modifyReservationMetrics = metrics.operation("hotel_resource", "modifyReservation");
+        this.findARoomMetrics = metrics.operation("hotel_resource", "findARoom");
+        this.searchRoomsMetrics = metrics.operation("hotel_resource", "searchRooms");
+        this.findEarliestCheckInMetrics = metrics.operation("hotel_resource", "findEarliestCheckIn");
     }
 
     /**
@@ -60,7 +131,7 @@ public final class HotelResource {
      * such customer exists
      */
     public Customer getCustomer(String email) {
-        return this.customerService.getCustomer(email);
+        return this.getCustomerMetrics.time(() -> this.customerService.getCustomer(email));
     }
 
     /**
@@ -70,7 +141,7 @@ public final class HotelResource {
      * @param lastName: the last name of the customer
      */
     public void createACustomer(String email, String firstName, String lastName) {
-        this.customerService.addCustomer(email, firstName, lastName);
+        this.createACustomerMetrics.time(() -> this.customerService.addCustomer(email, firstName, lastName));
     }
 
     /**
@@ -80,7 +151,7 @@ public final class HotelResource {
      * room exists
      */
     public IRoom getRoom(String roomNumber) {
-        return this.reservationService.getARoom(roomNumber);
+        return this.getRoomMetrics.time(() -> this.reservationService.getARoom(roomNumber));
     }
 
     /**
@@ -92,8 +163,45 @@ public final class HotelResource {
      * @param checkOutDate: the check-out date for the reservation
      * @return the reservation
      */
-    public Reservation bookARoom(String customerEmail, IRoom room, Date checkInDate, Date checkOutDate) {
-        return this.reservationService.reserveARoom(this.getCustomer(customerEmail), room, checkInDate, checkOutDate);
+    public Reservation bookARoom(String customerEmail, IRoom room, LocalDate checkInDate, LocalDate checkOutDate) {
+        return this.bookARoomMetrics.time(() -> this.reservationService.reserveARoom(
+                this.customerService.getCustomer(customerEmail), room, checkInDate, checkOutDate));
+    }
+
+    /**
+     * Books several rooms at once (e.g. for a group or event), either all of them or none
+     * @param requests: the booking requests
+     * @return the reservations, in the order of the requests
+     * @throws BookingConflictException if any of the requests cannot be made, reporting all of them
+     */
+    public List<Reservation> bookRooms(List<BookingRequest> requests) {
+        return this.bookRoomsMetrics.time(() -> this.reservationService.reserveRooms(requests));
+    }
+
+    /**
+     * Cancels a reservation
+     * @param reservation: the reservation to be cancelled
+     * @return the cancelled reservation
+     * @throws IllegalArgumentException if the reservation does not exist or was archived
+     */
+    public Reservation cancelReservation(Reservation reservation) {
+        return this.cancelReservationMetrics.time(() -> this.reservationService.cancelReservation(reservation));
+    }
+
+    /**
+     * Moves a reservation to another room and/or other dates, if the room is available for them
+     * @param reservation: the reservation to be modified
+     * @param room: the room the reservation is moved to
+     * @param checkInDate: the new check-in date
+     * @param checkOutDate: the new check-out date
+     * @return the modified reservation, which replaces the given one
+     * @throws IllegalArgumentException if the reservation does not exist or the room is already reserved for
+     * the new dates
+     */
+    public Reservation modifyReservation(Reservation reservation, IRoom room, LocalDate checkInDate,
+                                         LocalDate checkOutDate) {
+        return this.modifyReservationMetrics.time(
+                () -> this.reservationService.modifyReservation(reservation, room, checkInDate, checkOutDate));
     }
 
     /**
@@ -102,7 +210,30 @@ public final class HotelResource {
      * @param checkOut: the check-out date for the reservation
      * @return a Collection of available rooms between the two dates
      */
-    public Collection<IRoom> findARoom(Date checkIn, Date checkOut) {
-        return this.reservationService.getAvailableRooms(checkIn, checkOut);
+    public Collection<IRoom> findARoom(LocalDate checkIn, LocalDate checkOut) {
+        return this.findARoomMetrics.time(() -> this.reservationService.getAvailableRooms(checkIn, checkOut));
+    }
+
+    /**
+     * Searches for rooms by type, price range and whether they are free, optionally only among the rooms
+     * available between two dates
+     * @param search: the criteria of the search
+     * @return the rooms found, sorted by price and then by room number, at most the limit of the search
+     */
+    public List<IRoom> searchRooms(RoomSearch search) {
+        return this.searchRoomsMetrics.time(() -> this.reservationService.searchRooms(search));
+    }
+
+    /**
+     * Finds the earliest check-in date on or after a given date at which a stay of a given number of nights
+     * is available in some room, optionally of a given type
+     * @param fromDate: the earliest acceptable check-in date
+     * @param nights: the number of nights of the stay
+     * @param roomType: the type of the room, or null for any type
+     * @return the earliest check-in date, or null if there is no room (of the given type)
+     */
+    public LocalDate findEarliestCheckIn(LocalDate fromDate, int nights, RoomType roomType) {
+        return this.findEarliestCheckInMetrics.time(
+                () -> this.reservationService.findEarliestCheckIn(fromDate, nights, roomType));
     }
 }
@@ -0,0 +1,182 @@
+package events;
+
+import metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Singleton bus the domain events of the application are published to, so that other components (e.g.
+ * housekeeping, billing or channel managers) can react to them without slowing down the operations.
+ * Publishing an event never blocks: it is only added to a bounded queue of pending events, or dropped
+ * (and counted) if the queue is full. A dispatcher thread drains the queue in batches of up to
+ * {@link #MAX_BATCH_SIZE} events and hands each batch to a {@link SubmissionPublisher}, which keeps a
+ * bounded buffer of {@link #SUBSCRIBER_BUFFER_CAPACITY} batches per subscriber and delivers them as the
+ * subscriber requests them. The dispatcher never waits for a subscriber: a batch that finds the buffer of
+ * a subscriber full is dropped (and counted) for that subscriber only, so a subscriber that falls behind
+ * loses events while the others keep receiving all of them.
+ * Events are delivered in the order they were published, and only once somebody has subscribed.
+ * @see HotelEvent
+ * @author Cláudia Martins
+ */
+public final class EventBus implements Flow.Publisher<List<HotelEvent>> {
+
+    /**
+     * Singleton instance of EventBus
+     */
+    private static EventBus EVENT_BUS;
+
+    /**
+     * Maximum number of events waiting to be dispatched
+     */
+    private static final int PENDING_CAPACITY = 1 << 16;
+
+    /**
+     * Maximum number of events handed to the subscribers at once
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    /**
+     * Maximum number of batches buffered for each subscriber
+     */
+    private static final int SUBSCRIBER_BUFFER_CAPACITY = Flow.defaultBufferSize();
+
+    /**
+     * Events waiting to be dispatched
+     */
+    private final BlockingQueue<HotelEvent> pendingEvents;
+
+    /**
+     * Publisher that buffers the batches of each subscriber and delivers them
+     */
+    private final SubmissionPublisher<List<HotelEvent>> publisher;
+
+    /**
+     * Thread that drains the pending events and hands them to the publisher
+     */
+    private final ExecutorService dispatcher;
+
+    /**
+     * Number of events dropped, either because the queue was full or for a subscriber that fell behind
+     */
+    private final LongAdder droppedEvents;
+
+    /**
+     * Whether anybody ever subscribed, so that no event is queued before then
+     */
+    private volatile boolean subscribed;
+
+    /**
+     * Private constructor to prevent outside instantiation, starting the dispatcher thread
+     */
+    private EventBus() {
+        this.pendingEvents = new ArrayBlockingQueue<>(PENDING_CAPACITY);
+        this.publisher = new SubmissionPublisher<>(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "event-subscriber");
+            thread.setDaemon(true);
+            return thread;
+        }), SUBSCRIBER_BUFFER_CAPACITY);
+        this.droppedEvents = new LongAdder();
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher.execute(this::dispatch);
+        MetricsRegistry.getInstance().gauge("hotel_events_pending", "Number of events waiting to be dispatched.",
+                this.pendingEvents::size);
+        MetricsRegistry.getInstance().gauge("hotel_events_dropped", "Number of events dropped.",
+                this.droppedEvents::sum);
+    }
+
+    /**
+     * Retrieves the singleton instance of EventBus, creating it first if it does not yet exist
+     * @return the singleton instance of EventBus
+     */
+    public static synchronized EventBus getInstance() {
+        if (EVENT_BUS == null) {
+            EVENT_BUS = new EventBus();
+        }
+        return EVENT_BUS;
+    }
+
+    /**
+     * Subscribes to the events published from now on, delivered in batches
+     * @param subscriber: the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<HotelEvent>> subscriber) {
+        this.publisher.subscribe(subscriber);
+        this.subscribed = true;
+    }
+
+    /**
+     * Publishes an event, without blocking
+     * @param event: the event
+     */
+    public void publish(HotelEvent event) {
+        if (this.subscribed && !this.pendingEvents.offer(event)) {
+            this.droppedEvents.increment();
+        }
+    }
+
+    /**
+     * Publishes several events, without blocking
+     * @param events: the events, in order
+     */
+    public void publishAll(Collection<? extends HotelEvent> events) {
+        if (!this.subscribed) {
+            return;
+        }
+        for (HotelEvent event : events) {
+            if (!this.pendingEvents.offer(event)) {
+                this.droppedEvents.increment();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of events waiting to be dispatched
+     * @return the number of pending events
+     */
+    public int getPendingEventCount() {
+        return this.pendingEvents.size();
+    }
+
+    /**
+     * Retrieves the number of events dropped so far, counting each subscriber a dropped batch was meant for
+     * @return the number of dropped events
+     */
+    public long getDroppedEventCount() {
+        return this.droppedEvents.sum();
+    }
+
+    /**
+     * Drains the pending events in batches and hands them to the subscribers, until the dispatcher is
+     * interrupted
+     */
+    private void dispatch() {
+        try {
+            while (true) {
+                List<HotelEvent> batch = new ArrayList<>(MAX_BATCH_SIZE);
+                batch.add(this.pendingEvents.take());
+                this.pendingEvents.drainTo(batch, MAX_BATCH_SIZE - 1);
+                this.publisher.offer(Collections.unmodifiableList(batch), (subscriber, droppedBatch) -> {
+                    this.droppedEvents.add(droppedBatch.size());
+                    return false;
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
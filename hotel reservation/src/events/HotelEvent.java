@@ -0,0 +1,52 @@
+package events;
+
+import model.Customer;
+import model.IRoom;
+import model.Reservation;
+
+/**
+ * Domain event of the hotel reservation application, published once a change has been made (and
+ * recorded in the write-ahead log, when there is one).
+ * Can be a {@link CustomerAdded}, a {@link RoomAdded}, a {@link RoomReserved}, a
+ * {@link ReservationCancelled} or a {@link ReservationModified} event.
+ * @see EventBus
+ * @author Cláudia Martins
+ */
+public sealed interface HotelEvent {
+
+    /**
+     * Event of a customer being added
+     * @param customer: the customer added
+     */
+    record CustomerAdded(Customer customer) implements HotelEvent {
+    }
+
+    /**
+     * Event of a room being added
+     * @param room: the room added
+     */
+    record RoomAdded(IRoom room) implements HotelEvent {
+    }
+
+    /**
+     * Event of a room being reserved, published for each of the rooms of a batch of bookings as well
+     * @param reservation: the reservation made
+     */
+    record RoomReserved(Reservation reservation) implements HotelEvent {
+    }
+
+    /**
+     * Event of a reservation being cancelled
+     * @param reservation: the reservation cancelled
+     */
+    record ReservationCancelled(Reservation reservation) implements HotelEvent {
+    }
+
+    /**
+     * Event of a reservation being moved to another room or other dates
+     * @param previous: the reservation as it was
+     * @param modified: the reservation that replaced it
+     */
+    record ReservationModified(Reservation previous, Reservation modified) implements HotelEvent {
+    }
+}
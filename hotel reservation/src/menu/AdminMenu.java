@@ -3,9 +3,18 @@ package menu;
 import api.AdminResource;
 import api.HotelResource;
 import model.*;
+import report.Listing;
+import report.ReportWriter;
+import service.ImportReport;
+import service.OccupancyReport;
+import utils.DateFormatter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Singleton class that handles the admin menu interactions in a hotel
@@ -15,6 +24,11 @@ import java.util.concurrent.TimeUnit;
  */
 public final class AdminMenu {
 
+    /**
+     * Number of records shown on the console before asking whether to show more
+     */
+    private static final int PAGE_SIZE = 50;
+
     /**
      * The singleton instance of AdminMenu
      */
@@ -31,6 +45,10 @@ public final class AdminMenu {
      * Scanner for reading user input
      */
     private final Scanner scanner;
+    /**
+     * Buffered writer of the listings shown on the console
+     */
+    private final ReportWriter console;
 
     /**
      * Private constructor to prevent instantiation from outside the class
@@ -41,6 +59,7 @@ public final class AdminMenu {
         this.scanner = sc;
         this.hotelResource = HotelResource.getInstance();
         this.adminResource = AdminResource.getInstance();
+        this.console = ReportWriter.toConsole();
     }
 
     /**
@@ -100,6 +119,22 @@ public final class AdminMenu {
                         handleRoomCreation();
                         break;
                     }
+                    case IMPORT: {
+                        handleImport();
+                        break;
+                    }
+                    case EXPORT: {
+                        handleExport();
+                        break;
+                    }
+                    case SEE_OCCUPANCY: {
+                        showOccupancy();
+                        break;
+                    }
+                    case ARCHIVE: {
+                        handleArchive();
+                        break;
+                    }
                     case POPULATE: {
                         System.out.println("Populating the hotel with test " +
                                 "data...");
@@ -130,39 +165,48 @@ public final class AdminMenu {
      * Displays the list of all customers
      */
     private void showCustomerList() {
-        System.out.println("\n--- CUSTOMER LIST ---");
-        Collection<Customer> allCustomers = this.adminResource.getAllCustomers();
-        if (allCustomers.isEmpty()) {
-            System.out.println("No customers to show.");
-        } else {
-            for (Customer customer : allCustomers) {
-                System.out.println(customer);
-            }
-        }
-        System.out.println("--- END CUSTOMER LIST ---\n");
+        showListing(Listing.customers(this.adminResource.streamAllCustomers()));
     }
 
     /**
      * Displays the list of all rooms
      */
     private void showRoomList() {
-        System.out.println("\n--- ROOM LIST ---");
-        Collection<IRoom> allRooms = this.adminResource.getAllRooms();
-        if (allRooms.isEmpty()) {
-            System.out.println("No rooms to show.");
-        } else {
-            for (IRoom room : allRooms) {
-                System.out.println(room);
-            }
-        }
-        System.out.println("--- END ROOM LIST ---\n");
+        showListing(Listing.rooms(this.adminResource.streamAllRooms()));
     }
 
     /**
      * Displays all reservations
      */
     private void showReservations() {
-        this.adminResource.displayAllReservations();
+        showListing(Listing.reservations(this.adminResource.streamAllReservations()));
+    }
+
+    /**
+     * Displays a listing on the console page by page, asking after each page whether to show the next
+     * one, all the remaining ones or to stop
+     *
+     * @param listing: the listing to be displayed
+     */
+    private void showListing(Listing<?> listing) {
+        listing.writeHeader(this.console);
+        int pageSize = PAGE_SIZE;
+        while (listing.hasNext()) {
+            listing.writePage(this.console, pageSize);
+            if (pageSize == PAGE_SIZE && listing.hasNext()) {
+                this.console.flush();
+                System.out.println("Shown " + listing.getWrittenCount() + " records. Enter n for the next "
+                        + "page, a for all the remaining ones or q to stop:");
+                String answer = this.scanner.next().trim().toLowerCase(Locale.ROOT);
+                if (answer.equals("q")) {
+                    break;
+                } else if (answer.equals("a")) {
+                    pageSize = Integer.MAX_VALUE;
+                }
+            }
+        }
+        listing.writeFooter(this.console);
+        this.console.flush();
     }
 
     /**
@@ -257,6 +301,136 @@ public final class AdminMenu {
         }
     }
 
+    /**
+     * Handles the import of rooms, customers or reservations from a CSV or TSV file
+     */
+    private void handleImport() {
+        System.out.println("\n--- IMPORT ---");
+        System.out.println("What do you wish to import?\n1. Rooms (room number, price, type)\n"
+                + "2. Customers (email, first name, last name)\n"
+                + "3. Reservations (email, room number, check-in, check-out)");
+        int typeNumber = 0;
+        try {
+            typeNumber = this.scanner.hasNextInt() ? this.scanner.nextInt()
+                    : Integer.parseInt(this.scanner.next());
+        } catch (NumberFormatException e) {
+            System.out.println("Selection must be a number.");
+            handleImport();
+            return;
+        }
+        if (typeNumber < 1 || typeNumber > 3) {
+            System.out.println("Invalid choice. Please select a number from the list (1-3).");
+            handleImport();
+            return;
+        }
+
+        System.out.println("Please insert the path of the CSV or TSV file:");
+        String path = this.scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            path = this.scanner.nextLine().trim();
+        }
+        try {
+            Path file = Path.of(path);
+            ImportReport report = switch (typeNumber) {
+                case 1 -> this.adminResource.importRooms(file);
+                case 2 -> this.adminResource.importCustomers(file);
+                default -> this.adminResource.importReservations(file);
+            };
+            System.out.println(report);
+        } catch (InvalidPathException | IOException e) {
+            System.out.println("The file " + path + " cannot be read: " + e.getLocalizedMessage());
+        }
+        System.out.println("--- END IMPORT ---\n");
+    }
+
+    /**
+     * Handles the export of the customers, rooms or reservations to a file
+     */
+    private void handleExport() {
+        System.out.println("\n--- EXPORT ---");
+        System.out.println("What do you wish to export?\n1. Customers\n2. Rooms\n3. Reservations");
+        int typeNumber = 0;
+        try {
+            typeNumber = this.scanner.hasNextInt() ? this.scanner.nextInt()
+                    : Integer.parseInt(this.scanner.next());
+        } catch (NumberFormatException e) {
+            System.out.println("Selection must be a number.");
+            handleExport();
+            return;
+        }
+        if (typeNumber < 1 || typeNumber > 3) {
+            System.out.println("Invalid choice. Please select a number from the list (1-3).");
+            handleExport();
+            return;
+        }
+
+        System.out.println("Please insert the path of the file:");
+        String path = this.scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            path = this.scanner.nextLine().trim();
+        }
+        long startNanos = System.nanoTime();
+        try (ReportWriter file = ReportWriter.toFile(Path.of(path))) {
+            Listing<?> listing = switch (typeNumber) {
+                case 1 -> Listing.customers(this.adminResource.streamAllCustomers());
+                case 2 -> Listing.rooms(this.adminResource.streamAllRooms());
+                default -> Listing.reservations(this.adminResource.streamAllReservations());
+            };
+            long count = listing.writeAll(file);
+            System.out.println("Exported " + count + " records to " + path + " in "
+                    + (System.nanoTime() - startNanos) / 1_000_000 + " ms.");
+        } catch (InvalidPathException | IOException | UncheckedIOException e) {
+            System.out.println("The file " + path + " cannot be written: " + e.getLocalizedMessage());
+        }
+        System.out.println("--- END EXPORT ---\n");
+    }
+
+    /**
+     * Displays how many rooms are booked on each night of a range, with the total room-nights and the
+     * busiest night
+     */
+    private void showOccupancy() {
+        System.out.println("\n--- OCCUPANCY ---");
+        try {
+            System.out.println("Please enter the first night (YYYY/MM/DD):");
+            LocalDate firstNight = DateFormatter.getDate(this.scanner.next());
+            System.out.println("Please enter the last night (YYYY/MM/DD):");
+            LocalDate lastNight = DateFormatter.getDate(this.scanner.next());
+            System.out.println("Please select the room type:\n1. Single room\n2. Double room\n3. Any room");
+            int typeNumber = this.scanner.hasNextInt() ? this.scanner.nextInt()
+                    : Integer.parseInt(this.scanner.next());
+            if (typeNumber < 1 || typeNumber > 3) {
+                throw new IllegalArgumentException("Invalid choice. Please select a number from the list (1-3).");
+            }
+            RoomType roomType = typeNumber == 1 ? RoomType.SINGLE : typeNumber == 2 ? RoomType.DOUBLE : null;
+            OccupancyReport report = this.adminResource.getOccupancyReport(firstNight, lastNight, roomType);
+            System.out.println(report);
+        } catch (NumberFormatException e) {
+            System.out.println("Selection must be a number.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        System.out.println("--- END OCCUPANCY ---\n");
+    }
+
+    /**
+     * Handles the archiving of the stays that checked out before a given date
+     */
+    private void handleArchive() {
+        System.out.println("\n--- ARCHIVE ---");
+        try {
+            System.out.println("Archive the stays that checked out before (YYYY/MM/DD):");
+            LocalDate beforeDate = DateFormatter.getDate(this.scanner.next());
+            long startNanos = System.nanoTime();
+            int archivedCount = this.adminResource.archiveReservations(beforeDate);
+            System.out.println("Archived " + archivedCount + " reservations in "
+                    + (System.nanoTime() - startNanos) / 1_000_000 + " ms.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        System.out.println("--- END ARCHIVE ---\n");
+    }
+
     /**
      * Populates the hotel with test data
      */
@@ -270,7 +444,7 @@ public final class AdminMenu {
         this.hotelResource.createACustomer("carol@email.com", "Carol",
                 "Carter");
         System.out.println("--- CREATED CUSTOMERS --- ");
-        this.adminResource.getAllCustomers().forEach(customer -> System.out.println(customer));
+        showCustomerList();
 
         List<IRoom> rooms = new ArrayList<>();
         rooms.add(new Room("101", 50.00, RoomType.SINGLE));
@@ -280,17 +454,15 @@ public final class AdminMenu {
         rooms.add(new Room("202", 25.00, RoomType.SINGLE));
         this.adminResource.addRoom(rooms);
         System.out.println("--- CREATED ROOMS --- ");
-        this.adminResource.getAllRooms().forEach(room -> System.out.println(room));
+        showRoomList();
 
         this.hotelResource.bookARoom("alice@email.com",
                 this.hotelResource.getRoom("101"),
-                new Date(new Date().getTime() + TimeUnit.DAYS.toMillis(30)),
-                new Date(new Date().getTime() + TimeUnit.DAYS.toMillis(33)));
+                LocalDate.now().plusDays(30), LocalDate.now().plusDays(33));
         this.hotelResource.bookARoom("bob@email.com",
                 this.hotelResource.getRoom("103"),
-                new Date(new Date().getTime() + TimeUnit.DAYS.toMillis(31)),
-                new Date(new Date().getTime() + TimeUnit.DAYS.toMillis(41)));
-        this.adminResource.displayAllReservations();
+                LocalDate.now().plusDays(31), LocalDate.now().plusDays(41));
+        showReservations();
 
         System.out.println("--- END POPULATING WITH TEST DATA --- ");
     }
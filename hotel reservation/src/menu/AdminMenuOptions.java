@@ -22,14 +22,30 @@ enum AdminMenuOptions {
      * Option to add a room
      */
     ADD_ROOM(4, "Add a room"),
+    /**
+     * Option to import rooms, customers or reservations from a file
+     */
+    IMPORT(5, "Import data from a file"),
+    /**
+     * Option to export the customers, rooms or reservations to a file
+     */
+    EXPORT(6, "Export a listing to a file"),
+    /**
+     * Option to see how many rooms are booked on each night of a range
+     */
+    SEE_OCCUPANCY(7, "See occupancy per night"),
+    /**
+     * Option to archive the past stays
+     */
+    ARCHIVE(8, "Archive past stays"),
     /**
      * Option to populate with test data
      */
-    POPULATE(5, "Populate with test data"),
+    POPULATE(9, "Populate with test data"),
     /**
      * Option to return to the main menu
      */
-    OPEN_MAIN_MENU(6, "Back to main menu");
+    OPEN_MAIN_MENU(10, "Back to main menu");
 
     /**
      * The numeric code associated with the menu option
@@ -5,13 +5,16 @@ import api.HotelResource;
 import model.Customer;
 import model.IRoom;
 import model.Reservation;
+import model.RoomSearch;
+import model.RoomType;
 import utils.DateFormatter;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Date;
+import java.util.List;
 import java.util.Scanner;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Singleton class that handles the main menu interactions in a hotel
@@ -21,6 +24,11 @@ import java.util.concurrent.TimeUnit;
  */
 public final class MainMenu {
 
+    /**
+     * Maximum number of rooms shown by a room search
+     */
+    private static final int SEARCH_LIMIT = 10;
+
     /**
      * The singleton instance of MainMenu
      */
@@ -153,15 +161,15 @@ public final class MainMenu {
      */
     private void bookARoom(String email) {
         try {
-            Date checkInDate = this.getDate("check-in");
-            Date checkOutDate = this.getDate("check-out");
+            LocalDate checkInDate = this.getDate("check-in");
+            LocalDate checkOutDate = this.getDate("check-out");
 
-            if (checkInDate.after(checkOutDate)) {
+            if (checkInDate.isAfter(checkOutDate)) {
                 throw new IllegalArgumentException("The check-out date has to be " +
                         "later than the check-in date.");
             }
 
-            Date[] effectiveDates = new Date[2];
+            LocalDate[] effectiveDates = new LocalDate[2];
             effectiveDates[0] = checkInDate;
             effectiveDates[1] = checkOutDate;
             IRoom chosenRoom = this.getChosenRoom(checkInDate, checkOutDate, effectiveDates);
@@ -174,20 +182,19 @@ public final class MainMenu {
     }
 
     /**
-     * Prompts the user to enter a date and returns the parsed Date object
+     * Prompts the user to enter a date and returns the parsed LocalDate object
      * 
      * @param type: the type of date to be entered (e.g., "check-in" or
      *              "check-out")
-     * @return the parsed Date object
+     * @return the parsed LocalDate object
      */
-    private Date getDate(String type) {
-        Date date = null;
+    private LocalDate getDate(String type) {
+        LocalDate date = null;
         try {
             System.out.println("Please enter your desired " + type + " date " +
                     "(YYYY/MM/DD):");
             date = DateFormatter.getDate(this.scanner.next());
-            Date now = new Date();
-            if (date.before(now)) {
+            if (date.isBefore(LocalDate.now())) {
                 throw new IllegalArgumentException("Cannot reserve rooms for past" +
                         " dates.");
             }
@@ -203,15 +210,16 @@ public final class MainMenu {
      * 
      * @param checkInDate:    the check-in date for the reservation
      * @param checkOutDate:   the check-out date for the reservation
-     * @param effectiveDates: Date array that stores the effective check-in and
+     * @param effectiveDates: LocalDate array that stores the effective check-in and
      *                        check-out dates
      * @return the selected IRoom object
      */
-    private IRoom getChosenRoom(Date checkInDate, Date checkOutDate, Date[] effectiveDates) {
+    private IRoom getChosenRoom(LocalDate checkInDate, LocalDate checkOutDate, LocalDate[] effectiveDates) {
         System.out.println("""
                 What do you wish to do?\s
                 1. Find an available room\s
-                2. Book a specific room""");
+                2. Book a specific room\s
+                3. Search available rooms by type and price""");
         IRoom chosenRoom = null;
         int choice = 0;
         try {
@@ -236,6 +244,19 @@ public final class MainMenu {
                 chosenRoom = this.hotelResource.getRoom(roomNumber);
                 break;
             }
+            case 3: {
+                List<IRoom> foundRooms = this.hotelResource.searchRooms(this.getRoomSearch(checkInDate, checkOutDate));
+                if (foundRooms.isEmpty()) {
+                    System.out.println("No available rooms match your search.");
+                    return this.getChosenRoom(checkInDate, checkOutDate, effectiveDates);
+                }
+                System.out.println("Matching rooms, from the cheapest:");
+                foundRooms.forEach(room -> System.out.println(room));
+                System.out.println("Please enter the room number you would " +
+                        "like to reserve:");
+                chosenRoom = this.hotelResource.getRoom(this.scanner.next());
+                break;
+            }
             default: {
                 System.out.println("Invalid choice. Please choose one of the " +
                         "available options");
@@ -251,41 +272,71 @@ public final class MainMenu {
         return chosenRoom;
     }
 
+    /**
+     * Prompts the user for the type, price and whether the room should be free, and returns the search for
+     * the rooms available between two dates that match them
+     *
+     * @param checkInDate:  the check-in date for the reservation
+     * @param checkOutDate: the check-out date for the reservation
+     * @return the room search
+     */
+    private RoomSearch getRoomSearch(LocalDate checkInDate, LocalDate checkOutDate) {
+        try {
+            System.out.println("Please select the room type:\n1. Single room\n2. Double room\n3. Any room");
+            int typeNumber = this.scanner.hasNextInt() ? this.scanner.nextInt()
+                    : Integer.parseInt(this.scanner.next());
+            if (typeNumber < 1 || typeNumber > 3) {
+                throw new IllegalArgumentException("Invalid choice. Please select a number from the list (1-3).");
+            }
+            RoomType roomType = typeNumber == 1 ? RoomType.SINGLE : typeNumber == 2 ? RoomType.DOUBLE : null;
+
+            System.out.println("Only free rooms? (y/n)");
+            boolean freeOnly = this.scanner.next().trim().equalsIgnoreCase("y");
+            Double maxPrice = null;
+            if (!freeOnly) {
+                System.out.println("Please insert the maximum price per night (0 for no maximum):");
+                double price = this.scanner.hasNextDouble() ? this.scanner.nextDouble()
+                        : Double.parseDouble(this.scanner.next());
+                maxPrice = price > 0.0 ? price : null;
+            }
+            return new RoomSearch(checkInDate, checkOutDate, roomType, null, maxPrice, freeOnly, SEARCH_LIMIT);
+        } catch (NumberFormatException e) {
+            System.out.println("Selection must be a number.");
+            return this.getRoomSearch(checkInDate, checkOutDate);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+            return this.getRoomSearch(checkInDate, checkOutDate);
+        }
+    }
+
     /**
      * Retrieves available rooms for the specified check-in and check-out dates.
-     * Updates effectiveDates array with the actual dates rooms were found for.
+     * If there are none, retrieves the rooms available for the earliest stay of the same length that
+     * starts later, and updates effectiveDates array with the actual dates rooms were found for.
      * 
      * @param checkInDate:    the check-in date for the reservation
      * @param checkOutDate:   the check-out date for the reservation
-     * @param effectiveDates: Date array that stores the effective
+     * @param effectiveDates: LocalDate array that stores the effective
      *                        check-in and check-out dates
      * @return a Collection of available rooms
      */
-    private Collection<IRoom> getAvailableRooms(Date checkInDate,
-            Date checkOutDate, Date[] effectiveDates) {
+    private Collection<IRoom> getAvailableRooms(LocalDate checkInDate,
+            LocalDate checkOutDate, LocalDate[] effectiveDates) {
         Collection<IRoom> availableRooms = this.hotelResource.findARoom(checkInDate, checkOutDate);
         if (availableRooms.isEmpty()) {
-            System.out.println("No available rooms for these dates. " +
-                    "How many days out would you like to search?");
-            int daysOut = 7;
-            try {
-                daysOut = this.scanner.hasNextInt() ? this.scanner.nextInt() : Integer.parseInt(this.scanner.next());
-            } catch (NumberFormatException e) {
-                System.out.println("Selection must be a number. Defaulting to 7 days.");
+            int nights = (int) ChronoUnit.DAYS.between(checkInDate, checkOutDate);
+            LocalDate newCheckInDate = this.hotelResource.findEarliestCheckIn(checkInDate, nights, null);
+            if (newCheckInDate == null) {
+                System.out.println("No available rooms for these dates.");
+                return availableRooms;
             }
-
-            if (daysOut < 1) {
-                System.out.println("Days out must be a positive number. " +
-                        "Defaulting to 7 days.");
-                daysOut = 7;
-            }
-            Date newCheckInDate = new Date(checkInDate.getTime() + TimeUnit.DAYS.toMillis(daysOut));
-            Date newCheckOutDate = new Date(checkOutDate.getTime() + TimeUnit.DAYS.toMillis(daysOut));
-
-            System.out.println("Showing available rooms for: " + DateFormatter.formatDate(newCheckInDate)
+            LocalDate newCheckOutDate = newCheckInDate.plusDays(nights);
+            System.out.println("No available rooms for these dates. Showing available rooms for the " +
+                    "earliest dates: " + DateFormatter.formatDate(newCheckInDate)
                     + " - " + DateFormatter.formatDate(newCheckOutDate));
-            return this.getAvailableRooms(newCheckInDate,
-                    newCheckOutDate, effectiveDates);
+            checkInDate = newCheckInDate;
+            checkOutDate = newCheckOutDate;
+            availableRooms = this.hotelResource.findARoom(checkInDate, checkOutDate);
         }
         effectiveDates[0] = checkInDate;
         effectiveDates[1] = checkOutDate;
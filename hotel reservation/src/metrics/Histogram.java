@@ -0,0 +1,110 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies in nanoseconds, in the style of HdrHistogram: values below 128 have a
+ * bucket each, and every power of two above is split in 64 buckets, so any percentile is known with an
+ * error below 1.6% whatever its magnitude, from a fixed array of counters.
+ * Recording a value only increments its bucket and adds it to the sum (plus an update of the maximum
+ * when it grows), without locks nor allocations, so it can be done on every call of a hot path.
+ * Percentiles are computed from a {@link HistogramSnapshot}.
+ *
+ * @author Cláudia Martins
+ */
+public final class Histogram {
+
+    /**
+     * Number of bits of the values that select a bucket within a power of two, plus one
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    /**
+     * Number of buckets, enough for any positive long value
+     */
+    static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+    /**
+     * Number of values recorded in each bucket
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * Sum of the values recorded
+     */
+    private final LongAdder sum;
+
+    /**
+     * Largest value recorded
+     */
+    private final AtomicLong max;
+
+    /**
+     * Constructor for the Histogram class
+     */
+    public Histogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.sum = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a value
+     *
+     * @param nanos: the value, usually a latency in nanoseconds (negative values are recorded as 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        this.counts.getAndIncrement(bucketIndex(value));
+        this.sum.add(value);
+        long currentMax = this.max.get();
+        while (value > currentMax && !this.max.compareAndSet(currentMax, value)) {
+            currentMax = this.max.get();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the values recorded so far. Values recorded while the snapshot is taken may or
+     * may not be included in it.
+     *
+     * @return the snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = this.counts.get(i);
+        }
+        return new HistogramSnapshot(bucketCounts, this.sum.sum(), this.max.get());
+    }
+
+    /**
+     * Retrieves the bucket of a value
+     *
+     * @param value: the value (not negative)
+     * @return the index of the bucket
+     */
+    static int bucketIndex(long value) {
+        if (value < (1L << SUB_BUCKET_BITS)) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * Retrieves the largest value of a bucket
+     *
+     * @param index: the index of the bucket
+     * @return the largest value of the bucket
+     */
+    static long bucketUpperBound(int index) {
+        if (index < (1 << SUB_BUCKET_BITS)) {
+            return index;
+        }
+        int shift = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+        long subBucket = index - ((long) shift << (SUB_BUCKET_BITS - 1));
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,106 @@
+package metrics;
+
+/**
+ * Immutable snapshot of the values recorded in a {@link Histogram}, from which the count, mean, maximum
+ * and percentiles are computed.
+ *
+ * @author Cláudia Martins
+ */
+public final class HistogramSnapshot {
+
+    /**
+     * Number of values recorded in each bucket
+     */
+    private final long[] counts;
+
+    /**
+     * Number of values recorded
+     */
+    private final long count;
+
+    /**
+     * Sum of the values recorded
+     */
+    private final long sum;
+
+    /**
+     * Largest value recorded
+     */
+    private final long max;
+
+    /**
+     * Constructor for the HistogramSnapshot class
+     *
+     * @param counts: the number of values recorded in each bucket (owned by the snapshot from now on)
+     * @param sum: the sum of the values recorded
+     * @param max: the largest value recorded
+     */
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * Retrieves the number of values recorded
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Retrieves the sum of the values recorded
+     *
+     * @return the sum
+     */
+    public long getSum() {
+        return this.sum;
+    }
+
+    /**
+     * Retrieves the mean of the values recorded
+     *
+     * @return the mean, or 0 if no value was recorded
+     */
+    public double getMean() {
+        return this.count == 0 ? 0.0 : (double) this.sum / this.count;
+    }
+
+    /**
+     * Retrieves the largest value recorded
+     *
+     * @return the largest value
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Retrieves a percentile of the values recorded
+     *
+     * @param percentile: the percentile, between 0 and 100
+     * @return the upper bound of the bucket holding the percentile (capped at the largest value), or 0 if
+     * no value was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(Histogram.bucketUpperBound(i), this.max);
+            }
+        }
+        return this.max;
+    }
+}
@@ -0,0 +1,194 @@
+package metrics;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the metrics of the hotel reservation application: the {@link OperationMetrics} of the
+ * instrumented operations and gauges whose values are read when the metrics are exported (e.g. the number
+ * of rooms).
+ * The metrics can be exported in the Prometheus text format or as a human-readable text dump.
+ * Implements the singleton design pattern to ensure a single instance is always
+ * returned.
+ *
+ * @author Cláudia Martins
+ */
+public final class MetricsRegistry {
+
+    /**
+     * Percentiles exported for each operation
+     */
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    /**
+     * Number of nanoseconds in a second
+     */
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /**
+     * Singleton instance of MetricsRegistry
+     */
+    private static MetricsRegistry METRICS_REGISTRY;
+
+    /**
+     * Metrics of the operations, by component and operation name
+     */
+    private final Map<String, OperationMetrics> operations;
+
+    /**
+     * Gauges by name
+     */
+    private final Map<String, Gauge> gauges;
+
+    /**
+     * Private constructor to prevent outside instantiation
+     */
+    private MetricsRegistry() {
+        this.operations = new ConcurrentSkipListMap<>();
+        this.gauges = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Retrieves the singleton instance of MetricsRegistry, creating it first if it does not yet exist
+     *
+     * @return the singleton instance of MetricsRegistry
+     */
+    public static synchronized MetricsRegistry getInstance() {
+        if (METRICS_REGISTRY == null) {
+            METRICS_REGISTRY = new MetricsRegistry();
+        }
+        return METRICS_REGISTRY;
+    }
+
+    /**
+     * Retrieves the metrics of an operation, creating them first if they do not yet exist
+     *
+     * @param component: the component of the operation (e.g. "hotel_resource")
+     * @param operation: the name of the operation (e.g. "bookARoom")
+     * @return the metrics of the operation
+     */
+    public OperationMetrics operation(String component, String operation) {
+        return this.operations.computeIfAbsent(component + "." + operation,
+                key -> new OperationMetrics(component, operation));
+    }
+
+    /**
+     * Registers a gauge, replacing the gauge with the same name if there is one
+     *
+     * @param name: the name of the gauge (e.g. "hotel_rooms")
+     * @param help: the description of the gauge
+     * @param value: the supplier of the value of the gauge, called whenever the metrics are exported
+     */
+    public void gauge(String name, String help, LongSupplier value) {
+        this.gauges.put(name, new Gauge(help, value));
+    }
+
+    /**
+     * Retrieves the metrics of all the operations
+     *
+     * @return the metrics of the operations, sorted by component and operation name
+     */
+    public Collection<OperationMetrics> getOperations() {
+        return this.operations.values();
+    }
+
+    /**
+     * Exports the metrics in the Prometheus text format: the latencies of each operation as a summary, in
+     * seconds, whose count is the number of calls, the failed calls as a counter and the gauges
+     *
+     * @return the metrics in the Prometheus text format
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder()
+                .append("# HELP hotel_operation_latency_seconds Latency of the calls of each operation.\n")
+                .append("# TYPE hotel_operation_latency_seconds summary\n");
+        StringBuilder errors = new StringBuilder()
+                .append("# HELP hotel_operation_errors_total Calls of each operation that failed, by exception.\n")
+                .append("# TYPE hotel_operation_errors_total counter\n");
+        for (OperationMetrics operation : this.operations.values()) {
+            String labels = "component=\"" + escapeLabel(operation.getComponent()) + "\",operation=\""
+                    + escapeLabel(operation.getOperation()) + "\"";
+            HistogramSnapshot latencies = operation.getLatencies();
+            for (double percentile : PERCENTILES) {
+                text.append("hotel_operation_latency_seconds{").append(labels)
+                        .append(",quantile=\"").append(percentile / 100.0).append("\"} ")
+                        .append(latencies.getPercentile(percentile) / NANOS_PER_SECOND).append('\n');
+            }
+            text.append("hotel_operation_latency_seconds_sum{").append(labels).append("} ")
+                    .append(latencies.getSum() / NANOS_PER_SECOND).append('\n')
+                    .append("hotel_operation_latency_seconds_count{").append(labels).append("} ")
+                    .append(latencies.getCount()).append('\n');
+            for (Map.Entry<String, Long> error : operation.getErrors().entrySet()) {
+                errors.append("hotel_operation_errors_total{").append(labels).append(",exception=\"")
+                        .append(escapeLabel(error.getKey())).append("\"} ").append(error.getValue()).append('\n');
+            }
+        }
+        text.append(errors);
+        for (Map.Entry<String, Gauge> gauge : this.gauges.entrySet()) {
+            text.append("# HELP ").append(gauge.getKey()).append(' ').append(gauge.getValue().help()).append('\n')
+                    .append("# TYPE ").append(gauge.getKey()).append(" gauge\n")
+                    .append(gauge.getKey()).append(' ').append(gauge.getValue().value().getAsLong()).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Exports the metrics as a human-readable text dump, with a line per operation and per gauge
+     *
+     * @return the text dump
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder("--- METRICS ").append(Instant.now()).append(" ---")
+                .append(System.lineSeparator())
+                .append(String.format(Locale.ROOT, "%-40s %10s %8s %10s %10s %10s %10s %10s %10s", "operation",
+                        "calls", "errors", "mean", "p50", "p90", "p99", "p99.9", "max (us)"));
+        for (OperationMetrics operation : this.operations.values()) {
+            HistogramSnapshot latencies = operation.getLatencies();
+            Map<String, Long> errors = operation.getErrors();
+            long errorCount = 0;
+            for (long count : errors.values()) {
+                errorCount += count;
+            }
+            text.append(System.lineSeparator())
+                    .append(String.format(Locale.ROOT, "%-40s %10d %8d %10.1f",
+                            operation.getComponent() + "." + operation.getOperation(), latencies.getCount(),
+                            errorCount, latencies.getMean() / 1000.0));
+            for (double percentile : PERCENTILES) {
+                text.append(String.format(Locale.ROOT, " %10.1f", latencies.getPercentile(percentile) / 1000.0));
+            }
+            text.append(String.format(Locale.ROOT, " %10.1f", latencies.getMax() / 1000.0));
+            for (Map.Entry<String, Long> error : errors.entrySet()) {
+                text.append(System.lineSeparator()).append("    ").append(error.getKey()).append(": ")
+                        .append(error.getValue());
+            }
+        }
+        for (Map.Entry<String, Gauge> gauge : this.gauges.entrySet()) {
+            text.append(System.lineSeparator()).append(String.format(Locale.ROOT, "%-40s %10d",
+                    gauge.getKey(), gauge.getValue().value().getAsLong()));
+        }
+        return text.append(System.lineSeparator()).append("--- END METRICS ---").toString();
+    }
+
+    /**
+     * Escapes a label value of the Prometheus text format
+     *
+     * @param value: the label value
+     * @return the escaped label value
+     */
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * A gauge
+     *
+     * @param help: the description of the gauge
+     * @param value: the supplier of the value of the gauge
+     */
+    private record Gauge(String help, LongSupplier value) {
+    }
+}
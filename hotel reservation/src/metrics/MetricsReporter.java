@@ -0,0 +1,87 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background reporter that periodically writes the text dump of the {@link MetricsRegistry} to a file.
+ * The file is replaced atomically, so it always holds a complete dump of the latest metrics.
+ *
+ * @author Cláudia Martins
+ */
+public final class MetricsReporter {
+
+    /**
+     * The file the dump is written to
+     */
+    private final Path file;
+
+    /**
+     * Background thread writing the dump
+     */
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Constructor for the MetricsReporter class, starting to write the dump periodically
+     *
+     * @param file: the file the dump is written to
+     * @param interval: the interval between dumps
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public MetricsReporter(Path file, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("The metrics interval must be positive.");
+        }
+        this.file = file.toAbsolutePath();
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.scheduleWithFixedDelay(this::writeQuietly, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops writing the dump periodically, writing it one last time
+     */
+    public void stop() {
+        this.writer.shutdown();
+        try {
+            this.writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.writeQuietly();
+    }
+
+    /**
+     * Writes the dump, replacing the previous one
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write() throws IOException {
+        Path temporaryFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        Files.writeString(temporaryFile, MetricsRegistry.getInstance().toText() + System.lineSeparator(),
+                StandardCharsets.UTF_8);
+        Files.move(temporaryFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the dump, reporting a failure without stopping the periodic dumps
+     */
+    private void writeQuietly() {
+        try {
+            this.write();
+        } catch (IOException e) {
+            System.out.println("Could not write the metrics to " + this.file + ": " + e.getLocalizedMessage());
+        }
+    }
+}
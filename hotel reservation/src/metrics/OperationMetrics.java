@@ -0,0 +1,176 @@
+package metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of an operation (e.g. a method of a resource): a latency histogram, whose count is the number
+ * of calls, and the number of calls that failed, by exception type.
+ * Operations are instrumented by running the call through {@link #time(TimedCall)} (or
+ * {@link #time(TimedAction)} when it returns nothing), which takes {@link System#nanoTime()} before the
+ * call and records the time elapsed once it is done, after counting the exception if there was one.
+ *
+ * @author Cláudia Martins
+ */
+public final class OperationMetrics {
+
+    /**
+     * The component of the operation (e.g. "hotel_resource")
+     */
+    private final String component;
+
+    /**
+     * The name of the operation (e.g. "bookARoom")
+     */
+    private final String operation;
+
+    /**
+     * Latencies of the calls, in nanoseconds
+     */
+    private final Histogram latencies;
+
+    /**
+     * Number of failed calls, by simple name of the exception type
+     */
+    private final Map<String, LongAdder> errors;
+
+    /**
+     * Constructor for the OperationMetrics class
+     *
+     * @param component: the component of the operation
+     * @param operation: the name of the operation
+     */
+    OperationMetrics(String component, String operation) {
+        this.component = component;
+        this.operation = operation;
+        this.latencies = new Histogram();
+        this.errors = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Runs a call, recording its latency and counting the exception it fails with, if any
+     *
+     * @param call: the call
+     * @return the result of the call
+     * @param <T> the type of the result
+     * @param <E> the type of the checked exception the call can throw
+     * @throws E if the call fails with it
+     */
+    public <T, E extends Exception> T time(TimedCall<T, E> call) throws E {
+        long startNanos = System.nanoTime();
+        try {
+            return call.call();
+        } catch (Exception e) {
+            this.recordError(e);
+            throw e;
+        } finally {
+            this.record(startNanos);
+        }
+    }
+
+    /**
+     * Runs a call that returns nothing, recording its latency and counting the exception it fails with, if any
+     *
+     * @param action: the call
+     * @param <E> the type of the checked exception the call can throw
+     * @throws E if the call fails with it
+     */
+    public <E extends Exception> void time(TimedAction<E> action) throws E {
+        this.time(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Records a call
+     *
+     * @param startNanos: the value of {@link System#nanoTime()} when the call started
+     */
+    public void record(long startNanos) {
+        this.latencies.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Counts a failed call
+     *
+     * @param error: the exception the call failed with
+     */
+    public void recordError(Throwable error) {
+        this.errors.computeIfAbsent(error.getClass().getSimpleName(), key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Retrieves the component of the operation
+     *
+     * @return the component
+     */
+    public String getComponent() {
+        return this.component;
+    }
+
+    /**
+     * Retrieves the name of the operation
+     *
+     * @return the name
+     */
+    public String getOperation() {
+        return this.operation;
+    }
+
+    /**
+     * Takes a snapshot of the latencies of the calls
+     *
+     * @return the snapshot, in nanoseconds
+     */
+    public HistogramSnapshot getLatencies() {
+        return this.latencies.snapshot();
+    }
+
+    /**
+     * Retrieves the number of failed calls by exception type
+     *
+     * @return the number of failed calls by simple name of the exception type, sorted by name
+     */
+    public Map<String, Long> getErrors() {
+        Map<String, Long> errorCounts = new TreeMap<>();
+        this.errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+        return errorCounts;
+    }
+
+    /**
+     * Call timed by {@link #time(TimedCall)}
+     *
+     * @param <T> the type of the result
+     * @param <E> the type of the checked exception the call can throw
+     */
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+
+        /**
+         * Makes the call
+         *
+         * @return the result of the call
+         * @throws E if the call fails
+         */
+        T call() throws E;
+    }
+
+    /**
+     * Call that returns nothing, timed by {@link #time(TimedAction)}
+     *
+     * @param <E> the type of the checked exception the call can throw
+     */
+    @FunctionalInterface
+    public interface TimedAction<E extends Exception> {
+
+        /**
+         * Makes the call
+         *
+         * @throws E if the call fails
+         */
+        void run() throws E;
+    }
+}
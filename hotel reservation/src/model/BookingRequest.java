@@ -0,0 +1,97 @@
+package model;
+
+import utils.DateFormatter;
+
+import java.time.LocalDate;
+
+/**
+ * Class that represents a request to book a room, as part of a batch of bookings
+ * (e.g. a group or event booking) that must be made all together or not at all.
+ * A booking request is made by a customer ({@link #customer}), for a given room ({@link #room}),
+ * within a range of dates defined by a check-in date ({@link #checkInDate})
+ * and a check-out date ({@link #checkOutDate})
+ * @see Reservation
+ * @author Cláudia Martins
+ */
+public final class BookingRequest {
+
+    /**
+     * Customer that is making the booking
+     */
+    private final Customer customer;
+
+    /**
+     * Room to be booked
+     */
+    private final IRoom room;
+
+    /**
+     * Check-in date for the booking
+     */
+    private final LocalDate checkInDate;
+
+    /**
+     * Check-out date for the booking
+     */
+    private final LocalDate checkOutDate;
+
+    /**
+     * Constructor for the BookingRequest class
+     * @param customer: the customer making the booking
+     * @param room: the room to be booked
+     * @param checkInDate: the check-in date (date of arrival in the room)
+     * @param checkOutDate: the check-out date (date of departure from the room)
+     */
+    public BookingRequest(Customer customer, IRoom room, LocalDate checkInDate, LocalDate checkOutDate) {
+        this.customer = customer;
+        this.room = room;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+    }
+
+    /**
+     * Retrieves the customer making the booking
+     * @return the customer
+     */
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    /**
+     * Retrieves the room to be booked
+     * @return the room
+     */
+    public IRoom getRoom() {
+        return room;
+    }
+
+    /**
+     * Retrieves the check-in/arrival date at the room
+     * @return the check-in date
+     */
+    public LocalDate getCheckInDate() {
+        return checkInDate;
+    }
+
+    /**
+     * Retrieves the check-out/departure date from the room
+     * @return the check-out date
+     */
+    public LocalDate getCheckOutDate() {
+        return checkOutDate;
+    }
+
+    /**
+     * Returns a String representation for the booking request
+     * @return the booking request in String format
+     */
+    @Override
+    public String toString() {
+        return "Booking request: " +
+                "[ customer: " + (customer == null ? "-" : customer.getFullName()) +
+                ", room: " + (room == null ? "-" : room.getRoomNumber()) +
+                ", check-in: " + (checkInDate == null ? "-" : DateFormatter.formatDate(checkInDate)) +
+                ", check-out: " + (checkOutDate == null ? "-" : DateFormatter.formatDate(checkOutDate)) +
+                " ]";
+    }
+}
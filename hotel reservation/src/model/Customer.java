@@ -12,6 +12,10 @@ import java.util.regex.Pattern;
  */
 public class Customer {
 
+    /**
+     * Pattern a valid email must match, compiled once since customers are created in bulk by imports
+     */
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^(.+)[@](.+)[.](.+)$");
 
     /**
      * Customer's first name
@@ -47,6 +51,16 @@ public class Customer {
         this.email = email;
     }
 
+    /**
+     * Copy constructor for the Customer class, which does not validate the email again
+     * @param customer: the customer to be copied
+     */
+    protected Customer(Customer customer) {
+        this.firstName = customer.firstName;
+        this.lastName = customer.lastName;
+        this.email = customer.email;
+    }
+
     /**
      * Retrieves the customer's first name
      * @return the customer's first name
@@ -122,8 +136,7 @@ public class Customer {
 
     @Override
     public boolean equals(Object o) {
-        if (o == null || getClass() != o.getClass()) return false;
-        Customer customer = (Customer) o;
+        if (!(o instanceof Customer customer)) return false;
         return Objects.equals(this.getEmail(), customer.getEmail());
     }
 
@@ -140,6 +153,6 @@ public class Customer {
      * @return true if the email is valid, false otherwise
      */
     private boolean isValidEmail(String email) {
-        return Pattern.compile("^(.+)[@](.+)[.](.+)$").matcher(email).matches();
+        return EMAIL_PATTERN.matcher(email).matches();
     }
 }
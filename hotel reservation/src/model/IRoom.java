@@ -19,7 +19,13 @@ public interface IRoom {
      * Retrieves the room price
      * @return the room price
      */
-    public Double getRoomPrice();
+    public double getRoomPrice();
+
+    /**
+     * Retrieves the room price in cents, the exact value the price is kept as
+     * @return the room price in cents
+     */
+    public long getRoomPriceCents();
 
     /**
      * Retrieves the room type (SINGLE or DOUBLE)
@@ -2,14 +2,17 @@ package model;
 
 import utils.DateFormatter;
 
-import java.util.Date;
+import java.time.LocalDate;
 import java.util.Objects;
 
 /**
  * Class that represents a hotel reservation.
  * A reservation is made by a customer ({@link #customer}), for a given room ({@link #room}),
- * within a range of dates defined by a check-in date ({@link #checkInDate})
- * and a check-out date ({@link #checkOutDate})
+ * within a range of dates defined by a check-in date and a check-out date.
+ * The dates are stored as epoch days ({@link #checkInDay} and {@link #checkOutDay}), so that they cannot be
+ * changed from outside the reservation once it is stored and can be compared as plain integers.
+ * A reservation is immutable: it is changed by cancelling or modifying it through the reservation service,
+ * which re-checks the availability of the room.
  * @see Customer
  * @see IRoom
  * @author Cláudia Martins
@@ -19,22 +22,22 @@ public class Reservation {
     /**
      * Customer that is making the reservation
      */
-    private Customer customer;
+    private final Customer customer;
 
     /**
      * Room being reserved
      */
-    private IRoom room;
+    private final IRoom room;
 
     /**
-     * Check-in date for the reservation
+     * Check-in date for the reservation, as the number of days since 1970/01/01
      */
-    private Date checkInDate;
+    private final int checkInDay;
 
     /**
-     * Check-out date for the reservation
+     * Check-out date for the reservation, as the number of days since 1970/01/01
      */
-    private Date checkOutDate;
+    private final int checkOutDay;
 
     /**
      * Constructor for the Reservation class
@@ -43,11 +46,22 @@ public class Reservation {
      * @param checkInDate: the check-in date (date of arrival in the room)
      * @param checkOutDate: the check-out date (date of departure from the room)
      */
-    public Reservation(Customer customer, IRoom room, Date checkInDate, Date checkOutDate) {
+    public Reservation(Customer customer, IRoom room, LocalDate checkInDate, LocalDate checkOutDate) {
+        this(customer, room, toDay(checkInDate), toDay(checkOutDate));
+    }
+
+    /**
+     * Constructor for the Reservation class taking the dates as epoch days
+     * @param customer: the customer making the reservation
+     * @param room: the room being reserved
+     * @param checkInDay: the check-in date, as the number of days since 1970/01/01
+     * @param checkOutDay: the check-out date, as the number of days since 1970/01/01
+     */
+    public Reservation(Customer customer, IRoom room, int checkInDay, int checkOutDay) {
         this.customer = customer;
         this.room = room;
-        this.checkInDate = checkInDate;
-        this.checkOutDate = checkOutDate;
+        this.checkInDay = checkInDay;
+        this.checkOutDay = checkOutDay;
     }
 
     /**
@@ -70,49 +84,46 @@ public class Reservation {
      * Retrieves the check-in/arrival date at the room
      * @return the check-in date
      */
-    public Date getCheckInDate() {
-        return checkInDate;
+    public LocalDate getCheckInDate() {
+        return LocalDate.ofEpochDay(checkInDay);
     }
 
     /**
      * Retrieves the check-out/departure date from the room
      * @return the check-out date
      */
-    public Date getCheckOutDate() {
-        return checkOutDate;
-    }
-
-    /**
-     * Sets the customer as the one given
-     * @param customer: the customer making the reservation
-     */
-    public void setCustomer(Customer customer) {
-        this.customer = customer;
+    public LocalDate getCheckOutDate() {
+        return LocalDate.ofEpochDay(checkOutDay);
     }
 
     /**
-     * Sets the room as the one given
-     * @param room: the room being reserved
-     * @see IRoom
+     * Retrieves the check-in/arrival date at the room as an epoch day
+     * @return the number of days since 1970/01/01 of the check-in date
      */
-    public void setRoom(IRoom room) {
-        this.room = room;
+    public int getCheckInDay() {
+        return checkInDay;
     }
 
     /**
-     * Sets the check-in date for the reservation
-     * @param checkInDate: the check-in date
+     * Retrieves the check-out/departure date from the room as an epoch day
+     * @return the number of days since 1970/01/01 of the check-out date
      */
-    public void setCheckInDate(Date checkInDate) {
-        this.checkInDate = checkInDate;
+    public int getCheckOutDay() {
+        return checkOutDay;
     }
 
     /**
-     * Sets the check-out date for the reservation
-     * @param checkOutDate: the check-out date
+     * Converts a date into its epoch day
+     * @param date: the date to be converted
+     * @return the number of days since 1970/01/01
+     * @throws IllegalArgumentException if the date is too far from 1970/01/01 to be stored
      */
-    public void setCheckOutDate(Date checkOutDate) {
-        this.checkOutDate = checkOutDate;
+    private static int toDay(LocalDate date) {
+        long day = date.toEpochDay();
+        if (day != (int) day) {
+            throw new IllegalArgumentException("The date " + date + " is out of the supported range.");
+        }
+        return (int) day;
     }
 
     /**
@@ -124,8 +135,8 @@ public class Reservation {
         return "Reservation: " +
                 "[ customer: " + customer.getFullName() +
                 ", room: " + room.getRoomNumber() +
-                ", check-in: " + DateFormatter.formatDate(checkInDate) +
-                ", check-out: " + DateFormatter.formatDate(checkOutDate) +
+                ", check-in: " + DateFormatter.formatDay(checkInDay) +
+                ", check-out: " + DateFormatter.formatDay(checkOutDay) +
                 " ]";
     }
 
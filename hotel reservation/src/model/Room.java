@@ -7,30 +7,28 @@ import java.util.Objects;
  * A room is represented by its room number ({@link #roomNumber}), price
  * ({@link #roomPrice})
  * and type ({@link #roomType}).
+ * A room is immutable, since the hotel indexes it by room number, type and price once it is added.
  * @see IRoom
  * @see RoomType
  * @author Cláudia Martins
  */
 public class Room implements IRoom {
 
-    /** Small value (epsilon) to compare Double values */
-    private static final Double EPSILON = 0.000001d;
-
     /**
      * Room number
      */
-    private String roomNumber;
+    private final String roomNumber;
 
     /**
-     * Room price
+     * Room price in cents
      */
-    private Double roomPrice;
+    private final long roomPriceCents;
 
     /**
      * Room type
      * @see RoomType
      */
-    private RoomType roomType;
+    private final RoomType roomType;
 
     /**
      * Constructor for the Room class
@@ -39,12 +37,21 @@ public class Room implements IRoom {
      * @param roomType: the room type
      * @see RoomType
      */
-    public Room(String roomNumber, Double roomPrice, RoomType roomType) {
+    public Room(String roomNumber, double roomPrice, RoomType roomType) {
         this.roomNumber = roomNumber;
-        this.roomPrice = roomPrice;
+        this.roomPriceCents = toCents(roomPrice);
         this.roomType = roomType;
     }
 
+    /**
+     * Converts a price to cents, rounding it to the nearest cent
+     * @param price: the price
+     * @return the price in cents
+     */
+    public static long toCents(double price) {
+        return Math.round(price * 100);
+    }
+
     /**
      * Retrieves the room number
      * @return the room number
@@ -59,8 +66,17 @@ public class Room implements IRoom {
      * @return the room price
      */
     @Override
-    public Double getRoomPrice() {
-        return this.roomPrice;
+    public double getRoomPrice() {
+        return this.roomPriceCents / 100.0;
+    }
+
+    /**
+     * Retrieves the room price in cents
+     * @return the room price in cents
+     */
+    @Override
+    public long getRoomPriceCents() {
+        return this.roomPriceCents;
     }
 
     /**
@@ -79,32 +95,7 @@ public class Room implements IRoom {
      */
     @Override
     public boolean isFree() {
-        return Math.abs(this.roomPrice - 0.00) < EPSILON;
-    }
-
-    /**
-     * Sets the room number as the given room number
-     * @param roomNumber: the room number
-     */
-    public void setRoomNumber(String roomNumber) {
-        this.roomNumber = roomNumber;
-    }
-
-    /**
-     * Sets the room price as the given room price
-     * @param roomPrice: the room price
-     */
-    public void setRoomPrice(Double roomPrice) {
-        this.roomPrice = roomPrice;
-    }
-
-    /**
-     * Sets the room type as the given room type
-     * @param roomType: the room type
-     * @see RoomType
-     */
-    public void setRoomType(RoomType roomType) {
-        this.roomType = roomType;
+        return this.roomPriceCents == 0;
     }
 
     /**
@@ -113,7 +104,7 @@ public class Room implements IRoom {
      */
     @Override
     public String toString() {
-        return "Room #" + this.roomNumber + " (" + this.roomType + ", " + String.format("%.2f", this.roomPrice) + "€)";
+        return "Room #" + this.roomNumber + " (" + this.roomType + ", " + String.format("%.2f", this.getRoomPrice()) + "€)";
     }
 
     /**
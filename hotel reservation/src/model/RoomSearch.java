@@ -0,0 +1,164 @@
+package model;
+
+import utils.DateFormatter;
+
+import java.time.LocalDate;
+
+/**
+ * Class that represents a search for rooms by type ({@link #roomType}), price range
+ * ({@link #minPrice} to {@link #maxPrice}) and whether they are free ({@link #freeOnly}), optionally
+ * restricted to the rooms available between a check-in date ({@link #checkInDate}) and a check-out date
+ * ({@link #checkOutDate}), returning at most {@link #limit} rooms
+ * @see IRoom
+ * @author Cláudia Martins
+ */
+public final class RoomSearch {
+
+    /**
+     * Check-in date the rooms must be available from, or null to ignore availability
+     */
+    private final LocalDate checkInDate;
+
+    /**
+     * Check-out date the rooms must be available until, or null to ignore availability
+     */
+    private final LocalDate checkOutDate;
+
+    /**
+     * Type of the rooms, or null for any type
+     */
+    private final RoomType roomType;
+
+    /**
+     * Minimum price of the rooms (inclusive)
+     */
+    private final double minPrice;
+
+    /**
+     * Maximum price of the rooms (inclusive)
+     */
+    private final double maxPrice;
+
+    /**
+     * Whether only free rooms are searched for
+     */
+    private final boolean freeOnly;
+
+    /**
+     * Maximum number of rooms returned
+     */
+    private final int limit;
+
+    /**
+     * Constructor for the RoomSearch class
+     * @param checkInDate: the check-in date the rooms must be available from, or null to ignore availability
+     * @param checkOutDate: the check-out date the rooms must be available until, or null to ignore
+     *                    availability
+     * @param roomType: the type of the rooms, or null for any type
+     * @param minPrice: the minimum price of the rooms (inclusive), or null for no minimum
+     * @param maxPrice: the maximum price of the rooms (inclusive), or null for no maximum
+     * @param freeOnly: whether only free rooms are searched for
+     * @param limit: the maximum number of rooms returned
+     * @throws IllegalArgumentException if only one of the dates is given, the check-in date is after the
+     * check-out date, a price is negative, the minimum price is above the maximum or the limit is not
+     * positive
+     */
+    public RoomSearch(LocalDate checkInDate, LocalDate checkOutDate, RoomType roomType, Double minPrice,
+                      Double maxPrice, boolean freeOnly, int limit) {
+        if ((checkInDate == null) != (checkOutDate == null)) {
+            throw new IllegalArgumentException("Both the check-in and the check-out dates must be given, "
+                    + "or neither.");
+        }
+        if (checkInDate != null && checkInDate.isAfter(checkOutDate)) {
+            throw new IllegalArgumentException("The check-out date has to be later than the check-in date.");
+        }
+        if ((minPrice != null && minPrice < 0.0) || (maxPrice != null && maxPrice < 0.0)) {
+            throw new IllegalArgumentException("Prices cannot be negative.");
+        }
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("The minimum price cannot be above the maximum price.");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit of rooms must be positive.");
+        }
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+        this.roomType = roomType;
+        this.minPrice = minPrice == null ? 0.0 : minPrice;
+        this.maxPrice = maxPrice == null ? Double.MAX_VALUE : maxPrice;
+        this.freeOnly = freeOnly;
+        this.limit = limit;
+    }
+
+    /**
+     * Retrieves the check-in date the rooms must be available from
+     * @return the check-in date, or null if availability is ignored
+     */
+    public LocalDate getCheckInDate() {
+        return this.checkInDate;
+    }
+
+    /**
+     * Retrieves the check-out date the rooms must be available until
+     * @return the check-out date, or null if availability is ignored
+     */
+    public LocalDate getCheckOutDate() {
+        return this.checkOutDate;
+    }
+
+    /**
+     * Retrieves the type of the rooms
+     * @return the type, or null for any type
+     */
+    public RoomType getRoomType() {
+        return this.roomType;
+    }
+
+    /**
+     * Retrieves the minimum price of the rooms (inclusive)
+     * @return the minimum price, 0 if there is no minimum
+     */
+    public double getMinPrice() {
+        return this.minPrice;
+    }
+
+    /**
+     * Retrieves the maximum price of the rooms (inclusive)
+     * @return the maximum price, {@link Double#MAX_VALUE} if there is no maximum
+     */
+    public double getMaxPrice() {
+        return this.maxPrice;
+    }
+
+    /**
+     * Checks if only free rooms are searched for
+     * @return true if only free rooms are searched for, false otherwise
+     */
+    public boolean isFreeOnly() {
+        return this.freeOnly;
+    }
+
+    /**
+     * Retrieves the maximum number of rooms returned
+     * @return the limit of rooms
+     */
+    public int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * Returns a String representation for the room search
+     * @return the room search in String format
+     */
+    @Override
+    public String toString() {
+        return "Room search: " +
+                "[ type: " + (roomType == null ? "any" : roomType) +
+                ", price: " + minPrice + "-" + (maxPrice == Double.MAX_VALUE ? "any" : maxPrice) +
+                (freeOnly ? ", free only" : "") +
+                ", check-in: " + (checkInDate == null ? "-" : DateFormatter.formatDate(checkInDate)) +
+                ", check-out: " + (checkOutDate == null ? "-" : DateFormatter.formatDate(checkOutDate)) +
+                ", limit: " + limit +
+                " ]";
+    }
+}
@@ -0,0 +1,29 @@
+package persistence;
+
+/**
+ * Durability level of the write-ahead log, i.e. when the records appended to it are forced to disk.
+ * Can be {@link #NONE}, {@link #ASYNC} or {@link #GROUP_COMMIT}
+ * @see WriteAheadLog
+ * @author Cláudia Martins
+ */
+public enum DurabilityLevel {
+
+    /**
+     * Records are handed to the operating system in the background, but never explicitly forced to disk.
+     * Survives the application crashing, but not the machine crashing.
+     */
+    NONE,
+
+    /**
+     * Records are forced to disk in the background, in batches.
+     * Operations do not wait for their records, so the last few milliseconds of changes can be lost.
+     */
+    ASYNC,
+
+    /**
+     * Operations wait until their records are forced to disk.
+     * Concurrent operations share a single force, so throughput does not collapse to one force per
+     * operation.
+     */
+    GROUP_COMMIT
+}
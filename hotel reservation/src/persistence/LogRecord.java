@@ -0,0 +1,70 @@
+package persistence;
+
+import java.util.List;
+
+/**
+ * Record of a change to the state of the hotel reservation application, as stored in the write-ahead log.
+ * Can be a {@link CustomerAdded}, a {@link RoomAdded}, a {@link RoomReserved}, a {@link RoomsReserved}, a
+ * {@link ReservationCancelled} or a {@link ReservationModified} record.
+ * Records only hold plain values, so that they can be decoded without the services.
+ * @see WriteAheadLog
+ * @author Cláudia Martins
+ */
+public sealed interface LogRecord {
+
+    /**
+     * Record of a customer being added
+     * @param email: the email address of the customer
+     * @param firstName: the first name of the customer
+     * @param lastName: the last name of the customer
+     */
+    record CustomerAdded(String email, String firstName, String lastName) implements LogRecord {
+    }
+
+    /**
+     * Record of a room being added
+     * @param roomNumber: the room number
+     * @param price: the room price
+     * @param roomType: the name of the room type
+     * @param freeRoom: whether the room is a free room
+     */
+    record RoomAdded(String roomNumber, double price, String roomType, boolean freeRoom) implements LogRecord {
+    }
+
+    /**
+     * Record of a room being reserved
+     * @param customerEmail: the email address of the customer making the reservation
+     * @param roomNumber: the room number of the room being reserved
+     * @param checkInDay: the check-in date, as the number of days since 1970/01/01
+     * @param checkOutDay: the check-out date, as the number of days since 1970/01/01
+     */
+    record RoomReserved(String customerEmail, String roomNumber, int checkInDay, int checkOutDay)
+            implements LogRecord {
+    }
+
+    /**
+     * Record of several rooms being reserved at once, which must be restored all together or not at all
+     * @param reservations: the reservations made
+     */
+    record RoomsReserved(List<RoomReserved> reservations) implements LogRecord {
+    }
+
+    /**
+     * Record of a reservation being cancelled
+     * @param customerEmail: the email address of the customer who made the reservation
+     * @param roomNumber: the room number of the room that was reserved
+     * @param checkInDay: the check-in date, as the number of days since 1970/01/01
+     * @param checkOutDay: the check-out date, as the number of days since 1970/01/01
+     */
+    record ReservationCancelled(String customerEmail, String roomNumber, int checkInDay, int checkOutDay)
+            implements LogRecord {
+    }
+
+    /**
+     * Record of a reservation being moved to another room or other dates, which must be restored as a whole
+     * @param previous: the reservation as it was, which was cancelled
+     * @param modified: the reservation as it is now, which was made in its place
+     */
+    record ReservationModified(ReservationCancelled previous, RoomReserved modified) implements LogRecord {
+    }
+}
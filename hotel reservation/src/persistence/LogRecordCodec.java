@@ -0,0 +1,196 @@
+package persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary encoding of the write-ahead log records.
+ * Each record is stored as a frame made of the payload length (int), a CRC32C checksum of the payload
+ * (int) and the payload itself, which starts with a one byte record type.
+ * @see LogRecord
+ * @author Cláudia Martins
+ */
+final class LogRecordCodec {
+
+    /**
+     * Size in bytes of the frame header (length and checksum)
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Record type of {@link LogRecord.CustomerAdded} records
+     */
+    private static final byte CUSTOMER_ADDED = 1;
+
+    /**
+     * Record type of {@link LogRecord.RoomAdded} records
+     */
+    private static final byte ROOM_ADDED = 2;
+
+    /**
+     * Record type of {@link LogRecord.RoomReserved} records
+     */
+    private static final byte ROOM_RESERVED = 3;
+
+    /**
+     * Record type of {@link LogRecord.RoomsReserved} records
+     */
+    private static final byte ROOMS_RESERVED = 4;
+
+    /**
+     * Record type of {@link LogRecord.ReservationCancelled} records
+     */
+    private static final byte RESERVATION_CANCELLED = 5;
+
+    /**
+     * Record type of {@link LogRecord.ReservationModified} records
+     */
+    private static final byte RESERVATION_MODIFIED = 6;
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private LogRecordCodec() {
+    }
+
+    /**
+     * Encodes a record into a complete frame
+     * @param record: the record to be encoded
+     * @return the frame bytes
+     */
+    static byte[] encode(LogRecord record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            switch (record) {
+                case LogRecord.CustomerAdded customer -> {
+                    out.writeByte(CUSTOMER_ADDED);
+                    out.writeUTF(customer.email());
+                    out.writeUTF(customer.firstName());
+                    out.writeUTF(customer.lastName());
+                }
+                case LogRecord.RoomAdded room -> {
+                    out.writeByte(ROOM_ADDED);
+                    out.writeUTF(room.roomNumber());
+                    out.writeDouble(room.price());
+                    out.writeUTF(room.roomType());
+                    out.writeBoolean(room.freeRoom());
+                }
+                case LogRecord.RoomReserved reservation -> {
+                    out.writeByte(ROOM_RESERVED);
+                    out.writeUTF(reservation.customerEmail());
+                    out.writeUTF(reservation.roomNumber());
+                    out.writeInt(reservation.checkInDay());
+                    out.writeInt(reservation.checkOutDay());
+                }
+                case LogRecord.RoomsReserved batch -> {
+                    out.writeByte(ROOMS_RESERVED);
+                    out.writeInt(batch.reservations().size());
+                    for (LogRecord.RoomReserved reservation : batch.reservations()) {
+                        out.writeUTF(reservation.customerEmail());
+                        out.writeUTF(reservation.roomNumber());
+                        out.writeInt(reservation.checkInDay());
+                        out.writeInt(reservation.checkOutDay());
+                    }
+                }
+                case LogRecord.ReservationCancelled cancellation -> {
+                    out.writeByte(RESERVATION_CANCELLED);
+                    writeCancellation(out, cancellation);
+                }
+                case LogRecord.ReservationModified modification -> {
+                    out.writeByte(RESERVATION_MODIFIED);
+                    writeCancellation(out, modification.previous());
+                    out.writeUTF(modification.modified().customerEmail());
+                    out.writeUTF(modification.modified().roomNumber());
+                    out.writeInt(modification.modified().checkInDay());
+                    out.writeInt(modification.modified().checkOutDay());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] frame = bytes.toByteArray();
+        int payloadLength = frame.length - HEADER_SIZE;
+        CRC32C checksum = new CRC32C();
+        checksum.update(frame, HEADER_SIZE, payloadLength);
+        ByteBuffer.wrap(frame).putInt(payloadLength).putInt((int) checksum.getValue());
+        return frame;
+    }
+
+    /**
+     * Checks whether a payload matches the checksum stored in its frame header
+     * @param payload: the payload bytes
+     * @param expectedChecksum: the checksum stored in the frame header
+     * @return true if the payload is intact, false otherwise
+     */
+    static boolean isIntact(byte[] payload, int expectedChecksum) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload);
+        return (int) checksum.getValue() == expectedChecksum;
+    }
+
+    /**
+     * Decodes the payload of a frame into a record
+     * @param payload: the payload bytes
+     * @return the decoded record
+     * @throws IOException if the payload is not a valid record
+     */
+    static LogRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        return switch (type) {
+            case CUSTOMER_ADDED -> new LogRecord.CustomerAdded(in.readUTF(), in.readUTF(), in.readUTF());
+            case ROOM_ADDED -> new LogRecord.RoomAdded(in.readUTF(), in.readDouble(), in.readUTF(),
+                    in.readBoolean());
+            case ROOM_RESERVED -> new LogRecord.RoomReserved(in.readUTF(), in.readUTF(), in.readInt(),
+                    in.readInt());
+            case ROOMS_RESERVED -> {
+                int count = in.readInt();
+                List<LogRecord.RoomReserved> reservations = new ArrayList<>(Math.min(count, payload.length));
+                for (int i = 0; i < count; i++) {
+                    reservations.add(new LogRecord.RoomReserved(in.readUTF(), in.readUTF(), in.readInt(),
+                            in.readInt()));
+                }
+                yield new LogRecord.RoomsReserved(List.copyOf(reservations));
+            }
+            case RESERVATION_CANCELLED -> readCancellation(in);
+            case RESERVATION_MODIFIED -> new LogRecord.ReservationModified(readCancellation(in),
+                    new LogRecord.RoomReserved(in.readUTF(), in.readUTF(), in.readInt(), in.readInt()));
+            default -> throw new IOException("Unknown log record type " + type + ".");
+        };
+    }
+
+    /**
+     * Writes the fields of a cancellation
+     * @param out: the stream the fields are written to
+     * @param cancellation: the cancellation
+     * @throws IOException if the fields cannot be written
+     */
+    private static void writeCancellation(DataOutputStream out, LogRecord.ReservationCancelled cancellation)
+            throws IOException {
+        out.writeUTF(cancellation.customerEmail());
+        out.writeUTF(cancellation.roomNumber());
+        out.writeInt(cancellation.checkInDay());
+        out.writeInt(cancellation.checkOutDay());
+    }
+
+    /**
+     * Reads the fields of a cancellation
+     * @param in: the stream the fields are read from
+     * @return the cancellation
+     * @throws IOException if the fields cannot be read
+     */
+    private static LogRecord.ReservationCancelled readCancellation(DataInputStream in) throws IOException {
+        return new LogRecord.ReservationCancelled(in.readUTF(), in.readUTF(), in.readInt(), in.readInt());
+    }
+}
@@ -0,0 +1,321 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary snapshot of the full state of the hotel reservation application.
+ * A snapshot stores every customer, room and reservation together with the write-ahead log position it
+ * was taken at, so that startup only has to load the snapshot and replay the log from that position.
+ * <p>
+ * Layout (big-endian): a header with a magic number, the format version, the log position, the number of
+ * customers, rooms and reservations and a CRC32C checksum of the body; then the reservations (customer and
+ * room as indexes into the following sections, check-in and check-out epoch days), the customers (email,
+ * first and last names) and the rooms (room number, room type name, price and free flag). Strings are
+ * stored as an unsigned short length followed by their UTF-8 bytes.
+ * The reservations come first because they are read first: customers and rooms are only ever added, so
+ * reading them after the reservations guarantees that every customer and room a reservation refers to is
+ * part of the snapshot, however the state changes while it is written.
+ * <p>
+ * Snapshots are written to a temporary file that replaces the previous snapshot atomically once it has
+ * been forced to disk, and are loaded through a {@link MappedByteBuffer}.
+ * @see WriteAheadLog
+ * @author Cláudia Martins
+ */
+public final class Snapshot {
+
+    /**
+     * Magic number at the start of every snapshot file ("HOTS")
+     */
+    private static final int MAGIC = 0x484F5453;
+
+    /**
+     * Version of the snapshot format
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Size of the header, in bytes
+     */
+    private static final int HEADER_SIZE = 36;
+
+    /**
+     * Size of the buffer used to write the snapshot, in bytes
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Size of a reservation entry, in bytes
+     */
+    private static final int RESERVATION_SIZE = 16;
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private Snapshot() {
+    }
+
+    /**
+     * Writes a snapshot, replacing the previous one at the same path.
+     * The reservations are walked first, and the customers and rooms are only retrieved afterwards.
+     * @param path: the path of the snapshot file
+     * @param logPosition: the write-ahead log position the snapshot is taken at (see
+     *                     {@link WriteAheadLog#checkpoint()})
+     * @param reservations: the reservations to be stored
+     * @param customers: retrieves the customers to be stored, which must include those of the reservations
+     * @param rooms: retrieves the rooms to be stored, which must include those of the reservations
+     * @throws IOException if the snapshot cannot be written, or a reservation refers to a customer or room
+     * that is not stored
+     */
+    public static void write(Path path, long logPosition, Iterator<LogRecord.RoomReserved> reservations,
+                             Supplier<Collection<LogRecord.CustomerAdded>> customers,
+                             Supplier<Collection<LogRecord.RoomAdded>> rooms) throws IOException {
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BodyWriter body = new BodyWriter(channel);
+
+            Map<String, Integer> customerIndexes = new HashMap<>();
+            Map<String, Integer> roomIndexes = new HashMap<>();
+            long reservationCount = 0;
+            while (reservations.hasNext()) {
+                LogRecord.RoomReserved reservation = reservations.next();
+                body.ensureRemaining(RESERVATION_SIZE);
+                body.buffer.putInt(indexOf(customerIndexes, reservation.customerEmail()));
+                body.buffer.putInt(indexOf(roomIndexes, reservation.roomNumber()));
+                body.buffer.putInt(reservation.checkInDay());
+                body.buffer.putInt(reservation.checkOutDay());
+                reservationCount++;
+            }
+
+            List<LogRecord.CustomerAdded> storedCustomers = new ArrayList<>(
+                    Collections.nCopies(customerIndexes.size(), null));
+            for (LogRecord.CustomerAdded customer : customers.get()) {
+                store(storedCustomers, indexOf(customerIndexes, customer.email()), customer);
+            }
+            for (LogRecord.CustomerAdded customer : storedCustomers) {
+                if (customer == null) {
+                    throw new IOException("A reservation refers to a customer that is not part of the snapshot.");
+                }
+                body.putString(customer.email());
+                body.putString(customer.firstName());
+                body.putString(customer.lastName());
+            }
+
+            List<LogRecord.RoomAdded> storedRooms = new ArrayList<>(Collections.nCopies(roomIndexes.size(), null));
+            for (LogRecord.RoomAdded room : rooms.get()) {
+                store(storedRooms, indexOf(roomIndexes, room.roomNumber()), room);
+            }
+            for (LogRecord.RoomAdded room : storedRooms) {
+                if (room == null) {
+                    throw new IOException("A reservation refers to a room that is not part of the snapshot.");
+                }
+                body.putString(room.roomNumber());
+                body.putString(room.roomType());
+                body.ensureRemaining(9);
+                body.buffer.putDouble(room.price());
+                body.buffer.put((byte) (room.freeRoom() ? 1 : 0));
+            }
+            body.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(logPosition).putInt(storedCustomers.size())
+                    .putInt(storedRooms.size()).putLong(reservationCount).putInt((int) body.checksum.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        WriteAheadLog.forceDirectory(path);
+    }
+
+    /**
+     * Loads a snapshot, handing its contents to a consumer as log records: first every
+     * {@link LogRecord.CustomerAdded}, then every {@link LogRecord.RoomAdded} and finally every
+     * {@link LogRecord.RoomReserved}
+     * @param path: the path of the snapshot file
+     * @param consumer: the consumer the records are handed to
+     * @return the write-ahead log position the snapshot was taken at, or 0 if there is no snapshot
+     * @throws IOException if the snapshot cannot be read or is corrupted
+     */
+    public static long load(Path path, Consumer<LogRecord> consumer) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size (" + channel.size() + " bytes).");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if (magic != MAGIC || version != VERSION) {
+                throw new IOException("The file " + path + " is not a supported snapshot.");
+            }
+            long logPosition = buffer.getLong();
+            int customerCount = buffer.getInt();
+            int roomCount = buffer.getInt();
+            long reservationCount = buffer.getLong();
+            int expectedChecksum = buffer.getInt();
+
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.slice());
+            if ((int) checksum.getValue() != expectedChecksum
+                    || reservationCount > (channel.size() - HEADER_SIZE) / RESERVATION_SIZE) {
+                throw new IOException("The snapshot " + path + " is corrupted.");
+            }
+
+            buffer.position(HEADER_SIZE + (int) reservationCount * RESERVATION_SIZE);
+            String[] emails = new String[customerCount];
+            for (int i = 0; i < customerCount; i++) {
+                emails[i] = getString(buffer);
+                consumer.accept(new LogRecord.CustomerAdded(emails[i], getString(buffer), getString(buffer)));
+            }
+            String[] roomNumbers = new String[roomCount];
+            for (int i = 0; i < roomCount; i++) {
+                roomNumbers[i] = getString(buffer);
+                String roomType = getString(buffer);
+                double price = buffer.getDouble();
+                consumer.accept(new LogRecord.RoomAdded(roomNumbers[i], price, roomType, buffer.get() == 1));
+            }
+            buffer.position(HEADER_SIZE);
+            for (long i = 0; i < reservationCount; i++) {
+                String email = emails[buffer.getInt()];
+                String roomNumber = roomNumbers[buffer.getInt()];
+                consumer.accept(new LogRecord.RoomReserved(email, roomNumber, buffer.getInt(), buffer.getInt()));
+            }
+            return logPosition;
+        }
+    }
+
+    /**
+     * Retrieves the index of a customer or room in its section of the snapshot, giving it the next index
+     * if it has none yet
+     * @param indexes: the indexes given so far, by email or room number
+     * @param key: the email of the customer or the room number of the room
+     * @return the index
+     */
+    private static int indexOf(Map<String, Integer> indexes, String key) {
+        return indexes.computeIfAbsent(key, newKey -> indexes.size());
+    }
+
+    /**
+     * Stores a customer or room at its index, which is either already in the list or the next one
+     * @param stored: the customers or rooms stored so far, by index
+     * @param index: the index of the customer or room
+     * @param value: the customer or room
+     */
+    private static <T> void store(List<T> stored, int index, T value) {
+        if (index == stored.size()) {
+            stored.add(value);
+        } else {
+            stored.set(index, value);
+        }
+    }
+
+    /**
+     * Reads a string stored as an unsigned short length followed by its UTF-8 bytes
+     * @param buffer: the buffer to read from
+     * @return the string
+     */
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Buffered writer of the snapshot body, which keeps the checksum of everything it writes
+     */
+    private static final class BodyWriter {
+
+        /**
+         * Channel of the snapshot file
+         */
+        private final FileChannel channel;
+
+        /**
+         * Buffer the body is written to before being handed to the channel
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Checksum of the body written so far
+         */
+        private final CRC32C checksum;
+
+        /**
+         * Position in the file the next chunk of the body is written to
+         */
+        private long position;
+
+        /**
+         * Constructor for the BodyWriter class
+         * @param channel: the channel of the snapshot file
+         */
+        private BodyWriter(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            this.checksum = new CRC32C();
+            this.position = HEADER_SIZE;
+        }
+
+        /**
+         * Writes a string as an unsigned short length followed by its UTF-8 bytes
+         * @param value: the string to be written
+         * @throws IOException if the buffer cannot be flushed
+         */
+        private void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("Value too long to be stored in a snapshot: " + value);
+            }
+            this.ensureRemaining(2 + bytes.length);
+            this.buffer.putShort((short) bytes.length);
+            this.buffer.put(bytes);
+        }
+
+        /**
+         * Makes sure the buffer can hold a given number of bytes, flushing it if needed
+         * @param bytes: the number of bytes to be written
+         * @throws IOException if the buffer cannot be flushed
+         */
+        private void ensureRemaining(int bytes) throws IOException {
+            if (this.buffer.remaining() < bytes) {
+                this.flush();
+            }
+        }
+
+        /**
+         * Writes the buffered bytes to the file, updating the checksum
+         * @throws IOException if the bytes cannot be written
+         */
+        private void flush() throws IOException {
+            this.buffer.flip();
+            this.checksum.update(this.buffer.duplicate());
+            while (this.buffer.hasRemaining()) {
+                this.position += this.channel.write(this.buffer, this.position);
+            }
+            this.buffer.clear();
+        }
+    }
+}
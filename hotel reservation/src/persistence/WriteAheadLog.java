@@ -0,0 +1,600 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Durable append-only log of the changes made to the hotel reservation application.
+ * Records are appended to an in-memory buffer and written to the current segment file in batches: a single
+ * write (and, depending on the {@link DurabilityLevel}, a single force to disk) covers every record
+ * appended since the previous batch. With {@link DurabilityLevel#GROUP_COMMIT}, callers wait in
+ * {@link #commit(long)} and the first one to arrive writes the batch for all of them (group commit);
+ * with the other levels a background thread writes the batches at a fixed interval.
+ * Positions in the log are byte offsets from its start, so the position returned by
+ * {@link #append(LogRecord)} is the end of the appended record.
+ * The log is split into segment files named after the position they start at (see {@link #segmentPath}).
+ * Changes are applied and appended between {@link #beginChange()} and {@link #endChange()}, which lets
+ * {@link #checkpoint()} find a position such that every record before it has already been applied, as
+ * needed to replay the log on top of a snapshot taken while changes keep being made. Every checkpoint
+ * starts a new segment, so once a snapshot taken at it is in place the segments before it can be deleted
+ * (see {@link #deleteSegmentsBefore(long)}) and the log does not grow forever.
+ * @see LogRecord
+ * @see DurabilityLevel
+ * @author Cláudia Martins
+ */
+public final class WriteAheadLog implements Closeable {
+
+    /**
+     * Default interval between background flushes, in milliseconds
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+
+    /**
+     * Initial capacity of the append buffers, in bytes
+     */
+    private static final int INITIAL_BUFFER_CAPACITY = 64 * 1024;
+
+    /**
+     * Path of the log, which the names of its segment files start with
+     */
+    private final Path path;
+
+    /**
+     * Channel of the current segment file, replaced when a new segment is started
+     */
+    private FileChannel channel;
+
+    /**
+     * Position the current segment starts at
+     */
+    private long segmentBase;
+
+    /**
+     * Durability level of the log
+     */
+    private final DurabilityLevel durability;
+
+    /**
+     * Interval between background flushes, in milliseconds
+     */
+    private final long flushIntervalMillis;
+
+    /**
+     * Lock guarding the buffers and positions
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Condition signalled whenever a batch has been written
+     */
+    private final Condition batchWritten;
+
+    /**
+     * Lock held (shared) by the changes in progress, and exclusively by checkpoints
+     */
+    private final ReadWriteLock changeLock;
+
+    /**
+     * Background flusher, or null with {@link DurabilityLevel#GROUP_COMMIT}
+     */
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Buffer the records are currently appended to
+     */
+    private ByteBuffer pending;
+
+    /**
+     * Buffer that is being (or was last) written to the file, reused for the next batch
+     */
+    private ByteBuffer spare;
+
+    /**
+     * Position at the end of the last appended record
+     */
+    private long appendedPosition;
+
+    /**
+     * Position up to which the log has been written to the file
+     */
+    private long writtenPosition;
+
+    /**
+     * Position up to which the log has been forced to disk
+     */
+    private long durablePosition;
+
+    /**
+     * Whether a batch is currently being written
+     */
+    private boolean writing;
+
+    /**
+     * Whether the log has been closed
+     */
+    private boolean closed;
+
+    /**
+     * Error that made a batch fail to be written, after which nothing else can be written
+     */
+    private IOException failure;
+
+    /**
+     * Private constructor, logs are created by {@link #open(Path, long, DurabilityLevel, long)}
+     * @param path: the path of the log
+     * @param segmentBase: the position the current segment starts at
+     * @param channel: the channel of the current segment file, positioned at its end
+     * @param durability: the durability level
+     * @param flushIntervalMillis: the interval between background flushes
+     * @throws IOException if the size of the segment file cannot be read
+     */
+    private WriteAheadLog(Path path, long segmentBase, FileChannel channel, DurabilityLevel durability,
+                          long flushIntervalMillis) throws IOException {
+        this.path = path;
+        this.segmentBase = segmentBase;
+        this.channel = channel;
+        this.durability = durability;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.lock = new ReentrantLock();
+        this.batchWritten = this.lock.newCondition();
+        this.changeLock = new ReentrantReadWriteLock();
+        this.pending = ByteBuffer.allocate(INITIAL_BUFFER_CAPACITY);
+        this.spare = ByteBuffer.allocate(INITIAL_BUFFER_CAPACITY);
+        this.appendedPosition = segmentBase + channel.size();
+        this.writtenPosition = this.appendedPosition;
+        this.durablePosition = this.appendedPosition;
+
+        if (durability == DurabilityLevel.GROUP_COMMIT) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            boolean force = durability == DurabilityLevel.ASYNC;
+            this.flusher.scheduleWithFixedDelay(() -> this.flushQuietly(force), flushIntervalMillis,
+                    flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Replays the records of a log, starting at a given position.
+     * Replay stops at the first incomplete or corrupted record, which marks the end of the valid log
+     * (e.g. a record that was being written when the application stopped).
+     * @param path: the path of the log
+     * @param fromPosition: the position to start replaying from
+     * @param consumer: the consumer the replayed records are handed to, in log order
+     * @return the position at the end of the last valid record
+     * @throws IOException if the log cannot be read, or it does not hold the position to start from
+     */
+    public static long replay(Path path, long fromPosition, Consumer<LogRecord> consumer) throws IOException {
+        NavigableMap<Long, Path> segments = findSegments(path);
+        Long firstBase = segments.floorKey(fromPosition);
+        if (firstBase == null) {
+            if (fromPosition > 0 || !segments.isEmpty()) {
+                throw new IOException("The write-ahead log " + path + " does not hold position " + fromPosition + ".");
+            }
+            return 0;
+        }
+        long position = fromPosition;
+        for (Map.Entry<Long, Path> segment : segments.tailMap(firstBase, true).entrySet()) {
+            if (segment.getKey() != position && segment.getKey() != firstBase.longValue()) {
+                break;
+            }
+            position = replaySegment(segment.getValue(), segment.getKey(), position, consumer);
+        }
+        return position;
+    }
+
+    /**
+     * Opens a log for appending, discarding anything after the end of its valid records
+     * @param path: the path of the log (its first segment is created if it has none)
+     * @param validPosition: the position at the end of the last valid record (see
+     *                       {@link #replay(Path, long, Consumer)})
+     * @param durability: the durability level
+     * @param flushIntervalMillis: the interval between background flushes, in milliseconds
+     * @return the opened log
+     * @throws IOException if the log cannot be opened
+     */
+    public static WriteAheadLog open(Path path, long validPosition, DurabilityLevel durability,
+                                     long flushIntervalMillis) throws IOException {
+        NavigableMap<Long, Path> segments = findSegments(path);
+        Long base = segments.floorKey(validPosition);
+        if (base == null) {
+            base = validPosition;
+        }
+        for (Path discardedSegment : segments.tailMap(base, false).values()) {
+            Files.delete(discardedSegment);
+        }
+        FileChannel channel = FileChannel.open(segmentPath(path, base), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.truncate(validPosition - base);
+        channel.position(validPosition - base);
+        forceDirectory(path);
+        return new WriteAheadLog(path, base, channel, durability, flushIntervalMillis);
+    }
+
+    /**
+     * Retrieves the durability level of the log
+     * @return the durability level
+     */
+    public DurabilityLevel getDurability() {
+        return this.durability;
+    }
+
+    /**
+     * Retrieves the position at the end of the last appended record
+     * @return the appended position
+     */
+    public long getAppendedPosition() {
+        this.lock.lock();
+        try {
+            return this.appendedPosition;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the start of a change that is going to be applied and appended to the log.
+     * Must be called before taking any lock the change needs, and followed by {@link #endChange()}.
+     */
+    public void beginChange() {
+        this.changeLock.readLock().lock();
+    }
+
+    /**
+     * Marks the end of a change started with {@link #beginChange()}
+     */
+    public void endChange() {
+        this.changeLock.readLock().unlock();
+    }
+
+    /**
+     * Waits for the changes in progress to end, retrieves the position at the end of the log and starts a
+     * new segment at that position (unless the current segment is still empty).
+     * Every record before the returned position belongs to a change that has been fully applied.
+     * @return the checkpoint position
+     * @throws IOException if the current segment cannot be written or the new one cannot be created
+     * @throws IllegalStateException if the log has been closed
+     */
+    public long checkpoint() throws IOException {
+        this.changeLock.writeLock().lock();
+        try {
+            long position = this.getAppendedPosition();
+            if (position > this.segmentBase) {
+                this.startSegment(position);
+            }
+            return position;
+        } finally {
+            this.changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments that end at or before a given position, once nothing before that position has
+     * to be replayed anymore (e.g. a snapshot taken at a {@link #checkpoint()} is in place). The current
+     * segment is never deleted.
+     * @param position: the position before which the log is no longer needed
+     * @return the number of segments deleted
+     * @throws IOException if a segment cannot be deleted
+     */
+    public int deleteSegmentsBefore(long position) throws IOException {
+        int deletedSegments = 0;
+        Iterator<Map.Entry<Long, Path>> segments = findSegments(this.path).entrySet().iterator();
+        Map.Entry<Long, Path> segment = segments.hasNext() ? segments.next() : null;
+        while (segment != null && segments.hasNext()) {
+            Map.Entry<Long, Path> nextSegment = segments.next();
+            if (nextSegment.getKey() > position) {
+                break;
+            }
+            Files.delete(segment.getValue());
+            deletedSegments++;
+            segment = nextSegment;
+        }
+        if (deletedSegments > 0) {
+            forceDirectory(this.path);
+        }
+        return deletedSegments;
+    }
+
+    /**
+     * Appends a record to the log.
+     * The record is only buffered: use {@link #commit(long)} to wait for it according to the durability
+     * level.
+     * @param record: the record to be appended
+     * @return the position at the end of the record
+     * @throws IllegalStateException if the log has been closed
+     */
+    public long append(LogRecord record) {
+        byte[] frame = LogRecordCodec.encode(record);
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                throw new IllegalStateException("The write-ahead log has been closed.");
+            }
+            if (this.pending.remaining() < frame.length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(this.pending.capacity() * 2,
+                        this.pending.position() + frame.length));
+                this.pending.flip();
+                grown.put(this.pending);
+                this.pending = grown;
+            }
+            this.pending.put(frame);
+            this.appendedPosition += frame.length;
+            return this.appendedPosition;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the log is durable up to a given position, if the durability level requires it.
+     * With {@link DurabilityLevel#GROUP_COMMIT}, every record appended before the force is made durable
+     * by the same batch, so concurrent callers share a single force.
+     * @param position: the position returned by {@link #append(LogRecord)}
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public void commit(long position) {
+        if (this.durability == DurabilityLevel.GROUP_COMMIT) {
+            try {
+                this.flush(position, true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write to the write-ahead log.", e);
+            }
+        }
+    }
+
+    /**
+     * Writes every appended record to the file and forces it to disk
+     * @throws IOException if the log cannot be written
+     */
+    public void sync() throws IOException {
+        this.flush(this.getAppendedPosition(), true);
+    }
+
+    /**
+     * Closes the log, making every appended record durable first.
+     * Closing an already closed log has no effect.
+     * @throws IOException if the log cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+        } finally {
+            this.lock.unlock();
+        }
+        if (this.flusher != null) {
+            this.flusher.shutdown();
+            try {
+                this.flusher.awaitTermination(this.flushIntervalMillis * 10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            this.sync();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Retrieves the path of a segment file of a log
+     * @param path: the path of the log
+     * @param segmentBase: the position the segment starts at
+     * @return the path of the segment file, the path of the log followed by the zero-padded position
+     */
+    static Path segmentPath(Path path, long segmentBase) {
+        return path.resolveSibling(path.getFileName() + "." + String.format("%020d", segmentBase));
+    }
+
+    /**
+     * Forces the directory holding a file to disk, so that the file being created, renamed or deleted
+     * survives a crash
+     * @param path: the path of the file
+     * @throws IOException if the directory cannot be forced
+     */
+    static void forceDirectory(Path path) throws IOException {
+        try (FileChannel directory = FileChannel.open(path.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    /**
+     * Finds the segment files of a log
+     * @param path: the path of the log
+     * @return the segment files, by the position they start at
+     * @throws IOException if the directory of the log cannot be listed
+     */
+    private static NavigableMap<Long, Path> findSegments(Path path) throws IOException {
+        NavigableMap<Long, Path> segments = new TreeMap<>();
+        Path directory = path.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        String prefix = path.getFileName() + ".";
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.length() == prefix.length() + 20 && name.startsWith(prefix)
+                        && name.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+                    segments.put(Long.parseLong(name.substring(prefix.length())), file);
+                }
+            });
+        }
+        return segments;
+    }
+
+    /**
+     * Replays the records of a segment file, starting at a given position
+     * @param segment: the segment file
+     * @param segmentBase: the position the segment starts at
+     * @param fromPosition: the position to start replaying from
+     * @param consumer: the consumer the replayed records are handed to, in log order
+     * @return the position at the end of the last valid record of the segment
+     * @throws IOException if the segment cannot be read or ends before the position to start from
+     */
+    private static long replaySegment(Path segment, long segmentBase, long fromPosition,
+                                      Consumer<LogRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long offset = fromPosition - segmentBase;
+            if (channel.size() < offset) {
+                throw new IOException("The write-ahead log segment " + segment + " ends before position "
+                        + fromPosition + ".");
+            }
+            channel.position(offset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel), INITIAL_BUFFER_CAPACITY));
+            while (true) {
+                LogRecord record;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length <= 0 || length > channel.size() - offset - LogRecordCodec.HEADER_SIZE) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    if (!LogRecordCodec.isIntact(payload, checksum)) {
+                        break;
+                    }
+                    record = LogRecordCodec.decode(payload);
+                    offset += LogRecordCodec.HEADER_SIZE + length;
+                } catch (EOFException e) {
+                    break;
+                }
+                consumer.accept(record);
+            }
+            return segmentBase + offset;
+        }
+    }
+
+    /**
+     * Writes the current segment up to a given position, forced to disk, and continues the log in a new
+     * segment starting at that position (no change must be in progress)
+     * @param position: the position at the end of the log
+     * @throws IOException if the current segment cannot be written or the new one cannot be created
+     * @throws IllegalStateException if the log has been closed
+     */
+    private void startSegment(long position) throws IOException {
+        this.flush(position, true);
+        FileChannel nextChannel = FileChannel.open(segmentPath(this.path, position), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        FileChannel previousChannel;
+        this.lock.lock();
+        try {
+            while (this.writing) {
+                this.batchWritten.awaitUninterruptibly();
+            }
+            if (this.closed) {
+                nextChannel.close();
+                throw new IllegalStateException("The write-ahead log has been closed.");
+            }
+            previousChannel = this.channel;
+            this.channel = nextChannel;
+            this.segmentBase = position;
+        } finally {
+            this.lock.unlock();
+        }
+        previousChannel.close();
+        forceDirectory(this.path);
+    }
+
+    /**
+     * Writes the log up to a given position, becoming the writer of the next batch if no other thread
+     * is writing one, or waiting for the current writer otherwise
+     * @param position: the position the log has to be written up to
+     * @param force: whether the log also has to be forced to disk up to that position
+     * @throws IOException if the log cannot be written
+     */
+    private void flush(long position, boolean force) throws IOException {
+        this.lock.lock();
+        try {
+            while ((force ? this.durablePosition : this.writtenPosition) < position) {
+                if (this.failure != null) {
+                    throw new IOException("A previous batch could not be written.", this.failure);
+                }
+                if (this.writing) {
+                    this.batchWritten.awaitUninterruptibly();
+                    continue;
+                }
+                this.writing = true;
+                ByteBuffer batch = this.pending;
+                this.pending = this.spare;
+                this.pending.clear();
+                this.spare = batch;
+                long batchEnd = this.appendedPosition;
+                FileChannel segmentChannel = this.channel;
+                boolean completed = false;
+                this.lock.unlock();
+                try {
+                    batch.flip();
+                    while (batch.hasRemaining()) {
+                        segmentChannel.write(batch);
+                    }
+                    if (force) {
+                        segmentChannel.force(false);
+                    }
+                    completed = true;
+                } catch (IOException e) {
+                    this.failure = e;
+                    throw e;
+                } finally {
+                    this.lock.lock();
+                    this.writing = false;
+                    if (completed) {
+                        this.writtenPosition = batchEnd;
+                        if (force) {
+                            this.durablePosition = batchEnd;
+                        }
+                    }
+                    this.batchWritten.signalAll();
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Background flush of every appended record, reporting failures instead of throwing them
+     * @param force: whether the records also have to be forced to disk
+     */
+    private void flushQuietly(boolean force) {
+        try {
+            this.flush(this.getAppendedPosition(), force);
+        } catch (IOException e) {
+            System.out.println("Could not write to the write-ahead log: " + e.getLocalizedMessage());
+        }
+    }
+}
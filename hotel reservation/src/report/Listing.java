@@ -0,0 +1,208 @@
+package report;
+
+import model.Customer;
+import model.IRoom;
+import model.Reservation;
+import utils.DateFormatter;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Cursor over the records of a listing (e.g. all the customers), rendering them to a {@link ReportWriter}
+ * page by page as they are read from a stream, so a listing of any size is never held in memory nor
+ * written in one go.
+ * A listing is written as a header, its records, which may be grouped (e.g. the reservations by room), and
+ * a footer. It can only be consumed once.
+ *
+ * @param <T> the type of the records
+ * @author Cláudia Martins
+ */
+public final class Listing<T> {
+
+    /**
+     * Title of the listing (e.g. "CUSTOMER LIST")
+     */
+    private final String title;
+
+    /**
+     * Line written instead of the records when there is none
+     */
+    private final String emptyMessage;
+
+    /**
+     * The records not yet written
+     */
+    private final Iterator<T> records;
+
+    /**
+     * Formatter of the lines of the records
+     */
+    private final RecordFormatter<T> formatter;
+
+    /**
+     * Function giving the title of the group of a record, or null if the records are not grouped
+     */
+    private final Function<T, String> group;
+
+    /**
+     * Title of the group of the last record written, or null if no record was written
+     */
+    private String currentGroup;
+
+    /**
+     * Number of records written
+     */
+    private long writtenCount;
+
+    /**
+     * Constructor for the Listing class
+     *
+     * @param title: the title of the listing
+     * @param emptyMessage: the line written instead of the records when there is none
+     * @param records: the records, in the order they are written
+     * @param formatter: the formatter of the lines of the records
+     * @param group: the function giving the title of the group of a record, or null if the records are
+     *             not grouped
+     */
+    public Listing(String title, String emptyMessage, Stream<T> records, RecordFormatter<T> formatter,
+                   Function<T, String> group) {
+        this.title = title;
+        this.emptyMessage = emptyMessage;
+        this.records = records.iterator();
+        this.formatter = formatter;
+        this.group = group;
+    }
+
+    /**
+     * Creates a listing of customers
+     *
+     * @param customers: the customers, in the order they are written
+     * @return the listing
+     */
+    public static Listing<Customer> customers(Stream<Customer> customers) {
+        return new Listing<>("CUSTOMER LIST", "No customers to show.", customers,
+                (customer, line) -> line.append(customer.getFirstName()).append(' ')
+                        .append(customer.getLastName()).append(": ").append(customer.getEmail()),
+                null);
+    }
+
+    /**
+     * Creates a listing of rooms
+     *
+     * @param rooms: the rooms, in the order they are written
+     * @return the listing
+     */
+    public static Listing<IRoom> rooms(Stream<IRoom> rooms) {
+        return new Listing<>("ROOM LIST", "No rooms to show.", rooms,
+                (room, line) -> line.append(room), null);
+    }
+
+    /**
+     * Creates a listing of reservations, grouped by room
+     *
+     * @param reservations: the reservations, sorted by room
+     * @return the listing
+     */
+    public static Listing<Reservation> reservations(Stream<Reservation> reservations) {
+        return new Listing<>("RESERVATION LIST", "No reservations to show.", reservations,
+                (reservation, line) -> line.append("Reservation: [ customer: ")
+                        .append(reservation.getCustomer().getFirstName()).append(' ')
+                        .append(reservation.getCustomer().getLastName())
+                        .append(", room: ").append(reservation.getRoom().getRoomNumber())
+                        .append(", check-in: ").append(DateFormatter.formatDay(reservation.getCheckInDay()))
+                        .append(", check-out: ").append(DateFormatter.formatDay(reservation.getCheckOutDay()))
+                        .append(" ]"),
+                reservation -> "ROOM " + reservation.getRoom().getRoomNumber());
+    }
+
+    /**
+     * Checks if some records are not yet written
+     *
+     * @return true if some records are not yet written, false otherwise
+     */
+    public boolean hasNext() {
+        return this.records.hasNext();
+    }
+
+    /**
+     * Retrieves the number of records written so far
+     *
+     * @return the number of records written
+     */
+    public long getWrittenCount() {
+        return this.writtenCount;
+    }
+
+    /**
+     * Writes the header of the listing, followed by the empty message if there is no record
+     *
+     * @param writer: the writer of the listing
+     */
+    public void writeHeader(ReportWriter writer) {
+        writer.writeLine("");
+        writer.writeLine("--- " + this.title + " ---");
+        if (!this.records.hasNext()) {
+            writer.writeLine(this.emptyMessage);
+        }
+    }
+
+    /**
+     * Writes the next page of records
+     *
+     * @param writer: the writer of the listing
+     * @param pageSize: the maximum number of records written
+     * @return the number of records written
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    public int writePage(ReportWriter writer, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("The page size must be positive.");
+        }
+        int count = 0;
+        while (count < pageSize && this.records.hasNext()) {
+            T record = this.records.next();
+            if (this.group != null) {
+                String recordGroup = this.group.apply(record);
+                if (!Objects.equals(recordGroup, this.currentGroup)) {
+                    this.currentGroup = recordGroup;
+                    writer.startLine().append("--- --- ").append(recordGroup).append(" --- ---");
+                    writer.endLine();
+                }
+            }
+            this.formatter.format(record, writer.startLine());
+            writer.endLine();
+            count++;
+        }
+        this.writtenCount += count;
+        return count;
+    }
+
+    /**
+     * Writes the footer of the listing
+     *
+     * @param writer: the writer of the listing
+     */
+    public void writeFooter(ReportWriter writer) {
+        writer.writeLine("--- END " + this.title + " ---");
+        writer.writeLine("");
+    }
+
+    /**
+     * Writes the whole listing: its header, all the remaining records and its footer
+     *
+     * @param writer: the writer of the listing
+     * @return the number of records written by this call
+     */
+    public long writeAll(ReportWriter writer) {
+        long count = 0;
+        this.writeHeader(writer);
+        while (this.records.hasNext()) {
+            count += this.writePage(writer, Integer.MAX_VALUE);
+        }
+        this.writeFooter(writer);
+        return count;
+    }
+}
@@ -0,0 +1,20 @@
+package report;
+
+/**
+ * Formats a record of a {@link Listing} as a line, appending it to a buffer that is reused from one line
+ * to the next, so that rendering a record allocates no intermediate strings.
+ *
+ * @param <T> the type of the records
+ * @author Cláudia Martins
+ */
+@FunctionalInterface
+public interface RecordFormatter<T> {
+
+    /**
+     * Appends the line of a record to a buffer
+     *
+     * @param record: the record
+     * @param line: the buffer the line is appended to, without a line separator
+     */
+    void format(T record, StringBuilder line);
+}
@@ -0,0 +1,158 @@
+package report;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Buffered writer of the lines of reports, to the console or to a file.
+ * Lines are built in a reusable buffer and copied into a large output buffer, which is only written out
+ * when it is full or flushed, so rendering a listing costs a handful of writes instead of one per record.
+ * A writer is meant to be reused from one report to the next, by a single thread at a time.
+ *
+ * @author Cláudia Martins
+ */
+public final class ReportWriter implements Closeable, Flushable {
+
+    /**
+     * Size of the output buffer, in characters
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The line separator of the platform
+     */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * The buffered output
+     */
+    private final Writer out;
+
+    /**
+     * Whether closing the writer closes the output, which is not the case of the console
+     */
+    private final boolean closeOutput;
+
+    /**
+     * Reusable buffer of the line being built
+     */
+    private final StringBuilder line;
+
+    /**
+     * Reusable array the line is copied to before being written
+     */
+    private char[] chars;
+
+    /**
+     * Constructor for the ReportWriter class
+     *
+     * @param out: the output the lines are written to
+     * @param closeOutput: whether closing the writer closes the output
+     */
+    private ReportWriter(Writer out, boolean closeOutput) {
+        this.out = new BufferedWriter(out, BUFFER_SIZE);
+        this.closeOutput = closeOutput;
+        this.line = new StringBuilder(256);
+        this.chars = new char[256];
+    }
+
+    /**
+     * Creates a writer of reports to the console. Closing it flushes it without closing the console.
+     *
+     * @return the writer
+     */
+    public static ReportWriter toConsole() {
+        return new ReportWriter(new OutputStreamWriter(System.out, System.out.charset()), false);
+    }
+
+    /**
+     * Creates a writer of reports to a file, in UTF-8, replacing the file if it exists
+     *
+     * @param file: the file
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static ReportWriter toFile(Path file) throws IOException {
+        return new ReportWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * Starts a new line, clearing the reusable line buffer
+     *
+     * @return the line buffer, to be written with {@link #endLine()}
+     */
+    public StringBuilder startLine() {
+        this.line.setLength(0);
+        return this.line;
+    }
+
+    /**
+     * Writes the line built since the last call of {@link #startLine()}, followed by a line separator
+     *
+     * @throws UncheckedIOException if the line cannot be written
+     */
+    public void endLine() {
+        int length = this.line.length();
+        if (this.chars.length < length) {
+            this.chars = new char[Math.max(length, this.chars.length * 2)];
+        }
+        this.line.getChars(0, length, this.chars, 0);
+        try {
+            this.out.write(this.chars, 0, length);
+            this.out.write(LINE_SEPARATOR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a line of text
+     *
+     * @param text: the text of the line
+     * @throws UncheckedIOException if the line cannot be written
+     */
+    public void writeLine(String text) {
+        try {
+            this.out.write(text);
+            this.out.write(LINE_SEPARATOR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes out the buffered lines
+     *
+     * @throws UncheckedIOException if the lines cannot be written
+     */
+    @Override
+    public void flush() {
+        try {
+            this.out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes out the buffered lines and closes the output, unless it is the console
+     *
+     * @throws IOException if the lines cannot be written or the output cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closeOutput) {
+            this.out.close();
+        } else {
+            this.out.flush();
+        }
+    }
+}
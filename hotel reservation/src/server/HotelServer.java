@@ -0,0 +1,654 @@
+package server;
+
+import api.AdminResource;
+import api.HotelResource;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import metrics.MetricsRegistry;
+import model.Customer;
+import model.IRoom;
+import model.Reservation;
+import model.RoomSearch;
+import model.RoomType;
+import service.BookingConflictException;
+import utils.DateFormatter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP server that exposes {@link HotelResource} and {@link AdminResource} as a JSON API, so that several
+ * clients (e.g. the front desk, the website and partner channels) can use the same in-memory hotel at the
+ * same time. It is built on the JDK's {@link HttpServer} and handles each request on its own virtual thread.
+ * Endpoints:
+ * <ul>
+ *     <li>GET /rooms?checkIn=yyyy/MM/dd&amp;checkOut=yyyy/MM/dd: rooms available between two dates</li>
+ *     <li>GET /rooms?type=single|double&amp;minPrice=&amp;maxPrice=&amp;free=true&amp;limit=: rooms searched by
+ *     type, price and whether they are free, sorted by price, optionally only those available between the
+ *     checkIn and checkOut dates (at most 100 rooms unless a limit is given)</li>
+ *     <li>GET /rooms/{roomNumber}: a room</li>
+ *     <li>POST /customers: creates a customer, given its email, firstName and lastName</li>
+ *     <li>GET /customers/{email}: a customer</li>
+ *     <li>GET /customers/{email}/reservations: the reservations of a customer</li>
+ *     <li>POST /reservations: books a room, given the email of the customer, the roomNumber and the checkIn
+ *     and checkOut dates</li>
+ *     <li>POST /reservations/cancellations: cancels the reservation given by the email of the customer, the
+ *     roomNumber and the checkIn and checkOut dates</li>
+ *     <li>POST /reservations/modifications: moves the reservation given as for a cancellation to the
+ *     newCheckIn and newCheckOut dates, and to the newRoomNumber room if one is given</li>
+ *     <li>GET /admin/customers, /admin/rooms and /admin/reservations: all the customers, rooms and
+ *     reservations</li>
+ *     <li>GET /admin/customers?prefix=&amp;limit=: the customers whose last name, first name or email starts
+ *     with a prefix, ignoring case and accents (at most 10 customers unless a limit is given)</li>
+ *     <li>GET /metrics: the metrics of the {@link MetricsRegistry}, in the Prometheus text format</li>
+ * </ul>
+ * Errors are answered with a JSON object holding the error message. The admin endpoints are not
+ * authenticated, so the server is meant to be reachable only from trusted networks.
+ *
+ * @author Cláudia Martins
+ */
+public final class HotelServer {
+
+    /**
+     * Default port the server listens on
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * Maximum number of rooms returned by a room search that does not set a limit
+     */
+    private static final int DEFAULT_SEARCH_LIMIT = 100;
+
+    /**
+     * Maximum number of customers returned by a customer lookup that does not set a limit
+     */
+    private static final int DEFAULT_CUSTOMER_LIMIT = 10;
+
+    /**
+     * Parameters of a room search, besides the dates
+     */
+    private static final List<String> SEARCH_PARAMETERS = List.of("type", "minPrice", "maxPrice", "free", "limit");
+
+    /**
+     * Content type of JSON responses
+     */
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    /**
+     * Content type of the Prometheus text format
+     */
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Maximum size of a request body, in bytes
+     */
+    private static final int MAX_BODY_SIZE = 64 * 1024;
+
+    /**
+     * The HotelResource instance for hotel-related operations
+     */
+    private final HotelResource hotelResource;
+
+    /**
+     * The AdminResource instance for admin operations
+     */
+    private final AdminResource adminResource;
+
+    /**
+     * The underlying HTTP server
+     */
+    private final HttpServer httpServer;
+
+    /**
+     * Executor starting a virtual thread for each request
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Constructor for the HotelServer class, binding it to an address without starting it
+     *
+     * @param address: the address to listen on (port 0 picks a free port)
+     * @throws IOException if the server cannot be bound to the address
+     */
+    public HotelServer(InetSocketAddress address) throws IOException {
+        this.hotelResource = HotelResource.getInstance();
+        this.adminResource = AdminResource.getInstance();
+        this.httpServer = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.httpServer.setExecutor(this.executor);
+        this.httpServer.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        this.httpServer.start();
+    }
+
+    /**
+     * Retrieves the address the server listens on
+     *
+     * @return the address
+     */
+    public InetSocketAddress getAddress() {
+        return this.httpServer.getAddress();
+    }
+
+    /**
+     * Stops the server, waiting for the requests being handled to finish
+     *
+     * @param delaySeconds: the maximum time to wait for the requests being handled, in seconds
+     */
+    public void stop(int delaySeconds) {
+        this.httpServer.stop(delaySeconds);
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Handles a request, routing it to its endpoint and sending the response
+     *
+     * @param exchange: the request and response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        Response response;
+        try {
+            response = this.route(exchange);
+        } catch (BookingConflictException e) {
+            response = new Response(409, Json.error(e.getLocalizedMessage()));
+        } catch (IllegalArgumentException e) {
+            response = new Response(400, Json.error(e.getLocalizedMessage()));
+        } catch (RuntimeException e) {
+            response = new Response(500, Json.error("Internal error: " + e));
+        }
+        byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType());
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    /**
+     * Routes a request to its endpoint
+     *
+     * @param exchange: the request
+     * @return the response
+     * @throws IOException if the request body cannot be read
+     * @throws IllegalArgumentException if the request is not valid
+     */
+    private Response route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        List<String> path = new ArrayList<>();
+        for (String segment : exchange.getRequestURI().getPath().split("/")) {
+            if (!segment.isEmpty()) {
+                path.add(segment);
+            }
+        }
+        String resource = path.isEmpty() ? "" : path.get(0);
+        switch (resource) {
+            case "rooms": {
+                if (path.size() == 1 && method.equals("GET")) {
+                    return this.findRooms(parseQuery(exchange.getRequestURI().getRawQuery()));
+                }
+                if (path.size() == 2 && method.equals("GET")) {
+                    return this.getRoom(path.get(1));
+                }
+                break;
+            }
+            case "customers": {
+                if (path.size() == 1 && method.equals("POST")) {
+                    return this.createCustomer(readBody(exchange));
+                }
+                if (path.size() == 2 && method.equals("GET")) {
+                    return this.getCustomer(path.get(1));
+                }
+                if (path.size() == 3 && path.get(2).equals("reservations") && method.equals("GET")) {
+                    return this.getCustomerReservations(path.get(1));
+                }
+                break;
+            }
+            case "reservations": {
+                if (path.size() == 1 && method.equals("POST")) {
+                    return this.bookRoom(readBody(exchange));
+                }
+                if (path.size() == 2 && path.get(1).equals("cancellations") && method.equals("POST")) {
+                    return this.cancelReservation(readBody(exchange));
+                }
+                if (path.size() == 2 && path.get(1).equals("modifications") && method.equals("POST")) {
+                    return this.modifyReservation(readBody(exchange));
+                }
+                break;
+            }
+            case "admin": {
+                if (path.size() == 2 && method.equals("GET")) {
+                    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+                    if (path.get(1).equals("customers") && query.containsKey("prefix")) {
+                        return this.findCustomers(query);
+                    }
+                    return this.getAdminListing(path.get(1));
+                }
+                break;
+            }
+            case "metrics": {
+                if (path.size() == 1 && method.equals("GET")) {
+                    return new Response(200, MetricsRegistry.getInstance().toPrometheus(), PROMETHEUS_CONTENT_TYPE);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+        return notFound("There is no " + method + " endpoint at " + exchange.getRequestURI().getPath() + ".");
+    }
+
+    /**
+     * Finds the rooms available between two dates, or searches for rooms if the query has search parameters
+     *
+     * @param query: the query parameters, with the checkIn and checkOut dates and the search parameters
+     * @return the available rooms
+     */
+    private Response findRooms(Map<String, String> query) {
+        if (SEARCH_PARAMETERS.stream().anyMatch(query::containsKey)) {
+            return this.searchRooms(query);
+        }
+        LocalDate checkInDate = parseDate(query, "checkIn");
+        LocalDate checkOutDate = parseDate(query, "checkOut");
+        validateDates(checkInDate, checkOutDate);
+        StringBuilder json = new StringBuilder();
+        Json.writeArray(json, this.hotelResource.findARoom(checkInDate, checkOutDate), Json::writeRoom);
+        return new Response(200, json.toString());
+    }
+
+    /**
+     * Searches for rooms by type, price and whether they are free, optionally only among those available
+     * between two dates
+     *
+     * @param query: the query parameters
+     * @return the rooms found, sorted by price
+     */
+    private Response searchRooms(Map<String, String> query) {
+        RoomType roomType = null;
+        if (query.containsKey("type")) {
+            try {
+                roomType = RoomType.valueOf(required(query, "type").toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("The room type must be single or double.");
+            }
+        }
+        boolean freeOnly = Boolean.parseBoolean(query.getOrDefault("free", "false").trim());
+        int limit;
+        try {
+            limit = query.containsKey("limit") ? Integer.parseInt(required(query, "limit")) : DEFAULT_SEARCH_LIMIT;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The limit must be a whole number.");
+        }
+        RoomSearch search = new RoomSearch(
+                query.containsKey("checkIn") ? parseDate(query, "checkIn") : null,
+                query.containsKey("checkOut") ? parseDate(query, "checkOut") : null,
+                roomType, parsePrice(query, "minPrice"), parsePrice(query, "maxPrice"), freeOnly, limit);
+        StringBuilder json = new StringBuilder();
+        Json.writeArray(json, this.hotelResource.searchRooms(search), Json::writeRoom);
+        return new Response(200, json.toString());
+    }
+
+    /**
+     * Retrieves a room
+     *
+     * @param roomNumber: the room number
+     * @return the room
+     */
+    private Response getRoom(String roomNumber) {
+        IRoom room = this.hotelResource.getRoom(roomNumber);
+        if (room == null) {
+            return notFound("Room " + roomNumber + " does not exist.");
+        }
+        StringBuilder json = new StringBuilder();
+        Json.writeRoom(json, room);
+        return new Response(200, json.toString());
+    }
+
+    /**
+     * Creates a customer
+     *
+     * @param body: the request body, with the email, firstName and lastName of the customer
+     * @return the created customer
+     */
+    private Response createCustomer(Map<String, String> body) {
+        String email = required(body, "email");
+        String firstName = required(body, "firstName");
+        String lastName = required(body, "lastName");
+        if (this.hotelResource.getCustomer(email) != null) {
+            return new Response(409, Json.error("A customer with email " + email + " already exists."));
+        }
+        this.hotelResource.createACustomer(email, firstName, lastName);
+        StringBuilder json = new StringBuilder();
+        Json.writeCustomer(json, this.hotelResource.getCustomer(email));
+        return new Response(201, json.toString());
+    }
+
+    /**
+     * Retrieves a customer
+     *
+     * @param email: the email of the customer
+     * @return the customer
+     */
+    private Response getCustomer(String email) {
+        Customer customer = this.hotelResource.getCustomer(email);
+        if (customer == null) {
+            return notFound("Customer with email " + email + " does not exist.");
+        }
+        StringBuilder json = new StringBuilder();
+        Json.writeCustomer(json, customer);
+        return new Response(200, json.toString());
+    }
+
+    /**
+     * Retrieves the reservations of a customer
+     *
+     * @param email: the email of the customer
+     * @return the reservations, sorted by check-in date
+     */
+    private Response getCustomerReservations(String email) {
+        Customer customer = this.hotelResource.getCustomer(email);
+        if (customer == null) {
+            return notFound("Customer with email " + email + " does not exist.");
+        }
+        StringBuilder json = new StringBuilder();
+        Json.writeArray(json, this.adminResource.getCustomerReservations(customer), Json::writeReservation);
+        return new Response(200, json.toString());
+    }
+
+    /**
+     * Books a room
+     *
+     * @param body: the request body, with the email of the customer, the roomNumber and the checkIn and
+     *            checkOut dates
+     * @return the created reservation
+     */
+    private Response bookRoom(Map<String, String> body) {
+        String email = required(body, "email");
+        String roomNumber = required(body, "roomNumber");
+        LocalDate checkInDate = parseDate(body, "checkIn");
+        LocalDate checkOutDate = parseDate(body, "checkOut");
+        validateDates(checkInDate, checkOutDate);
+        if (this.hotelResource.getCustomer(email) == null) {
+            return notFound("Customer with email " + email + " does not exist.");
+        }
+        IRoom room = this.hotelResource.getRoom(roomNumber);
+        if (room == null) {
+            return notFound("Room " + roomNumber + " does not exist.");
+        }
+        Reservation reservation;
+        try {
+            reservation = this.hotelResource.bookARoom(email, room, checkInDate, checkOutDate);
+        } catch (IllegalArgumentException e) {
+            return new Response(409, Json.error(e.getLocalizedMessage()));
+        }
+        StringBuilder json = new StringBuilder();
+        Json.writeReservation(json, reservation);
+        return new Response(201, json.toString());
+    }
+
+    /**
+     * Cancels a reservation
+     *
+     * @param body: the request body, with the email of the customer, the roomNumber and the checkIn and
+     *            checkOut dates of the reservation
+     * @return the cancelled reservation
+     */
+    private Response cancelReservation(Map<String, String> body) {
+        Reservation reservation = this.parseReservation(body);
+        if (reservation == null) {
+            return notFound("The customer or the room of the reservation does not exist.");
+        }
+        Reservation cancelled;
+        try {
+            cancelled = this.hotelResource.cancelReservation(reservation);
+        } catch (IllegalArgumentException e) {
+            return notFound(e.getLocalizedMessage());
+        }
+        StringBuilder json = new StringBuilder();
+        Json.writeReservation(json, cancelled);
+        return new Response(200, json.toString());
+    }
+
+    /**
+     * Moves a reservation to other dates and, optionally, another room
+     *
+     * @param body: the request body, with the reservation as for a cancellation, the newCheckIn and
+     *            newCheckOut dates and optionally the newRoomNumber
+     * @return the modified reservation
+     */
+    private Response modifyReservation(Map<String, String> body) {
+        Reservation reservation = this.parseReservation(body);
+        if (reservation == null) {
+            return notFound("The customer or the room of the reservation does not exist.");
+        }
+        LocalDate checkInDate = parseDate(body, "newCheckIn");
+        LocalDate checkOutDate = parseDate(body, "newCheckOut");
+        validateDates(checkInDate, checkOutDate);
+        IRoom room = reservation.getRoom();
+        if (body.containsKey("newRoomNumber")) {
+            room = this.hotelResource.getRoom(body.get("newRoomNumber"));
+            if (room == null) {
+                return notFound("Room " + body.get("newRoomNumber") + " does not exist.");
+            }
+        }
+        Reservation modified;
+        try {
+            modified = this.hotelResource.modifyReservation(reservation, room, checkInDate, checkOutDate);
+        } catch (IllegalArgumentException e) {
+            return new Response(409, Json.error(e.getLocalizedMessage()));
+        }
+        StringBuilder json = new StringBuilder();
+        Json.writeReservation(json, modified);
+        return new Response(200, json.toString());
+    }
+
+    /**
+     * Parses the reservation a cancellation or modification refers to
+     *
+     * @param body: the request body, with the email of the customer, the roomNumber and the checkIn and
+     *            checkOut dates
+     * @return the reservation, or null if the customer or the room does not exist
+     */
+    private Reservation parseReservation(Map<String, String> body) {
+        String email = required(body, "email");
+        String roomNumber = required(body, "roomNumber");
+        LocalDate checkInDate = parseDate(body, "checkIn");
+        LocalDate checkOutDate = parseDate(body, "checkOut");
+        validateDates(checkInDate, checkOutDate);
+        Customer customer = this.hotelResource.getCustomer(email);
+        IRoom room = this.hotelResource.getRoom(roomNumber);
+        return customer == null || room == null ? null : new Reservation(customer, room, checkInDate, checkOutDate);
+    }
+
+    /**
+     * Finds the customers whose last name, first name or email starts with a prefix
+     *
+     * @param query: the query parameters, with the prefix and optionally the limit
+     * @return the customers found
+     */
+    private Response findCustomers(Map<String, String> query) {
+        int limit;
+        try {
+            limit = query.containsKey("limit") ? Integer.parseInt(required(query, "limit")) : DEFAULT_CUSTOMER_LIMIT;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The limit must be a whole number.");
+        }
+        StringBuilder json = new StringBuilder();
+        Json.writeArray(json, this.adminResource.findCustomers(query.get("prefix"), limit), Json::writeCustomer);
+        return new Response(200, json.toString());
+    }
+
+    /**
+     * Retrieves one of the admin listings
+     *
+     * @param listing: the listing (customers, rooms or reservations)
+     * @return all the customers, rooms or reservations
+     */
+    private Response getAdminListing(String listing) {
+        StringBuilder json = new StringBuilder();
+        switch (listing) {
+            case "customers" -> Json.writeArray(json, this.adminResource.getAllCustomers(), Json::writeCustomer);
+            case "rooms" -> Json.writeArray(json, this.adminResource.getAllRooms(), Json::writeRoom);
+            case "reservations" ->
+                    Json.writeArray(json, this.adminResource.getAllReservations(), Json::writeReservation);
+            default -> {
+                return notFound("There is no admin listing of " + listing + ".");
+            }
+        }
+        return new Response(200, json.toString());
+    }
+
+    /**
+     * Reads the body of a request as a flat JSON object
+     *
+     * @param exchange: the request
+     * @return the values of the object by name
+     * @throws IOException if the body cannot be read
+     * @throws IllegalArgumentException if the body is too large or not a flat JSON object
+     */
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            body = requestBody.readNBytes(MAX_BODY_SIZE + 1);
+        }
+        if (body.length > MAX_BODY_SIZE) {
+            throw new IllegalArgumentException("The request body cannot be larger than " + MAX_BODY_SIZE
+                    + " bytes.");
+        }
+        return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses the query parameters of a request
+     *
+     * @param rawQuery: the encoded query, or null if there is none
+     * @return the decoded parameters by name
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Retrieves a required value of a request
+     *
+     * @param values: the values of the request by name
+     * @param name: the name of the value
+     * @return the value, without surrounding whitespace
+     * @throws IllegalArgumentException if the value is missing or blank
+     */
+    private static String required(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("The " + name + " value is required.");
+        }
+        return value.trim();
+    }
+
+    /**
+     * Parses a required date of a request
+     *
+     * @param values: the values of the request by name
+     * @param name: the name of the date
+     * @return the date
+     * @throws IllegalArgumentException if the date is missing or not in the yyyy/MM/dd format
+     */
+    private static LocalDate parseDate(Map<String, String> values, String name) {
+        return DateFormatter.getDate(required(values, name));
+    }
+
+    /**
+     * Parses an optional price of a request
+     *
+     * @param values: the values of the request by name
+     * @param name: the name of the price
+     * @return the price, or null if it is missing
+     * @throws IllegalArgumentException if the price is not a number
+     */
+    private static Double parsePrice(Map<String, String> values, String name) {
+        if (!values.containsKey(name)) {
+            return null;
+        }
+        try {
+            return Double.valueOf(required(values, name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The " + name + " must be a number.");
+        }
+    }
+
+    /**
+     * Checks that the check-out date is not earlier than the check-in date
+     *
+     * @param checkInDate: the check-in date
+     * @param checkOutDate: the check-out date
+     * @throws IllegalArgumentException if the check-out date is earlier than the check-in date
+     */
+    private static void validateDates(LocalDate checkInDate, LocalDate checkOutDate) {
+        if (checkInDate.isAfter(checkOutDate)) {
+            throw new IllegalArgumentException("The check-out date has to be later than the check-in date.");
+        }
+    }
+
+    /**
+     * Builds a "not found" response
+     *
+     * @param message: the error message
+     * @return the response
+     */
+    private static Response notFound(String message) {
+        return new Response(404, Json.error(message));
+    }
+
+    /**
+     * Response to a request
+     *
+     * @param status: the HTTP status code
+     * @param body: the body
+     * @param contentType: the content type of the body
+     */
+    private record Response(int status, String body, String contentType) {
+
+        /**
+         * Constructor for a JSON response
+         *
+         * @param status: the HTTP status code
+         * @param body: the JSON body
+         */
+        private Response(int status, String body) {
+            this(status, body, JSON_CONTENT_TYPE);
+        }
+    }
+}
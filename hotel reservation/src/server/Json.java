@@ -0,0 +1,308 @@
+package server;
+
+import model.Customer;
+import model.IRoom;
+import model.Reservation;
+import utils.DateFormatter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Utility class for writing and reading the JSON documents of the HTTP API of the hotel reservation
+ * application.
+ * Only what the API needs is supported: model objects are written field by field into a StringBuilder,
+ * and request bodies are read as flat objects whose values are strings, numbers, booleans or null.
+ * Dates are written and read in the "yyyy/MM/dd" format of {@link DateFormatter}.
+ *
+ * @author Cláudia Martins
+ */
+final class Json {
+
+    /**
+     * Hexadecimal digits, for escaping control characters
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private Json() {
+    }
+
+    /**
+     * Writes a room as a JSON object
+     *
+     * @param json: the builder the object is written to
+     * @param room: the room
+     */
+    static void writeRoom(StringBuilder json, IRoom room) {
+        json.append("{\"roomNumber\":");
+        writeString(json, room.getRoomNumber());
+        json.append(",\"price\":").append(room.getRoomPrice())
+                .append(",\"roomType\":\"").append(room.getRoomType())
+                .append("\",\"free\":").append(room.isFree()).append('}');
+    }
+
+    /**
+     * Writes a customer as a JSON object
+     *
+     * @param json: the builder the object is written to
+     * @param customer: the customer
+     */
+    static void writeCustomer(StringBuilder json, Customer customer) {
+        json.append("{\"email\":");
+        writeString(json, customer.getEmail());
+        json.append(",\"firstName\":");
+        writeString(json, customer.getFirstName());
+        json.append(",\"lastName\":");
+        writeString(json, customer.getLastName());
+        json.append('}');
+    }
+
+    /**
+     * Writes a reservation as a JSON object, referring to its customer by email and to its room by number
+     *
+     * @param json: the builder the object is written to
+     * @param reservation: the reservation
+     */
+    static void writeReservation(StringBuilder json, Reservation reservation) {
+        json.append("{\"email\":");
+        writeString(json, reservation.getCustomer().getEmail());
+        json.append(",\"roomNumber\":");
+        writeString(json, reservation.getRoom().getRoomNumber());
+        json.append(",\"checkIn\":\"").append(DateFormatter.formatDay(reservation.getCheckInDay()))
+                .append("\",\"checkOut\":\"").append(DateFormatter.formatDay(reservation.getCheckOutDay()))
+                .append("\"}");
+    }
+
+    /**
+     * Writes a collection as a JSON array
+     *
+     * @param json: the builder the array is written to
+     * @param values: the values of the array
+     * @param writer: the writer of each value
+     * @param <T> the type of the values
+     */
+    static <T> void writeArray(StringBuilder json, Collection<? extends T> values,
+                               BiConsumer<StringBuilder, T> writer) {
+        json.append('[');
+        boolean first = true;
+        for (T value : values) {
+            if (!first) {
+                json.append(',');
+            }
+            writer.accept(json, value);
+            first = false;
+        }
+        json.append(']');
+    }
+
+    /**
+     * Writes an error message as a JSON object
+     *
+     * @param message: the error message
+     * @return the JSON object
+     */
+    static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        writeString(json, message == null ? "" : message);
+        return json.append('}').toString();
+    }
+
+    /**
+     * Writes a string as a JSON string, escaping it
+     *
+     * @param json: the builder the string is written to
+     * @param value: the string
+     */
+    static void writeString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Reads a flat JSON object, whose values are strings, numbers, booleans or null
+     *
+     * @param json: the JSON document
+     * @return the values of the object by name, as strings (null values are left out)
+     * @throws IllegalArgumentException if the document is not a flat JSON object
+     */
+    static Map<String, String> parseObject(String json) {
+        Parser parser = new Parser(json);
+        Map<String, String> object = new HashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String name = parser.readString();
+                parser.expect(':');
+                String value = parser.readValue();
+                if (value != null) {
+                    object.put(name, value);
+                }
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        if (parser.skipWhitespace() < json.length()) {
+            throw new IllegalArgumentException("Unexpected content after the JSON object.");
+        }
+        return object;
+    }
+
+    /**
+     * Parser of a JSON document, reading it from left to right
+     */
+    private static final class Parser {
+
+        /**
+         * The JSON document
+         */
+        private final String json;
+
+        /**
+         * Position of the next character to be read
+         */
+        private int position;
+
+        /**
+         * Constructor for the Parser class
+         *
+         * @param json: the JSON document
+         */
+        private Parser(String json) {
+            this.json = json;
+        }
+
+        /**
+         * Skips whitespace
+         *
+         * @return the position of the next character to be read
+         */
+        private int skipWhitespace() {
+            while (this.position < this.json.length()
+                    && Character.isWhitespace(this.json.charAt(this.position))) {
+                this.position++;
+            }
+            return this.position;
+        }
+
+        /**
+         * Reads the given character if it is the next one, skipping whitespace
+         *
+         * @param expected: the character
+         * @return true if the character was read, false otherwise
+         */
+        private boolean consume(char expected) {
+            if (this.skipWhitespace() < this.json.length() && this.json.charAt(this.position) == expected) {
+                this.position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Reads the given character, skipping whitespace
+         *
+         * @param expected: the character
+         * @throws IllegalArgumentException if the next character is a different one
+         */
+        private void expect(char expected) {
+            if (!this.consume(expected)) {
+                throw new IllegalArgumentException("Invalid JSON: expected '" + expected + "' at position "
+                        + this.position + ".");
+            }
+        }
+
+        /**
+         * Reads a string, number, boolean or null value
+         *
+         * @return the value as a string, or null for null
+         * @throws IllegalArgumentException if the value is not valid
+         */
+        private String readValue() {
+            if (this.skipWhitespace() < this.json.length() && this.json.charAt(this.position) == '"') {
+                return this.readString();
+            }
+            int start = this.position;
+            while (this.position < this.json.length()
+                    && ",}] \t\r\n".indexOf(this.json.charAt(this.position)) < 0) {
+                this.position++;
+            }
+            String literal = this.json.substring(start, this.position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false")) {
+                return literal;
+            }
+            try {
+                Double.parseDouble(literal);
+                return literal;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid JSON: unsupported value at position " + start + ".");
+            }
+        }
+
+        /**
+         * Reads a string, unescaping it
+         *
+         * @return the string
+         * @throws IllegalArgumentException if the next value is not a valid string
+         */
+        private String readString() {
+            this.expect('"');
+            StringBuilder value = new StringBuilder();
+            while (this.position < this.json.length()) {
+                char c = this.json.charAt(this.position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                } else if (this.position < this.json.length()) {
+                    char escaped = this.json.charAt(this.position++);
+                    switch (escaped) {
+                        case 'b' -> value.append('\b');
+                        case 'f' -> value.append('\f');
+                        case 'n' -> value.append('\n');
+                        case 'r' -> value.append('\r');
+                        case 't' -> value.append('\t');
+                        case 'u' -> {
+                            if (this.position + 4 > this.json.length()) {
+                                throw new IllegalArgumentException("Invalid JSON: incomplete escape sequence.");
+                            }
+                            try {
+                                value.append((char) Integer.parseInt(
+                                        this.json.substring(this.position, this.position + 4), 16));
+                            } catch (NumberFormatException e) {
+                                throw new IllegalArgumentException("Invalid JSON: invalid escape sequence.");
+                            }
+                            this.position += 4;
+                        }
+                        default -> value.append(escaped);
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Invalid JSON: unterminated string.");
+        }
+    }
+}
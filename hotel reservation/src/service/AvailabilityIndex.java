@@ -0,0 +1,388 @@
+package service;
+
+import model.Reservation;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Per-day occupancy bitmaps used to answer availability searches.
+ * Rooms are indexed by their ids, which the hotel gives densely as rooms are added, and every day of a rolling horizon
+ * ({@link #horizonDays} days starting today) keeps one bit per room, set when the room is booked on that
+ * day. Finding the rooms available for a date range is then an OR of the bitmaps of the days in the range,
+ * followed by a scan for the clear bits, instead of a comparison against every reservation.
+ * The bitmaps are kept in a ring buffer: when the horizon moves forward the slots of the past days are
+ * reused for the new days at the end of the horizon, which are filled from the room schedules.
+ * Availability is tracked with a granularity of one day, using the epoch days of the reservations. The
+ * horizon starts at the current day in the Europe/Lisbon time zone.
+ * Bookings and searches share a read lock and set bits atomically, so bookings of different rooms can
+ * update the same day concurrently; only adding rooms and moving the horizon take the write lock.
+ * @see RoomSchedule
+ * @author Cláudia Martins
+ */
+final class AvailabilityIndex {
+
+    /**
+     * Default number of days covered by the index (two years)
+     */
+    static final int DEFAULT_HORIZON_DAYS = 732;
+
+    /**
+     * Time zone used to tell which day is the current one
+     */
+    private static final ZoneId ZONE = ZoneId.of("Europe/Lisbon");
+
+    /**
+     * Number of days covered by the index
+     */
+    private final int horizonDays;
+
+    /**
+     * Schedules of the rooms by room id, used to fill the days that enter the horizon
+     */
+    private final IntFunction<RoomSchedule> schedules;
+
+    /**
+     * Rooms by their id
+     */
+    private final List<RegisteredRoom> roomsByIndex;
+
+    /**
+     * Occupancy bitmap of each day in the horizon, in a ring buffer indexed by epoch day.
+     * A null bitmap means no room is booked on that day.
+     */
+    private final AtomicReferenceArray<AtomicLongArray> occupancy;
+
+    /**
+     * Lock that lets bookings and searches run concurrently while rooms are added or the horizon moves
+     */
+    private final ReadWriteLock lock;
+
+    /**
+     * Number of 64-bit words allocated in each bitmap
+     */
+    private int capacityWords;
+
+    /**
+     * Epoch day of the first day covered by the index
+     */
+    private volatile long firstDay;
+
+    /**
+     * Constructor for the AvailabilityIndex class
+     * @param schedules: finds the schedule of a room by room id
+     * @param horizonDays: the number of days covered by the index
+     */
+    AvailabilityIndex(IntFunction<RoomSchedule> schedules, int horizonDays) {
+        this.horizonDays = horizonDays;
+        this.schedules = schedules;
+        this.roomsByIndex = new ArrayList<>();
+        this.occupancy = new AtomicReferenceArray<>(horizonDays);
+        this.lock = new ReentrantReadWriteLock();
+        this.capacityWords = 1;
+        this.firstDay = LocalDate.now(ZONE).toEpochDay();
+    }
+
+    /**
+     * Registers a room in the index.
+     * The bitmaps double in size whenever they run out of room bits.
+     * @param room: the room to be registered, whose id must be the number of rooms already registered
+     */
+    void addRoom(RegisteredRoom room) {
+        this.addRooms(List.of(room));
+    }
+
+    /**
+     * Registers several rooms in the index, growing the bitmaps at most once
+     * @param rooms: the rooms to be registered, in the order of their ids, which must follow the ids of
+     *             the rooms already registered
+     * @throws IllegalArgumentException if the ids of the rooms do not follow those already registered
+     */
+    void addRooms(Collection<RegisteredRoom> rooms) {
+        this.lock.writeLock().lock();
+        try {
+            int roomCount = this.roomsByIndex.size() + rooms.size();
+            if (wordCount(roomCount) > this.capacityWords) {
+                while (wordCount(roomCount) > this.capacityWords) {
+                    this.capacityWords *= 2;
+                }
+                for (int slot = 0; slot < this.horizonDays; slot++) {
+                    AtomicLongArray bitmap = this.occupancy.get(slot);
+                    if (bitmap != null) {
+                        AtomicLongArray grown = new AtomicLongArray(this.capacityWords);
+                        for (int i = 0; i < bitmap.length(); i++) {
+                            grown.set(i, bitmap.get(i));
+                        }
+                        this.occupancy.set(slot, grown);
+                    }
+                }
+            }
+            for (RegisteredRoom room : rooms) {
+                if (room.getRoomId() != this.roomsByIndex.size()) {
+                    throw new IllegalArgumentException("Room " + room.getRoomNumber() + " is out of order.");
+                }
+                this.roomsByIndex.add(room);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the room of a reservation as booked for every day of the reservation within the horizon
+     * @param reservation: the reservation to be marked
+     */
+    void addReservation(Reservation reservation) {
+        this.advance();
+        this.lock.readLock().lock();
+        try {
+            this.markReservation(reservation, true);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the room of a cancelled reservation as free again for every day of the reservation within the
+     * horizon.
+     * The reservation must have been removed from the schedule of its room beforehand, and no other stay
+     * of the room may overlap it, so that no day booked by another stay is cleared.
+     * @param reservation: the reservation that was cancelled
+     */
+    void removeReservation(Reservation reservation) {
+        this.advance();
+        this.lock.readLock().lock();
+        try {
+            this.markReservation(reservation, false);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the rooms of several reservations as booked, moving the horizon and taking the lock only once
+     * @param reservations: the reservations to be marked
+     */
+    void addReservations(Collection<Reservation> reservations) {
+        this.advance();
+        this.lock.readLock().lock();
+        try {
+            for (Reservation reservation : reservations) {
+                this.markReservation(reservation, true);
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the rooms that are available on every day between two days (inclusive)
+     * @param checkInDay: the epoch day of the check-in date
+     * @param checkOutDay: the epoch day of the check-out date
+     * @return the available rooms, by room id, or null if the range is not within the horizon of the index
+     */
+    Collection<RegisteredRoom> findAvailableRooms(int checkInDay, int checkOutDay) {
+        this.advance();
+        this.lock.readLock().lock();
+        try {
+            long[] occupied = this.findOccupiedRooms(checkInDay, checkOutDay);
+            if (occupied == null) {
+                return null;
+            }
+            int roomCount = this.roomsByIndex.size();
+            List<RegisteredRoom> availableRooms = new ArrayList<>();
+            for (int i = 0; i < occupied.length; i++) {
+                long free = ~occupied[i];
+                while (free != 0) {
+                    int roomIndex = (i << 6) + Long.numberOfTrailingZeros(free);
+                    if (roomIndex >= roomCount) {
+                        break;
+                    }
+                    availableRooms.add(this.roomsByIndex.get(roomIndex));
+                    free &= free - 1;
+                }
+            }
+            return availableRooms;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves a filter of the rooms that are available on every day between two days (inclusive), which
+     * tests a room with a lookup in a copy of the occupancy of those days instead of its schedule.
+     * Rooms added after the filter is created are checked against their schedules.
+     * @param checkInDay: the epoch day of the check-in date
+     * @param checkOutDay: the epoch day of the check-out date
+     * @return the filter, or null if the range is not within the horizon of the index
+     */
+    Predicate<RegisteredRoom> availabilityFilter(int checkInDay, int checkOutDay) {
+        this.advance();
+        long[] occupied;
+        int roomCount;
+        this.lock.readLock().lock();
+        try {
+            occupied = this.findOccupiedRooms(checkInDay, checkOutDay);
+            roomCount = this.roomsByIndex.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        if (occupied == null) {
+            return null;
+        }
+        return room -> {
+            int roomIndex = room.getRoomId();
+            if (roomIndex >= roomCount) {
+                RoomSchedule schedule = this.schedules.apply(roomIndex);
+                return schedule == null || schedule.findConflict(checkInDay, checkOutDay) == null;
+            }
+            return (occupied[roomIndex >>> 6] & (1L << roomIndex)) == 0;
+        };
+    }
+
+    /**
+     * Computes the rooms that are booked on any day between two days (inclusive), as the OR of the bitmaps
+     * of those days. Must be called while holding one of the locks.
+     * @param checkInDay: the epoch day of the check-in date
+     * @param checkOutDay: the epoch day of the check-out date
+     * @return one bit per room, set if the room is booked on any of the days, or null if the range is not
+     * within the horizon of the index
+     */
+    private long[] findOccupiedRooms(int checkInDay, int checkOutDay) {
+        long first = checkInDay;
+        long last = checkOutDay;
+        if (first < this.firstDay || last >= this.firstDay + this.horizonDays || first > last) {
+            return null;
+        }
+        long[] occupied = new long[wordCount(this.roomsByIndex.size())];
+        for (long day = first; day <= last; day++) {
+            AtomicLongArray bitmap = this.occupancy.get(this.slot(day));
+            if (bitmap != null) {
+                for (int i = 0; i < occupied.length; i++) {
+                    occupied[i] |= bitmap.get(i);
+                }
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * Moves the horizon forward to start today, clearing the days left behind and filling the days
+     * that enter the horizon from the room schedules
+     */
+    private void advance() {
+        long today = LocalDate.now(ZONE).toEpochDay();
+        if (today <= this.firstDay) {
+            return;
+        }
+        this.lock.writeLock().lock();
+        try {
+            if (today <= this.firstDay) {
+                return;
+            }
+            long lastDay = this.firstDay + this.horizonDays - 1;
+            long firstNewDay = Math.max(lastDay + 1, today);
+            for (long day = this.firstDay; day < Math.min(today, lastDay + 1); day++) {
+                this.occupancy.set(this.slot(day), null);
+            }
+            this.firstDay = today;
+
+            long newLastDay = today + this.horizonDays - 1;
+            for (long day = firstNewDay; day <= newLastDay; day++) {
+                this.occupancy.set(this.slot(day), null);
+                for (int roomIndex = 0; roomIndex < this.roomsByIndex.size(); roomIndex++) {
+                    RoomSchedule schedule = this.schedules.apply(roomIndex);
+                    if (schedule != null && schedule.findConflict((int) day, (int) day) != null) {
+                        this.setOccupied(day, roomIndex);
+                    }
+                }
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the room of a reservation as booked, or as free, for every day of the reservation within the
+     * horizon.
+     * Must be called while holding one of the locks.
+     * @param reservation: the reservation to be marked
+     * @param occupied: true to mark the room as booked, false to mark it as free
+     */
+    private void markReservation(Reservation reservation, boolean occupied) {
+        int roomIndex = RegisteredRoom.idOf(reservation.getRoom());
+        if (roomIndex >= this.roomsByIndex.size()) {
+            return;
+        }
+        long lastDay = this.firstDay + this.horizonDays - 1;
+        long checkOutDay = reservation.getCheckOutDay();
+        if (checkOutDay < this.firstDay) {
+            return;
+        }
+        long first = Math.max(reservation.getCheckInDay(), this.firstDay);
+        long last = Math.min(checkOutDay, lastDay);
+        for (long day = first; day <= last; day++) {
+            if (occupied) {
+                this.setOccupied(day, roomIndex);
+            } else {
+                this.clearOccupied(day, roomIndex);
+            }
+        }
+    }
+
+    /**
+     * Atomically sets the bit of a room in the bitmap of a day, creating the bitmap if needed.
+     * Must be called while holding one of the locks.
+     * @param day: the epoch day
+     * @param roomIndex: the id of the room
+     */
+    private void setOccupied(long day, int roomIndex) {
+        int slot = this.slot(day);
+        AtomicLongArray bitmap = this.occupancy.get(slot);
+        if (bitmap == null) {
+            this.occupancy.compareAndSet(slot, null, new AtomicLongArray(this.capacityWords));
+            bitmap = this.occupancy.get(slot);
+        }
+        bitmap.getAndAccumulate(roomIndex >>> 6, 1L << roomIndex, (word, bit) -> word | bit);
+    }
+
+    /**
+     * Atomically clears the bit of a room in the bitmap of a day, if the day has a bitmap.
+     * Must be called while holding one of the locks.
+     * @param day: the epoch day
+     * @param roomIndex: the id of the room
+     */
+    private void clearOccupied(long day, int roomIndex) {
+        AtomicLongArray bitmap = this.occupancy.get(this.slot(day));
+        if (bitmap != null) {
+            bitmap.getAndAccumulate(roomIndex >>> 6, ~(1L << roomIndex), (word, mask) -> word & mask);
+        }
+    }
+
+    /**
+     * Retrieves the ring buffer slot of a day
+     * @param day: the epoch day
+     * @return the slot of the day
+     */
+    private int slot(long day) {
+        return (int) Math.floorMod(day, (long) this.horizonDays);
+    }
+
+    /**
+     * Calculates the number of 64-bit words needed to hold one bit per room
+     * @param roomCount: the number of rooms
+     * @return the number of words
+     */
+    private static int wordCount(int roomCount) {
+        return (roomCount + 63) >>> 6;
+    }
+}
@@ -0,0 +1,70 @@
+package service;
+
+import model.BookingRequest;
+
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * Exception thrown when a batch of booking requests cannot be made, reporting every request of the batch
+ * that failed and why. None of the requests of the batch is booked when it is thrown.
+ * @see ReservationService#reserveRooms(List)
+ * @author Cláudia Martins
+ */
+public class BookingConflictException extends IllegalArgumentException {
+
+    /**
+     * Serialization version of the exception
+     */
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The failed requests, in the order they were given in the batch
+     */
+    private final transient List<Conflict> conflicts;
+
+    /**
+     * Constructor for the BookingConflictException class
+     * @param requestCount: the number of requests in the batch
+     * @param conflicts: the failed requests, in the order they were given in the batch
+     */
+    BookingConflictException(int requestCount, List<Conflict> conflicts) {
+        super(describe(requestCount, conflicts));
+        this.conflicts = List.copyOf(conflicts);
+    }
+
+    /**
+     * Retrieves the failed requests of the batch
+     * @return the failed requests, in the order they were given in the batch
+     */
+    public List<Conflict> getConflicts() {
+        return this.conflicts;
+    }
+
+    /**
+     * Builds the message of the exception, listing every failed request
+     * @param requestCount: the number of requests in the batch
+     * @param conflicts: the failed requests
+     * @return the message
+     */
+    private static String describe(int requestCount, List<Conflict> conflicts) {
+        StringBuilder message = new StringBuilder()
+                .append(conflicts.size()).append(" of ").append(requestCount)
+                .append(" booking requests cannot be made, so none of them was booked:");
+        for (Conflict conflict : conflicts) {
+            message.append(System.lineSeparator()).append(" - #").append(conflict.requestIndex() + 1)
+                    .append(' ').append(conflict.request()).append(": ").append(conflict.reason());
+        }
+        return message.toString();
+    }
+
+    /**
+     * A request of the batch that cannot be made
+     * @param requestIndex: the position of the request in the batch (starting at 0)
+     * @param request: the request
+     * @param reason: why the request cannot be made
+     */
+    public record Conflict(int requestIndex, BookingRequest request, String reason) {
+    }
+}
@@ -0,0 +1,123 @@
+package service;
+
+import model.Customer;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Indexes of the customers, used to look them up as their name or email is being typed and to list them
+ * sorted by full name without sorting them on every call.
+ * Each customer is kept in a skip list under three keys: "last name first name", "first name last name"
+ * and their email, all in lower case and without accents, so "smi", "jane s", "cláu" and "jane@" all find
+ * the customers they start. Every key ends with a separator and the email of the customer, which keeps
+ * the keys unique. A lookup walks the skip list from the prefix, so it costs O(log n + k) for k customers
+ * returned, whatever the number of customers.
+ * Customers are only ever added, and the skip lists can be read while they are.
+ * @see CustomerService
+ * @author Cláudia Martins
+ */
+final class CustomerPrefixIndex {
+
+    /**
+     * Separator between the indexed value and the email of a key, lower than any character of a value
+     */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    /**
+     * Accents left as combining marks once a value is decomposed
+     */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Customers by their normalized names and email
+     */
+    private final NavigableMap<String, Customer> customersByPrefix;
+
+    /**
+     * Customers by full name and then by email
+     */
+    private final NavigableMap<String, Customer> customersByFullName;
+
+    /**
+     * Constructor for the CustomerPrefixIndex class
+     */
+    CustomerPrefixIndex() {
+        this.customersByPrefix = new ConcurrentSkipListMap<>();
+        this.customersByFullName = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Adds a customer to the indexes
+     * @param customer: the customer to be added
+     */
+    void addCustomer(Customer customer) {
+        String suffix = KEY_SEPARATOR + customer.getEmail();
+        this.customersByPrefix.put(normalize(customer.getLastName() + " " + customer.getFirstName()) + suffix,
+                customer);
+        this.customersByPrefix.put(normalize(customer.getFirstName() + " " + customer.getLastName()) + suffix,
+                customer);
+        this.customersByPrefix.put(normalize(customer.getEmail()) + suffix, customer);
+        this.customersByFullName.put(customer.getFullName() + suffix, customer);
+    }
+
+    /**
+     * Adds several customers to the indexes
+     * @param customers: the customers to be added
+     */
+    void addCustomers(Collection<Customer> customers) {
+        for (Customer customer : customers) {
+            this.addCustomer(customer);
+        }
+    }
+
+    /**
+     * Finds the customers whose last name, first name or email starts with a prefix
+     * @param prefix: the prefix, in any case and with or without accents
+     * @param limit: the maximum number of customers returned
+     * @return the customers found, sorted by the name or email that matched, at most limit of them
+     */
+    List<Customer> find(String prefix, int limit) {
+        String normalizedPrefix = normalize(prefix);
+        if (normalizedPrefix.isEmpty()) {
+            return List.of();
+        }
+        // A customer can match under several of its keys, but is only returned once
+        Set<Customer> foundCustomers = new LinkedHashSet<>();
+        for (Map.Entry<String, Customer> entry : this.customersByPrefix.tailMap(normalizedPrefix, true).entrySet()) {
+            if (foundCustomers.size() == limit || !entry.getKey().startsWith(normalizedPrefix)) {
+                break;
+            }
+            foundCustomers.add(entry.getValue());
+        }
+        return new ArrayList<>(foundCustomers);
+    }
+
+    /**
+     * Retrieves all the customers, sorted by full name
+     * @return an unmodifiable view of the customers
+     */
+    Collection<Customer> getCustomersByFullName() {
+        return Collections.unmodifiableCollection(this.customersByFullName.values());
+    }
+
+    /**
+     * Normalizes a value for prefix lookups: trimmed, in lower case and without accents
+     * @param value: the value
+     * @return the normalized value
+     */
+    private static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
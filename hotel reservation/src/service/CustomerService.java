@@ -1,13 +1,26 @@
 package service;
 
+import events.EventBus;
+import events.HotelEvent;
+import metrics.MetricsRegistry;
 import model.Customer;
+import persistence.LogRecord;
+import persistence.WriteAheadLog;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service class for managing customers in the hotel reservation application.
  * Implements the singleton design pattern to ensure a single instance is always
  * returned.
+ * Customers are kept in a concurrent map, so the service can be used from several threads, and indexed by
+ * name and email so they can be looked up by prefix.
+ * Each customer is registered as a {@link RegisteredCustomer}, the service's own copy holding the compact
+ * id it was given; the map by email is only used to find the registered customer of a customer given to
+ * the application, the rest of the hotel refers to customers by id.
+ * Customers added are published to the {@link EventBus} once they are committed.
  * @see Customer
  * @author Cláudia Martins
  */
@@ -21,13 +34,43 @@ public final class CustomerService {
     /**
      * Map to store customers by their email addresses
      */
-    private final Map<String, Customer> customers;
+    private final Map<String, RegisteredCustomer> customers;
+
+    /**
+     * Customers by id
+     */
+    private final IdTable<RegisteredCustomer> customersById;
+
+    /**
+     * Id given to the next customer registered
+     */
+    private final AtomicInteger nextCustomerId;
+
+    /**
+     * Indexes of the customers by name and email prefix and by full name
+     */
+    private final CustomerPrefixIndex prefixIndex;
+
+    /**
+     * Bus the customers added are published to
+     */
+    private final EventBus eventBus;
+
+    /**
+     * Write-ahead log the changes are recorded in, or null if they are not persisted
+     */
+    private volatile WriteAheadLog writeAheadLog;
 
     /**
      * Private constructor to prevent outside instantiation
      */
     private CustomerService() {
-        this.customers = new HashMap<>();
+        this.customers = new ConcurrentHashMap<>();
+        this.customersById = new IdTable<>();
+        this.nextCustomerId = new AtomicInteger();
+        this.eventBus = EventBus.getInstance();
+        this.prefixIndex = new CustomerPrefixIndex();
+        MetricsRegistry.getInstance().gauge("hotel_customers", "Number of customers.", this.customers::size);
     }
 
     /**
@@ -42,16 +85,72 @@ public final class CustomerService {
         return CUSTOMER_SERVICE;
     }
 
+    /**
+     * Sets the write-ahead log the changes are recorded in
+     * @param writeAheadLog: the write-ahead log, or null to stop recording changes
+     */
+    void setWriteAheadLog(WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
     /**
      * Adds a new customer to the system if a customer with the given email does not
      * already exist.
+     * The customer is logged while it is being inserted, so that it is always logged before any of its
+     * reservations.
      * @param email: the email address of the customer
      * @param firstName: the first name of the customer
      * @param lastName: the last name of the customer
      */
     public void addCustomer(String email, String firstName, String lastName) {
-        this.customers.putIfAbsent(email, new Customer(firstName, lastName,
-                email));
+        RegisteredCustomer customer = new RegisteredCustomer(firstName, lastName, email, this);
+        Customer existing;
+        LoggedChange change = LoggedChange.begin(this.writeAheadLog);
+        try (change) {
+            existing = this.customers.computeIfAbsent(email, key -> {
+                change.append(new LogRecord.CustomerAdded(email, firstName, lastName));
+                return this.register(customer);
+            });
+            if (existing == customer) {
+                this.prefixIndex.addCustomer(customer);
+            }
+        }
+        change.commit();
+        if (existing == customer) {
+            this.eventBus.publish(new HotelEvent.CustomerAdded(customer));
+        }
+    }
+
+    /**
+     * Adds several customers to the system at once, skipping those whose email already exists (or is
+     * repeated in the given customers).
+     * All the customers are recorded in the write-ahead log as a single change.
+     * @param newCustomers: the customers to be added
+     * @return the customers that were not added because their email already exists
+     */
+    public List<Customer> addCustomers(Collection<Customer> newCustomers) {
+        List<Customer> rejectedCustomers = new ArrayList<>();
+        List<HotelEvent> events = new ArrayList<>(newCustomers.size());
+        LoggedChange change = LoggedChange.begin(this.writeAheadLog);
+        try (change) {
+            for (Customer customer : newCustomers) {
+                RegisteredCustomer registeredCustomer = new RegisteredCustomer(customer, this);
+                Customer existing = this.customers.computeIfAbsent(customer.getEmail(), key -> {
+                    change.append(new LogRecord.CustomerAdded(customer.getEmail(), customer.getFirstName(),
+                            customer.getLastName()));
+                    return this.register(registeredCustomer);
+                });
+                if (existing != registeredCustomer) {
+                    rejectedCustomers.add(customer);
+                } else {
+                    this.prefixIndex.addCustomer(registeredCustomer);
+                    events.add(new HotelEvent.CustomerAdded(registeredCustomer));
+                }
+            }
+        }
+        change.commit();
+        this.eventBus.publishAll(events);
+        return rejectedCustomers;
     }
 
     /**
@@ -64,13 +163,86 @@ public final class CustomerService {
         return this.customers.get(email);
     }
 
+    /**
+     * Retrieves a customer by their id.
+     * @param customerId: the id of the customer
+     * @return the customer with the given id, or null if no such customer exists
+     */
+    RegisteredCustomer getCustomer(int customerId) {
+        return this.customersById.get(customerId);
+    }
+
+    /**
+     * Finds the registered customer a customer given to the hotel refers to: the customer themselves if
+     * they were registered by this service, or else the customer registered with their email
+     * @param customer: the customer, or null
+     * @return the registered customer, or null if they do not exist
+     */
+    RegisteredCustomer resolveCustomer(Customer customer) {
+        if (customer instanceof RegisteredCustomer registeredCustomer && registeredCustomer.isRegisteredIn(this)) {
+            return registeredCustomer;
+        }
+        return customer == null ? null : this.customers.get(customer.getEmail());
+    }
+
+    /**
+     * Finds the customers whose last name, first name or email starts with a prefix (e.g. as it is being
+     * typed), ignoring case and accents
+     * @param prefix: the prefix
+     * @param limit: the maximum number of customers returned
+     * @return the customers found, sorted by the name or email that matched, at most limit of them (none
+     * if the prefix is blank)
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public List<Customer> findCustomers(String prefix, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit of customers must be positive.");
+        }
+        return this.prefixIndex.find(prefix, limit);
+    }
+
     /**
      * Retrieves all the customers in the application.
-     * @return a collection of all the customers
+     * They are read from the index by full name, so they are not sorted on every call.
+     * @return an unmodifiable view of all the customers, sorted by full name
      */
     public Collection<Customer> getAllCustomers() {
-        return this.customers.values().stream()
-                .sorted(Comparator.comparing(Customer::getFullName))
-                .toList();
+        return this.prefixIndex.getCustomersByFullName();
+    }
+
+    /**
+     * Retrieves all the customers in the application, in no particular order
+     * @return an unmodifiable view of the customers
+     */
+    Collection<Customer> getCustomersUnsorted() {
+        return Collections.unmodifiableCollection(this.customers.values());
+    }
+
+    /**
+     * Restores customers (e.g. from a snapshot) without recording them in the write-ahead log.
+     * Customers whose email already exists are ignored.
+     * @param restoredCustomers: the customers to be restored
+     */
+    void restoreCustomers(Collection<Customer> restoredCustomers) {
+        for (Customer customer : restoredCustomers) {
+            RegisteredCustomer registeredCustomer = new RegisteredCustomer(customer, this);
+            if (this.customers.computeIfAbsent(customer.getEmail(), key -> this.register(registeredCustomer))
+                    == registeredCustomer) {
+                this.prefixIndex.addCustomer(registeredCustomer);
+            }
+        }
+    }
+
+    /**
+     * Gives a new customer the next id and keeps them by it.
+     * Called while the customer is inserted by email, so they are never seen without their id.
+     * @param customer: the customer being registered
+     * @return the customer
+     */
+    private RegisteredCustomer register(RegisteredCustomer customer) {
+        int customerId = this.nextCustomerId.getAndIncrement();
+        customer.setCustomerId(customerId);
+        this.customersById.set(customerId, customer);
+        return customer;
     }
 }
@@ -0,0 +1,187 @@
+package service;
+
+import model.BookingRequest;
+import model.Customer;
+import model.IRoom;
+import model.Reservation;
+import model.RoomSearch;
+import model.RoomType;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Interface that represents the rooms and reservations of a hotel (or of several properties), as the
+ * resources of the application use them.
+ * Implemented by the singleton {@link ReservationService} and by the {@link ShardedReservationService},
+ * which partitions the rooms across several of them. The one the application uses is given by
+ * {@link ReservationService#getActiveService()}.
+ * @see ReservationService
+ * @see ShardedReservationService
+ * @author Cláudia Martins
+ */
+public interface IReservationService {
+
+    /**
+     * Adds a new room
+     * @param room: the room to be added
+     * @throws IllegalArgumentException if a room with the given room number already exists
+     */
+    public void addRoom(IRoom room) throws IllegalArgumentException;
+
+    /**
+     * Adds several rooms at once
+     * @param newRooms: the rooms to be added
+     * @return the rooms that were not added because their room number already exists
+     */
+    public List<IRoom> addRooms(Collection<IRoom> newRooms);
+
+    /**
+     * Retrieves a room by its room number
+     * @param roomNumber: the room number of the room
+     * @return the room associated with the given room number, or null if no such room exists
+     */
+    public IRoom getARoom(String roomNumber);
+
+    /**
+     * Reserves a room for a customer
+     * @param customer: the customer making the reservation
+     * @param room: the room being reserved
+     * @param checkInDate: the check-in date
+     * @param checkOutDate: the check-out date
+     * @return the created reservation
+     * @throws IllegalArgumentException if the customer or the room does not exist, or the room is already
+     * reserved for the given dates
+     */
+    public Reservation reserveARoom(Customer customer, IRoom room, LocalDate checkInDate, LocalDate checkOutDate)
+            throws IllegalArgumentException;
+
+    /**
+     * Reserves several rooms at once, booking either all of them or none
+     * @param requests: the booking requests
+     * @return the created reservations, in the order of the requests
+     * @throws BookingConflictException if any of the requests cannot be made, in which case no room is
+     * reserved
+     */
+    public List<Reservation> reserveRooms(List<BookingRequest> requests) throws BookingConflictException;
+
+    /**
+     * Cancels a reservation, freeing its room for its dates
+     * @param reservation: the reservation to be cancelled
+     * @return the cancelled reservation
+     * @throws IllegalArgumentException if the room or the reservation does not exist, or the stay was archived
+     */
+    public Reservation cancelReservation(Reservation reservation) throws IllegalArgumentException;
+
+    /**
+     * Moves a reservation to another room and/or other dates, if the room is available for them
+     * @param reservation: the reservation to be modified
+     * @param room: the room the reservation is moved to
+     * @param checkInDate: the new check-in date
+     * @param checkOutDate: the new check-out date
+     * @return the modified reservation, which replaces the given one
+     * @throws IllegalArgumentException if a room or the reservation does not exist, or the room is already
+     * reserved for the new dates
+     */
+    public Reservation modifyReservation(Reservation reservation, IRoom room, LocalDate checkInDate,
+                                         LocalDate checkOutDate) throws IllegalArgumentException;
+
+    /**
+     * Retrieves all the reservations of a customer
+     * @param customer: the customer whose reservations are to be retrieved
+     * @return the reservations of the customer, sorted by check-in date
+     */
+    public Collection<Reservation> getCustomersReservation(Customer customer);
+
+    /**
+     * Archives the stays that checked out before a given date
+     * @param beforeDate: the date before which the stays checked out
+     * @return the number of reservations archived
+     * @throws IllegalArgumentException if the date is after today
+     */
+    public int archiveReservations(LocalDate beforeDate);
+
+    /**
+     * Retrieves the number of reservations that were not archived
+     * @return the number of live reservations
+     */
+    public long getReservationCount();
+
+    /**
+     * Retrieves the number of reservations that were archived
+     * @return the number of archived reservations
+     */
+    public int getArchivedReservationCount();
+
+    /**
+     * Retrieves all the reservations, sorted by room number and then by check-in date
+     * @return a list of all the reservations
+     */
+    public List<Reservation> getAllReservationsSorted();
+
+    /**
+     * Streams all the reservations, sorted by room number and then by check-in date
+     * @return a stream of all the reservations
+     */
+    public Stream<Reservation> streamAllReservationsSorted();
+
+    /**
+     * Retrieves all the rooms available for the specified check-in and check-out dates
+     * @param checkInDate: the desired check-in date
+     * @param checkOutDate: the desired check-out date
+     * @return a collection of the available rooms
+     */
+    public Collection<IRoom> getAvailableRooms(LocalDate checkInDate, LocalDate checkOutDate);
+
+    /**
+     * Searches for rooms by type, price range and whether they are free, optionally only among the rooms
+     * available between two dates
+     * @param search: the criteria of the search
+     * @return the rooms found, sorted by price and then by room number, at most the limit of the search
+     */
+    public List<IRoom> searchRooms(RoomSearch search);
+
+    /**
+     * Finds the earliest check-in date on or after a given date at which a stay of a given number of nights
+     * is available in some room, optionally of a given type
+     * @param fromDate: the earliest acceptable check-in date
+     * @param nights: the number of nights of the stay
+     * @param roomType: the type of the room, or null for any type
+     * @return the earliest check-in date, or null if there is no room (of the given type)
+     * @throws IllegalArgumentException if the number of nights is negative
+     */
+    public LocalDate findEarliestCheckIn(LocalDate fromDate, int nights, RoomType roomType);
+
+    /**
+     * Retrieves the number of rooms booked on a night
+     * @param night: the date of the night
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the number of rooms booked
+     */
+    public int getOccupancy(LocalDate night, RoomType roomType);
+
+    /**
+     * Builds a report of the occupancy of each night of a range
+     * @param firstNight: the date of the first night of the range
+     * @param lastNight: the date of the last night of the range (inclusive)
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the occupancy report
+     * @throws IllegalArgumentException if the last night is before the first one or the range is longer
+     * than {@link OccupancyReport#MAX_NIGHTS} nights
+     */
+    public OccupancyReport getOccupancyReport(LocalDate firstNight, LocalDate lastNight, RoomType roomType);
+
+    /**
+     * Retrieves all the rooms
+     * @return an immutable collection of all the rooms, sorted by room number in natural order
+     */
+    public Collection<IRoom> getAllRooms();
+
+    /**
+     * Retrieves the number of rooms
+     * @return the number of rooms
+     */
+    public int getRoomCount();
+}
@@ -0,0 +1,122 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Table of values indexed by the compact ids the hotel gives to its rooms and customers.
+ * The values are kept in fixed-size chunks, so the table grows without copying them, and they are read
+ * without locking; only creating a chunk is done under the table's monitor.
+ * @param <T> the type of the values
+ * @author Cláudia Martins
+ */
+final class IdTable<T> {
+
+    /**
+     * Number of bits of an id that select the slot inside a chunk
+     */
+    private static final int CHUNK_SHIFT = 10;
+
+    /**
+     * Number of values in a chunk
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * Mask selecting the slot of an id inside its chunk
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Chunks of the table, replaced by a larger copy when it runs out of chunks
+     */
+    private volatile AtomicReferenceArray<AtomicReferenceArray<T>> chunks;
+
+    /**
+     * Constructor for the IdTable class, creating an empty table
+     */
+    IdTable() {
+        this.chunks = new AtomicReferenceArray<>(1);
+    }
+
+    /**
+     * Retrieves the value of an id
+     * @param id: the id
+     * @return the value of the id, or null if there is none (or the id is negative)
+     */
+    T get(int id) {
+        if (id < 0) {
+            return null;
+        }
+        AtomicReferenceArray<AtomicReferenceArray<T>> chunks = this.chunks;
+        int chunkIndex = id >>> CHUNK_SHIFT;
+        if (chunkIndex >= chunks.length()) {
+            return null;
+        }
+        AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+        return chunk == null ? null : chunk.get(id & CHUNK_MASK);
+    }
+
+    /**
+     * Sets the value of an id
+     * @param id: the id (not negative)
+     * @param value: the value of the id
+     */
+    void set(int id, T value) {
+        this.chunkOf(id).set(id & CHUNK_MASK, value);
+    }
+
+    /**
+     * Retrieves the value of an id, creating it first if there is none.
+     * When several threads create it at once only one of the values is kept, and returned to all of them.
+     * @param id: the id (not negative)
+     * @param factory: creates the value of the id
+     * @return the value of the id
+     */
+    T computeIfAbsent(int id, IntFunction<T> factory) {
+        T value = this.get(id);
+        if (value != null) {
+            return value;
+        }
+        AtomicReferenceArray<T> chunk = this.chunkOf(id);
+        chunk.compareAndSet(id & CHUNK_MASK, null, factory.apply(id));
+        return chunk.get(id & CHUNK_MASK);
+    }
+
+    /**
+     * Retrieves the chunk of an id, creating it (and growing the table) if it does not exist yet
+     * @param id: the id (not negative)
+     * @return the chunk the value of the id is kept in
+     */
+    private AtomicReferenceArray<T> chunkOf(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Ids cannot be negative.");
+        }
+        int chunkIndex = id >>> CHUNK_SHIFT;
+        AtomicReferenceArray<AtomicReferenceArray<T>> chunks = this.chunks;
+        if (chunkIndex < chunks.length()) {
+            AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+            if (chunk != null) {
+                return chunk;
+            }
+        }
+        synchronized (this) {
+            chunks = this.chunks;
+            if (chunkIndex >= chunks.length()) {
+                AtomicReferenceArray<AtomicReferenceArray<T>> grown =
+                        new AtomicReferenceArray<>(Math.max(chunkIndex + 1, chunks.length() * 2));
+                for (int i = 0; i < chunks.length(); i++) {
+                    grown.set(i, chunks.get(i));
+                }
+                this.chunks = grown;
+                chunks = grown;
+            }
+            AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+            if (chunk == null) {
+                chunk = new AtomicReferenceArray<>(CHUNK_SIZE);
+                chunks.set(chunkIndex, chunk);
+            }
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package service;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Report of a bulk import made by {@link ImportService}: how many rows were read, imported and rejected,
+ * and why each rejected row was rejected.
+ * Only the first {@link #MAX_REPORTED_ROWS} rejected rows of the file are kept, so that importing a large
+ * file full of invalid rows does not exhaust the memory; the rest are only counted. Rows are rejected out of
+ * order (e.g. a batch of bookings is rejected after the invalid rows that follow it), so they are kept and
+ * reported by line number.
+ * @see ImportService
+ * @author Cláudia Martins
+ */
+public final class ImportReport {
+
+    /**
+     * Maximum number of rejected rows kept in the report
+     */
+    public static final int MAX_REPORTED_ROWS = 1000;
+
+    /**
+     * Name of the imported file
+     */
+    private final String source;
+
+    /**
+     * The first rejected rows of the file, by line number
+     */
+    private final NavigableMap<Long, RejectedRow> rejectedRows;
+
+    /**
+     * Number of rows imported
+     */
+    private long importedCount;
+
+    /**
+     * Number of rows rejected
+     */
+    private long rejectedCount;
+
+    /**
+     * Constructor for the ImportReport class
+     * @param source: the name of the imported file
+     */
+    ImportReport(String source) {
+        this.source = source;
+        this.rejectedRows = new TreeMap<>();
+    }
+
+    /**
+     * Retrieves the name of the imported file
+     * @return the name of the file
+     */
+    public String getSource() {
+        return this.source;
+    }
+
+    /**
+     * Retrieves the number of rows read from the file, excluding the header
+     * @return the number of rows
+     */
+    public long getRowCount() {
+        return this.importedCount + this.rejectedCount;
+    }
+
+    /**
+     * Retrieves the number of rows imported
+     * @return the number of imported rows
+     */
+    public long getImportedCount() {
+        return this.importedCount;
+    }
+
+    /**
+     * Retrieves the number of rows rejected
+     * @return the number of rejected rows
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount;
+    }
+
+    /**
+     * Retrieves the first {@link #MAX_REPORTED_ROWS} rejected rows
+     * @return an unmodifiable list of the rejected rows, sorted by line number
+     */
+    public List<RejectedRow> getRejectedRows() {
+        return List.copyOf(this.rejectedRows.values());
+    }
+
+    /**
+     * Counts rows as imported
+     * @param count: the number of imported rows
+     */
+    void imported(int count) {
+        this.importedCount += count;
+    }
+
+    /**
+     * Counts a row as rejected
+     * @param lineNumber: the line of the file the row starts at
+     * @param reason: why the row was rejected
+     */
+    void rejected(long lineNumber, String reason) {
+        this.rejectedCount++;
+        this.rejectedRows.put(lineNumber, new RejectedRow(lineNumber, reason));
+        if (this.rejectedRows.size() > MAX_REPORTED_ROWS) {
+            this.rejectedRows.pollLastEntry();
+        }
+    }
+
+    /**
+     * Returns a String representation for the report, listing the rejected rows it keeps
+     * @return the report in String format
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder()
+                .append("Imported ").append(this.importedCount).append(" of ").append(this.getRowCount())
+                .append(" rows from ").append(this.source).append(" (").append(this.rejectedCount)
+                .append(" rejected)");
+        for (RejectedRow rejectedRow : this.rejectedRows.values()) {
+            report.append(System.lineSeparator()).append(" - line ").append(rejectedRow.lineNumber())
+                    .append(": ").append(rejectedRow.reason());
+        }
+        if (this.rejectedCount > this.rejectedRows.size()) {
+            report.append(System.lineSeparator()).append(" - ... and ")
+                    .append(this.rejectedCount - this.rejectedRows.size()).append(" more rejected rows");
+        }
+        return report.toString();
+    }
+
+    /**
+     * A row of the imported file that was rejected
+     * @param lineNumber: the line of the file the row starts at
+     * @param reason: why the row was rejected
+     */
+    public record RejectedRow(long lineNumber, String reason) {
+    }
+}
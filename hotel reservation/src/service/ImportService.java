@@ -0,0 +1,345 @@
+package service;
+
+import model.BookingRequest;
+import model.Customer;
+import model.FreeRoom;
+import model.IRoom;
+import model.Room;
+import model.RoomType;
+import utils.CsvReader;
+import utils.DateFormatter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Service class for importing rooms, customers and reservations in bulk from CSV or TSV files
+ * (see {@link CsvReader}).
+ * Files are streamed and their rows are validated and inserted in batches of {@link #BATCH_SIZE}, through
+ * the bulk operations of {@link ReservationService} and {@link CustomerService}, so memory use does not
+ * depend on the size of the file. Invalid rows, and rows that clash with the existing state, are rejected
+ * and reported in an {@link ImportReport}, while the rest of the file is still imported.
+ * The first row is skipped if it is a header, i.e. if its first field is the name of the first column.
+ * Expected columns:
+ * <ul>
+ *     <li>rooms: room_number, price, room_type (SINGLE or DOUBLE); rooms with a price of 0 are free rooms</li>
+ *     <li>customers: email, first_name, last_name</li>
+ *     <li>reservations: email, room_number, check_in, check_out (dates in the yyyy/MM/dd format); the
+ *     customers and rooms must already exist</li>
+ * </ul>
+ * Implements the singleton design pattern to ensure a single instance is always
+ * returned.
+ * @see ImportReport
+ * @author Cláudia Martins
+ */
+public final class ImportService {
+
+    /**
+     * Number of rows inserted at once
+     */
+    public static final int BATCH_SIZE = 10_000;
+
+    /**
+     * Singleton instance of ImportService
+     */
+    private static ImportService IMPORT_SERVICE;
+
+    /**
+     * The CustomerService instance customers are imported into
+     */
+    private final CustomerService customerService;
+
+    /**
+     * The reservation service rooms and reservations are imported into (see
+     * {@link ReservationService#getActiveService()})
+     */
+    private final IReservationService reservationService;
+
+    /**
+     * Private constructor to prevent outside instantiation
+     */
+    private ImportService() {
+        this.customerService = CustomerService.getInstance();
+        this.reservationService = ReservationService.getActiveService();
+    }
+
+    /**
+     * Retrieves the singleton instance of ImportService, creating it first if it does not yet exist
+     * @return the singleton instance of ImportService
+     */
+    public static synchronized ImportService getInstance() {
+        if (IMPORT_SERVICE == null) {
+            IMPORT_SERVICE = new ImportService();
+        }
+        return IMPORT_SERVICE;
+    }
+
+    /**
+     * Imports the rooms of a file
+     * @param file: the CSV or TSV file
+     * @return the report of the import
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importRooms(Path file) throws IOException {
+        return this.importFile(file, "room_number", 3, ImportService::parseRoom, this::insertRooms);
+    }
+
+    /**
+     * Imports the customers of a file
+     * @param file: the CSV or TSV file
+     * @return the report of the import
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importCustomers(Path file) throws IOException {
+        return this.importFile(file, "email", 3, ImportService::parseCustomer, this::insertCustomers);
+    }
+
+    /**
+     * Imports the reservations of a file
+     * @param file: the CSV or TSV file
+     * @return the report of the import
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importReservations(Path file) throws IOException {
+        return this.importFile(file, "email", 4, this::parseReservation, this::insertReservations);
+    }
+
+    /**
+     * Streams a file, parsing its rows and inserting them in batches
+     * @param file: the CSV or TSV file
+     * @param header: the name of the first column, used to recognize a header row
+     * @param fieldCount: the number of fields of each row
+     * @param parser: the parser of the rows
+     * @param inserter: the inserter of the batches of parsed rows
+     * @param <T> the type of the parsed rows
+     * @return the report of the import
+     * @throws IOException if the file cannot be read
+     */
+    private <T> ImportReport importFile(Path file, String header, int fieldCount, RowParser<T> parser,
+                                        BatchInserter<T> inserter) throws IOException {
+        ImportReport report = new ImportReport(file.toString());
+        List<String> fields = new ArrayList<>(fieldCount);
+        List<Row<T>> batch = new ArrayList<>(BATCH_SIZE);
+        try (CsvReader reader = CsvReader.open(file)) {
+            boolean firstRow = true;
+            while (reader.readRecord(fields)) {
+                fields.replaceAll(String::trim);
+                if (firstRow) {
+                    firstRow = false;
+                    fields.set(0, fields.get(0).replace("\uFEFF", ""));
+                    if (fields.get(0).equalsIgnoreCase(header)) {
+                        continue;
+                    }
+                }
+                if (fields.size() != fieldCount) {
+                    report.rejected(reader.getLineNumber(), "Expected " + fieldCount + " fields but found "
+                            + fields.size() + ".");
+                    continue;
+                }
+                try {
+                    batch.add(new Row<>(reader.getLineNumber(), parser.parse(fields)));
+                } catch (IllegalArgumentException e) {
+                    report.rejected(reader.getLineNumber(), e.getLocalizedMessage());
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    inserter.insert(batch, report);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            inserter.insert(batch, report);
+        }
+        return report;
+    }
+
+    /**
+     * Parses a row of a rooms file
+     * @param fields: the room number, price and room type
+     * @return the room
+     * @throws IllegalArgumentException if a field is invalid
+     */
+    private static IRoom parseRoom(List<String> fields) {
+        String roomNumber = fields.get(0);
+        if (roomNumber.isEmpty()) {
+            throw new IllegalArgumentException("The room number is required.");
+        }
+        double price;
+        try {
+            price = Double.parseDouble(fields.get(1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Price must be a number.");
+        }
+        if (!(price >= 0.0) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("Price must be zero or a positive number.");
+        }
+        RoomType roomType;
+        try {
+            roomType = RoomType.valueOf(fields.get(2).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("A room can either be SINGLE or DOUBLE.");
+        }
+        return price > 0.0 ? new Room(roomNumber, price, roomType) : new FreeRoom(roomNumber, roomType);
+    }
+
+    /**
+     * Parses a row of a customers file
+     * @param fields: the email, first name and last name
+     * @return the customer
+     * @throws IllegalArgumentException if a field is invalid
+     */
+    private static Customer parseCustomer(List<String> fields) {
+        if (fields.get(1).isEmpty() || fields.get(2).isEmpty()) {
+            throw new IllegalArgumentException("The first and last names are required.");
+        }
+        return new Customer(fields.get(1), fields.get(2), fields.get(0));
+    }
+
+    /**
+     * Parses a row of a reservations file
+     * @param fields: the customer email, room number, check-in date and check-out date
+     * @return the booking request of the reservation
+     * @throws IllegalArgumentException if a field is invalid or refers to an unknown customer or room
+     */
+    private BookingRequest parseReservation(List<String> fields) {
+        Customer customer = this.customerService.getCustomer(fields.get(0));
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer with email " + fields.get(0) + " does not exist.");
+        }
+        IRoom room = this.reservationService.getARoom(fields.get(1));
+        if (room == null) {
+            throw new IllegalArgumentException("Room " + fields.get(1) + " does not exist.");
+        }
+        LocalDate checkInDate = DateFormatter.getDate(fields.get(2));
+        LocalDate checkOutDate = DateFormatter.getDate(fields.get(3));
+        if (checkInDate.isAfter(checkOutDate)) {
+            throw new IllegalArgumentException("The check-out date has to be later than the check-in date.");
+        }
+        return new BookingRequest(customer, room, checkInDate, checkOutDate);
+    }
+
+    /**
+     * Inserts a batch of rooms, rejecting those whose room number already exists
+     * @param batch: the parsed rows
+     * @param report: the report of the import
+     */
+    private void insertRooms(List<Row<IRoom>> batch, ImportReport report) {
+        List<IRoom> rooms = new ArrayList<>(batch.size());
+        for (Row<IRoom> row : batch) {
+            rooms.add(row.value());
+        }
+        List<IRoom> rejectedRooms = this.reservationService.addRooms(rooms);
+        int rejected = 0;
+        for (Row<IRoom> row : batch) {
+            if (rejected < rejectedRooms.size() && rejectedRooms.get(rejected) == row.value()) {
+                report.rejected(row.lineNumber(), "A room with room number " + row.value().getRoomNumber()
+                        + " already exists.");
+                rejected++;
+            }
+        }
+        report.imported(batch.size() - rejected);
+    }
+
+    /**
+     * Inserts a batch of customers, rejecting those whose email already exists
+     * @param batch: the parsed rows
+     * @param report: the report of the import
+     */
+    private void insertCustomers(List<Row<Customer>> batch, ImportReport report) {
+        List<Customer> customers = new ArrayList<>(batch.size());
+        for (Row<Customer> row : batch) {
+            customers.add(row.value());
+        }
+        List<Customer> rejectedCustomers = this.customerService.addCustomers(customers);
+        int rejected = 0;
+        for (Row<Customer> row : batch) {
+            if (rejected < rejectedCustomers.size() && rejectedCustomers.get(rejected) == row.value()) {
+                report.rejected(row.lineNumber(), "A customer with email " + row.value().getEmail()
+                        + " already exists.");
+                rejected++;
+            }
+        }
+        report.imported(batch.size() - rejected);
+    }
+
+    /**
+     * Inserts a batch of reservations as a batch booking. The requests that conflict with existing
+     * reservations or with each other are rejected and the rest of the batch is booked again, until it
+     * succeeds.
+     * @param batch: the parsed rows
+     * @param report: the report of the import
+     */
+    private void insertReservations(List<Row<BookingRequest>> batch, ImportReport report) {
+        List<Row<BookingRequest>> remaining = batch;
+        while (!remaining.isEmpty()) {
+            List<BookingRequest> requests = new ArrayList<>(remaining.size());
+            for (Row<BookingRequest> row : remaining) {
+                requests.add(row.value());
+            }
+            try {
+                this.reservationService.reserveRooms(requests);
+                report.imported(remaining.size());
+                return;
+            } catch (BookingConflictException e) {
+                Set<Integer> conflictingRequests = new HashSet<>();
+                for (BookingConflictException.Conflict conflict : e.getConflicts()) {
+                    conflictingRequests.add(conflict.requestIndex());
+                    report.rejected(remaining.get(conflict.requestIndex()).lineNumber(), conflict.reason());
+                }
+                List<Row<BookingRequest>> retried = new ArrayList<>(remaining.size() - conflictingRequests.size());
+                for (int i = 0; i < remaining.size(); i++) {
+                    if (!conflictingRequests.contains(i)) {
+                        retried.add(remaining.get(i));
+                    }
+                }
+                remaining = retried;
+            }
+        }
+    }
+
+    /**
+     * A parsed row of an imported file
+     * @param lineNumber: the line of the file the row starts at
+     * @param value: the parsed value
+     * @param <T> the type of the parsed value
+     */
+    private record Row<T>(long lineNumber, T value) {
+    }
+
+    /**
+     * Parser of the rows of an imported file
+     * @param <T> the type of the parsed rows
+     */
+    @FunctionalInterface
+    private interface RowParser<T> {
+
+        /**
+         * Parses the fields of a row
+         * @param fields: the trimmed fields of the row
+         * @return the parsed row
+         * @throws IllegalArgumentException if the row is invalid
+         */
+        T parse(List<String> fields);
+    }
+
+    /**
+     * Inserter of the batches of parsed rows of an imported file
+     * @param <T> the type of the parsed rows
+     */
+    @FunctionalInterface
+    private interface BatchInserter<T> {
+
+        /**
+         * Inserts a batch of parsed rows, counting them as imported or rejected
+         * @param batch: the parsed rows
+         * @param report: the report of the import
+         */
+        void insert(List<Row<T>> batch, ImportReport report);
+    }
+}
@@ -0,0 +1,76 @@
+package service;
+
+import persistence.LogRecord;
+import persistence.WriteAheadLog;
+
+/**
+ * Change to the state of the services that is recorded in the write-ahead log, if there is one.
+ * Used in a try-with-resources block around applying the change and appending its records, followed by
+ * {@link #commit()} once the locks of the change have been released, so that concurrent changes can
+ * share the same commit.
+ * @see WriteAheadLog
+ * @author Cláudia Martins
+ */
+final class LoggedChange implements AutoCloseable {
+
+    /**
+     * The write-ahead log, or null if changes are not persisted
+     */
+    private final WriteAheadLog writeAheadLog;
+
+    /**
+     * Position at the end of the last record appended by the change, or -1 if none was appended
+     */
+    private long logPosition;
+
+    /**
+     * Private constructor, changes are started with {@link #begin(WriteAheadLog)}
+     * @param writeAheadLog: the write-ahead log, or null if changes are not persisted
+     */
+    private LoggedChange(WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+        this.logPosition = -1;
+    }
+
+    /**
+     * Starts a change. Must be called before taking the locks the change needs.
+     * @param writeAheadLog: the write-ahead log, or null if changes are not persisted
+     * @return the started change
+     */
+    static LoggedChange begin(WriteAheadLog writeAheadLog) {
+        if (writeAheadLog != null) {
+            writeAheadLog.beginChange();
+        }
+        return new LoggedChange(writeAheadLog);
+    }
+
+    /**
+     * Appends a record of the change to the log. Must be called after the change has been applied,
+     * while still holding its locks.
+     * @param record: the record to be appended
+     */
+    void append(LogRecord record) {
+        if (this.writeAheadLog != null) {
+            this.logPosition = this.writeAheadLog.append(record);
+        }
+    }
+
+    /**
+     * Ends the change, once it has been applied and appended
+     */
+    @Override
+    public void close() {
+        if (this.writeAheadLog != null) {
+            this.writeAheadLog.endChange();
+        }
+    }
+
+    /**
+     * Waits for the records of the change to be committed, according to the durability level of the log
+     */
+    void commit() {
+        if (this.writeAheadLog != null && this.logPosition >= 0) {
+            this.writeAheadLog.commit(this.logPosition);
+        }
+    }
+}
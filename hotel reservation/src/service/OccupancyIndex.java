@@ -0,0 +1,434 @@
+package service;
+
+import model.Reservation;
+import model.RoomType;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Number of rooms booked on each night, kept up to date as reservations are made so that revenue
+ * management queries (the occupancy of a night, the room-nights sold over a range and the peak occupancy
+ * over a range) are answered in O(log d) for d days covered, instead of walking every reservation.
+ * A reservation books the nights from its check-in day up to the day before its check-out day.
+ * There is a segment tree for each room type and one for all the rooms together. Each tree covers a
+ * window of epoch days that doubles whenever a reservation falls outside of it.
+ * Updates take a write lock and queries a read lock, since querying the trees does not modify them.
+ * @see ReservationService
+ * @author Cláudia Martins
+ */
+final class OccupancyIndex {
+
+    /**
+     * Occupancy of all the rooms
+     */
+    private final Tree total;
+
+    /**
+     * Occupancy of the rooms of each type, indexed by the ordinal of the type
+     */
+    private final Tree[] byType;
+
+    /**
+     * Lock that lets queries run concurrently while no reservation is being recorded
+     */
+    private final ReadWriteLock lock;
+
+    /**
+     * Constructor for the OccupancyIndex class
+     */
+    OccupancyIndex() {
+        this.total = new Tree();
+        this.byType = new Tree[RoomType.values().length];
+        for (int i = 0; i < this.byType.length; i++) {
+            this.byType[i] = new Tree();
+        }
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Records the nights booked by a reservation
+     * @param reservation: the reservation
+     */
+    void addReservation(Reservation reservation) {
+        this.lock.writeLock().lock();
+        try {
+            this.update(reservation, 1);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the nights booked by a cancelled reservation
+     * @param reservation: the reservation that was cancelled
+     */
+    void removeReservation(Reservation reservation) {
+        this.lock.writeLock().lock();
+        try {
+            this.update(reservation, -1);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records the nights booked by several reservations, taking the lock only once
+     * @param reservations: the reservations
+     */
+    void addReservations(Collection<Reservation> reservations) {
+        this.lock.writeLock().lock();
+        try {
+            for (Reservation reservation : reservations) {
+                this.update(reservation, 1);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of rooms booked on a night
+     * @param night: the epoch day of the night
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the number of rooms booked
+     */
+    int getOccupancy(int night, RoomType roomType) {
+        this.lock.readLock().lock();
+        try {
+            return this.tree(roomType).get(night);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of rooms booked on each night of a range
+     * @param firstNight: the epoch day of the first night of the range
+     * @param lastNight: the epoch day of the last night of the range (inclusive)
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the number of rooms booked on each night, starting with the first one
+     */
+    int[] getOccupancies(int firstNight, int lastNight, RoomType roomType) {
+        int[] occupancies = new int[lastNight - firstNight + 1];
+        this.lock.readLock().lock();
+        try {
+            Tree tree = this.tree(roomType);
+            for (int i = 0; i < occupancies.length; i++) {
+                occupancies[i] = tree.get(firstNight + i);
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return occupancies;
+    }
+
+    /**
+     * Retrieves the number of room-nights booked over a range of nights
+     * @param firstNight: the epoch day of the first night of the range
+     * @param lastNight: the epoch day of the last night of the range (inclusive)
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the sum of the rooms booked on each night of the range
+     */
+    long getRoomNights(int firstNight, int lastNight, RoomType roomType) {
+        this.lock.readLock().lock();
+        try {
+            return this.tree(roomType).sum(firstNight, lastNight);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the first night of a range on which the most rooms are booked
+     * @param firstNight: the epoch day of the first night of the range
+     * @param lastNight: the epoch day of the last night of the range (inclusive)
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the epoch day of the busiest night (the first night of the range if no room is booked)
+     */
+    int getPeakNight(int firstNight, int lastNight, RoomType roomType) {
+        this.lock.readLock().lock();
+        try {
+            return this.tree(roomType).peak(firstNight, lastNight);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a number of rooms to the occupancy of the nights of a reservation.
+     * Must be called while holding the write lock.
+     * @param reservation: the reservation
+     * @param rooms: the number of rooms added (negative to remove them)
+     */
+    private void update(Reservation reservation, int rooms) {
+        int firstNight = reservation.getCheckInDay();
+        int lastNight = reservation.getCheckOutDay() - 1;
+        if (lastNight < firstNight) {
+            return;
+        }
+        this.total.add(firstNight, lastNight, rooms);
+        this.byType[reservation.getRoom().getRoomType().ordinal()].add(firstNight, lastNight, rooms);
+    }
+
+    /**
+     * Retrieves the tree of a room type
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the tree
+     */
+    private Tree tree(RoomType roomType) {
+        return roomType == null ? this.total : this.byType[roomType.ordinal()];
+    }
+
+    /**
+     * Segment tree of the number of rooms booked on each day of a window of epoch days, supporting adding
+     * to a range of days and querying a day, the sum over a range and the maximum over a range.
+     * Additions to a range are kept in the nodes that cover it and never pushed down, so queries only
+     * read the tree: the value of a day is the sum of the additions on the path from the root to its leaf.
+     */
+    private static final class Tree {
+
+        /**
+         * Number of days covered by a tree when it is first used
+         */
+        private static final int INITIAL_SIZE = 1024;
+
+        /**
+         * Epoch day of the first day covered
+         */
+        private int firstDay;
+
+        /**
+         * Number of days covered, a power of two (0 until the first addition)
+         */
+        private int size;
+
+        /**
+         * Amount added to every day covered by each node
+         */
+        private int[] added;
+
+        /**
+         * Maximum value of the days covered by each node, including the additions of the node itself but
+         * not those of its ancestors
+         */
+        private int[] max;
+
+        /**
+         * Sum of the values of the days covered by each node, including the additions of the node itself
+         * but not those of its ancestors
+         */
+        private long[] sum;
+
+        /**
+         * Adds an amount to every day of a range, growing the window if the range falls outside of it
+         * @param first: the epoch day of the first day of the range
+         * @param last: the epoch day of the last day of the range (inclusive)
+         * @param amount: the amount added
+         */
+        void add(int first, int last, int amount) {
+            if (this.size == 0 || first < this.firstDay || (long) last >= (long) this.firstDay + this.size) {
+                this.grow(first, last);
+            }
+            this.add(1, this.firstDay, this.firstDay + this.size - 1, first, last, amount);
+        }
+
+        /**
+         * Retrieves the value of a day
+         * @param day: the epoch day
+         * @return the value of the day (0 outside of the window)
+         */
+        int get(int day) {
+            if (this.size == 0 || day < this.firstDay || (long) day >= (long) this.firstDay + this.size) {
+                return 0;
+            }
+            int value = 0;
+            int node = 1;
+            int low = this.firstDay;
+            int length = this.size;
+            while (true) {
+                value += this.added[node];
+                if (length == 1) {
+                    return value;
+                }
+                length >>>= 1;
+                if (day < low + length) {
+                    node = 2 * node;
+                } else {
+                    node = 2 * node + 1;
+                    low += length;
+                }
+            }
+        }
+
+        /**
+         * Retrieves the sum of the values of a range of days
+         * @param first: the epoch day of the first day of the range
+         * @param last: the epoch day of the last day of the range (inclusive)
+         * @return the sum (days outside of the window count as 0)
+         */
+        long sum(int first, int last) {
+            if (this.size == 0) {
+                return 0;
+            }
+            return this.sum(1, this.firstDay, this.firstDay + this.size - 1, first, last, 0);
+        }
+
+        /**
+         * Retrieves the first day of a range with the maximum value
+         * @param first: the epoch day of the first day of the range
+         * @param last: the epoch day of the last day of the range (inclusive)
+         * @return the epoch day (the first day of the range if no day of the window has a positive value)
+         */
+        int peak(int first, int last) {
+            if (this.size == 0) {
+                return first;
+            }
+            int nodeLast = this.firstDay + this.size - 1;
+            int peakValue = this.max(1, this.firstDay, nodeLast, first, last, 0);
+            if (peakValue <= 0) {
+                return first;
+            }
+            return this.findFirst(1, this.firstDay, nodeLast, first, last, 0, peakValue);
+        }
+
+        /**
+         * Adds an amount to the days of a range within a node
+         * @param node: the node
+         * @param nodeFirst: the epoch day of the first day covered by the node
+         * @param nodeLast: the epoch day of the last day covered by the node
+         * @param first: the epoch day of the first day of the range
+         * @param last: the epoch day of the last day of the range
+         * @param amount: the amount added
+         */
+        private void add(int node, int nodeFirst, int nodeLast, int first, int last, int amount) {
+            if (last < nodeFirst || first > nodeLast) {
+                return;
+            }
+            if (first <= nodeFirst && nodeLast <= last) {
+                this.added[node] += amount;
+                this.max[node] += amount;
+                this.sum[node] += (long) amount * (nodeLast - nodeFirst + 1);
+                return;
+            }
+            int middle = nodeFirst + (nodeLast - nodeFirst) / 2;
+            this.add(2 * node, nodeFirst, middle, first, last, amount);
+            this.add(2 * node + 1, middle + 1, nodeLast, first, last, amount);
+            this.max[node] = Math.max(this.max[2 * node], this.max[2 * node + 1]) + this.added[node];
+            this.sum[node] = this.sum[2 * node] + this.sum[2 * node + 1]
+                    + (long) this.added[node] * (nodeLast - nodeFirst + 1);
+        }
+
+        /**
+         * Sums the values of the days of a range within a node
+         * @param node: the node
+         * @param nodeFirst: the epoch day of the first day covered by the node
+         * @param nodeLast: the epoch day of the last day covered by the node
+         * @param first: the epoch day of the first day of the range
+         * @param last: the epoch day of the last day of the range
+         * @param inherited: the sum of the additions of the ancestors of the node
+         * @return the sum
+         */
+        private long sum(int node, int nodeFirst, int nodeLast, int first, int last, int inherited) {
+            if (last < nodeFirst || first > nodeLast) {
+                return 0;
+            }
+            if (first <= nodeFirst && nodeLast <= last) {
+                return this.sum[node] + (long) inherited * (nodeLast - nodeFirst + 1);
+            }
+            int middle = nodeFirst + (nodeLast - nodeFirst) / 2;
+            int childInherited = inherited + this.added[node];
+            return this.sum(2 * node, nodeFirst, middle, first, last, childInherited)
+                    + this.sum(2 * node + 1, middle + 1, nodeLast, first, last, childInherited);
+        }
+
+        /**
+         * Retrieves the maximum value of the days of a range within a node
+         * @param node: the node
+         * @param nodeFirst: the epoch day of the first day covered by the node
+         * @param nodeLast: the epoch day of the last day covered by the node
+         * @param first: the epoch day of the first day of the range
+         * @param last: the epoch day of the last day of the range
+         * @param inherited: the sum of the additions of the ancestors of the node
+         * @return the maximum value, or {@link Integer#MIN_VALUE} if the node is outside of the range
+         */
+        private int max(int node, int nodeFirst, int nodeLast, int first, int last, int inherited) {
+            if (last < nodeFirst || first > nodeLast) {
+                return Integer.MIN_VALUE;
+            }
+            if (first <= nodeFirst && nodeLast <= last) {
+                return this.max[node] + inherited;
+            }
+            int middle = nodeFirst + (nodeLast - nodeFirst) / 2;
+            int childInherited = inherited + this.added[node];
+            return Math.max(this.max(2 * node, nodeFirst, middle, first, last, childInherited),
+                    this.max(2 * node + 1, middle + 1, nodeLast, first, last, childInherited));
+        }
+
+        /**
+         * Finds the first day of a range within a node that has a given value, the maximum of the range
+         * @param node: the node
+         * @param nodeFirst: the epoch day of the first day covered by the node
+         * @param nodeLast: the epoch day of the last day covered by the node
+         * @param first: the epoch day of the first day of the range
+         * @param last: the epoch day of the last day of the range
+         * @param inherited: the sum of the additions of the ancestors of the node
+         * @param value: the maximum value of the range
+         * @return the epoch day, or -1 if no day of the range within the node has the value
+         */
+        private int findFirst(int node, int nodeFirst, int nodeLast, int first, int last, int inherited,
+                              int value) {
+            if (last < nodeFirst || first > nodeLast || this.max[node] + inherited < value) {
+                return -1;
+            }
+            if (nodeFirst == nodeLast) {
+                return nodeFirst;
+            }
+            int middle = nodeFirst + (nodeLast - nodeFirst) / 2;
+            int childInherited = inherited + this.added[node];
+            int day = this.findFirst(2 * node, nodeFirst, middle, first, last, childInherited, value);
+            return day != -1 ? day
+                    : this.findFirst(2 * node + 1, middle + 1, nodeLast, first, last, childInherited, value);
+        }
+
+        /**
+         * Doubles the window until it also covers a range of days, rebuilding the tree from the values of
+         * the days it covered. The window grows towards the range, so that ranges further away in the same
+         * direction fit without growing it again.
+         * @param first: the epoch day of the first day of the range
+         * @param last: the epoch day of the last day of the range
+         */
+        private void grow(int first, int last) {
+            int[] values = new int[this.size];
+            for (int i = 0; i < this.size; i++) {
+                values[i] = this.get(this.firstDay + i);
+            }
+            long coveredFirst = this.size == 0 ? first : Math.min(first, this.firstDay);
+            long coveredLast = this.size == 0 ? last : Math.max(last, (long) this.firstDay + this.size - 1);
+            int newSize = Math.max(this.size, INITIAL_SIZE);
+            while (newSize < coveredLast - coveredFirst + 1) {
+                newSize *= 2;
+            }
+            int newFirstDay = this.size > 0 && first < this.firstDay ? (int) (coveredLast - newSize + 1)
+                    : (int) coveredFirst;
+
+            int oldFirstDay = this.firstDay;
+            this.firstDay = newFirstDay;
+            this.size = newSize;
+            this.added = new int[2 * newSize];
+            this.max = new int[2 * newSize];
+            this.sum = new long[2 * newSize];
+            for (int i = 0; i < values.length; i++) {
+                int leaf = newSize + (oldFirstDay + i - newFirstDay);
+                this.added[leaf] = values[i];
+                this.max[leaf] = values[i];
+                this.sum[leaf] = values[i];
+            }
+            for (int node = newSize - 1; node >= 1; node--) {
+                this.max[node] = Math.max(this.max[2 * node], this.max[2 * node + 1]);
+                this.sum[node] = this.sum[2 * node] + this.sum[2 * node + 1];
+            }
+        }
+    }
+}
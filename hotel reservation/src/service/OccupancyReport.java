@@ -0,0 +1,145 @@
+package service;
+
+import model.RoomType;
+import utils.DateFormatter;
+
+import java.time.LocalDate;
+
+/**
+ * Report of the occupancy of a range of nights: how many rooms (of a type, or all of them) are booked on
+ * each night, the room-nights booked over the range and the busiest night.
+ * @see ReservationService#getOccupancyReport
+ * @author Cláudia Martins
+ */
+public final class OccupancyReport {
+
+    /**
+     * Maximum number of nights covered by a report
+     */
+    public static final int MAX_NIGHTS = 366;
+
+    /**
+     * Date of the first night of the range
+     */
+    private final LocalDate firstNight;
+
+    /**
+     * Type of the rooms, or null for all the rooms
+     */
+    private final RoomType roomType;
+
+    /**
+     * Number of rooms booked on each night of the range
+     */
+    private final int[] occupancies;
+
+    /**
+     * Number of room-nights booked over the range
+     */
+    private final long roomNights;
+
+    /**
+     * Date of the first night of the range with the most rooms booked
+     */
+    private final LocalDate peakNight;
+
+    /**
+     * Constructor for the OccupancyReport class
+     * @param firstNight: the date of the first night of the range
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @param occupancies: the number of rooms booked on each night of the range
+     * @param roomNights: the number of room-nights booked over the range
+     * @param peakNight: the date of the first night of the range with the most rooms booked
+     */
+    OccupancyReport(LocalDate firstNight, RoomType roomType, int[] occupancies, long roomNights,
+                    LocalDate peakNight) {
+        this.firstNight = firstNight;
+        this.roomType = roomType;
+        this.occupancies = occupancies;
+        this.roomNights = roomNights;
+        this.peakNight = peakNight;
+    }
+
+    /**
+     * Retrieves the date of the first night of the range
+     * @return the first night
+     */
+    public LocalDate getFirstNight() {
+        return this.firstNight;
+    }
+
+    /**
+     * Retrieves the date of the last night of the range
+     * @return the last night
+     */
+    public LocalDate getLastNight() {
+        return this.firstNight.plusDays(this.occupancies.length - 1);
+    }
+
+    /**
+     * Retrieves the type of the rooms
+     * @return the type, or null for all the rooms
+     */
+    public RoomType getRoomType() {
+        return this.roomType;
+    }
+
+    /**
+     * Retrieves the number of rooms booked on a night of the range
+     * @param night: the date of the night
+     * @return the number of rooms booked
+     * @throws IllegalArgumentException if the night is outside of the range
+     */
+    public int getOccupancy(LocalDate night) {
+        long index = night.toEpochDay() - this.firstNight.toEpochDay();
+        if (index < 0 || index >= this.occupancies.length) {
+            throw new IllegalArgumentException("The night " + DateFormatter.formatDate(night)
+                    + " is outside of the report.");
+        }
+        return this.occupancies[(int) index];
+    }
+
+    /**
+     * Retrieves the number of room-nights booked over the range
+     * @return the number of room-nights
+     */
+    public long getRoomNights() {
+        return this.roomNights;
+    }
+
+    /**
+     * Retrieves the date of the first night of the range with the most rooms booked
+     * @return the busiest night
+     */
+    public LocalDate getPeakNight() {
+        return this.peakNight;
+    }
+
+    /**
+     * Retrieves the number of rooms booked on the busiest night of the range
+     * @return the peak occupancy
+     */
+    public int getPeakOccupancy() {
+        return this.getOccupancy(this.peakNight);
+    }
+
+    /**
+     * Returns a String representation for the report, with a line per night
+     * @return the report in String format
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder()
+                .append("Occupancy of ").append(this.roomType == null ? "all" : this.roomType).append(" rooms from ")
+                .append(DateFormatter.formatDate(this.firstNight)).append(" to ")
+                .append(DateFormatter.formatDate(this.getLastNight())).append(": ").append(this.roomNights)
+                .append(" room-nights, peak of ").append(this.getPeakOccupancy()).append(" rooms on ")
+                .append(DateFormatter.formatDate(this.peakNight));
+        for (int i = 0; i < this.occupancies.length; i++) {
+            report.append(System.lineSeparator()).append(" - ")
+                    .append(DateFormatter.formatDate(this.firstNight.plusDays(i))).append(": ")
+                    .append(this.occupancies[i]);
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,443 @@
+package service;
+
+import model.Customer;
+import model.IRoom;
+import model.Reservation;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * Store of reservations kept outside of the Java heap, used to archive past stays so that they neither
+ * fill the heap nor slow down garbage collection.
+ * The store is deliberately limited to past stays: live reservations are cancelled, modified, indexed for
+ * availability and logged, which all need the reservation objects, so they stay in the heap stores of the
+ * {@link ReservationService}. The store only takes part in booking (a new stay is checked against the
+ * archived stays of its room, see {@link #findConflict}) and in the lookups of the reservations of a room or
+ * customer.
+ * Each reservation is a fixed-width record of {@link #RECORD_BYTES} bytes (room id, customer id, check-in
+ * and check-out epoch days and price per night in cents) in memory segments of {@link #CHUNK_RECORDS}
+ * records that are allocated from an automatic {@link Arena} as the store grows, and freed once the store
+ * is no longer reachable. Rooms and customers are referred to by the ids the hotel
+ * gave them, and the records of each room (sorted by check-in day, so they can be binary searched) and of
+ * each customer (in the order they were stored) are listed in arrays of record indexes indexed by those
+ * ids, so the heap only holds a few bytes per reservation and no object at all.
+ * Records are read through {@link StoredReservation} flyweights, and {@link Reservation} objects are only
+ * created for the reservations that are returned. Records are only ever added.
+ * Adding records takes a write lock and reading them a read lock.
+ * @see ReservationService
+ * @author Cláudia Martins
+ */
+final class OffHeapReservationStore {
+
+    /**
+     * Offset of the room id in a record
+     */
+    static final int ROOM_ID_OFFSET = 0;
+
+    /**
+     * Offset of the customer id in a record
+     */
+    static final int CUSTOMER_ID_OFFSET = 4;
+
+    /**
+     * Offset of the check-in epoch day in a record
+     */
+    static final int CHECK_IN_OFFSET = 8;
+
+    /**
+     * Offset of the check-out epoch day in a record
+     */
+    static final int CHECK_OUT_OFFSET = 12;
+
+    /**
+     * Offset of the price per night in cents in a record
+     */
+    static final int PRICE_OFFSET = 16;
+
+    /**
+     * Size of a record in bytes
+     */
+    static final int RECORD_BYTES = 24;
+
+    /**
+     * Number of bits of the index of a record within its chunk
+     */
+    private static final int CHUNK_SHIFT = 16;
+
+    /**
+     * Number of records of a chunk (1.5 MB per chunk)
+     */
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+
+    /**
+     * Arena the chunks are allocated from
+     */
+    private final Arena arena;
+
+    /**
+     * Off-heap chunks of the records
+     */
+    private final List<MemorySegment> chunks;
+
+    /**
+     * Finds a room by its id
+     */
+    private final IntFunction<IRoom> rooms;
+
+    /**
+     * Finds a customer by their id
+     */
+    private final IntFunction<Customer> customers;
+
+    /**
+     * Records of each room, by the id of the room (null for the rooms with no record)
+     */
+    private final List<RecordList> recordsByRoom;
+
+    /**
+     * Records of each customer, by the id of the customer (null for the customers with no record)
+     */
+    private final List<RecordList> recordsByCustomer;
+
+    /**
+     * Lock that lets the records be read concurrently while none is being added
+     */
+    private final ReadWriteLock lock;
+
+    /**
+     * Number of records stored
+     */
+    private volatile int size;
+
+    /**
+     * Latest check-out day of the records stored, so that ranges after it are not looked up
+     */
+    private volatile int latestCheckOutDay;
+
+    /**
+     * Constructor for the OffHeapReservationStore class
+     * @param rooms: finds a room by its id
+     * @param customers: finds a customer by their id
+     */
+    OffHeapReservationStore(IntFunction<IRoom> rooms, IntFunction<Customer> customers) {
+        this.arena = Arena.ofAuto();
+        this.chunks = new ArrayList<>();
+        this.rooms = rooms;
+        this.customers = customers;
+        this.recordsByRoom = new ArrayList<>();
+        this.recordsByCustomer = new ArrayList<>();
+        this.lock = new ReentrantReadWriteLock();
+        this.latestCheckOutDay = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Stores several reservations
+     * @param reservations: the reservations to be stored, whose rooms and customers must have ids
+     * @throws IllegalStateException if the store is full
+     */
+    void addAll(Collection<Reservation> reservations) {
+        this.lock.writeLock().lock();
+        try {
+            if ((long) this.size + reservations.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The reservation store cannot hold more than "
+                        + Integer.MAX_VALUE + " reservations.");
+            }
+            StoredReservation view = new StoredReservation(this);
+            int latestDay = this.latestCheckOutDay;
+            for (Reservation reservation : reservations) {
+                int record = this.size;
+                if (record >>> CHUNK_SHIFT == this.chunks.size()) {
+                    this.chunks.add(this.arena.allocate((long) CHUNK_RECORDS * RECORD_BYTES, Long.BYTES));
+                }
+                int roomId = RegisteredRoom.idOf(reservation.getRoom());
+                int customerId = RegisteredCustomer.idOf(reservation.getCustomer());
+                MemorySegment chunk = this.chunkOf(record);
+                long offset = offsetOf(record);
+                chunk.set(ValueLayout.JAVA_INT, offset + ROOM_ID_OFFSET, roomId);
+                chunk.set(ValueLayout.JAVA_INT, offset + CUSTOMER_ID_OFFSET, customerId);
+                chunk.set(ValueLayout.JAVA_INT, offset + CHECK_IN_OFFSET, reservation.getCheckInDay());
+                chunk.set(ValueLayout.JAVA_INT, offset + CHECK_OUT_OFFSET, reservation.getCheckOutDay());
+                chunk.set(ValueLayout.JAVA_LONG, offset + PRICE_OFFSET, reservation.getRoom().getRoomPriceCents());
+                this.size = record + 1;
+                recordsOf(this.recordsByRoom, roomId).insert(record, reservation.getCheckInDay(), view);
+                recordsOf(this.recordsByCustomer, customerId).append(record);
+                latestDay = Math.max(latestDay, reservation.getCheckOutDay());
+            }
+            this.latestCheckOutDay = latestDay;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves a stored reservation of a room that overlaps the given range of days (inclusive), if there
+     * is one. The records of the room are binary searched, and ranges after the latest check-out stored are
+     * answered without locking.
+     * @param roomId: the id of the room
+     * @param checkInDay: the epoch day of the check-in date of the range
+     * @param checkOutDay: the epoch day of the check-out date of the range
+     * @return the conflicting reservation, or null if no stored reservation of the room overlaps the range
+     */
+    Reservation findConflict(int roomId, int checkInDay, int checkOutDay) {
+        if (checkInDay > this.latestCheckOutDay) {
+            return null;
+        }
+        this.lock.readLock().lock();
+        try {
+            RecordList records = findRecords(this.recordsByRoom, roomId);
+            if (records == null) {
+                return null;
+            }
+            StoredReservation view = new StoredReservation(this);
+            int latest = records.floor(checkOutDay, view);
+            if (latest >= 0 && view.moveTo(records.get(latest)).getCheckOutDay() >= checkInDay) {
+                return view.toReservation();
+            }
+            return null;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the stored reservations of a room
+     * @param roomId: the id of the room
+     * @return the reservations, sorted by check-in date
+     */
+    List<Reservation> getRoomReservations(int roomId) {
+        this.lock.readLock().lock();
+        try {
+            RecordList records = findRecords(this.recordsByRoom, roomId);
+            return records == null ? List.of() : this.toReservations(records);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the stored reservations of a customer
+     * @param customerId: the id of the customer
+     * @return the reservations, sorted by check-in date
+     */
+    List<Reservation> getCustomerReservations(int customerId) {
+        this.lock.readLock().lock();
+        try {
+            RecordList records = findRecords(this.recordsByCustomer, customerId);
+            if (records == null) {
+                return List.of();
+            }
+            List<Reservation> reservations = this.toReservations(records);
+            reservations.sort(Comparator.comparingInt(Reservation::getCheckInDay));
+            return reservations;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of reservations stored
+     * @return the number of reservations
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Retrieves the off-heap memory allocated for the records
+     * @return the number of bytes allocated
+     */
+    long getOffHeapBytes() {
+        this.lock.readLock().lock();
+        try {
+            return (long) this.chunks.size() * CHUNK_RECORDS * RECORD_BYTES;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the chunk holding a record (the store must be locked)
+     * @param record: the index of the record
+     * @return the chunk of the record
+     */
+    MemorySegment chunkOf(int record) {
+        return this.chunks.get(record >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Retrieves the offset of a record in its chunk
+     * @param record: the index of the record
+     * @return the offset of the record
+     */
+    static long offsetOf(int record) {
+        return (long) (record & (CHUNK_RECORDS - 1)) * RECORD_BYTES;
+    }
+
+    /**
+     * Retrieves a customer by id
+     * @param customerId: the id of the customer
+     * @return the customer
+     */
+    Customer customerOf(int customerId) {
+        return this.customers.apply(customerId);
+    }
+
+    /**
+     * Retrieves a room by id
+     * @param roomId: the id of the room
+     * @return the room
+     */
+    IRoom roomOf(int roomId) {
+        return this.rooms.apply(roomId);
+    }
+
+    /**
+     * Retrieves the records of an id, creating an empty list first if it has none (the store must be locked
+     * for writing)
+     * @param recordsById: the lists of records, by id
+     * @param id: the id of the room or customer
+     * @return the records of the id
+     */
+    private static RecordList recordsOf(List<RecordList> recordsById, int id) {
+        while (recordsById.size() <= id) {
+            recordsById.add(null);
+        }
+        RecordList records = recordsById.get(id);
+        if (records == null) {
+            records = new RecordList();
+            recordsById.set(id, records);
+        }
+        return records;
+    }
+
+    /**
+     * Retrieves the records of an id (the store must be locked)
+     * @param recordsById: the lists of records, by id
+     * @param id: the id of the room or customer
+     * @return the records of the id, or null if it has none
+     */
+    private static RecordList findRecords(List<RecordList> recordsById, int id) {
+        return id >= 0 && id < recordsById.size() ? recordsById.get(id) : null;
+    }
+
+    /**
+     * Creates the reservations of a list of records (the store must be locked)
+     * @param records: the records
+     * @return the reservations, in the order of the records
+     */
+    private List<Reservation> toReservations(RecordList records) {
+        StoredReservation view = new StoredReservation(this);
+        List<Reservation> reservations = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            reservations.add(view.moveTo(records.get(i)).toReservation());
+        }
+        return reservations;
+    }
+
+    /**
+     * Growable array of record indexes, either sorted by the check-in day of the records (see
+     * {@link #insert}) or in the order they were stored (see {@link #append})
+     */
+    private static final class RecordList {
+
+        /**
+         * Initial capacity of a list
+         */
+        private static final int INITIAL_CAPACITY = 4;
+
+        /**
+         * The record indexes, of which only the first {@link #size} are used
+         */
+        private int[] records;
+
+        /**
+         * Number of record indexes in the list
+         */
+        private int size;
+
+        /**
+         * Constructor for the RecordList class
+         */
+        private RecordList() {
+            this.records = new int[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Retrieves a record index
+         * @param index: the position in the list
+         * @return the record index at that position
+         */
+        private int get(int index) {
+            return this.records[index];
+        }
+
+        /**
+         * Retrieves the number of record indexes in the list
+         * @return the size of the list
+         */
+        private int size() {
+            return this.size;
+        }
+
+        /**
+         * Appends a record index to the list
+         * @param record: the index of the record
+         */
+        private void append(int record) {
+            if (this.size == this.records.length) {
+                this.records = Arrays.copyOf(this.records, this.size * 2);
+            }
+            this.records[this.size++] = record;
+        }
+
+        /**
+         * Inserts a record index after those of the records that do not check in later.
+         * Records are usually stored in check-in order, so the position is searched from the end.
+         * @param record: the index of the record
+         * @param checkInDay: the check-in day of the record
+         * @param view: a view used to read the check-in days of the other records
+         */
+        private void insert(int record, int checkInDay, StoredReservation view) {
+            if (this.size == this.records.length) {
+                this.records = Arrays.copyOf(this.records, this.size * 2);
+            }
+            int position = this.size;
+            while (position > 0 && view.moveTo(this.records[position - 1]).getCheckInDay() > checkInDay) {
+                position--;
+            }
+            System.arraycopy(this.records, position, this.records, position + 1, this.size - position);
+            this.records[position] = record;
+            this.size++;
+        }
+
+        /**
+         * Finds the last record that checks in on or before a day
+         * @param day: the epoch day
+         * @param view: a view used to read the check-in days of the records
+         * @return the position of that record in the list, or -1 if every record checks in after the day
+         */
+        private int floor(int day, StoredReservation view) {
+            int low = 0;
+            int high = this.size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (view.moveTo(this.records[middle]).getCheckInDay() <= day) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+    }
+}
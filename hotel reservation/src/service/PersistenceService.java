@@ -0,0 +1,402 @@
+package service;
+
+import model.Customer;
+import model.FreeRoom;
+import model.IRoom;
+import model.Reservation;
+import model.Room;
+import model.RoomType;
+import persistence.DurabilityLevel;
+import persistence.LogRecord;
+import persistence.Snapshot;
+import persistence.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service class for persisting the state of the hotel reservation application.
+ * Every customer, room and reservation added through {@link CustomerService} and
+ * {@link ReservationService} is recorded in a {@link WriteAheadLog}. A {@link Snapshot} of the full state
+ * is written periodically in the background, so that startup loads the latest snapshot and only replays
+ * the tail of the log written after it. The log starts a new segment at each snapshot, and the segments a
+ * snapshot covers are deleted once it is in place.
+ * Implements the singleton design pattern to ensure a single instance is always
+ * returned. Each shard of a {@link ShardedReservationService} is persisted by an instance of its own, in a
+ * directory of its own, while the customers the shards share are recorded by the singleton.
+ * @see WriteAheadLog
+ * @see Snapshot
+ * @see CustomerService
+ * @see ReservationService
+ * @author Cláudia Martins
+ */
+public final class PersistenceService {
+
+    /**
+     * Name of the write-ahead log inside the data directory, which its segment files are named after
+     */
+    public static final String LOG_FILE_NAME = "hotel.wal";
+
+    /**
+     * Name of the snapshot file inside the data directory
+     */
+    public static final String SNAPSHOT_FILE_NAME = "hotel.snapshot";
+
+    /**
+     * Default interval between snapshots
+     */
+    public static final Duration DEFAULT_SNAPSHOT_INTERVAL = Duration.ofMinutes(10);
+
+    /**
+     * Singleton instance of PersistenceService
+     */
+    private static PersistenceService PERSISTENCE_SERVICE;
+
+    /**
+     * The CustomerService instance whose customers are persisted
+     */
+    private final CustomerService customerService;
+
+    /**
+     * The ReservationService instance whose rooms and reservations are persisted
+     */
+    private final ReservationService reservationService;
+
+    /**
+     * Whether the customers added are recorded in the log, which only one of the instances sharing the
+     * CustomerService does (the snapshots of every instance hold the customers, though)
+     */
+    private final boolean recordsCustomers;
+
+    /**
+     * Lock that prevents snapshots from being written concurrently
+     */
+    private final Object snapshotLock;
+
+    /**
+     * The open write-ahead log, or null if persistence has not been started
+     */
+    private volatile WriteAheadLog writeAheadLog;
+
+    /**
+     * Path of the snapshot file, or null if persistence has not been started
+     */
+    private volatile Path snapshotFile;
+
+    /**
+     * Background writer of the periodic snapshots, or null if they are disabled
+     */
+    private ScheduledExecutorService snapshotWriter;
+
+    /**
+     * Private constructor to prevent outside instantiation
+     */
+    private PersistenceService() {
+        this(CustomerService.getInstance(), ReservationService.getInstance(), true);
+    }
+
+    /**
+     * Constructor for a PersistenceService that is not the singleton one (e.g. of a shard of a
+     * {@link ShardedReservationService})
+     * @param customerService: the service the customers are registered in
+     * @param reservationService: the service whose rooms and reservations are persisted
+     * @param recordsCustomers: whether the customers added are recorded in the log, or by another instance
+     */
+    PersistenceService(CustomerService customerService, ReservationService reservationService,
+                       boolean recordsCustomers) {
+        this.customerService = customerService;
+        this.reservationService = reservationService;
+        this.recordsCustomers = recordsCustomers;
+        this.snapshotLock = new Object();
+    }
+
+    /**
+     * Retrieves the singleton instance of PersistenceService, creating it first if it does not yet exist
+     * @return the singleton instance of PersistenceService
+     */
+    public static synchronized PersistenceService getInstance() {
+        if (PERSISTENCE_SERVICE == null) {
+            PERSISTENCE_SERVICE = new PersistenceService();
+        }
+        return PERSISTENCE_SERVICE;
+    }
+
+    /**
+     * Restores the state stored in a data directory and starts recording every change made to it.
+     * Must be called before the services are used, since the restored state is applied on top of their
+     * current state.
+     * @param dataDirectory: the directory holding the snapshot and the write-ahead log (created if it
+     *                       does not exist)
+     * @param durability: the durability level of the log
+     * @param snapshotInterval: the interval between background snapshots, or null (or zero) to disable them
+     * @throws IOException if the stored state cannot be read or the log cannot be opened
+     * @throws IllegalStateException if persistence has already been started
+     */
+    public synchronized void start(Path dataDirectory, DurabilityLevel durability, Duration snapshotInterval)
+            throws IOException {
+        if (this.writeAheadLog != null) {
+            throw new IllegalStateException("Persistence has already been started.");
+        }
+        Files.createDirectories(dataDirectory);
+        Path logFile = dataDirectory.resolve(LOG_FILE_NAME);
+        Path snapshot = dataDirectory.resolve(SNAPSHOT_FILE_NAME);
+
+        SnapshotState snapshotState = new SnapshotState();
+        long snapshotPosition = Snapshot.load(snapshot, snapshotState::add);
+        this.customerService.restoreCustomers(snapshotState.customers.values());
+        this.reservationService.restore(snapshotState.rooms.values(), snapshotState.reservations);
+        List<LogRecord> tail = new ArrayList<>();
+        long validPosition = WriteAheadLog.replay(logFile, snapshotPosition, tail::add);
+        Map<LogRecord.RoomReserved, Integer> lastCancellations = findLastCancellations(tail);
+        for (int position = 0; position < tail.size(); position++) {
+            this.apply(tail.get(position), position, lastCancellations);
+        }
+
+        this.writeAheadLog = WriteAheadLog.open(logFile, validPosition, durability,
+                WriteAheadLog.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        this.writeAheadLog.deleteSegmentsBefore(snapshotPosition);
+        this.snapshotFile = snapshot;
+        if (this.recordsCustomers) {
+            this.customerService.setWriteAheadLog(this.writeAheadLog);
+        }
+        this.reservationService.setWriteAheadLog(this.writeAheadLog);
+
+        if (snapshotInterval != null && !snapshotInterval.isZero()) {
+            this.snapshotWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.snapshotWriter.scheduleWithFixedDelay(this::takeSnapshotQuietly, snapshotInterval.toMillis(),
+                    snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the current state, replacing the previous one, and deletes the segments of the
+     * log it covers.
+     * Changes keep being made while the snapshot is written: the snapshot is taken at a checkpoint of the
+     * log, and the changes it misses are replayed from the log after the checkpoint on startup, skipping
+     * those it already holds. The customers and rooms are read after the reservations, so that those the
+     * reservations refer to are always part of the snapshot.
+     * @throws IOException if the snapshot cannot be written
+     * @throws IllegalStateException if persistence has not been started
+     */
+    public void takeSnapshot() throws IOException {
+        synchronized (this.snapshotLock) {
+            WriteAheadLog log = this.writeAheadLog;
+            if (log == null) {
+                throw new IllegalStateException("Persistence has not been started.");
+            }
+            long checkpoint = log.checkpoint();
+            Snapshot.write(this.snapshotFile, checkpoint,
+                    this.reservationService.getAllReservations()
+                            .map(reservation -> new LogRecord.RoomReserved(reservation.getCustomer().getEmail(),
+                                    reservation.getRoom().getRoomNumber(),
+                                    reservation.getCheckInDay(), reservation.getCheckOutDay()))
+                            .iterator(),
+                    () -> this.customerService.getCustomersUnsorted().stream()
+                            .map(customer -> new LogRecord.CustomerAdded(customer.getEmail(),
+                                    customer.getFirstName(), customer.getLastName()))
+                            .toList(),
+                    () -> this.reservationService.getRoomsUnsorted().stream()
+                            .map(PersistenceService::toRecord)
+                            .toList());
+            log.deleteSegmentsBefore(checkpoint);
+        }
+    }
+
+    /**
+     * Stops recording changes and closes the write-ahead log, making every recorded change durable.
+     * Stopping when persistence has not been started has no effect.
+     * @throws IOException if the log cannot be written or closed
+     */
+    public synchronized void stop() throws IOException {
+        if (this.writeAheadLog == null) {
+            return;
+        }
+        if (this.snapshotWriter != null) {
+            this.snapshotWriter.shutdown();
+            try {
+                this.snapshotWriter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.snapshotWriter = null;
+        }
+        if (this.recordsCustomers) {
+            this.customerService.setWriteAheadLog(null);
+        }
+        this.reservationService.setWriteAheadLog(null);
+        try {
+            this.writeAheadLog.close();
+        } finally {
+            this.writeAheadLog = null;
+        }
+    }
+
+    /**
+     * Background snapshot, reporting failures instead of throwing them
+     */
+    private void takeSnapshotQuietly() {
+        try {
+            this.takeSnapshot();
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Could not write a snapshot: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Finds, for each reservation cancelled (or modified) in the tail of the log, the position of the last
+     * record that cancels it
+     * @param tail: the records of the log after the snapshot, in order
+     * @return the position in the tail of the last cancellation of each reservation, keyed by the record
+     * of the reservation being made
+     */
+    private static Map<LogRecord.RoomReserved, Integer> findLastCancellations(List<LogRecord> tail) {
+        Map<LogRecord.RoomReserved, Integer> lastCancellations = new HashMap<>();
+        for (int position = 0; position < tail.size(); position++) {
+            LogRecord.ReservationCancelled cancellation = switch (tail.get(position)) {
+                case LogRecord.ReservationCancelled cancelled -> cancelled;
+                case LogRecord.ReservationModified modification -> modification.previous();
+                default -> null;
+            };
+            if (cancellation != null) {
+                lastCancellations.put(new LogRecord.RoomReserved(cancellation.customerEmail(),
+                        cancellation.roomNumber(), cancellation.checkInDay(), cancellation.checkOutDay()), position);
+            }
+        }
+        return lastCancellations;
+    }
+
+    /**
+     * Applies a record replayed from the log to the services.
+     * The snapshot is written while changes keep being made, so it may already hold changes made after the
+     * position it continues from. Records whose change is already part of the snapshot are skipped, as are
+     * the cancellations of reservations that are no longer there and the reservations that conflict with
+     * the snapshot but are cancelled or modified later in the tail (the snapshot holds what replaced them).
+     * @param record: the replayed record
+     * @param position: the position of the record in the tail of the log
+     * @param lastCancellations: the position of the last cancellation of each reservation in the tail
+     * @throws IllegalStateException if the record cannot be applied to the restored state
+     */
+    private void apply(LogRecord record, int position, Map<LogRecord.RoomReserved, Integer> lastCancellations) {
+        switch (record) {
+            case LogRecord.CustomerAdded customer ->
+                    this.customerService.addCustomer(customer.email(), customer.firstName(), customer.lastName());
+            case LogRecord.RoomAdded room -> {
+                if (this.reservationService.getARoom(room.roomNumber()) == null) {
+                    this.reservationService.addRoom(toRoom(room));
+                }
+            }
+            case LogRecord.RoomReserved reservation -> {
+                Customer customer = this.customerService.getCustomer(reservation.customerEmail());
+                IRoom room = this.reservationService.getARoom(reservation.roomNumber());
+                if (customer == null || room == null) {
+                    throw new IllegalStateException("The write-ahead log has a reservation for an unknown "
+                            + "customer (" + reservation.customerEmail() + ") or room ("
+                            + reservation.roomNumber() + ").");
+                }
+                Reservation existing = this.reservationService.findConflict(room, reservation.checkInDay(),
+                        reservation.checkOutDay());
+                if (existing == null) {
+                    this.reservationService.reserveARoom(customer, room, LocalDate.ofEpochDay(reservation.checkInDay()),
+                            LocalDate.ofEpochDay(reservation.checkOutDay()));
+                } else if ((!existing.getCustomer().equals(customer)
+                        || existing.getCheckInDay() != reservation.checkInDay()
+                        || existing.getCheckOutDay() != reservation.checkOutDay())
+                        && lastCancellations.getOrDefault(reservation, -1) <= position) {
+                    throw new IllegalStateException("The write-ahead log has a reservation that conflicts with "
+                            + "the restored state: " + existing);
+                }
+            }
+            case LogRecord.RoomsReserved batch -> batch.reservations()
+                    .forEach(reservation -> this.apply(reservation, position, lastCancellations));
+            case LogRecord.ReservationCancelled cancellation -> {
+                IRoom room = this.reservationService.getARoom(cancellation.roomNumber());
+                Reservation existing = room == null ? null
+                        : this.reservationService.getReservation(room, LocalDate.ofEpochDay(cancellation.checkInDay()));
+                if (existing != null && existing.getCustomer().getEmail().equals(cancellation.customerEmail())
+                        && existing.getCheckOutDay() == cancellation.checkOutDay()) {
+                    this.reservationService.cancelReservation(existing);
+                }
+            }
+            case LogRecord.ReservationModified modification -> {
+                this.apply(modification.previous(), position, lastCancellations);
+                this.apply(modification.modified(), position, lastCancellations);
+            }
+        }
+    }
+
+    /**
+     * Converts a room into the record of it being added
+     * @param room: the room, as registered in the hotel
+     * @return the record of the room
+     */
+    private static LogRecord.RoomAdded toRecord(RegisteredRoom room) {
+        return new LogRecord.RoomAdded(room.getRoomNumber(), room.getRoomPrice(), room.getRoomType().name(),
+                room.getRoom() instanceof FreeRoom);
+    }
+
+    /**
+     * Converts the record of a room being added into the room
+     * @param room: the record of the room
+     * @return the room
+     */
+    private static IRoom toRoom(LogRecord.RoomAdded room) {
+        RoomType roomType = RoomType.valueOf(room.roomType());
+        return room.freeRoom() ? new FreeRoom(room.roomNumber(), roomType)
+                : new Room(room.roomNumber(), room.price(), roomType);
+    }
+
+    /**
+     * State loaded from a snapshot, collected so that it can be restored in bulk
+     */
+    private static final class SnapshotState {
+
+        /**
+         * Restored customers by email
+         */
+        private final Map<String, Customer> customers = new HashMap<>();
+
+        /**
+         * Restored rooms by room number
+         */
+        private final Map<String, IRoom> rooms = new HashMap<>();
+
+        /**
+         * Restored reservations
+         */
+        private final List<Reservation> reservations = new ArrayList<>();
+
+        /**
+         * Adds a record loaded from the snapshot to the state
+         * @param record: the loaded record
+         */
+        private void add(LogRecord record) {
+            switch (record) {
+                case LogRecord.CustomerAdded customer -> this.customers.put(customer.email(),
+                        new Customer(customer.firstName(), customer.lastName(), customer.email()));
+                case LogRecord.RoomAdded room -> this.rooms.put(room.roomNumber(), toRoom(room));
+                case LogRecord.RoomReserved reservation -> this.reservations.add(new Reservation(
+                        this.customers.get(reservation.customerEmail()), this.rooms.get(reservation.roomNumber()),
+                        reservation.checkInDay(), reservation.checkOutDay()));
+                case LogRecord.RoomsReserved batch -> batch.reservations().forEach(this::add);
+                case LogRecord.ReservationCancelled cancellation ->
+                        throw new IllegalStateException("A snapshot cannot hold a cancellation.");
+                case LogRecord.ReservationModified modification ->
+                        throw new IllegalStateException("A snapshot cannot hold a modification.");
+            }
+        }
+    }
+}
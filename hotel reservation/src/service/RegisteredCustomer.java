@@ -0,0 +1,82 @@
+package service;
+
+import model.Customer;
+
+/**
+ * Customer as registered in a {@link CustomerService}, holding the compact id that service gave them.
+ * The service keeps its own copy of each customer, so the id never leaks into the customers it is given,
+ * and hands out its registered customers, so a customer given back to the hotel is found without any
+ * lookup, while any other customer is looked up by email.
+ * @see CustomerService
+ * @author Cláudia Martins
+ */
+final class RegisteredCustomer extends Customer {
+
+    /**
+     * Service the customer is registered in
+     */
+    private final CustomerService service;
+
+    /**
+     * Id the service gave the customer, set once when they are registered
+     */
+    private int customerId;
+
+    /**
+     * Constructor for a RegisteredCustomer with the given details
+     * @param firstName: the customer's first name
+     * @param lastName: the customer's last name
+     * @param email: the customer's email
+     * @param service: the service the customer is being registered in
+     * @throws IllegalArgumentException when the email does not match the "email@domain.extension" format
+     */
+    RegisteredCustomer(String firstName, String lastName, String email, CustomerService service)
+            throws IllegalArgumentException {
+        super(firstName, lastName, email);
+        this.service = service;
+    }
+
+    /**
+     * Constructor for a RegisteredCustomer copying a given customer
+     * @param customer: the customer to be copied
+     * @param service: the service the customer is being registered in
+     */
+    RegisteredCustomer(Customer customer, CustomerService service) {
+        super(customer);
+        this.service = service;
+    }
+
+    /**
+     * Retrieves the id the service gave the customer
+     * @return the customer id
+     */
+    int getCustomerId() {
+        return this.customerId;
+    }
+
+    /**
+     * Retrieves the id of a registered customer, such as the customer of a reservation made by the hotel
+     * @param customer: the registered customer
+     * @return the customer id
+     */
+    static int idOf(Customer customer) {
+        return ((RegisteredCustomer) customer).customerId;
+    }
+
+    /**
+     * Gives the customer the id the service assigned to them, before they are published
+     * @param customerId: the customer id
+     */
+    void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+
+    /**
+     * Checks whether the customer is registered in a given service
+     * @param service: the service
+     * @return true if the customer was registered by that service, false otherwise
+     */
+    boolean isRegisteredIn(CustomerService service) {
+        return this.service == service;
+    }
+}
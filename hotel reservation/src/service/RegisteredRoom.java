@@ -0,0 +1,159 @@
+package service;
+
+import model.IRoom;
+import model.RoomType;
+
+/**
+ * Room as registered in a {@link ReservationService}, holding the compact id that service gave it.
+ * The id only has a meaning in the service that gave it, so it is kept in this service-owned copy rather
+ * than in the room that was added, which may also be added to other services (e.g. another shard). The
+ * services hand out their registered rooms, so a room given back to the service that registered it is
+ * found without any lookup, while any other room is looked up by room number.
+ * @see ReservationService
+ * @author Cláudia Martins
+ */
+final class RegisteredRoom implements IRoom {
+
+    /**
+     * The room that was added
+     */
+    private final IRoom room;
+
+    /**
+     * Id the service gave the room
+     */
+    private final int roomId;
+
+    /**
+     * Service the room is registered in
+     */
+    private final ReservationService service;
+
+    /**
+     * Constructor for the RegisteredRoom class
+     * @param room: the room that was added (if it is registered in another service, the room that was added
+     *            to that one)
+     * @param roomId: the id the service gave the room
+     * @param service: the service the room is registered in
+     */
+    RegisteredRoom(IRoom room, int roomId, ReservationService service) {
+        this.room = room instanceof RegisteredRoom registeredRoom ? registeredRoom.room : room;
+        this.roomId = roomId;
+        this.service = service;
+    }
+
+    /**
+     * Retrieves the room that was added
+     * @return the room
+     */
+    IRoom getRoom() {
+        return this.room;
+    }
+
+    /**
+     * Retrieves the id the service gave the room
+     * @return the room id
+     */
+    int getRoomId() {
+        return this.roomId;
+    }
+
+    /**
+     * Retrieves the id of a room registered in a service, such as the room of a reservation made by it
+     * @param room: the registered room
+     * @return the room id
+     */
+    static int idOf(IRoom room) {
+        return ((RegisteredRoom) room).roomId;
+    }
+
+    /**
+     * Retrieves the service the room is registered in
+     * @return the service
+     */
+    ReservationService getService() {
+        return this.service;
+    }
+
+    /**
+     * Checks whether the room is registered in a given service
+     * @param service: the service
+     * @return true if the room was registered by that service, false otherwise
+     */
+    boolean isRegisteredIn(ReservationService service) {
+        return this.service == service;
+    }
+
+    /**
+     * Retrieves the room number
+     * @return the room number
+     */
+    @Override
+    public String getRoomNumber() {
+        return this.room.getRoomNumber();
+    }
+
+    /**
+     * Retrieves the room price
+     * @return the room price
+     */
+    @Override
+    public double getRoomPrice() {
+        return this.room.getRoomPrice();
+    }
+
+    /**
+     * Retrieves the room price in cents
+     * @return the room price in cents
+     */
+    @Override
+    public long getRoomPriceCents() {
+        return this.room.getRoomPriceCents();
+    }
+
+    /**
+     * Retrieves the room type
+     * @return the room type
+     */
+    @Override
+    public RoomType getRoomType() {
+        return this.room.getRoomType();
+    }
+
+    /**
+     * Checks if the room is free
+     * @return true if the room is free, false otherwise
+     */
+    @Override
+    public boolean isFree() {
+        return this.room.isFree();
+    }
+
+    /**
+     * Returns a String representation of the room
+     * @return the room represented in String format
+     */
+    @Override
+    public String toString() {
+        return this.room.toString();
+    }
+
+    /**
+     * Checks whether another object is the same room registered in any service
+     * @param o: the object to be compared
+     * @return true if the object is a registered room equal to this one, false otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RegisteredRoom registeredRoom && this.room.equals(registeredRoom.room);
+    }
+
+    /**
+     * Computes the hash code of the room
+     * @return the hash code of the room that was added
+     */
+    @Override
+    public int hashCode() {
+        return this.room.hashCode();
+    }
+}
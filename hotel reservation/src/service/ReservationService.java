@@ -1,22 +1,65 @@
 package service;
 
+import events.EventBus;
+import events.HotelEvent;
+import metrics.MetricsRegistry;
+import model.BookingRequest;
 import model.Customer;
+import model.FreeRoom;
 import model.IRoom;
 import model.Reservation;
+import model.RoomSearch;
+import model.RoomType;
+import persistence.LogRecord;
+import persistence.WriteAheadLog;
 import utils.DateFormatter;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing reservations in the hotel reservation application.
  * Implements the singleton design pattern to ensure a single instance is always
  * returned.
+ * Rooms and customers are given compact integer ids when they are added, and every structure of the
+ * service is indexed by those ids; room numbers and emails are only looked up at the edge, to find the
+ * room or customer a request refers to.
+ * The service is thread-safe: writes to a room are serialized through a set of striped locks keyed by
+ * room id, so bookings of different rooms run in parallel while bookings of the same room cannot
+ * both pass the conflict check. Reads go through concurrent collections and never block on writers.
+ * A service written by a single thread (e.g. a shard of a {@link ShardedReservationService}) takes no locks
+ * at all, while it can still be read from any thread.
+ * Reservations are immutable: they are cancelled or moved to another room or other dates through the
+ * service, which re-checks the availability of the room under its lock. A cancelled reservation is removed
+ * from the schedule of its room at once, but it is only tombstoned in the copy-on-write list of its
+ * customer, which would otherwise be copied on every cancellation: the tombstoned entries are filtered out
+ * by the lookups and removed in the background, a whole batch at a time.
+ * Rooms added, reservations made, cancelled and modified are published to the {@link EventBus} once they
+ * are committed.
+ * Past stays can be archived into an {@link OffHeapReservationStore}, outside of the heap, where they are
+ * still taken into account by the bookings and returned by the lookups.
+ * @see IReservationService
  * @see Reservation
  * @see IRoom
  * @see Customer
  * @author Cláudia Martins
  */
-public final class ReservationService {
+public final class ReservationService implements IReservationService {
 
     /**
      * Singleton instance of ReservationService
@@ -24,21 +67,199 @@ public final class ReservationService {
     private static ReservationService RESERVATION_SERVICE;
 
     /**
-     * Map to store rooms by their room numbers
+     * Reservation service the resources of the application route their calls to, the singleton one unless
+     * another one was set (see {@link #setActiveService})
      */
-    private final Map<String, IRoom> rooms;
+    private static IReservationService ACTIVE_SERVICE;
 
     /**
-     * Map to store reservations by room numbers
+     * Number of locks guarding the writes to rooms (must be a power of two)
      */
-    private final Map<String, List<Reservation>> reservations;
+    private static final int ROOM_LOCK_STRIPES = 64;
 
     /**
-     * Private constructor to prevent outside instantiation
+     * Time the tombstones of the cancelled reservations are left to accumulate before they are compacted
+     */
+    private static final long COMPACTION_DELAY_MILLIS = 1000;
+
+    /**
+     * Thread that compacts the tombstones of the cancelled reservations of the singleton service
+     */
+    private static final ScheduledExecutorService COMPACTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reservation-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Map to store rooms by their room numbers, used to find the id of the room a request refers to
+     */
+    private final Map<String, RegisteredRoom> rooms;
+
+    /**
+     * Rooms by room id
+     */
+    private final IdTable<RegisteredRoom> roomsById;
+
+    /**
+     * Number of rooms added, which is also the id given to the next room
+     */
+    private volatile int roomCount;
+
+    /**
+     * Lock that serializes the additions of rooms, so that ids are given in the order the rooms are indexed
+     */
+    private final Lock roomAdditionLock;
+
+    /**
+     * All the rooms, sorted by room number, published as a new immutable list whenever rooms are added
+     */
+    private final RoomCatalog roomCatalog;
+
+    /**
+     * Reservation schedule of each room, by room id
+     */
+    private final IdTable<RoomSchedule> reservations;
+
+    /**
+     * Reservations of each customer, by customer id, sorted by check-in date
+     */
+    private final IdTable<List<Reservation>> customerReservations;
+
+    /**
+     * Service the customers are registered in, used to find the customer a request refers to
+     */
+    private final CustomerService customerService;
+
+    /**
+     * Per-day occupancy bitmaps of the rooms, used to search for available rooms
+     */
+    private final AvailabilityIndex availabilityIndex;
+
+    /**
+     * Indexes of the rooms by type and price, used to search for rooms
+     */
+    private final RoomSearchIndex roomSearchIndex;
+
+    /**
+     * Past stays moved out of the room schedules and the heap (see {@link #archiveReservations})
+     */
+    private final OffHeapReservationStore archive;
+
+    /**
+     * Number of rooms booked on each night, used to answer occupancy queries
+     */
+    private final OccupancyIndex occupancyIndex;
+
+    /**
+     * Lock of a service written by a single thread, which has no writers to exclude and so does nothing
+     */
+    private static final Lock UNLOCKED = new UnlockedLock();
+
+    /**
+     * Striped locks that serialize the writes to each room, or null if a single thread writes to the service
+     */
+    private final Lock[] roomLocks;
+
+    /**
+     * Index of the shard of a {@link ShardedReservationService} the service is, or -1 if it is not a shard
+     */
+    private final int shardIndex;
+
+    /**
+     * Number of reservations that were not archived, kept apart so that it can be read without walking the
+     * schedules
+     */
+    private final LongAdder reservationCount;
+
+    /**
+     * Reservations cancelled (or modified) that are still to be removed from the lists of their customers
+     */
+    private final Queue<Reservation> tombstones;
+
+    /**
+     * Number of tombstones not yet removed from the lists of the customers, incremented before a reservation
+     * leaves the schedule of its room and decremented once it has left the list of its customer, so that
+     * lookups only filter the lists while it is not zero
+     */
+    private final AtomicInteger pendingTombstones;
+
+    /**
+     * Whether a compaction of the tombstones is scheduled and has not started yet
+     */
+    private final AtomicBoolean compactionScheduled;
+
+    /**
+     * Thread the compactions of the tombstones are scheduled on
+     */
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * Bus the rooms added and the reservations made, cancelled and modified are published to
+     */
+    private final EventBus eventBus;
+
+    /**
+     * Write-ahead log the changes are recorded in, or null if they are not persisted
+     */
+    private volatile WriteAheadLog writeAheadLog;
+
+    /**
+     * Private constructor to prevent outside instantiation, registering the gauges of the hotel
      */
     private ReservationService() {
-        this.rooms = new HashMap<>();
-        this.reservations = new HashMap<>();
+        this(CustomerService.getInstance(), COMPACTOR);
+    }
+
+    /**
+     * Constructor for a ReservationService that is not the singleton one, which registers no gauges and
+     * records nothing in the write-ahead log until it is given one
+     * @param customerService: the service the customers are registered in
+     * @param compactor: the thread the compactions of the tombstones are scheduled on
+     */
+    ReservationService(CustomerService customerService, ScheduledExecutorService compactor) {
+        this(customerService, compactor, -1);
+    }
+
+    /**
+     * Constructor for a ReservationService that is not the singleton one (e.g. a shard of a
+     * {@link ShardedReservationService}), which registers no gauges and records nothing in the write-ahead log
+     * until it is given one
+     * @param customerService: the service the customers are registered in
+     * @param compactor: the thread the compactions of the tombstones are scheduled on (e.g. the thread that
+     *                 owns the shard)
+     * @param shardIndex: the index of the shard the service is, or -1 if it is not a shard. Every change to a
+     *                  shard is made by the thread that owns it, which must also be the thread of the
+     *                  compactor, so a shard takes no locks.
+     */
+    ReservationService(CustomerService customerService, ScheduledExecutorService compactor, int shardIndex) {
+        boolean singleWriter = shardIndex >= 0;
+        this.shardIndex = shardIndex;
+        this.rooms = new ConcurrentHashMap<>();
+        this.roomsById = new IdTable<>();
+        this.roomAdditionLock = singleWriter ? UNLOCKED : new ReentrantLock();
+        this.roomCatalog = new RoomCatalog();
+        this.reservations = new IdTable<>();
+        this.customerReservations = new IdTable<>();
+        this.customerService = customerService;
+        this.availabilityIndex = new AvailabilityIndex(this.reservations::get, AvailabilityIndex.DEFAULT_HORIZON_DAYS);
+        this.roomSearchIndex = new RoomSearchIndex();
+        this.occupancyIndex = new OccupancyIndex();
+        this.archive = new OffHeapReservationStore(this.roomsById::get, this.customerService::getCustomer);
+        if (singleWriter) {
+            this.roomLocks = null;
+        } else {
+            this.roomLocks = new Lock[ROOM_LOCK_STRIPES];
+            for (int i = 0; i < ROOM_LOCK_STRIPES; i++) {
+                this.roomLocks[i] = new ReentrantLock();
+            }
+        }
+        this.reservationCount = new LongAdder();
+        this.tombstones = new ConcurrentLinkedQueue<>();
+        this.pendingTombstones = new AtomicInteger();
+        this.compactionScheduled = new AtomicBoolean();
+        this.compactor = compactor;
+        this.eventBus = EventBus.getInstance();
     }
 
     /**
@@ -48,23 +269,134 @@ public final class ReservationService {
     public static synchronized ReservationService getInstance() {
         if (RESERVATION_SERVICE == null) {
             RESERVATION_SERVICE = new ReservationService();
+            registerGauges();
         }
         return RESERVATION_SERVICE;
     }
 
+    /**
+     * Retrieves the reservation service the resources of the application route their calls to
+     * @return the service set with {@link #setActiveService}, or else the singleton ReservationService
+     */
+    public static synchronized IReservationService getActiveService() {
+        if (ACTIVE_SERVICE == null) {
+            ACTIVE_SERVICE = getInstance();
+        }
+        return ACTIVE_SERVICE;
+    }
+
+    /**
+     * Sets the reservation service the resources of the application route their calls to (e.g. a
+     * {@link ShardedReservationService}), before any of them is created
+     * @param service: the reservation service
+     * @throws IllegalStateException if a reservation service is already in use
+     */
+    public static synchronized void setActiveService(IReservationService service) throws IllegalStateException {
+        if (ACTIVE_SERVICE != null) {
+            throw new IllegalStateException("A reservation service is already in use.");
+        }
+        ACTIVE_SERVICE = service;
+        registerGauges();
+    }
+
+    /**
+     * Registers the gauges of the hotel, which report the active service once it is set and the singleton
+     * one until then, so that they follow the service the application runs on (e.g. summing over the shards
+     * of a {@link ShardedReservationService})
+     */
+    private static void registerGauges() {
+        MetricsRegistry.getInstance().gauge("hotel_rooms", "Number of rooms.",
+                () -> getGaugedService().getRoomCount());
+        MetricsRegistry.getInstance().gauge("hotel_reservations", "Number of reservations that were not archived.",
+                () -> getGaugedService().getReservationCount());
+        MetricsRegistry.getInstance().gauge("hotel_archived_reservations", "Number of archived reservations.",
+                () -> getGaugedService().getArchivedReservationCount());
+    }
+
+    /**
+     * Retrieves the service the gauges of the hotel report, without making the singleton one active
+     * @return the active service if it is set, or else the singleton ReservationService
+     */
+    private static synchronized IReservationService getGaugedService() {
+        return ACTIVE_SERVICE != null ? ACTIVE_SERVICE : RESERVATION_SERVICE;
+    }
+
+    /**
+     * Retrieves the index of the shard of a {@link ShardedReservationService} the service is
+     * @return the index of the shard, or -1 if the service is not a shard
+     */
+    int getShardIndex() {
+        return this.shardIndex;
+    }
+
+    /**
+     * Sets the write-ahead log the changes are recorded in
+     * @param writeAheadLog: the write-ahead log, or null to stop recording changes
+     */
+    void setWriteAheadLog(WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
     /**
      * Adds a new room to the system if a room with the given room number does not
-     * already exist
+     * already exist, giving it the next room id
      * @param room: the room to be added
      * @throws IllegalArgumentException if a room with the given room number already exists
      */
+    @Override
     public void addRoom(IRoom room) throws IllegalArgumentException {
         String roomNumber = room.getRoomNumber();
-        if (this.getARoom(roomNumber) == null) {
-            this.rooms.put(roomNumber, room);
-        } else {
-            throw new IllegalArgumentException("A room with room number " + roomNumber + " already exists.");
+        RegisteredRoom registeredRoom;
+        LoggedChange change = LoggedChange.begin(this.writeAheadLog);
+        try (change) {
+            this.roomAdditionLock.lock();
+            try {
+                if (this.rooms.containsKey(roomNumber)) {
+                    throw new IllegalArgumentException("A room with room number " + roomNumber
+                            + " already exists.");
+                }
+                registeredRoom = this.register(List.of(room)).get(0);
+                this.roomCatalog.addRoom(registeredRoom);
+                change.append(new LogRecord.RoomAdded(roomNumber, room.getRoomPrice(),
+                        room.getRoomType().name(), room instanceof FreeRoom));
+            } finally {
+                this.roomAdditionLock.unlock();
+            }
+        }
+        change.commit();
+        this.eventBus.publish(new HotelEvent.RoomAdded(registeredRoom));
+    }
+
+    /**
+     * Adds several rooms to the system at once, skipping those whose room number already exists (or is
+     * repeated in the given rooms).
+     * The rooms are given consecutive room ids and the availability index is updated once, so adding
+     * rooms in bulk costs much less than adding them one by one.
+     * @param newRooms: the rooms to be added
+     * @return the rooms that were not added because their room number already exists
+     */
+    @Override
+    public List<IRoom> addRooms(Collection<IRoom> newRooms) {
+        List<IRoom> rejectedRooms = new ArrayList<>();
+        List<RegisteredRoom> addedRooms;
+        LoggedChange change = LoggedChange.begin(this.writeAheadLog);
+        try (change) {
+            this.roomAdditionLock.lock();
+            try {
+                List<IRoom> selectedRooms = this.selectNewRooms(newRooms, rejectedRooms);
+                for (IRoom room : selectedRooms) {
+                    change.append(new LogRecord.RoomAdded(room.getRoomNumber(), room.getRoomPrice(),
+                            room.getRoomType().name(), room instanceof FreeRoom));
+                }
+                addedRooms = this.register(selectedRooms);
+                this.roomCatalog.addRooms(addedRooms);
+            } finally {
+                this.roomAdditionLock.unlock();
+            }
         }
+        change.commit();
+        this.eventBus.publishAll(addedRooms.stream().map(HotelEvent.RoomAdded::new).toList());
+        return rejectedRooms;
     }
 
     /**
@@ -72,91 +404,434 @@ public final class ReservationService {
      * @param roomId: the room number of the room
      * @return the room associated with the given room number, or null if no such room exists
      */
+    @Override
     public IRoom getARoom(String roomId) {
         return this.rooms.get(roomId);
     }
 
+    /**
+     * Retrieves a room by its room id
+     * @param roomId: the room id
+     * @return the room with the given room id, or null if no such room exists
+     */
+    RegisteredRoom getARoom(int roomId) {
+        return this.roomsById.get(roomId);
+    }
+
     /**
      * Reserves a room for a customer for the specified check-in and check-out dates
      * @param customer: the customer making the reservation
      * @param room: the room being reserved
      * @param checkInDate: the check-in date
      * @param checkOutDate: the check-out date
-     * @return the created reservation
-     * @throws IllegalArgumentException if the room is already reserved for the given dates
+     * @return the created reservation, referring to the customer and room as they are registered
+     * @throws IllegalArgumentException if an argument is missing, the dates are reversed, the customer or the
+     * room does not exist, or the room is already reserved for the given dates
      */
-    public Reservation reserveARoom(Customer customer, IRoom room, Date checkInDate, Date checkOutDate)
+    @Override
+    public Reservation reserveARoom(Customer customer, IRoom room, LocalDate checkInDate, LocalDate checkOutDate)
             throws IllegalArgumentException {
-        List<Reservation> roomReservations = this.reservations.computeIfAbsent(
-                room.getRoomNumber(), k -> new ArrayList<>());
-        for (Reservation reservation : roomReservations) {
-            if (!isRoomAvailable(checkInDate, checkOutDate, reservation)) {
-                throw new IllegalArgumentException("This room already has a reservation in place for " +
-                        "the chosen dates (" + DateFormatter.formatDate(checkInDate) + " - "
-                        + DateFormatter.formatDate(checkOutDate) + "): " + reservation);
+        if (customer == null || room == null) {
+            throw new IllegalArgumentException("The customer and the room are required.");
+        }
+        if (checkInDate == null || checkOutDate == null) {
+            throw new IllegalArgumentException("The check-in and check-out dates are required.");
+        }
+        if (checkInDate.isAfter(checkOutDate)) {
+            throw new IllegalArgumentException("The check-out date has to be later than the check-in date.");
+        }
+        RegisteredCustomer registeredCustomer = this.resolveCustomer(customer);
+        if (registeredCustomer == null) {
+            throw new IllegalArgumentException("The customer " + customer.getEmail() + " does not exist.");
+        }
+        RegisteredRoom registeredRoom = this.resolveRoom(room);
+        if (registeredRoom == null) {
+            throw new IllegalArgumentException("Room " + room.getRoomNumber() + " does not exist.");
+        }
+        int roomId = registeredRoom.getRoomId();
+        int checkInDay = toDay(checkInDate);
+        int checkOutDay = toDay(checkOutDate);
+        Reservation reservation;
+        LoggedChange change = LoggedChange.begin(this.writeAheadLog);
+        try (change) {
+            Lock roomLock = this.getRoomLock(roomId);
+            roomLock.lock();
+            try {
+                RoomSchedule roomSchedule = this.reservations.get(roomId);
+                Reservation conflict = this.findConflict(roomId, roomSchedule, checkInDay, checkOutDay);
+                if (conflict != null) {
+                    throw new IllegalArgumentException("This room already has a reservation in place for " +
+                            "the chosen dates (" + DateFormatter.formatDate(checkInDate) + " - "
+                            + DateFormatter.formatDate(checkOutDate) + "): " + conflict);
+                }
+                reservation = new Reservation(registeredCustomer, registeredRoom, checkInDay, checkOutDay);
+                roomSchedule.add(reservation);
+                this.addCustomerReservation(reservation);
+                this.availabilityIndex.addReservation(reservation);
+                this.occupancyIndex.addReservation(reservation);
+                change.append(new LogRecord.RoomReserved(customer.getEmail(), room.getRoomNumber(),
+                        checkInDay, checkOutDay));
+            } finally {
+                roomLock.unlock();
             }
         }
-        Reservation reservation = new Reservation(customer, room, checkInDate, checkOutDate);
-        roomReservations.add(reservation);
+        change.commit();
+        this.eventBus.publish(new HotelEvent.RoomReserved(reservation));
         return reservation;
     }
 
     /**
-     * Retrieves all reservations made by a specific customer
+     * Reserves several rooms at once (e.g. for a group or event), booking either all of them or none.
+     * Every request is validated first, both against the existing reservations and against the other
+     * requests of the batch, and all the failed requests are reported together. The locks of all the rooms
+     * involved are taken once, in a fixed order, and the whole batch is recorded in the write-ahead log as
+     * a single record, so it is also restored all together or not at all.
+     * @param requests: the booking requests
+     * @return the created reservations, in the order of the requests
+     * @throws BookingConflictException if any of the requests cannot be made, in which case no room is
+     * reserved
+     */
+    @Override
+    public List<Reservation> reserveRooms(List<BookingRequest> requests) throws BookingConflictException {
+        int requestCount = requests.size();
+        if (requestCount == 0) {
+            return List.of();
+        }
+        String[] problems = new String[requestCount];
+        RegisteredCustomer[] customers = new RegisteredCustomer[requestCount];
+        RegisteredRoom[] rooms = new RegisteredRoom[requestCount];
+        int[] checkInDays = new int[requestCount];
+        int[] checkOutDays = new int[requestCount];
+        List<Integer> validRequests = new ArrayList<>(requestCount);
+        for (int i = 0; i < requestCount; i++) {
+            customers[i] = this.resolveCustomer(requests.get(i).getCustomer());
+            rooms[i] = this.resolveRoom(requests.get(i).getRoom());
+            problems[i] = this.validate(requests.get(i), customers[i], rooms[i]);
+            if (problems[i] == null) {
+                checkInDays[i] = toDay(requests.get(i).getCheckInDate());
+                checkOutDays[i] = toDay(requests.get(i).getCheckOutDate());
+                validRequests.add(i);
+            }
+        }
+
+        validRequests.sort(Comparator.<Integer>comparingInt(i -> rooms[i].getRoomId())
+                .thenComparingInt(i -> checkInDays[i]));
+        int latestRequest = -1;
+        for (int i : validRequests) {
+            if (latestRequest >= 0 && rooms[latestRequest].getRoomId() == rooms[i].getRoomId()) {
+                if (checkInDays[i] <= checkOutDays[latestRequest]) {
+                    problems[i] = "It overlaps booking request #" + (latestRequest + 1) + " of the batch.";
+                    continue;
+                }
+            }
+            latestRequest = i;
+        }
+
+        List<Reservation> reservations = new ArrayList<>(requestCount);
+        LoggedChange change = LoggedChange.begin(this.writeAheadLog);
+        try (change) {
+            int[] lockStripes = this.lockRooms(validRequests.stream().mapToInt(i -> rooms[i].getRoomId()));
+            try {
+                for (int i : validRequests) {
+                    int roomId = rooms[i].getRoomId();
+                    Reservation conflict = this.findConflict(roomId, this.reservations.get(roomId),
+                            checkInDays[i], checkOutDays[i]);
+                    if (conflict != null && problems[i] == null) {
+                        problems[i] = "This room already has a reservation in place for the chosen dates: "
+                                + conflict;
+                    }
+                }
+                List<BookingConflictException.Conflict> conflicts = new ArrayList<>();
+                for (int i = 0; i < requestCount; i++) {
+                    if (problems[i] != null) {
+                        conflicts.add(new BookingConflictException.Conflict(i, requests.get(i), problems[i]));
+                    }
+                }
+                if (!conflicts.isEmpty()) {
+                    throw new BookingConflictException(requestCount, conflicts);
+                }
+
+                List<LogRecord.RoomReserved> records = new ArrayList<>(requestCount);
+                for (int i = 0; i < requestCount; i++) {
+                    Reservation reservation = new Reservation(customers[i], rooms[i], checkInDays[i],
+                            checkOutDays[i]);
+                    this.reservations.get(rooms[i].getRoomId()).add(reservation);
+                    this.addCustomerReservation(reservation);
+                    reservations.add(reservation);
+                    records.add(new LogRecord.RoomReserved(customers[i].getEmail(), rooms[i].getRoomNumber(),
+                            checkInDays[i], checkOutDays[i]));
+                }
+                this.availabilityIndex.addReservations(reservations);
+                this.occupancyIndex.addReservations(reservations);
+                change.append(new LogRecord.RoomsReserved(records));
+            } finally {
+                this.unlockRooms(lockStripes);
+            }
+        }
+        change.commit();
+        this.eventBus.publishAll(reservations.stream().map(HotelEvent.RoomReserved::new).toList());
+        return reservations;
+    }
+
+    /**
+     * Retrieves the reservation of a room that checks in on a given date
+     * @param room: the room
+     * @param checkInDate: the check-in date
+     * @return the reservation, or null if the room does not exist or no stay (that was not archived) checks
+     * in on that date
+     */
+    public Reservation getReservation(IRoom room, LocalDate checkInDate) {
+        RegisteredRoom registeredRoom = this.resolveRoom(room);
+        if (registeredRoom == null) {
+            return null;
+        }
+        return this.reservations.get(registeredRoom.getRoomId()).get(toDay(checkInDate));
+    }
+
+    /**
+     * Cancels a reservation, making its room available again for its dates
+     * @param reservation: the reservation to be cancelled, matched by its room, customer and dates
+     * @return the cancelled reservation, as it was registered
+     * @throws IllegalArgumentException if the room does not exist, the reservation does not exist or the
+     * stay was archived
+     */
+    @Override
+    public Reservation cancelReservation(Reservation reservation) throws IllegalArgumentException {
+        RegisteredRoom registeredRoom = this.resolveRoom(reservation.getRoom());
+        if (registeredRoom == null) {
+            throw new IllegalArgumentException("Room " + reservation.getRoom().getRoomNumber() + " does not exist.");
+        }
+        Reservation cancelled;
+        LoggedChange change = LoggedChange.begin(this.writeAheadLog);
+        try (change) {
+            Lock roomLock = this.getRoomLock(registeredRoom.getRoomId());
+            roomLock.lock();
+            try {
+                cancelled = this.findReservation(registeredRoom, reservation);
+                this.removeReservation(cancelled);
+                change.append(toCancellation(cancelled));
+            } finally {
+                roomLock.unlock();
+            }
+        }
+        change.commit();
+        this.eventBus.publish(new HotelEvent.ReservationCancelled(cancelled));
+        return cancelled;
+    }
+
+    /**
+     * Moves a reservation to another room and/or other dates.
+     * The locks of both rooms are held while the new dates are checked against the other reservations of
+     * the room (the reservation itself aside, so that a stay can be extended or shortened) and the
+     * reservation is replaced, so it either moves or stays as it was. A lookup made meanwhile may briefly
+     * find neither of them.
+     * @param reservation: the reservation to be modified, matched by its room, customer and dates
+     * @param room: the room the reservation is moved to (its own room to keep it)
+     * @param checkInDate: the new check-in date
+     * @param checkOutDate: the new check-out date
+     * @return the modified reservation, which replaces the given one
+     * @throws IllegalArgumentException if a room or the reservation does not exist, the stay was archived,
+     * the dates are reversed or the room is already reserved for the new dates
+     */
+    @Override
+    public Reservation modifyReservation(Reservation reservation, IRoom room, LocalDate checkInDate,
+                                         LocalDate checkOutDate) throws IllegalArgumentException {
+        if (checkInDate.isAfter(checkOutDate)) {
+            throw new IllegalArgumentException("The check-out date has to be later than the check-in date.");
+        }
+        RegisteredRoom previousRoom = this.resolveRoom(reservation.getRoom());
+        if (previousRoom == null) {
+            throw new IllegalArgumentException("Room " + reservation.getRoom().getRoomNumber() + " does not exist.");
+        }
+        RegisteredRoom registeredRoom = this.resolveRoom(room);
+        if (registeredRoom == null) {
+            throw new IllegalArgumentException("Room " + room.getRoomNumber() + " does not exist.");
+        }
+        int roomId = registeredRoom.getRoomId();
+        int checkInDay = toDay(checkInDate);
+        int checkOutDay = toDay(checkOutDate);
+        Reservation previous;
+        Reservation modified;
+        LoggedChange change = LoggedChange.begin(this.writeAheadLog);
+        try (change) {
+            int[] lockStripes = this.lockRooms(IntStream.of(previousRoom.getRoomId(), roomId));
+            try {
+                previous = this.findReservation(previousRoom, reservation);
+                RoomSchedule roomSchedule = this.reservations.get(roomId);
+                Reservation conflict = roomSchedule.findConflict(checkInDay, checkOutDay, previous);
+                if (conflict == null) {
+                    conflict = this.archive.findConflict(roomId, checkInDay, checkOutDay);
+                }
+                if (conflict != null) {
+                    throw new IllegalArgumentException("This room already has a reservation in place for " +
+                            "the chosen dates (" + DateFormatter.formatDate(checkInDate) + " - "
+                            + DateFormatter.formatDate(checkOutDate) + "): " + conflict);
+                }
+                modified = new Reservation(previous.getCustomer(), registeredRoom, checkInDay, checkOutDay);
+                this.removeReservation(previous);
+                roomSchedule.add(modified);
+                this.addCustomerReservation(modified);
+                this.availabilityIndex.addReservation(modified);
+                this.occupancyIndex.addReservation(modified);
+                change.append(new LogRecord.ReservationModified(toCancellation(previous),
+                        new LogRecord.RoomReserved(modified.getCustomer().getEmail(),
+                                registeredRoom.getRoomNumber(), checkInDay, checkOutDay)));
+            } finally {
+                this.unlockRooms(lockStripes);
+            }
+        }
+        change.commit();
+        this.eventBus.publish(new HotelEvent.ReservationModified(previous, modified));
+        return modified;
+    }
+
+    /**
+     * Removes the tombstoned reservations from the lists of their customers, copying each list once for all
+     * its tombstones. Runs in the background shortly after a reservation is cancelled or modified.
+     * @return the number of tombstones removed
+     */
+    int compactCancelledReservations() {
+        this.compactionScheduled.set(false);
+        List<Reservation> cancelledReservations = new ArrayList<>();
+        for (Reservation reservation = this.tombstones.poll(); reservation != null;
+             reservation = this.tombstones.poll()) {
+            cancelledReservations.add(reservation);
+        }
+        this.removeCustomerReservations(cancelledReservations);
+        this.pendingTombstones.addAndGet(-cancelledReservations.size());
+        return cancelledReservations.size();
+    }
+
+    /**
+     * Retrieves all reservations made by a specific customer, sorted by check-in date
      * @param customer: the customer whose reservations are to be retrieved
      * @return a collection of reservations made by the specified customer
      */
+    @Override
     public Collection<Reservation> getCustomersReservation(Customer customer) {
-        List<Reservation> reservationList = new ArrayList<>();
-        for (String roomNumber : this.reservations.keySet()) {
-            for (Reservation reservation : this.reservations.computeIfAbsent(
-                    roomNumber, k -> new ArrayList<>())) {
-                if (reservation.getCustomer().equals(customer)) {
-                    reservationList.add(reservation);
-                }
-            }
+        RegisteredCustomer registeredCustomer = this.resolveCustomer(customer);
+        if (registeredCustomer == null) {
+            return List.of();
+        }
+        int customerId = registeredCustomer.getCustomerId();
+        boolean tombstoned = this.pendingTombstones.get() > 0;
+        List<Reservation> reservationList = this.customerReservations.get(customerId);
+        Collection<Reservation> liveReservations = reservationList == null ? List.of() : reservationList;
+        if (tombstoned) {
+            liveReservations = liveReservations.stream()
+                    .filter(reservation -> this.reservations.get(RegisteredRoom.idOf(reservation.getRoom()))
+                            .contains(reservation))
+                    .toList();
         }
-        reservationList.sort(Comparator.comparing(o -> o.getCheckInDate().getTime()));
-        return reservationList;
+        if (this.archive.size() == 0) {
+            return List.copyOf(liveReservations);
+        }
+        return combine(this.archive.getCustomerReservations(customerId), liveReservations);
     }
 
     /**
-     * Prints all the reservations in the application
+     * Retrieves the number of reservations that were archived
+     * @return the number of archived reservations
      */
-    public void printAllReservation() {
-        System.out.println("---   CURRENT RESERVATIONS ---");
-        if(this.reservations.isEmpty()) {
-            System.out.println("No reservations to show.");
-        } else {
-            for (String roomNumber : this.reservations.keySet()) {
-                System.out.println("--- --- ROOM " + roomNumber + " --- ---");
-                for (Reservation reservation : this.reservations.computeIfAbsent(
-                        roomNumber, k -> new ArrayList<>())) {
-                    System.out.println(reservation);
+    @Override
+    public int getArchivedReservationCount() {
+        return this.archive.size();
+    }
+
+    /**
+     * Archives the stays that checked out before a given date, moving them from the room schedules and the
+     * lists of reservations of the customers into an off-heap store, where each of them takes a fixed-width
+     * record instead of several objects. Archived stays are still checked for conflicts and returned by the
+     * lookups, but they are no longer persisted apart from the snapshots, so they are live again after a
+     * restart until they are archived anew.
+     * Each room is locked while its stays are moved, and the lists of the customers are updated once all
+     * the rooms are done. A lookup made meanwhile may see an archived stay twice, but never miss it.
+     * @param beforeDate: the date before which the stays checked out
+     * @return the number of reservations archived
+     * @throws IllegalArgumentException if the date is after today
+     */
+    @Override
+    public int archiveReservations(LocalDate beforeDate) {
+        if (beforeDate.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Only the stays that checked out before today can be archived.");
+        }
+        int beforeDay = toDay(beforeDate);
+        List<Reservation> archivedReservations = new ArrayList<>();
+        int roomCount = this.roomCount;
+        for (int roomId = 0; roomId < roomCount; roomId++) {
+            RoomSchedule roomSchedule = this.reservations.get(roomId);
+            Lock roomLock = this.getRoomLock(roomId);
+            roomLock.lock();
+            try {
+                List<Reservation> pastReservations = roomSchedule.getCheckedOutBefore(beforeDay);
+                if (pastReservations.isEmpty()) {
+                    continue;
                 }
+                this.archive.addAll(pastReservations);
+                roomSchedule.remove(pastReservations);
+                archivedReservations.addAll(pastReservations);
+            } finally {
+                roomLock.unlock();
             }
         }
-        System.out.println("---   END CURRENT RESERVATIONS ---");
+        this.reservationCount.add(-archivedReservations.size());
+        this.removeCustomerReservations(archivedReservations);
+        return archivedReservations.size();
+    }
+
+    /**
+     * Retrieves the number of reservations in the application that were not archived
+     * (see {@link #getArchivedReservationCount()})
+     * @return the number of live reservations
+     */
+    @Override
+    public long getReservationCount() {
+        return this.reservationCount.sum();
     }
 
     /**
-     * Retrieves all available rooms for the specified check-in and check-out dates
+     * Retrieves all the reservations in the application, sorted by room number and then by check-in date
+     * @return a list of all the reservations
+     */
+    @Override
+    public List<Reservation> getAllReservationsSorted() {
+        return this.streamAllReservationsSorted().toList();
+    }
+
+    /**
+     * Streams all the reservations in the application, sorted by room number and then by check-in date.
+     * The rooms are read in the order of the room catalog, so nothing is sorted: the reservations of each
+     * room are read from its schedule (and from the archive) as the stream is consumed, so reservations
+     * made meanwhile may or may not be included.
+     * @return a stream of all the reservations
+     */
+    @Override
+    public Stream<Reservation> streamAllReservationsSorted() {
+        return this.roomCatalog.getRooms().stream()
+                .flatMap(room -> this.getRoomReservations(RegisteredRoom.idOf(room)).stream());
+    }
+
+    /**
+     * Retrieves all available rooms for the specified check-in and check-out dates.
+     * Ranges within the horizon of the availability index are answered from its per-day bitmaps, and put
+     * back in the order of the room catalog, while ranges outside it fall back to checking the schedule of
+     * every room of the catalog.
      * @param checkInDate: the desired check-in date
      * @param checkOutDate: the desired check-out date
-     * @return a collection of available rooms for the given dates
+     * @return a collection of available rooms for the given dates, sorted by room number in natural order
      */
-    public Collection<IRoom> getAvailableRooms(Date checkInDate, Date checkOutDate) {
+    @Override
+    public Collection<IRoom> getAvailableRooms(LocalDate checkInDate, LocalDate checkOutDate) {
+        int checkInDay = toDay(checkInDate);
+        int checkOutDay = toDay(checkOutDate);
+        Collection<RegisteredRoom> indexedRooms = this.availabilityIndex.findAvailableRooms(checkInDay, checkOutDay);
+        if (indexedRooms != null) {
+            return this.roomCatalog.sort(indexedRooms);
+        }
         List<IRoom> availableRooms = new ArrayList<>();
         for (IRoom room : this.getAllRooms()) {
-            List<Reservation> reservations = this.reservations.computeIfAbsent(
-                    room.getRoomNumber(), k -> new ArrayList<>());
-            if(!reservations.isEmpty()) {
-                for (Reservation reservation : reservations) {
-                    if (isRoomAvailable(checkInDate, checkOutDate, reservation)) {
-                        availableRooms.add(room);
-                    }
-                }
-            } else {
+            int roomId = RegisteredRoom.idOf(room);
+            if (this.findConflict(roomId, this.reservations.get(roomId), checkInDay, checkOutDay) == null) {
                 availableRooms.add(room);
             }
         }
@@ -164,39 +839,636 @@ public final class ReservationService {
     }
 
     /**
-     * Retrieves a Collection of all the rooms in the hotel
-     * @return a collection of all the rooms
+     * Searches for rooms by type, price range and whether they are free, optionally only among the rooms
+     * available between two dates. The rooms are read from the indexes by type and price, from the lowest
+     * price up, so only the rooms in the price range are visited, and the availability of each of them is
+     * checked against the occupancy bitmaps of the dates (or its schedule, outside their horizon) until the
+     * limit is reached.
+     * @param search: the criteria of the search
+     * @return the rooms found, sorted by price and then by room number, at most the limit of the search
+     */
+    @Override
+    public List<IRoom> searchRooms(RoomSearch search) {
+        Predicate<RegisteredRoom> available = room -> true;
+        if (search.getCheckInDate() != null) {
+            int checkInDay = toDay(search.getCheckInDate());
+            int checkOutDay = toDay(search.getCheckOutDate());
+            available = this.availabilityIndex.availabilityFilter(checkInDay, checkOutDay);
+            if (available == null) {
+                available = room -> this.findConflict(room.getRoomId(), this.reservations.get(room.getRoomId()),
+                        checkInDay, checkOutDay) == null;
+            }
+        }
+        return this.roomSearchIndex.search(search.getRoomType(), search.getMinPrice(), search.getMaxPrice(),
+                search.isFreeOnly(), search.getLimit(), available);
+    }
+
+    /**
+     * Finds the earliest check-in date on or after a given date at which a stay of a given number of nights
+     * is available in some room, optionally of a given type.
+     * The free gaps between the reservations of each room are walked once, from the given date on and only
+     * up to the earliest check-in found so far, stopping as soon as a room is free on the given date.
+     * @param fromDate: the earliest acceptable check-in date
+     * @param nights: the number of nights of the stay
+     * @param roomType: the type of the room, or null for any type
+     * @return the earliest check-in date, or null if there is no room (of the given type)
+     * @throws IllegalArgumentException if the number of nights is negative
+     */
+    @Override
+    public LocalDate findEarliestCheckIn(LocalDate fromDate, int nights, RoomType roomType) {
+        if (nights < 0) {
+            throw new IllegalArgumentException("The number of nights cannot be negative.");
+        }
+        int fromDay = toDay(fromDate);
+        int earliestDay = RoomSchedule.NO_WINDOW;
+        int roomCount = this.roomCount;
+        for (int roomId = 0; roomId < roomCount; roomId++) {
+            if (roomType != null && this.roomsById.get(roomId).getRoomType() != roomType) {
+                continue;
+            }
+            int roomDay = this.findEarliestWindow(roomId, fromDay, nights, earliestDay - 1);
+            earliestDay = Math.min(earliestDay, roomDay);
+            if (earliestDay == fromDay) {
+                break;
+            }
+        }
+        return earliestDay == RoomSchedule.NO_WINDOW ? null : LocalDate.ofEpochDay(earliestDay);
+    }
+
+    /**
+     * Retrieves the number of rooms booked on a night, i.e. by the reservations that check in on or before
+     * it and check out after it
+     * @param night: the date of the night
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the number of rooms booked
      */
+    @Override
+    public int getOccupancy(LocalDate night, RoomType roomType) {
+        return this.occupancyIndex.getOccupancy(toDay(night), roomType);
+    }
+
+    /**
+     * Retrieves the number of room-nights booked over a range of nights
+     * @param firstNight: the date of the first night of the range
+     * @param lastNight: the date of the last night of the range (inclusive)
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the sum of the rooms booked on each night of the range
+     * @throws IllegalArgumentException if the last night is before the first one
+     */
+    public long getRoomNights(LocalDate firstNight, LocalDate lastNight, RoomType roomType) {
+        validateNights(firstNight, lastNight);
+        return this.occupancyIndex.getRoomNights(toDay(firstNight), toDay(lastNight), roomType);
+    }
+
+    /**
+     * Retrieves the first night of a range on which the most rooms are booked
+     * @param firstNight: the date of the first night of the range
+     * @param lastNight: the date of the last night of the range (inclusive)
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the date of the busiest night (the first night of the range if no room is booked)
+     * @throws IllegalArgumentException if the last night is before the first one
+     */
+    public LocalDate getPeakNight(LocalDate firstNight, LocalDate lastNight, RoomType roomType) {
+        validateNights(firstNight, lastNight);
+        return LocalDate.ofEpochDay(this.occupancyIndex.getPeakNight(toDay(firstNight), toDay(lastNight), roomType));
+    }
+
+    /**
+     * Builds a report of the occupancy of each night of a range, with the room-nights booked and the
+     * busiest night
+     * @param firstNight: the date of the first night of the range
+     * @param lastNight: the date of the last night of the range (inclusive)
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the occupancy report
+     * @throws IllegalArgumentException if the last night is before the first one or the range is longer
+     * than {@link OccupancyReport#MAX_NIGHTS} nights
+     */
+    @Override
+    public OccupancyReport getOccupancyReport(LocalDate firstNight, LocalDate lastNight, RoomType roomType) {
+        validateNights(firstNight, lastNight);
+        int firstDay = toDay(firstNight);
+        int lastDay = toDay(lastNight);
+        if ((long) lastDay - firstDay + 1 > OccupancyReport.MAX_NIGHTS) {
+            throw new IllegalArgumentException("An occupancy report cannot cover more than "
+                    + OccupancyReport.MAX_NIGHTS + " nights.");
+        }
+        int[] occupancies = this.occupancyIndex.getOccupancies(firstDay, lastDay, roomType);
+        long roomNights = this.occupancyIndex.getRoomNights(firstDay, lastDay, roomType);
+        int peakDay = this.occupancyIndex.getPeakNight(firstDay, lastDay, roomType);
+        return new OccupancyReport(firstNight, roomType, occupancies, roomNights,
+                LocalDate.ofEpochDay(peakDay));
+    }
+
+    /**
+     * Retrieves a Collection of all the rooms in the hotel.
+     * The rooms are neither copied nor sorted: the current snapshot of the room catalog is returned, which
+     * is not affected by the rooms added afterwards.
+     * @return an immutable collection of all the rooms, sorted by room number in natural order
+     */
+    @Override
     public Collection<IRoom> getAllRooms() {
-        List<IRoom> rooms = new ArrayList<>(this.rooms.values().stream().toList());
-        rooms.sort(Comparator.comparing(IRoom::getRoomNumber));
-        return rooms;
+        return this.roomCatalog.getRooms();
     }
 
     /**
-     * Checks if a given date falls within a specified date range (inclusive)
-     * @param date: the date to check
-     * @param beginRangeDate: the start date of the range
-     * @param endRangeDate: the end date of the range
-     * @return true if the date is within the range, false otherwise
+     * Retrieves the number of rooms in the hotel
+     * @return the number of rooms
      */
-    private boolean isDateInRange(Date date, Date beginRangeDate, Date endRangeDate) {
-        return (date.after(beginRangeDate) && date.before(endRangeDate))
-                || date.getTime() == beginRangeDate.getTime()
-                || date.getTime() == endRangeDate.getTime();
+    @Override
+    public int getRoomCount() {
+        return this.roomCatalog.size();
     }
 
     /**
-     * Checks if a room is available for the specified check-in and check-out dates
-     * @param checkInDate: the desired check-in date
-     * @param checkOutDate: the desired check-out date
-     * @param reservation: the existing reservation to check against
-     * @return true if the room is available, false otherwise
-     */
-    private boolean isRoomAvailable(Date checkInDate, Date checkOutDate, Reservation reservation) {
-        return !isDateInRange(checkInDate, reservation.getCheckInDate(), reservation.getCheckOutDate()) &&
-                !isDateInRange(checkOutDate, reservation.getCheckInDate(), reservation.getCheckOutDate()) &&
-                !isDateInRange(reservation.getCheckInDate(), checkInDate, checkOutDate) &&
-                !isDateInRange(reservation.getCheckOutDate(), checkInDate, checkOutDate);
+     * Retrieves all the rooms in the hotel, in no particular order
+     * @return an unmodifiable view of the rooms
+     */
+    Collection<RegisteredRoom> getRoomsUnsorted() {
+        return Collections.unmodifiableCollection(this.rooms.values());
+    }
+
+    /**
+     * Retrieves all the reservations in the application, room by room
+     * @return a stream of the reservations
+     */
+    Stream<Reservation> getAllReservations() {
+        return IntStream.range(0, this.roomCount)
+                .mapToObj(this::getRoomReservations)
+                .flatMap(Collection::stream);
+    }
+
+    /**
+     * Retrieves a reservation of a room that overlaps the given range of days (inclusive), if there is one
+     * @param room: the room
+     * @param checkInDay: the epoch day of the check-in date of the range
+     * @param checkOutDay: the epoch day of the check-out date of the range
+     * @return the conflicting reservation, or null if the room is available for the whole range (or does
+     * not exist)
+     */
+    Reservation findConflict(IRoom room, int checkInDay, int checkOutDay) {
+        RegisteredRoom registeredRoom = this.resolveRoom(room);
+        if (registeredRoom == null) {
+            return null;
+        }
+        int roomId = registeredRoom.getRoomId();
+        return this.findConflict(roomId, this.reservations.get(roomId), checkInDay, checkOutDay);
+    }
+
+    /**
+     * Restores rooms and reservations (e.g. from a snapshot) in bulk, without checking the reservations
+     * for conflicts or recording anything in the write-ahead log.
+     * Must be called before the service starts being used concurrently.
+     * Reservations referring to a room or customer other than the one registered with the same room number
+     * or email are restored for the registered one.
+     * @param restoredRooms: the rooms to be restored
+     * @param restoredReservations: the reservations to be restored, which must not overlap each other
+     * @throws IllegalArgumentException if a reservation refers to a room or customer that does not exist
+     */
+    void restore(Collection<IRoom> restoredRooms, Collection<Reservation> restoredReservations) {
+        this.roomAdditionLock.lock();
+        try {
+            List<RegisteredRoom> addedRooms = this.register(this.selectNewRooms(restoredRooms, new ArrayList<>()));
+            this.roomCatalog.addRooms(addedRooms);
+        } finally {
+            this.roomAdditionLock.unlock();
+        }
+
+        List<Reservation> registeredReservations = new ArrayList<>(restoredReservations.size());
+        for (Reservation reservation : restoredReservations) {
+            RegisteredCustomer customer = this.resolveCustomer(reservation.getCustomer());
+            RegisteredRoom room = this.resolveRoom(reservation.getRoom());
+            if (customer == null || room == null) {
+                throw new IllegalArgumentException("The reservation " + reservation
+                        + " refers to a customer or room that does not exist.");
+            }
+            if (customer != reservation.getCustomer() || room != reservation.getRoom()) {
+                reservation = new Reservation(customer, room, reservation.getCheckInDay(),
+                        reservation.getCheckOutDay());
+            }
+            this.reservations.get(room.getRoomId()).add(reservation);
+            registeredReservations.add(reservation);
+        }
+        this.availabilityIndex.addReservations(registeredReservations);
+        this.occupancyIndex.addReservations(registeredReservations);
+        this.reservationCount.add(registeredReservations.size());
+
+        registeredReservations.sort(Comparator.<Reservation>comparingInt(
+                reservation -> RegisteredCustomer.idOf(reservation.getCustomer()))
+                .thenComparingInt(Reservation::getCheckInDay));
+        for (int first = 0, last; first < registeredReservations.size(); first = last) {
+            int customerId = RegisteredCustomer.idOf(registeredReservations.get(first).getCustomer());
+            last = first + 1;
+            while (last < registeredReservations.size()
+                    && RegisteredCustomer.idOf(registeredReservations.get(last).getCustomer()) == customerId) {
+                last++;
+            }
+            List<Reservation> reservationList = new ArrayList<>(registeredReservations.subList(first, last));
+            List<Reservation> existingList = this.customerReservations.get(customerId);
+            if (existingList != null) {
+                reservationList.addAll(existingList);
+                reservationList.sort(Comparator.comparingInt(Reservation::getCheckInDay));
+            }
+            this.customerReservations.set(customerId, new CopyOnWriteArrayList<>(reservationList));
+        }
+    }
+
+    /**
+     * Selects the rooms whose room number is not taken yet, neither by a room of the hotel nor by an
+     * earlier room of the same batch. Must be called while holding the lock of the room additions.
+     * @param newRooms: the rooms to be added
+     * @param rejectedRooms: list the rooms whose room number is taken are added to
+     * @return the rooms that can be added, in the given order
+     */
+    private List<IRoom> selectNewRooms(Collection<IRoom> newRooms, List<IRoom> rejectedRooms) {
+        List<IRoom> selectedRooms = new ArrayList<>(newRooms.size());
+        Set<String> roomNumbers = new HashSet<>();
+        for (IRoom room : newRooms) {
+            if (this.rooms.containsKey(room.getRoomNumber()) || !roomNumbers.add(room.getRoomNumber())) {
+                rejectedRooms.add(room);
+            } else {
+                selectedRooms.add(room);
+            }
+        }
+        return selectedRooms;
+    }
+
+    /**
+     * Registers new rooms under the next room ids, creates their schedules and indexes them, publishing them
+     * by room number last, so that a room found by room number is always fully set up.
+     * Must be called while holding the lock of the room additions.
+     * @param newRooms: the rooms to be added, whose room numbers are not taken
+     * @return the rooms as registered in the hotel, in the given order
+     */
+    private List<RegisteredRoom> register(List<IRoom> newRooms) {
+        List<RegisteredRoom> registeredRooms = new ArrayList<>(newRooms.size());
+        int roomId = this.roomCount;
+        for (IRoom room : newRooms) {
+            RegisteredRoom registeredRoom = new RegisteredRoom(room, roomId, this);
+            this.reservations.set(roomId, new RoomSchedule(room.getRoomNumber()));
+            this.roomsById.set(roomId, registeredRoom);
+            registeredRooms.add(registeredRoom);
+            roomId++;
+        }
+        this.availabilityIndex.addRooms(registeredRooms);
+        this.roomSearchIndex.addRooms(registeredRooms);
+        this.roomCount = roomId;
+        for (RegisteredRoom registeredRoom : registeredRooms) {
+            this.rooms.put(registeredRoom.getRoomNumber(), registeredRoom);
+        }
+        return registeredRooms;
+    }
+
+    /**
+     * Finds the room a request refers to: a room this service handed out is used as is, while any other
+     * room (e.g. the room that was added, or a room of another service) is looked up by room number
+     * @param room: the room given in the request, or null
+     * @return the room as registered in the hotel, or null if it does not exist
+     */
+    private RegisteredRoom resolveRoom(IRoom room) {
+        if (room instanceof RegisteredRoom registeredRoom && registeredRoom.isRegisteredIn(this)) {
+            return registeredRoom;
+        }
+        return room == null ? null : this.rooms.get(room.getRoomNumber());
+    }
+
+    /**
+     * Finds the customer a request refers to (see {@link CustomerService#resolveCustomer(Customer)})
+     * @param customer: the customer given in the request, or null
+     * @return the customer as registered, or null if they do not exist
+     */
+    private RegisteredCustomer resolveCustomer(Customer customer) {
+        return this.customerService.resolveCustomer(customer);
+    }
+
+    /**
+     * Retrieves a reservation of a room that overlaps the given range of days (inclusive), if there is one,
+     * looking it up in the schedule of the room and then in the archive
+     * @param roomId: the room id of the room
+     * @param roomSchedule: the schedule of the room, or null if it has none
+     * @param checkInDay: the epoch day of the check-in date of the range
+     * @param checkOutDay: the epoch day of the check-out date of the range
+     * @return the conflicting reservation, or null if the room is available for the whole range
+     */
+    private Reservation findConflict(int roomId, RoomSchedule roomSchedule, int checkInDay, int checkOutDay) {
+        Reservation conflict = roomSchedule == null ? null : roomSchedule.findConflict(checkInDay, checkOutDay);
+        return conflict != null ? conflict : this.archive.findConflict(roomId, checkInDay, checkOutDay);
+    }
+
+    /**
+     * Finds the earliest check-in day on or after a given day at which a room is free for a stay of a given
+     * number of nights, skipping the windows of its schedule that overlap an archived stay
+     * @param roomId: the room id of the room
+     * @param fromDay: the epoch day of the earliest acceptable check-in
+     * @param nights: the number of nights of the stay
+     * @param latestDay: the epoch day of the latest check-in of interest
+     * @return the epoch day of the earliest check-in, or {@link RoomSchedule#NO_WINDOW} if there is none on
+     * or before the latest day of interest
+     */
+    private int findEarliestWindow(int roomId, int fromDay, int nights, int latestDay) {
+        RoomSchedule roomSchedule = this.reservations.get(roomId);
+        int day = fromDay;
+        while (true) {
+            int window = roomSchedule == null ? day : roomSchedule.findEarliestWindow(day, nights, latestDay);
+            if (window == RoomSchedule.NO_WINDOW) {
+                return window;
+            }
+            Reservation archived = this.archive.findConflict(roomId, window,
+                    (int) Math.min((long) window + nights, Integer.MAX_VALUE));
+            if (archived == null) {
+                return window;
+            }
+            day = archived.getCheckOutDay() + 1;
+        }
+    }
+
+    /**
+     * Retrieves all the reservations of a room, archived or not
+     * @param roomId: the room id of the room
+     * @return the reservations, sorted by check-in date
+     */
+    private Collection<Reservation> getRoomReservations(int roomId) {
+        RoomSchedule roomSchedule = this.reservations.get(roomId);
+        Collection<Reservation> liveReservations = roomSchedule == null ? List.of() : roomSchedule.getReservations();
+        if (this.archive.size() == 0) {
+            return liveReservations;
+        }
+        return combine(this.archive.getRoomReservations(roomId), liveReservations);
+    }
+
+    /**
+     * Combines archived and live reservations, keeping them sorted by check-in date.
+     * Archived stays usually come first, so they are only sorted when a live one checks in earlier.
+     * @param archivedReservations: the archived reservations, sorted by check-in date
+     * @param liveReservations: the live reservations, sorted by check-in date
+     * @return the reservations, sorted by check-in date
+     */
+    private static List<Reservation> combine(List<Reservation> archivedReservations,
+                                             Collection<Reservation> liveReservations) {
+        List<Reservation> combined = new ArrayList<>(archivedReservations.size() + liveReservations.size());
+        combined.addAll(archivedReservations);
+        combined.addAll(liveReservations);
+        if (!archivedReservations.isEmpty() && !liveReservations.isEmpty()
+                && combined.get(archivedReservations.size()).getCheckInDay()
+                < archivedReservations.get(archivedReservations.size() - 1).getCheckInDay()) {
+            combined.sort(Comparator.comparingInt(Reservation::getCheckInDay));
+        }
+        return combined;
+    }
+
+    /**
+     * Retrieves the lock that serializes the writes to a room
+     * @param roomId: the room id
+     * @return the lock of the stripe the room belongs to
+     */
+    private Lock getRoomLock(int roomId) {
+        return this.roomLocks == null ? UNLOCKED : this.roomLocks[getRoomLockStripe(roomId)];
+    }
+
+    /**
+     * Retrieves the stripe of the lock that serializes the writes to a room.
+     * Room ids are consecutive, so consecutive rooms fall on different stripes.
+     * @param roomId: the room id
+     * @return the stripe the room belongs to
+     */
+    private static int getRoomLockStripe(int roomId) {
+        return roomId & (ROOM_LOCK_STRIPES - 1);
+    }
+
+    /**
+     * Takes the locks of several rooms, in increasing stripe order so that concurrent changes to several
+     * rooms cannot deadlock
+     * @param roomIds: the room ids of the rooms
+     * @return the stripes whose locks were taken, to be released with {@link #unlockRooms(int[])}
+     */
+    private int[] lockRooms(IntStream roomIds) {
+        if (this.roomLocks == null) {
+            return new int[0];
+        }
+        int[] lockStripes = roomIds.map(ReservationService::getRoomLockStripe).distinct().sorted().toArray();
+        for (int stripe : lockStripes) {
+            this.roomLocks[stripe].lock();
+        }
+        return lockStripes;
+    }
+
+    /**
+     * Releases the locks taken by {@link #lockRooms(IntStream)}
+     * @param lockStripes: the stripes whose locks were taken
+     */
+    private void unlockRooms(int[] lockStripes) {
+        for (int i = lockStripes.length - 1; i >= 0; i--) {
+            this.roomLocks[lockStripes[i]].unlock();
+        }
+    }
+
+    /**
+     * Checks that a booking request is complete and refers to a customer and a room of the hotel
+     * @param request: the booking request
+     * @param customer: the registered customer the request refers to, or null if they do not exist
+     * @param room: the room of the hotel the request refers to, or null if it does not exist
+     * @return why the request cannot be made, or null if it is valid
+     */
+    private String validate(BookingRequest request, RegisteredCustomer customer, RegisteredRoom room) {
+        if (customer == null) {
+            return "The customer does not exist.";
+        }
+        if (room == null) {
+            return "The chosen room does not exist.";
+        }
+        if (request.getCheckInDate() == null || request.getCheckOutDate() == null) {
+            return "The check-in and check-out dates are required.";
+        }
+        if (request.getCheckInDate().isAfter(request.getCheckOutDate())) {
+            return "The check-out date has to be later than the check-in date.";
+        }
+        try {
+            toDay(request.getCheckInDate());
+            toDay(request.getCheckOutDate());
+        } catch (IllegalArgumentException e) {
+            return e.getLocalizedMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Finds the registered reservation a request refers to. Must be called while holding the lock of the room.
+     * @param room: the room of the reservation, as registered in the hotel
+     * @param reservation: the reservation given in the request
+     * @return the reservation in the schedule of the room with the same customer and dates
+     * @throws IllegalArgumentException if there is no such reservation, or the stay was archived
+     */
+    private Reservation findReservation(RegisteredRoom room, Reservation reservation) {
+        int checkInDay = reservation.getCheckInDay();
+        int checkOutDay = reservation.getCheckOutDay();
+        Reservation registered = this.reservations.get(room.getRoomId()).get(checkInDay);
+        if (registered != null && registered.getCheckOutDay() == checkOutDay
+                && registered.getCustomer().equals(reservation.getCustomer())) {
+            return registered;
+        }
+        Reservation archived = this.archive.findConflict(room.getRoomId(), checkInDay, checkInDay);
+        if (archived != null && archived.getCheckInDay() == checkInDay && archived.getCheckOutDay() == checkOutDay) {
+            throw new IllegalArgumentException("Archived stays cannot be cancelled or modified.");
+        }
+        throw new IllegalArgumentException("This reservation does not exist: " + reservation);
+    }
+
+    /**
+     * Removes a reservation from the schedule of its room and the indexes, and tombstones it in the list of
+     * its customer, scheduling a compaction if none is scheduled yet.
+     * A stay restored from a snapshot written while it was being moved may still overlap the removed one, so
+     * its days are marked again after those of the removed one are cleared.
+     * Must be called while holding the lock of the room.
+     * @param reservation: the registered reservation to be removed
+     */
+    private void removeReservation(Reservation reservation) {
+        this.pendingTombstones.incrementAndGet();
+        RoomSchedule roomSchedule = this.reservations.get(RegisteredRoom.idOf(reservation.getRoom()));
+        roomSchedule.remove(reservation);
+        this.availabilityIndex.removeReservation(reservation);
+        Reservation overlapping = roomSchedule.findConflict(reservation.getCheckInDay(), reservation.getCheckOutDay());
+        if (overlapping != null) {
+            this.availabilityIndex.addReservation(overlapping);
+        }
+        this.occupancyIndex.removeReservation(reservation);
+        this.reservationCount.decrement();
+        this.tombstones.offer(reservation);
+        if (this.compactionScheduled.compareAndSet(false, true)) {
+            this.compactor.schedule(this::compactCancelledReservations, COMPACTION_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Removes reservations from the lists of their customers, copying the list of each customer only once
+     * @param removedReservations: the reservations to be removed
+     */
+    private void removeCustomerReservations(List<Reservation> removedReservations) {
+        removedReservations.sort(Comparator.comparingInt(
+                reservation -> RegisteredCustomer.idOf(reservation.getCustomer())));
+        for (int first = 0, last; first < removedReservations.size(); first = last) {
+            int customerId = RegisteredCustomer.idOf(removedReservations.get(first).getCustomer());
+            last = first + 1;
+            while (last < removedReservations.size()
+                    && RegisteredCustomer.idOf(removedReservations.get(last).getCustomer()) == customerId) {
+                last++;
+            }
+            Set<Reservation> customerRemoved = new HashSet<>(removedReservations.subList(first, last));
+            List<Reservation> reservationList = this.customerReservations.get(customerId);
+            synchronized (reservationList) {
+                reservationList.removeAll(customerRemoved);
+            }
+        }
+    }
+
+    /**
+     * Converts a reservation into the record of it being cancelled
+     * @param reservation: the reservation
+     * @return the record of the cancellation
+     */
+    private static LogRecord.ReservationCancelled toCancellation(Reservation reservation) {
+        return new LogRecord.ReservationCancelled(reservation.getCustomer().getEmail(),
+                reservation.getRoom().getRoomNumber(), reservation.getCheckInDay(), reservation.getCheckOutDay());
+    }
+
+    /**
+     * Adds a reservation to the reservations of its customer, keeping them sorted by check-in date.
+     * The list is copy-on-write so that readers never block, and writers for the same customer
+     * (booking different rooms) synchronize on it.
+     * @param reservation: the reservation to be added
+     */
+    private void addCustomerReservation(Reservation reservation) {
+        List<Reservation> reservationList = this.customerReservations.computeIfAbsent(
+                RegisteredCustomer.idOf(reservation.getCustomer()), customerId -> new CopyOnWriteArrayList<>());
+        int checkInDay = reservation.getCheckInDay();
+        synchronized (reservationList) {
+            int position = reservationList.size();
+            while (position > 0 && reservationList.get(position - 1).getCheckInDay() > checkInDay) {
+                position--;
+            }
+            reservationList.add(position, reservation);
+        }
+        this.reservationCount.increment();
+    }
+
+    /**
+     * Checks that a range of nights is not reversed
+     * @param firstNight: the date of the first night of the range
+     * @param lastNight: the date of the last night of the range
+     * @throws IllegalArgumentException if the last night is before the first one
+     */
+    private static void validateNights(LocalDate firstNight, LocalDate lastNight) {
+        if (lastNight.isBefore(firstNight)) {
+            throw new IllegalArgumentException("The last night cannot be before the first night.");
+        }
+    }
+
+    /**
+     * Converts a date into its epoch day
+     * @param date: the date to be converted
+     * @return the number of days since 1970/01/01
+     * @throws IllegalArgumentException if the date is too far from 1970/01/01 to be handled
+     */
+    private static int toDay(LocalDate date) {
+        long day = date.toEpochDay();
+        if (day != (int) day) {
+            throw new IllegalArgumentException("The date " + date + " is out of the supported range.");
+        }
+        return (int) day;
+    }
+
+    /**
+     * Lock that takes nothing, for the state of a service written by a single thread
+     */
+    private static final class UnlockedLock implements Lock {
+
+        /**
+         * Returns at once, since there is no other writer to wait for
+         */
+        @Override
+        public void lock() {
+        }
+
+        /**
+         * Returns at once, since there is no other writer to wait for
+         */
+        @Override
+        public void lockInterruptibly() {
+        }
+
+        /**
+         * Succeeds at once, since there is no other writer to wait for
+         * @return true
+         */
+        @Override
+        public boolean tryLock() {
+            return true;
+        }
+
+        /**
+         * Succeeds at once, since there is no other writer to wait for
+         * @param time: the maximum time to wait
+         * @param unit: the unit of the time
+         * @return true
+         */
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) {
+            return true;
+        }
+
+        /**
+         * Returns at once, since nothing was taken
+         */
+        @Override
+        public void unlock() {
+        }
+
+        /**
+         * Conditions cannot be waited on without a lock
+         * @return never
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("A single writer has no lock to wait on.");
+        }
     }
 }
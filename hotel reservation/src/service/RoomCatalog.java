@@ -0,0 +1,210 @@
+package service;
+
+import model.IRoom;
+import utils.RoomNumbers;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+
+/**
+ * Catalog of all the rooms, kept as an immutable list sorted by room number in natural order (see
+ * {@link RoomNumbers}).
+ * Readers get the current list as is, without copying nor sorting it, and can iterate it while rooms are
+ * being added. Adding rooms copies the array of the list with the new rooms in place (found by binary
+ * search, or by merging when many rooms are added at once), and the new list is then published in one
+ * volatile write, so readers see either all the rooms of a call or none of them. Rooms are added rarely
+ * and read on every listing, so the copy is paid on the write side.
+ * Each published list also knows the position of every room by key (its room id in a service, or a key
+ * combining the room id and the shard in a {@link ShardedReservationService}), so that rooms found in any
+ * other order (e.g. by room id, in the availability bitmaps) can be put back in the order of the catalog
+ * without comparing room numbers.
+ * @see ReservationService
+ * @author Cláudia Martins
+ */
+final class RoomCatalog {
+
+    /**
+     * Order of the rooms in the catalog
+     */
+    private static final Comparator<RegisteredRoom> ROOM_ORDER =
+            Comparator.comparing(RegisteredRoom::getRoomNumber, RoomNumbers.NATURAL_ORDER);
+
+    /**
+     * The current rooms, sorted by room number (never modified once published)
+     */
+    private volatile Snapshot rooms;
+
+    /**
+     * Gives each room the small, unique key its position is kept by
+     */
+    private final ToIntFunction<RegisteredRoom> keys;
+
+    /**
+     * Constructor for a RoomCatalog of the rooms of one service, keeping their positions by room id
+     */
+    RoomCatalog() {
+        this(RegisteredRoom::getRoomId);
+    }
+
+    /**
+     * Constructor for a RoomCatalog keeping the positions of the rooms by a given key
+     * @param keys: gives each room a small, unique, non-negative key
+     */
+    RoomCatalog(ToIntFunction<RegisteredRoom> keys) {
+        this.keys = keys;
+        this.rooms = new Snapshot(new RegisteredRoom[0], keys);
+    }
+
+    /**
+     * Adds a room to the catalog
+     * @param room: the room to be added, whose room number must not be in the catalog yet
+     */
+    synchronized void addRoom(RegisteredRoom room) {
+        RegisteredRoom[] current = this.rooms.rooms;
+        int position = -Arrays.binarySearch(current, room, ROOM_ORDER) - 1;
+        RegisteredRoom[] updated = new RegisteredRoom[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, position);
+        updated[position] = room;
+        System.arraycopy(current, position, updated, position + 1, current.length - position);
+        this.rooms = new Snapshot(updated, this.keys);
+    }
+
+    /**
+     * Adds several rooms to the catalog at once, copying it only once
+     * @param newRooms: the rooms to be added, whose room numbers must not be in the catalog yet
+     */
+    synchronized void addRooms(Collection<RegisteredRoom> newRooms) {
+        if (newRooms.isEmpty()) {
+            return;
+        }
+        RegisteredRoom[] added = newRooms.toArray(new RegisteredRoom[0]);
+        Arrays.sort(added, ROOM_ORDER);
+        RegisteredRoom[] current = this.rooms.rooms;
+        RegisteredRoom[] merged = new RegisteredRoom[current.length + added.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < current.length && j < added.length) {
+            merged[k++] = ROOM_ORDER.compare(current[i], added[j]) <= 0 ? current[i++] : added[j++];
+        }
+        System.arraycopy(current, i, merged, k, current.length - i);
+        System.arraycopy(added, j, merged, k + current.length - i, added.length - j);
+        this.rooms = new Snapshot(merged, this.keys);
+    }
+
+    /**
+     * Retrieves all the rooms
+     * @return an immutable list of the rooms, sorted by room number
+     */
+    List<IRoom> getRooms() {
+        return this.rooms;
+    }
+
+    /**
+     * Retrieves the number of rooms
+     * @return the number of rooms
+     */
+    int size() {
+        return this.rooms.size();
+    }
+
+    /**
+     * Sorts rooms of the catalog in the order of the catalog, by marking their positions in a bitmap and
+     * reading it back, which costs O(k + n / 64) for k rooms out of n
+     * @param rooms: rooms of the catalog, in any order
+     * @return the rooms, sorted by room number, without those that are not in the catalog yet
+     */
+    List<IRoom> sort(Collection<RegisteredRoom> rooms) {
+        Snapshot snapshot = this.rooms;
+        long[] marked = new long[(snapshot.rooms.length + 63) >>> 6];
+        for (RegisteredRoom room : rooms) {
+            int position = snapshot.positionOf(room, this.keys.applyAsInt(room));
+            if (position >= 0) {
+                marked[position >>> 6] |= 1L << position;
+            }
+        }
+        List<IRoom> sortedRooms = new ArrayList<>(rooms.size());
+        for (int i = 0; i < marked.length; i++) {
+            long word = marked[i];
+            while (word != 0) {
+                sortedRooms.add(snapshot.rooms[(i << 6) + Long.numberOfTrailingZeros(word)]);
+                word &= word - 1;
+            }
+        }
+        return sortedRooms;
+    }
+
+    /**
+     * Immutable list over an array of rooms that is never modified, so it can be published without
+     * copying the array once more
+     */
+    private static final class Snapshot extends AbstractList<IRoom> implements RandomAccess {
+
+        /**
+         * The rooms, sorted by room number
+         */
+        private final RegisteredRoom[] rooms;
+
+        /**
+         * Position of each room in the list, by key (-1 for the keys of rooms that are not in it)
+         */
+        private final int[] positions;
+
+        /**
+         * Constructor for the Snapshot class
+         * @param rooms: the rooms, sorted by room number, which must not be modified afterwards
+         * @param keys: gives each room the key its position is kept by
+         */
+        private Snapshot(RegisteredRoom[] rooms, ToIntFunction<RegisteredRoom> keys) {
+            this.rooms = rooms;
+            int maxKey = -1;
+            for (RegisteredRoom room : rooms) {
+                maxKey = Math.max(maxKey, keys.applyAsInt(room));
+            }
+            this.positions = new int[maxKey + 1];
+            Arrays.fill(this.positions, -1);
+            for (int i = 0; i < rooms.length; i++) {
+                this.positions[keys.applyAsInt(rooms[i])] = i;
+            }
+        }
+
+        /**
+         * Retrieves the position of a room in the list
+         * @param room: the room
+         * @param key: the key of the room
+         * @return the position of the room, or -1 if it is not in the list
+         */
+        private int positionOf(RegisteredRoom room, int key) {
+            if (key >= this.positions.length) {
+                return -1;
+            }
+            int position = this.positions[key];
+            return position >= 0 && this.rooms[position] == room ? position : -1;
+        }
+
+        /**
+         * Retrieves a room
+         * @param index: the position of the room
+         * @return the room at that position
+         */
+        @Override
+        public IRoom get(int index) {
+            return this.rooms[index];
+        }
+
+        /**
+         * Retrieves the number of rooms
+         * @return the number of rooms
+         */
+        @Override
+        public int size() {
+            return this.rooms.length;
+        }
+    }
+}
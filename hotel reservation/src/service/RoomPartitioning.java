@@ -0,0 +1,54 @@
+package service;
+
+/**
+ * How the rooms of a {@link ShardedReservationService} are partitioned across its shards, based only on
+ * their room numbers so that any request can be routed without looking the room up.
+ * Can be {@link #HASH}, {@link #FLOOR} or {@link #PROPERTY}
+ * @see ShardedReservationService
+ * @author Cláudia Martins
+ */
+public enum RoomPartitioning {
+
+    /**
+     * Rooms are spread across the shards by the hash of their room number.
+     * Spreads the load evenly, but every query by property or floor has to visit all the shards.
+     */
+    HASH,
+
+    /**
+     * Rooms are partitioned by floor, the floor being the room number without its last two characters
+     * (e.g. floor 12 for room 1205), so all the rooms of a floor belong to the same shard.
+     */
+    FLOOR,
+
+    /**
+     * Rooms are partitioned by property, the property being the part of the room number before its first
+     * '-' (e.g. LIS for room LIS-101), so all the rooms of a property belong to the same shard.
+     * Room numbers without a property belong to the shard of the empty property.
+     */
+    PROPERTY;
+
+    /**
+     * Separator between the property and the rest of a room number
+     */
+    private static final char PROPERTY_SEPARATOR = '-';
+
+    /**
+     * Retrieves the shard a room belongs to
+     * @param roomNumber: the room number of the room
+     * @param shardCount: the number of shards
+     * @return the index of the shard, between 0 (inclusive) and the number of shards (exclusive)
+     */
+    public int shardOf(String roomNumber, int shardCount) {
+        String key = switch (this) {
+            case HASH -> roomNumber;
+            case FLOOR -> roomNumber.substring(0, Math.max(0, roomNumber.length() - 2));
+            case PROPERTY -> {
+                int separator = roomNumber.indexOf(PROPERTY_SEPARATOR);
+                yield separator < 0 ? "" : roomNumber.substring(0, separator);
+            }
+        };
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+}
@@ -0,0 +1,200 @@
+package service;
+
+import model.Reservation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Ordered schedule of the reservations made for a single room.
+ * Reservations are kept in a {@link ConcurrentSkipListMap} keyed by their check-in day. Since the
+ * reservations of a room never overlap, ordering them by check-in also orders them by check-out, so a
+ * conflict with a new date range can be found with a single {@link NavigableMap#floorEntry} lookup
+ * (O(log n)).
+ * Date ranges are given as epoch days and are inclusive on both ends, i.e. a stay that checks in on the
+ * day another one checks out is a conflict.
+ * Reads never block. Writers must be serialized by the caller (see the room locks of
+ * {@link ReservationService}), so that a conflict check and the following insertion are atomic.
+ * @see Reservation
+ * @author Cláudia Martins
+ */
+final class RoomSchedule {
+
+    /**
+     * Value returned by {@link #findEarliestWindow} when there is no window early enough
+     */
+    static final int NO_WINDOW = Integer.MAX_VALUE;
+
+    /**
+     * Room number of the room
+     */
+    private final String roomNumber;
+
+    /**
+     * Reservations of the room, keyed by their check-in day
+     */
+    private final NavigableMap<Integer, Reservation> reservations;
+
+    /**
+     * Constructor for the RoomSchedule class
+     * @param roomNumber: the room number of the room
+     */
+    RoomSchedule(String roomNumber) {
+        this.roomNumber = roomNumber;
+        this.reservations = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Retrieves the room number of the room
+     * @return the room number
+     */
+    String getRoomNumber() {
+        return this.roomNumber;
+    }
+
+    /**
+     * Retrieves a reservation that overlaps the given range of days (inclusive), if there is one
+     * @param checkInDay: the epoch day of the check-in date of the range
+     * @param checkOutDay: the epoch day of the check-out date of the range
+     * @return the conflicting reservation, or null if the room is available for the whole range
+     */
+    Reservation findConflict(int checkInDay, int checkOutDay) {
+        Map.Entry<Integer, Reservation> latest = this.reservations.floorEntry(checkOutDay);
+        if (latest != null && latest.getValue().getCheckOutDay() >= checkInDay) {
+            return latest.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves a reservation other than a given one that overlaps the given range of days (inclusive), if
+     * there is one, as when a reservation is moved to other dates of the same room
+     * @param checkInDay: the epoch day of the check-in date of the range
+     * @param checkOutDay: the epoch day of the check-out date of the range
+     * @param ignoredReservation: the reservation to be ignored
+     * @return the conflicting reservation, or null if the room is available for the whole range
+     */
+    Reservation findConflict(int checkInDay, int checkOutDay, Reservation ignoredReservation) {
+        Map.Entry<Integer, Reservation> latest = this.reservations.floorEntry(checkOutDay);
+        if (latest != null && latest.getValue() == ignoredReservation) {
+            latest = this.reservations.lowerEntry(latest.getKey());
+        }
+        if (latest != null && latest.getValue().getCheckOutDay() >= checkInDay) {
+            return latest.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the reservation that checks in on a given day
+     * @param checkInDay: the epoch day of the check-in date
+     * @return the reservation, or null if no stay checks in on that day
+     */
+    Reservation get(int checkInDay) {
+        return this.reservations.get(checkInDay);
+    }
+
+    /**
+     * Checks whether a reservation is still in the schedule, i.e. it was neither cancelled, modified nor
+     * archived
+     * @param reservation: the reservation
+     * @return true if the reservation is in the schedule, false otherwise
+     */
+    boolean contains(Reservation reservation) {
+        return this.reservations.get(reservation.getCheckInDay()) == reservation;
+    }
+
+    /**
+     * Finds the earliest check-in day on or after a given day at which the room is free for a stay of a
+     * given number of nights, walking the gaps between the reservations from that day on
+     * @param fromDay: the epoch day of the earliest acceptable check-in
+     * @param nights: the number of nights of the stay (the check-out day is the check-in day plus them)
+     * @param latestDay: the epoch day of the latest check-in of interest, after which the walk stops
+     * @return the epoch day of the earliest check-in, or {@link #NO_WINDOW} if there is none on or before
+     * the latest day of interest
+     */
+    int findEarliestWindow(int fromDay, int nights, int latestDay) {
+        int candidate = fromDay;
+        Map.Entry<Integer, Reservation> previous = this.reservations.floorEntry(fromDay);
+        if (previous != null && previous.getValue().getCheckOutDay() >= candidate) {
+            candidate = previous.getValue().getCheckOutDay() + 1;
+        }
+        for (Reservation next : this.reservations.tailMap(fromDay, false).values()) {
+            if (candidate > latestDay) {
+                return NO_WINDOW;
+            }
+            if ((long) candidate + nights < next.getCheckInDay()) {
+                return candidate;
+            }
+            candidate = Math.max(candidate, next.getCheckOutDay() + 1);
+        }
+        return candidate <= latestDay ? candidate : NO_WINDOW;
+    }
+
+    /**
+     * Adds a reservation to the schedule.
+     * The caller is responsible for checking that it does not overlap an existing one
+     * (see {@link #findConflict(int, int)})
+     * @param reservation: the reservation to be added
+     */
+    void add(Reservation reservation) {
+        this.reservations.put(reservation.getCheckInDay(), reservation);
+    }
+
+    /**
+     * Retrieves the reservations that check out before a given day.
+     * Since the reservations never overlap, they are the first ones of the schedule.
+     * @param day: the epoch day
+     * @return the reservations that check out before the day, ordered by check-in date
+     */
+    List<Reservation> getCheckedOutBefore(int day) {
+        List<Reservation> pastReservations = new ArrayList<>();
+        for (Reservation reservation : this.reservations.values()) {
+            if (reservation.getCheckOutDay() >= day) {
+                break;
+            }
+            pastReservations.add(reservation);
+        }
+        return pastReservations;
+    }
+
+    /**
+     * Removes a reservation from the schedule
+     * @param reservation: the reservation to be removed
+     * @return true if the reservation was in the schedule, false otherwise
+     */
+    boolean remove(Reservation reservation) {
+        return this.reservations.remove(reservation.getCheckInDay(), reservation);
+    }
+
+    /**
+     * Removes reservations from the schedule
+     * @param removedReservations: the reservations to be removed
+     */
+    void remove(Collection<Reservation> removedReservations) {
+        for (Reservation reservation : removedReservations) {
+            this.reservations.remove(reservation.getCheckInDay(), reservation);
+        }
+    }
+
+    /**
+     * Checks whether the room has no reservations
+     * @return true if there are no reservations, false otherwise
+     */
+    boolean isEmpty() {
+        return this.reservations.isEmpty();
+    }
+
+    /**
+     * Retrieves the reservations of the room, ordered by check-in date
+     * @return an unmodifiable view of the reservations
+     */
+    Collection<Reservation> getReservations() {
+        return Collections.unmodifiableCollection(this.reservations.values());
+    }
+}
@@ -0,0 +1,104 @@
+package service;
+
+import model.IRoom;
+import model.Room;
+import model.RoomType;
+import utils.RoomNumbers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * Indexes of the rooms by type and price, used to search for rooms without scanning all of them.
+ * For each room type, and for all the types together, the rooms are kept in a skip list sorted by price
+ * (in cents, so prices are compared exactly) and then by room number (room numbers being in natural order,
+ * see {@link RoomNumbers}). A search walks the price range of the index of the requested type from its lower
+ * bound, so it costs O(log n + k) for k rooms returned, plus the rooms skipped because they are not
+ * available when dates are given. The free rooms are those at the price of 0 cents.
+ * Rooms are only ever added, and the skip lists can be read while they are.
+ * @see model.RoomSearch
+ * @author Cláudia Martins
+ */
+final class RoomSearchIndex {
+
+    /**
+     * Rooms of each type (and, at the index after the last type, of all the types), by price and room number
+     */
+    private final List<NavigableMap<Long, NavigableMap<String, RegisteredRoom>>> roomsByPrice;
+
+    /**
+     * Constructor for the RoomSearchIndex class
+     */
+    RoomSearchIndex() {
+        int indexCount = RoomType.values().length + 1;
+        this.roomsByPrice = new ArrayList<>(indexCount);
+        for (int i = 0; i < indexCount; i++) {
+            this.roomsByPrice.add(new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /**
+     * Adds a room to the indexes of its type and of all the types
+     * @param room: the room to be added
+     */
+    void addRoom(RegisteredRoom room) {
+        for (int index : new int[]{room.getRoomType().ordinal(), RoomType.values().length}) {
+            this.roomsByPrice.get(index)
+                    .computeIfAbsent(room.getRoomPriceCents(),
+                            price -> new ConcurrentSkipListMap<>(RoomNumbers.NATURAL_ORDER))
+                    .put(room.getRoomNumber(), room);
+        }
+    }
+
+    /**
+     * Adds several rooms to the indexes
+     * @param rooms: the rooms to be added
+     */
+    void addRooms(Collection<RegisteredRoom> rooms) {
+        for (RegisteredRoom room : rooms) {
+            this.addRoom(room);
+        }
+    }
+
+    /**
+     * Searches for rooms, sorted by price and then by room number
+     * @param roomType: the type of the rooms, or null for any type
+     * @param minPrice: the minimum price of the rooms (inclusive), rounded to the cent
+     * @param maxPrice: the maximum price of the rooms (inclusive), rounded to the cent
+     * @param freeOnly: whether only free rooms are searched for
+     * @param limit: the maximum number of rooms returned
+     * @param filter: the condition the rooms must also meet (e.g. being available on some dates)
+     * @return the rooms found, at most limit of them
+     */
+    List<IRoom> search(RoomType roomType, double minPrice, double maxPrice, boolean freeOnly, int limit,
+                       Predicate<? super RegisteredRoom> filter) {
+        int index = roomType == null ? RoomType.values().length : roomType.ordinal();
+        long minCents = Room.toCents(minPrice);
+        long maxCents = Room.toCents(maxPrice);
+        if (freeOnly) {
+            minCents = Math.max(minCents, 0);
+            maxCents = Math.min(maxCents, 0);
+        }
+        List<IRoom> foundRooms = new ArrayList<>(Math.min(limit, 64));
+        if (minCents > maxCents) {
+            return foundRooms;
+        }
+        for (Map<String, RegisteredRoom> roomsAtPrice : this.roomsByPrice.get(index)
+                .subMap(minCents, true, maxCents, true).values()) {
+            for (RegisteredRoom room : roomsAtPrice.values()) {
+                if (foundRooms.size() == limit) {
+                    return foundRooms;
+                }
+                if (filter.test(room)) {
+                    foundRooms.add(room);
+                }
+            }
+        }
+        return foundRooms;
+    }
+}
@@ -0,0 +1,812 @@
+package service;
+
+import model.BookingRequest;
+import model.Customer;
+import model.IRoom;
+import model.Reservation;
+import model.RoomSearch;
+import model.RoomType;
+import persistence.DurabilityLevel;
+import utils.RoomNumbers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Reservation engine that partitions the rooms of one or several properties across a number of shards,
+ * so that a single application can host several hotels and spread their bookings over several cores.
+ * Each shard is a {@link ReservationService} of its own, owned by a single thread: every change that
+ * involves a room is routed, by its room number (see {@link RoomPartitioning}), to the thread of the shard
+ * the room belongs to, so the state of a shard is only ever written by that thread and the shard takes no
+ * locks. The tombstones of the reservations cancelled in a shard are compacted on that thread too.
+ * The shards never block their readers, so reads are made on the thread of the caller, without handing them
+ * to the thread of the shard. Queries that involve every room (e.g. {@link #getAvailableRooms}) read all the
+ * shards in parallel, and their results are merged. The engine also keeps a catalog of the rooms of every
+ * shard, sorted by room number, which lists all the rooms as is and puts the rooms found by the shards back
+ * in order without comparing room numbers.
+ * A batch of bookings or a move that involves several shards is made on each of them and undone on those
+ * where it was made if it fails on another one, so it is still made either whole or not at all.
+ * Customers are shared by all the shards, through the {@link CustomerService}. Each shard can be persisted
+ * in a directory of its own (see {@link #startPersistence}).
+ * Engines are independent of each other and must be closed once they are no longer used. The application
+ * runs on an engine when it is set as the active service (see {@link ReservationService#setActiveService}).
+ * @see IReservationService
+ * @see RoomPartitioning
+ * @see ReservationService
+ * @author Cláudia Martins
+ */
+public final class ShardedReservationService implements IReservationService, AutoCloseable {
+
+    /**
+     * Orders the rooms by room number, in natural order
+     */
+    private static final Comparator<IRoom> BY_ROOM_NUMBER =
+            Comparator.comparing(IRoom::getRoomNumber, RoomNumbers.NATURAL_ORDER);
+
+    /**
+     * Orders the rooms by price and then by room number, as they are returned by the searches
+     */
+    private static final Comparator<IRoom> BY_PRICE = Comparator.comparingLong(IRoom::getRoomPriceCents)
+            .thenComparing(BY_ROOM_NUMBER);
+
+    /**
+     * Prefix of the directories the shards are persisted in, inside the data directory, followed by the
+     * index of the shard
+     */
+    public static final String SHARD_DIRECTORY_PREFIX = "shard-";
+
+    /**
+     * How the rooms are partitioned across the shards
+     */
+    private final RoomPartitioning partitioning;
+
+    /**
+     * The reservation services of the shards
+     */
+    private final List<ReservationService> shards;
+
+    /**
+     * The threads that own the shards, one per shard
+     */
+    private final List<ScheduledExecutorService> shardExecutors;
+
+    /**
+     * The service the customers of every shard are registered in
+     */
+    private final CustomerService customerService;
+
+    /**
+     * Persistence of each shard, empty if the shards are not persisted
+     */
+    private final List<PersistenceService> shardPersistence;
+
+    /**
+     * Catalog of the rooms of every shard, which keeps the position of each room by its room id in its
+     * shard, interleaved with the ids of the other shards
+     */
+    private final RoomCatalog roomCatalog;
+
+    /**
+     * Constructor for the ShardedReservationService class, starting the thread of each shard
+     * @param shardCount: the number of shards (e.g. the number of cores)
+     * @param partitioning: how the rooms are partitioned across the shards
+     * @throws IllegalArgumentException if the number of shards is not positive
+     */
+    public ShardedReservationService(int shardCount, RoomPartitioning partitioning) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("The number of shards must be positive.");
+        }
+        this.partitioning = partitioning;
+        this.shards = new ArrayList<>(shardCount);
+        this.shardExecutors = new ArrayList<>(shardCount);
+        this.customerService = CustomerService.getInstance();
+        this.shardPersistence = new ArrayList<>(shardCount);
+        this.roomCatalog = new RoomCatalog(room -> room.getRoomId() * shardCount + room.getService().getShardIndex());
+        for (int i = 0; i < shardCount; i++) {
+            String threadName = "reservation-shard-" + i;
+            ScheduledThreadPoolExecutor shardExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+            shardExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            this.shards.add(new ReservationService(this.customerService, shardExecutor, i));
+            this.shardExecutors.add(shardExecutor);
+        }
+    }
+
+    /**
+     * Retrieves the number of shards
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return this.shards.size();
+    }
+
+    /**
+     * Retrieves the shard a room belongs to
+     * @param roomNumber: the room number of the room
+     * @return the index of the shard
+     */
+    public int shardOf(String roomNumber) {
+        return this.partitioning.shardOf(roomNumber, this.shards.size());
+    }
+
+    /**
+     * Retrieves the directory a shard is persisted in
+     * @param dataDirectory: the data directory of the application
+     * @param shardIndex: the index of the shard
+     * @return the directory of the shard, inside the data directory
+     */
+    public static Path shardDirectory(Path dataDirectory, int shardIndex) {
+        return dataDirectory.resolve(SHARD_DIRECTORY_PREFIX + shardIndex);
+    }
+
+    /**
+     * Restores the state of every shard from its directory and starts recording every change made to it in
+     * a write-ahead log of its own, one shard after the other, each on its own thread. The customers are not
+     * recorded by the shards, but by the singleton {@link PersistenceService}, which must be started first.
+     * Must be called before the engine is used.
+     * @param dataDirectory: the data directory of the application, holding the directories of the shards
+     * @param durability: the durability level of the logs
+     * @param snapshotInterval: the interval between background snapshots, or null (or zero) to disable them
+     * @throws IOException if the state of a shard cannot be read, its log cannot be opened, or a restored room
+     * belongs to another shard (the directory was written with another number of shards or partitioning)
+     * @throws IllegalStateException if persistence has already been started
+     */
+    public synchronized void startPersistence(Path dataDirectory, DurabilityLevel durability,
+                                              Duration snapshotInterval) throws IOException {
+        if (!this.shardPersistence.isEmpty()) {
+            throw new IllegalStateException("Persistence has already been started.");
+        }
+        for (int i = 0; i < this.shards.size(); i++) {
+            Path shardDirectory = shardDirectory(dataDirectory, i);
+            PersistenceService persistence = new PersistenceService(this.customerService, this.shards.get(i), false);
+            try {
+                this.call(i, shard -> {
+                    try {
+                        persistence.start(shardDirectory, durability, snapshotInterval);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            this.shardPersistence.add(persistence);
+            for (IRoom room : this.shards.get(i).getAllRooms()) {
+                if (this.shardOf(room.getRoomNumber()) != i) {
+                    throw new IOException("Room " + room.getRoomNumber() + " restored in shard " + i
+                            + " belongs to shard " + this.shardOf(room.getRoomNumber())
+                            + ": the data was written with another number of shards or partitioning.");
+                }
+            }
+            this.roomCatalog.addRooms(this.shards.get(i).getRoomsUnsorted());
+        }
+    }
+
+    /**
+     * Adds a new room to its shard
+     * @param room: the room to be added
+     * @throws IllegalArgumentException if a room with the given room number already exists
+     */
+    @Override
+    public void addRoom(IRoom room) throws IllegalArgumentException {
+        this.roomCatalog.addRoom(this.call(this.shardOf(room.getRoomNumber()), shard -> {
+            shard.addRoom(room);
+            return (RegisteredRoom) shard.getARoom(room.getRoomNumber());
+        }));
+    }
+
+    /**
+     * Adds several rooms at once, each shard adding its own rooms in parallel
+     * @param newRooms: the rooms to be added
+     * @return the rooms that were not added because their room number already exists
+     */
+    @Override
+    public List<IRoom> addRooms(Collection<IRoom> newRooms) {
+        List<List<IRoom>> roomsByShard = new ArrayList<>(this.shards.size());
+        for (int i = 0; i < this.shards.size(); i++) {
+            roomsByShard.add(new ArrayList<>());
+        }
+        for (IRoom room : newRooms) {
+            roomsByShard.get(this.shardOf(room.getRoomNumber())).add(room);
+        }
+        List<CompletableFuture<List<IRoom>>> results = new ArrayList<>(this.shards.size());
+        for (int i = 0; i < this.shards.size(); i++) {
+            List<IRoom> shardRooms = roomsByShard.get(i);
+            results.add(this.submit(i, shard -> shardRooms.isEmpty() ? List.of() : shard.addRooms(shardRooms)));
+        }
+        List<IRoom> rejectedRooms = new ArrayList<>();
+        List<RegisteredRoom> addedRooms = new ArrayList<>();
+        for (int i = 0; i < this.shards.size(); i++) {
+            List<IRoom> shardRejectedRooms = join(results.get(i));
+            rejectedRooms.addAll(shardRejectedRooms);
+            Set<IRoom> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+            rejected.addAll(shardRejectedRooms);
+            for (IRoom room : roomsByShard.get(i)) {
+                if (!rejected.contains(room)) {
+                    addedRooms.add((RegisteredRoom) this.shards.get(i).getARoom(room.getRoomNumber()));
+                }
+            }
+        }
+        this.roomCatalog.addRooms(addedRooms);
+        return rejectedRooms;
+    }
+
+    /**
+     * Retrieves a room by its room number, from the shard it belongs to
+     * @param roomNumber: the room number of the room
+     * @return the room associated with the given room number, or null if no such room exists
+     */
+    @Override
+    public IRoom getARoom(String roomNumber) {
+        return this.shards.get(this.shardOf(roomNumber)).getARoom(roomNumber);
+    }
+
+    /**
+     * Reserves a room for a customer, in the shard the room belongs to
+     * @param customer: the customer making the reservation
+     * @param room: the room being reserved
+     * @param checkInDate: the check-in date
+     * @param checkOutDate: the check-out date
+     * @return the created reservation
+     * @throws IllegalArgumentException if an argument is missing, the customer or the room does not exist, or
+     * the room is already reserved for the given dates
+     */
+    @Override
+    public Reservation reserveARoom(Customer customer, IRoom room, LocalDate checkInDate, LocalDate checkOutDate)
+            throws IllegalArgumentException {
+        if (customer == null || room == null) {
+            throw new IllegalArgumentException("The customer and the room are required.");
+        }
+        return this.call(this.shardOf(room.getRoomNumber()),
+                shard -> shard.reserveARoom(customer, room, checkInDate, checkOutDate));
+    }
+
+    /**
+     * Reserves several rooms at once, booking either all of them or none.
+     * A batch whose rooms belong to a single shard is made by that shard. Otherwise, each shard makes the
+     * requests of its rooms in parallel, and if any shard cannot make them all, the reservations made by the
+     * other shards are cancelled before the conflicts of every shard are reported together. Other bookings
+     * may then briefly see those rooms booked.
+     * @param requests: the booking requests
+     * @return the created reservations, in the order of the requests
+     * @throws BookingConflictException if any of the requests cannot be made, in which case no room is
+     * reserved
+     */
+    @Override
+    public List<Reservation> reserveRooms(List<BookingRequest> requests) throws BookingConflictException {
+        List<List<Integer>> requestsByShard = new ArrayList<>(this.shards.size());
+        for (int i = 0; i < this.shards.size(); i++) {
+            requestsByShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            IRoom room = requests.get(i).getRoom();
+            requestsByShard.get(room == null ? 0 : this.shardOf(room.getRoomNumber())).add(i);
+        }
+        List<Integer> batchShards = new ArrayList<>();
+        for (int i = 0; i < this.shards.size(); i++) {
+            if (!requestsByShard.get(i).isEmpty()) {
+                batchShards.add(i);
+            }
+        }
+        if (batchShards.size() <= 1) {
+            return this.call(batchShards.isEmpty() ? 0 : batchShards.get(0), shard -> shard.reserveRooms(requests));
+        }
+
+        List<CompletableFuture<List<Reservation>>> results = new ArrayList<>(batchShards.size());
+        for (int shardIndex : batchShards) {
+            List<BookingRequest> shardRequests = requestsByShard.get(shardIndex).stream().map(requests::get).toList();
+            results.add(this.submit(shardIndex, shard -> shard.reserveRooms(shardRequests)));
+        }
+        Reservation[] reservations = new Reservation[requests.size()];
+        List<BookingConflictException.Conflict> conflicts = new ArrayList<>();
+        RuntimeException failure = null;
+        for (int i = 0; i < batchShards.size(); i++) {
+            List<Integer> shardRequests = requestsByShard.get(batchShards.get(i));
+            try {
+                List<Reservation> shardReservations = join(results.get(i));
+                for (int j = 0; j < shardRequests.size(); j++) {
+                    reservations[shardRequests.get(j)] = shardReservations.get(j);
+                }
+            } catch (BookingConflictException e) {
+                for (BookingConflictException.Conflict conflict : e.getConflicts()) {
+                    conflicts.add(new BookingConflictException.Conflict(shardRequests.get(conflict.requestIndex()),
+                            conflict.request(), conflict.reason()));
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (conflicts.isEmpty() && failure == null) {
+            return List.of(reservations);
+        }
+        this.cancelAll(Arrays.stream(reservations).filter(Objects::nonNull).toList());
+        if (failure != null) {
+            throw failure;
+        }
+        conflicts.sort(Comparator.comparingInt(BookingConflictException.Conflict::requestIndex));
+        throw new BookingConflictException(requests.size(), conflicts);
+    }
+
+    /**
+     * Cancels a reservation, in the shard its room belongs to
+     * @param reservation: the reservation to be cancelled
+     * @return the cancelled reservation
+     * @throws IllegalArgumentException if the room or the reservation does not exist, or the stay was archived
+     */
+    @Override
+    public Reservation cancelReservation(Reservation reservation) throws IllegalArgumentException {
+        return this.call(this.shardOf(reservation.getRoom().getRoomNumber()),
+                shard -> shard.cancelReservation(reservation));
+    }
+
+    /**
+     * Moves a reservation to another room and/or other dates.
+     * A move within a shard is made by that shard. A move to a room of another shard books the new room in
+     * its shard first and then cancels the reservation in its own shard, cancelling the new booking again if
+     * the reservation cannot be cancelled, so the reservation either moves or stays as it was.
+     * @param reservation: the reservation to be modified
+     * @param room: the room the reservation is moved to
+     * @param checkInDate: the new check-in date
+     * @param checkOutDate: the new check-out date
+     * @return the modified reservation
+     * @throws IllegalArgumentException if the room is missing, a room or the reservation does not exist, or
+     * the room is already reserved for the new dates
+     */
+    @Override
+    public Reservation modifyReservation(Reservation reservation, IRoom room, LocalDate checkInDate,
+                                         LocalDate checkOutDate) throws IllegalArgumentException {
+        if (room == null) {
+            throw new IllegalArgumentException("The room is required.");
+        }
+        int shardIndex = this.shardOf(reservation.getRoom().getRoomNumber());
+        int newShardIndex = this.shardOf(room.getRoomNumber());
+        if (newShardIndex == shardIndex) {
+            return this.call(shardIndex, shard -> shard.modifyReservation(reservation, room, checkInDate, checkOutDate));
+        }
+        Reservation modified = this.call(newShardIndex,
+                shard -> shard.reserveARoom(reservation.getCustomer(), room, checkInDate, checkOutDate));
+        try {
+            this.call(shardIndex, shard -> shard.cancelReservation(reservation));
+        } catch (RuntimeException e) {
+            this.cancelAll(List.of(modified));
+            throw e;
+        }
+        return modified;
+    }
+
+    /**
+     * Retrieves all the reservations of a customer, gathered from every shard (each of which only looks up the
+     * list of the customer)
+     * @param customer: the customer whose reservations are to be retrieved
+     * @return the reservations of the customer, sorted by check-in date
+     */
+    @Override
+    public List<Reservation> getCustomersReservation(Customer customer) {
+        List<Collection<Reservation>> shardReservations = new ArrayList<>(this.shards.size());
+        for (ReservationService shard : this.shards) {
+            shardReservations.add(shard.getCustomersReservation(customer));
+        }
+        return merge(shardReservations, Comparator.comparingInt(Reservation::getCheckInDay));
+    }
+
+    /**
+     * Retrieves all the rooms available for the specified check-in and check-out dates, searching every
+     * shard in parallel and putting the rooms found back in the order of the catalog of the engine
+     * @param checkInDate: the desired check-in date
+     * @param checkOutDate: the desired check-out date
+     * @return the available rooms, sorted by room number
+     */
+    @Override
+    public List<IRoom> getAvailableRooms(LocalDate checkInDate, LocalDate checkOutDate) {
+        List<RegisteredRoom> availableRooms = new ArrayList<>();
+        for (Collection<IRoom> shardRooms : this.gather(shard -> shard.getAvailableRooms(checkInDate, checkOutDate))) {
+            for (IRoom room : shardRooms) {
+                availableRooms.add((RegisteredRoom) room);
+            }
+        }
+        return this.roomCatalog.sort(availableRooms);
+    }
+
+    /**
+     * Searches for rooms by type, price range and whether they are free, optionally only among the rooms
+     * available between two dates. Every shard finds its best rooms in parallel, and the best of them all
+     * are kept.
+     * @param search: the criteria of the search
+     * @return the rooms found, sorted by price and then by room number, at most the limit of the search
+     */
+    @Override
+    public List<IRoom> searchRooms(RoomSearch search) {
+        List<IRoom> foundRooms = merge(this.gather(shard -> shard.searchRooms(search)), BY_PRICE);
+        return foundRooms.size() > search.getLimit() ? List.copyOf(foundRooms.subList(0, search.getLimit()))
+                : foundRooms;
+    }
+
+    /**
+     * Finds the earliest check-in date on or after a given date at which a stay of a given number of nights
+     * is available in some room of any shard, optionally of a given type
+     * @param fromDate: the earliest acceptable check-in date
+     * @param nights: the number of nights of the stay
+     * @param roomType: the type of the room, or null for any type
+     * @return the earliest check-in date, or null if there is no room (of the given type)
+     * @throws IllegalArgumentException if the number of nights is negative
+     */
+    @Override
+    public LocalDate findEarliestCheckIn(LocalDate fromDate, int nights, RoomType roomType) {
+        LocalDate earliestCheckIn = null;
+        for (LocalDate checkIn : this.gather(shard -> shard.findEarliestCheckIn(fromDate, nights, roomType))) {
+            if (checkIn != null && (earliestCheckIn == null || checkIn.isBefore(earliestCheckIn))) {
+                earliestCheckIn = checkIn;
+            }
+        }
+        return earliestCheckIn;
+    }
+
+    /**
+     * Retrieves the number of rooms booked on a night, across all the shards
+     * @param night: the date of the night
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the number of rooms booked
+     */
+    @Override
+    public int getOccupancy(LocalDate night, RoomType roomType) {
+        int occupancy = 0;
+        for (ReservationService shard : this.shards) {
+            occupancy += shard.getOccupancy(night, roomType);
+        }
+        return occupancy;
+    }
+
+    /**
+     * Retrieves all the rooms of every shard, from the catalog of the engine
+     * @return an immutable list of the rooms, sorted by room number
+     */
+    @Override
+    public List<IRoom> getAllRooms() {
+        return this.roomCatalog.getRooms();
+    }
+
+    /**
+     * Builds a report of the occupancy of each night of a range, adding up the reports of every shard
+     * @param firstNight: the date of the first night of the range
+     * @param lastNight: the date of the last night of the range (inclusive)
+     * @param roomType: the type of the rooms, or null for all the rooms
+     * @return the occupancy report
+     * @throws IllegalArgumentException if the last night is before the first one or the range is longer
+     * than {@link OccupancyReport#MAX_NIGHTS} nights
+     */
+    @Override
+    public OccupancyReport getOccupancyReport(LocalDate firstNight, LocalDate lastNight, RoomType roomType) {
+        List<OccupancyReport> shardReports = this.gather(shard -> shard.getOccupancyReport(firstNight, lastNight,
+                roomType));
+        int[] occupancies = new int[(int) (lastNight.toEpochDay() - firstNight.toEpochDay() + 1)];
+        long roomNights = 0;
+        for (OccupancyReport shardReport : shardReports) {
+            for (int night = 0; night < occupancies.length; night++) {
+                occupancies[night] += shardReport.getOccupancy(firstNight.plusDays(night));
+            }
+            roomNights += shardReport.getRoomNights();
+        }
+        int peakNight = 0;
+        for (int night = 1; night < occupancies.length; night++) {
+            if (occupancies[night] > occupancies[peakNight]) {
+                peakNight = night;
+            }
+        }
+        return new OccupancyReport(firstNight, roomType, occupancies, roomNights, firstNight.plusDays(peakNight));
+    }
+
+    /**
+     * Retrieves the number of rooms of each shard
+     * @return the number of rooms, by shard
+     */
+    public List<Integer> getRoomCounts() {
+        return this.shards.stream().map(ReservationService::getRoomCount).toList();
+    }
+
+    /**
+     * Retrieves the number of rooms of every shard
+     * @return the number of rooms
+     */
+    @Override
+    public int getRoomCount() {
+        int roomCount = 0;
+        for (ReservationService shard : this.shards) {
+            roomCount += shard.getRoomCount();
+        }
+        return roomCount;
+    }
+
+    /**
+     * Archives the stays that checked out before a given date, every shard archiving its own stays in
+     * parallel
+     * @param beforeDate: the date before which the stays checked out
+     * @return the number of reservations archived
+     * @throws IllegalArgumentException if the date is after today
+     */
+    @Override
+    public int archiveReservations(LocalDate beforeDate) {
+        int archivedReservations = 0;
+        for (int shardArchived : this.scatter(shard -> shard.archiveReservations(beforeDate))) {
+            archivedReservations += shardArchived;
+        }
+        return archivedReservations;
+    }
+
+    /**
+     * Retrieves all the reservations of every shard, sorted by room number and then by check-in date
+     * @return a list of all the reservations
+     */
+    @Override
+    public List<Reservation> getAllReservationsSorted() {
+        return merge(this.gather(ReservationService::getAllReservationsSorted),
+                Comparator.comparing(Reservation::getRoom, BY_ROOM_NUMBER).thenComparingInt(Reservation::getCheckInDay));
+    }
+
+    /**
+     * Streams all the reservations of every shard, sorted by room number and then by check-in date.
+     * The reservations are gathered from the shards before the stream is returned.
+     * @return a stream of all the reservations
+     */
+    @Override
+    public Stream<Reservation> streamAllReservationsSorted() {
+        return this.getAllReservationsSorted().stream();
+    }
+
+    /**
+     * Retrieves the number of reservations of every shard that were not archived
+     * @return the number of live reservations
+     */
+    @Override
+    public long getReservationCount() {
+        long reservationCount = 0;
+        for (ReservationService shard : this.shards) {
+            reservationCount += shard.getReservationCount();
+        }
+        return reservationCount;
+    }
+
+    /**
+     * Retrieves the number of reservations of every shard that were archived
+     * @return the number of archived reservations
+     */
+    @Override
+    public int getArchivedReservationCount() {
+        int archivedCount = 0;
+        for (ReservationService shard : this.shards) {
+            archivedCount += shard.getArchivedReservationCount();
+        }
+        return archivedCount;
+    }
+
+    /**
+     * Stops the threads of the shards, once the changes already routed to them are done, and then stops
+     * persisting the shards, making every recorded change durable
+     * @throws UncheckedIOException if the log of a shard cannot be written or closed
+     */
+    @Override
+    public void close() {
+        for (ExecutorService executor : this.shardExecutors) {
+            executor.shutdown();
+        }
+        try {
+            for (ExecutorService executor : this.shardExecutors) {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOException failure = null;
+        synchronized (this) {
+            for (PersistenceService persistence : this.shardPersistence) {
+                try {
+                    persistence.stop();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            this.shardPersistence.clear();
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    /**
+     * Cancels reservations made by the shards, each in its own shard, to undo a change that failed in another
+     * shard. A reservation that was already cancelled meanwhile is left as it is.
+     * @param reservations: the reservations to be cancelled
+     */
+    private void cancelAll(List<Reservation> reservations) {
+        List<CompletableFuture<Reservation>> cancellations = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            cancellations.add(this.submit(this.shardOf(reservation.getRoom().getRoomNumber()), shard -> {
+                try {
+                    return shard.cancelReservation(reservation);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }));
+        }
+        for (CompletableFuture<Reservation> cancellation : cancellations) {
+            join(cancellation);
+        }
+    }
+
+    /**
+     * Runs a call on the thread of a shard and waits for its result
+     * @param shardIndex: the index of the shard
+     * @param call: the call, given the reservation service of the shard
+     * @return the result of the call
+     * @param <T> the type of the result
+     */
+    private <T> T call(int shardIndex, Function<ReservationService, T> call) {
+        return join(this.submit(shardIndex, call));
+    }
+
+    /**
+     * Runs a query on every shard in parallel, on the thread of the caller and those of the common pool, and
+     * waits for all the results. The shards never block their readers, so the query does not need to run on
+     * the threads of the shards. Without a common pool to share the work with (e.g. on a single core), the
+     * shards are queried one after the other on the thread of the caller.
+     * @param query: the query, given the reservation service of each shard
+     * @return the results of the query, by shard
+     * @param <T> the type of the results
+     */
+    private <T> List<T> gather(Function<ReservationService, T> query) {
+        if (ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            return this.shards.stream().map(query).toList();
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(this.shards.size() - 1);
+        for (int i = 1; i < this.shards.size(); i++) {
+            ReservationService shard = this.shards.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), ForkJoinPool.commonPool()));
+        }
+        List<T> results = new ArrayList<>(this.shards.size());
+        results.add(query.apply(this.shards.get(0)));
+        for (CompletableFuture<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    /**
+     * Runs a call on the threads of every shard in parallel and waits for all the results
+     * @param call: the call, given the reservation service of each shard
+     * @return the results of the call, by shard
+     * @param <T> the type of the results
+     */
+    private <T> List<T> scatter(Function<ReservationService, T> call) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(this.shards.size());
+        for (int i = 0; i < this.shards.size(); i++) {
+            futures.add(this.submit(i, call));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    /**
+     * Merges the results of the shards, each sorted in the same order, by merging them two by two, which
+     * costs O(n log k) comparisons for n elements from k shards
+     * @param sortedResults: the results of the shards, each sorted in the given order
+     * @param order: the order of the results
+     * @return the merged results, sorted in the given order
+     * @param <T> the type of the elements
+     */
+    private static <T> List<T> merge(List<? extends Collection<? extends T>> sortedResults,
+                                     Comparator<? super T> order) {
+        List<Collection<? extends T>> runs = new ArrayList<>(sortedResults.size());
+        for (Collection<? extends T> result : sortedResults) {
+            if (!result.isEmpty()) {
+                runs.add(result);
+            }
+        }
+        if (runs.isEmpty()) {
+            return List.of();
+        }
+        while (runs.size() > 1) {
+            List<Collection<? extends T>> mergedRuns = new ArrayList<>((runs.size() + 1) / 2);
+            for (int i = 0; i < runs.size(); i += 2) {
+                mergedRuns.add(i + 1 < runs.size() ? merge(runs.get(i), runs.get(i + 1), order) : runs.get(i));
+            }
+            runs = mergedRuns;
+        }
+        return List.copyOf(runs.get(0));
+    }
+
+    /**
+     * Merges two collections sorted in the same order
+     * @param first: the first collection, sorted in the given order
+     * @param second: the second collection, sorted in the given order
+     * @param order: the order of the collections
+     * @return the elements of both collections, sorted in the given order
+     * @param <T> the type of the elements
+     */
+    private static <T> List<T> merge(Collection<? extends T> first, Collection<? extends T> second,
+                                     Comparator<? super T> order) {
+        List<T> merged = new ArrayList<>(first.size() + second.size());
+        Iterator<? extends T> firstElements = first.iterator();
+        Iterator<? extends T> secondElements = second.iterator();
+        T firstElement = firstElements.next();
+        T secondElement = secondElements.next();
+        while (firstElement != null && secondElement != null) {
+            if (order.compare(firstElement, secondElement) <= 0) {
+                merged.add(firstElement);
+                firstElement = firstElements.hasNext() ? firstElements.next() : null;
+            } else {
+                merged.add(secondElement);
+                secondElement = secondElements.hasNext() ? secondElements.next() : null;
+            }
+        }
+        if (firstElement != null) {
+            merged.add(firstElement);
+            firstElements.forEachRemaining(merged::add);
+        }
+        if (secondElement != null) {
+            merged.add(secondElement);
+            secondElements.forEachRemaining(merged::add);
+        }
+        return merged;
+    }
+
+    /**
+     * Hands a call to the thread of a shard
+     * @param shardIndex: the index of the shard
+     * @param call: the call, given the reservation service of the shard
+     * @return the future result of the call
+     * @param <T> the type of the result
+     */
+    private <T> CompletableFuture<T> submit(int shardIndex, Function<ReservationService, T> call) {
+        ReservationService shard = this.shards.get(shardIndex);
+        return CompletableFuture.supplyAsync(() -> call.apply(shard), this.shardExecutors.get(shardIndex));
+    }
+
+    /**
+     * Waits for the result of a call made on the thread of a shard, throwing the exception of the call if
+     * it failed
+     * @param future: the future result of the call
+     * @return the result of the call
+     * @param <T> the type of the result
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package service;
+
+import model.Reservation;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Flyweight view of a reservation record of an {@link OffHeapReservationStore}.
+ * A view holds no reservation data: it is moved from record to record and reads their fields straight
+ * from the off-heap memory of the store, so a single view can walk any number of records without
+ * allocating. A {@link Reservation} is only created when one is asked for (see {@link #toReservation}).
+ * Views are not thread-safe, and must only be used while the store is locked for reading.
+ * @see OffHeapReservationStore
+ * @author Cláudia Martins
+ */
+final class StoredReservation {
+
+    /**
+     * The store the records belong to
+     */
+    private final OffHeapReservationStore store;
+
+    /**
+     * Off-heap chunk holding the current record
+     */
+    private MemorySegment chunk;
+
+    /**
+     * Offset of the current record in its chunk
+     */
+    private long offset;
+
+    /**
+     * Constructor for the StoredReservation class
+     * @param store: the store the records belong to
+     */
+    StoredReservation(OffHeapReservationStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Moves the view to another record
+     * @param record: the index of the record in the store
+     * @return this view
+     */
+    StoredReservation moveTo(int record) {
+        this.chunk = this.store.chunkOf(record);
+        this.offset = OffHeapReservationStore.offsetOf(record);
+        return this;
+    }
+
+    /**
+     * Retrieves the id of the room of the current record
+     * @return the room id
+     */
+    int getRoomId() {
+        return this.chunk.get(ValueLayout.JAVA_INT, this.offset + OffHeapReservationStore.ROOM_ID_OFFSET);
+    }
+
+    /**
+     * Retrieves the id of the customer of the current record
+     * @return the customer id
+     */
+    int getCustomerId() {
+        return this.chunk.get(ValueLayout.JAVA_INT, this.offset + OffHeapReservationStore.CUSTOMER_ID_OFFSET);
+    }
+
+    /**
+     * Retrieves the check-in date of the current record as an epoch day
+     * @return the number of days since 1970/01/01 of the check-in date
+     */
+    int getCheckInDay() {
+        return this.chunk.get(ValueLayout.JAVA_INT, this.offset + OffHeapReservationStore.CHECK_IN_OFFSET);
+    }
+
+    /**
+     * Retrieves the check-out date of the current record as an epoch day
+     * @return the number of days since 1970/01/01 of the check-out date
+     */
+    int getCheckOutDay() {
+        return this.chunk.get(ValueLayout.JAVA_INT, this.offset + OffHeapReservationStore.CHECK_OUT_OFFSET);
+    }
+
+    /**
+     * Retrieves the price per night the room had when the current record was stored
+     * @return the price per night in cents
+     */
+    long getPriceCents() {
+        return this.chunk.get(ValueLayout.JAVA_LONG, this.offset + OffHeapReservationStore.PRICE_OFFSET);
+    }
+
+    /**
+     * Creates a reservation with the data of the current record
+     * @return the reservation, referring to the same customer and room objects as the one that was stored
+     */
+    Reservation toReservation() {
+        return new Reservation(this.store.customerOf(this.getCustomerId()), this.store.roomOf(this.getRoomId()),
+                this.getCheckInDay(), this.getCheckOutDay());
+    }
+}
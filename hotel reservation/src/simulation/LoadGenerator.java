@@ -0,0 +1,483 @@
+package simulation;
+
+import api.AdminResource;
+import api.HotelResource;
+import metrics.Histogram;
+import metrics.HistogramSnapshot;
+import model.IRoom;
+import model.Reservation;
+import model.Room;
+import model.RoomType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Load generator that drives {@link HotelResource} and {@link AdminResource} from several threads with a
+ * synthetic mix of availability searches, bookings and lookups of the reservations of a customer, to size
+ * hardware and to validate concurrency changes.
+ * The hotel is first populated with synthetic rooms and customers (reusing those of an earlier run).
+ * Demand is skewed as set in the {@link LoadProfile}: check-in dates and the rooms of each type follow Zipf
+ * distributions whose most popular ranks are scattered at random, so hot dates and popular rooms are not
+ * simply the first ones. After a warm-up, the latency of every operation is recorded in a lock-free
+ * {@link Histogram} per kind of operation, and once the load is over the reservations are checked for
+ * double bookings, lost bookings and availability searches that do not match them.
+ *
+ * @see LoadProfile
+ * @see LoadReport
+ * @author Cláudia Martins
+ */
+public final class LoadGenerator {
+
+    /**
+     * Prefix of the room numbers of the synthetic rooms
+     */
+    private static final String ROOM_PREFIX = "LG";
+
+    /**
+     * Domain of the emails of the synthetic customers
+     */
+    private static final String CUSTOMER_DOMAIN = "@loadgen.test";
+
+    /**
+     * Number of availability searches sampled when checking the reservations
+     */
+    private static final int AVAILABILITY_SAMPLES = 200;
+
+    /**
+     * Names of the kinds of operations, in the order of their indexes
+     */
+    private static final String[] OPERATION_NAMES = {"search", "book", "lookup"};
+
+    /**
+     * Index of availability searches
+     */
+    private static final int SEARCH = 0;
+
+    /**
+     * Index of bookings
+     */
+    private static final int BOOK = 1;
+
+    /**
+     * Index of lookups of the reservations of a customer
+     */
+    private static final int LOOKUP = 2;
+
+    /**
+     * The profile of the load
+     */
+    private final LoadProfile profile;
+
+    /**
+     * The HotelResource instance the load is driven against
+     */
+    private final HotelResource hotelResource;
+
+    /**
+     * The AdminResource instance the load is driven against
+     */
+    private final AdminResource adminResource;
+
+    /**
+     * Single rooms, from the most to the least popular
+     */
+    private final List<IRoom> singleRooms;
+
+    /**
+     * Double rooms, from the most to the least popular
+     */
+    private final List<IRoom> doubleRooms;
+
+    /**
+     * Dates that can be picked for check-in or check-out, starting tomorrow
+     */
+    private final LocalDate[] dates;
+
+    /**
+     * Offsets of the check-in dates, from the most to the least popular
+     */
+    private final int[] checkInOffsets;
+
+    /**
+     * Distribution of the popularity of check-in dates
+     */
+    private final ZipfDistribution dateDistribution;
+
+    /**
+     * Constructor for the LoadGenerator class
+     *
+     * @param profile: the profile of the load
+     */
+    public LoadGenerator(LoadProfile profile) {
+        this.profile = profile;
+        this.hotelResource = HotelResource.getInstance();
+        this.adminResource = AdminResource.getInstance();
+        this.singleRooms = new ArrayList<>();
+        this.doubleRooms = new ArrayList<>();
+        LocalDate firstDate = LocalDate.now().plusDays(1);
+        this.dates = new LocalDate[profile.getHorizonDays() + profile.getMaxStay()];
+        for (int i = 0; i < this.dates.length; i++) {
+            this.dates[i] = firstDate.plusDays(i);
+        }
+        List<Integer> offsets = new ArrayList<>(profile.getHorizonDays());
+        for (int i = 0; i < profile.getHorizonDays(); i++) {
+            offsets.add(i);
+        }
+        Collections.shuffle(offsets, new Random(profile.getSeed()));
+        this.checkInOffsets = offsets.stream().mapToInt(Integer::intValue).toArray();
+        this.dateDistribution = new ZipfDistribution(profile.getHorizonDays(), profile.getDateSkew());
+    }
+
+    /**
+     * Populates the hotel, drives the load and checks the reservations
+     *
+     * @return the report of the run
+     * @throws InterruptedException if the thread is interrupted while waiting for the load to finish
+     */
+    public LoadReport run() throws InterruptedException {
+        this.populate();
+        ZipfDistribution singleRoomDistribution = this.singleRooms.isEmpty() ? null
+                : new ZipfDistribution(this.singleRooms.size(), this.profile.getRoomSkew());
+        ZipfDistribution doubleRoomDistribution = this.doubleRooms.isEmpty() ? null
+                : new ZipfDistribution(this.doubleRooms.size(), this.profile.getRoomSkew());
+        int reservationsBefore = this.adminResource.getAllReservations().size();
+
+        long startNanos = System.nanoTime();
+        long measureStartNanos = startNanos + this.profile.getWarmupSeconds() * 1_000_000_000L;
+        long endNanos = measureStartNanos + this.profile.getDurationSeconds() * 1_000_000_000L;
+        Histogram[] latencies = new Histogram[OPERATION_NAMES.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new Histogram();
+        }
+        Client[] clients = new Client[this.profile.getThreads()];
+        Thread[] threads = new Thread[clients.length];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Client(new SplittableRandom(this.profile.getSeed() + i + 1), singleRoomDistribution,
+                    doubleRoomDistribution, latencies, measureStartNanos, endNanos);
+            threads[i] = new Thread(clients[i], "loadgen-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long bookingAttempts = 0;
+        long conflicts = 0;
+        long bookings = 0;
+        long errors = 0;
+        String firstError = null;
+        for (Client client : clients) {
+            bookingAttempts += client.bookingAttempts;
+            conflicts += client.conflicts;
+            bookings += client.bookings;
+            errors += client.errors;
+            if (firstError == null) {
+                firstError = client.firstError;
+            }
+        }
+
+        List<Reservation> reservations = this.adminResource.getAllReservations();
+        Map<String, List<Reservation>> reservationsByRoom = new HashMap<>();
+        long doubleBookings = 0;
+        Reservation previous = null;
+        int latestCheckOutDay = 0;
+        for (Reservation reservation : reservations) {
+            String roomNumber = reservation.getRoom().getRoomNumber();
+            reservationsByRoom.computeIfAbsent(roomNumber, key -> new ArrayList<>()).add(reservation);
+            if (previous == null || !previous.getRoom().getRoomNumber().equals(roomNumber)) {
+                latestCheckOutDay = reservation.getCheckOutDay();
+            } else {
+                if (reservation.getCheckInDay() <= latestCheckOutDay) {
+                    doubleBookings++;
+                }
+                latestCheckOutDay = Math.max(latestCheckOutDay, reservation.getCheckOutDay());
+            }
+            previous = reservation;
+        }
+        long bookingCountMismatch = reservations.size() - reservationsBefore - bookings;
+        int staleAvailabilityAnswers = this.checkAvailability(reservationsByRoom);
+
+        HistogramSnapshot[] latencySnapshots = new HistogramSnapshot[latencies.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencySnapshots[i] = latencies[i].snapshot();
+        }
+        return new LoadReport(this.profile, OPERATION_NAMES, latencySnapshots, bookingAttempts, conflicts, errors,
+                firstError, doubleBookings, bookingCountMismatch, staleAvailabilityAnswers, AVAILABILITY_SAMPLES);
+    }
+
+    /**
+     * Adds the synthetic rooms and customers that do not exist yet, and ranks the rooms by popularity
+     */
+    private void populate() {
+        Random random = new Random(this.profile.getSeed());
+        List<IRoom> newRooms = new ArrayList<>();
+        for (int i = 1; i <= this.profile.getRooms(); i++) {
+            String roomNumber = ROOM_PREFIX + i;
+            boolean doubleRoom = random.nextDouble() < this.profile.getDoubleRoomShare();
+            double price = 50 + random.nextInt(200);
+            IRoom room = this.hotelResource.getRoom(roomNumber);
+            if (room == null) {
+                room = new Room(roomNumber, price, doubleRoom ? RoomType.DOUBLE : RoomType.SINGLE);
+                newRooms.add(room);
+            }
+            (room.getRoomType() == RoomType.DOUBLE ? this.doubleRooms : this.singleRooms).add(room);
+        }
+        this.adminResource.addRoom(newRooms);
+        Collections.shuffle(this.singleRooms, random);
+        Collections.shuffle(this.doubleRooms, random);
+
+        for (int i = 0; i < this.profile.getCustomers(); i++) {
+            this.hotelResource.createACustomer(customerEmail(i), "Guest", "#" + i);
+        }
+    }
+
+    /**
+     * Checks that sampled availability searches match the reservations
+     *
+     * @param reservationsByRoom: the reservations of each room
+     * @return the number of searches whose answer did not match the reservations
+     */
+    private int checkAvailability(Map<String, List<Reservation>> reservationsByRoom) {
+        SplittableRandom random = new SplittableRandom(this.profile.getSeed());
+        List<IRoom> rooms = new ArrayList<>(this.adminResource.getAllRooms());
+        int staleAnswers = 0;
+        for (int sample = 0; sample < AVAILABILITY_SAMPLES; sample++) {
+            int checkInOffset = this.pickCheckInOffset(random);
+            int checkOutOffset = checkInOffset + 1 + random.nextInt(this.profile.getMaxStay());
+            int checkInDay = (int) this.dates[checkInOffset].toEpochDay();
+            int checkOutDay = (int) this.dates[checkOutOffset].toEpochDay();
+            Set<String> expected = new HashSet<>();
+            for (IRoom room : rooms) {
+                boolean available = true;
+                for (Reservation reservation : reservationsByRoom.getOrDefault(room.getRoomNumber(), List.of())) {
+                    if (reservation.getCheckInDay() <= checkOutDay && reservation.getCheckOutDay() >= checkInDay) {
+                        available = false;
+                        break;
+                    }
+                }
+                if (available) {
+                    expected.add(room.getRoomNumber());
+                }
+            }
+            Set<String> answered = new HashSet<>();
+            for (IRoom room : this.hotelResource.findARoom(this.dates[checkInOffset], this.dates[checkOutOffset])) {
+                answered.add(room.getRoomNumber());
+            }
+            if (!answered.equals(expected)) {
+                staleAnswers++;
+            }
+        }
+        return staleAnswers;
+    }
+
+    /**
+     * Picks the offset of a check-in date according to its popularity
+     *
+     * @param random: the source of randomness
+     * @return the offset of the check-in date from tomorrow
+     */
+    private int pickCheckInOffset(SplittableRandom random) {
+        return this.checkInOffsets[this.dateDistribution.sample(random)];
+    }
+
+    /**
+     * Builds the email of a synthetic customer
+     *
+     * @param index: the index of the customer
+     * @return the email
+     */
+    private static String customerEmail(int index) {
+        return "guest" + index + CUSTOMER_DOMAIN;
+    }
+
+    /**
+     * Client thread driving the load, with its own source of randomness and counters
+     */
+    private final class Client implements Runnable {
+
+        /**
+         * The source of randomness of the client
+         */
+        private final SplittableRandom random;
+
+        /**
+         * Distribution of the popularity of single rooms, or null if there is none
+         */
+        private final ZipfDistribution singleRoomDistribution;
+
+        /**
+         * Distribution of the popularity of double rooms, or null if there is none
+         */
+        private final ZipfDistribution doubleRoomDistribution;
+
+        /**
+         * Time from which operations are measured, as given by {@link System#nanoTime()}
+         */
+        private final long measureStartNanos;
+
+        /**
+         * Time at which the client stops, as given by {@link System#nanoTime()}
+         */
+        private final long endNanos;
+
+        /**
+         * Latencies of the measured operations, by kind of operation, shared by all the clients
+         */
+        private final Histogram[] latencies;
+
+        /**
+         * Number of measured booking attempts
+         */
+        private long bookingAttempts;
+
+        /**
+         * Number of measured booking attempts rejected because the room was already reserved
+         */
+        private long conflicts;
+
+        /**
+         * Number of successful bookings, including those made during the warm-up
+         */
+        private long bookings;
+
+        /**
+         * Number of operations that failed with an unexpected exception
+         */
+        private long errors;
+
+        /**
+         * Message of the first unexpected exception, or null if there was none
+         */
+        private String firstError;
+
+        /**
+         * Constructor for the Client class
+         *
+         * @param random: the source of randomness of the client
+         * @param singleRoomDistribution: the distribution of the popularity of single rooms, or null
+         * @param doubleRoomDistribution: the distribution of the popularity of double rooms, or null
+         * @param latencies: the latencies of the measured operations, by kind of operation
+         * @param measureStartNanos: the time from which operations are measured
+         * @param endNanos: the time at which the client stops
+         */
+        private Client(SplittableRandom random, ZipfDistribution singleRoomDistribution,
+                       ZipfDistribution doubleRoomDistribution, Histogram[] latencies, long measureStartNanos,
+                       long endNanos) {
+            this.random = random;
+            this.singleRoomDistribution = singleRoomDistribution;
+            this.doubleRoomDistribution = doubleRoomDistribution;
+            this.measureStartNanos = measureStartNanos;
+            this.endNanos = endNanos;
+            this.latencies = latencies;
+        }
+
+        /**
+         * Runs operations picked according to the mix until the end of the load
+         */
+        @Override
+        public void run() {
+            LoadProfile profile = LoadGenerator.this.profile;
+            int totalWeight = profile.getSearchWeight() + profile.getBookWeight() + profile.getLookupWeight();
+            while (true) {
+                long startNanos = System.nanoTime();
+                if (startNanos >= this.endNanos) {
+                    return;
+                }
+                boolean measured = startNanos >= this.measureStartNanos;
+                int pick = this.random.nextInt(totalWeight);
+                int operation = pick < profile.getSearchWeight() ? SEARCH
+                        : pick < profile.getSearchWeight() + profile.getBookWeight() ? BOOK : LOOKUP;
+                try {
+                    switch (operation) {
+                        case SEARCH -> this.search();
+                        case BOOK -> this.book(measured);
+                        default -> this.lookup();
+                    }
+                } catch (RuntimeException e) {
+                    this.errors++;
+                    if (this.firstError == null) {
+                        this.firstError = e.toString();
+                    }
+                }
+                if (measured) {
+                    this.latencies[operation].record(System.nanoTime() - startNanos);
+                }
+            }
+        }
+
+        /**
+         * Searches the rooms available for a stay
+         */
+        private void search() {
+            int checkInOffset = LoadGenerator.this.pickCheckInOffset(this.random);
+            LoadGenerator.this.hotelResource.findARoom(LoadGenerator.this.dates[checkInOffset],
+                    LoadGenerator.this.dates[checkInOffset + this.pickStay()]);
+        }
+
+        /**
+         * Books a room of the wanted type for a stay
+         *
+         * @param measured: whether the booking is measured
+         */
+        private void book(boolean measured) {
+            IRoom room = this.pickRoom();
+            int checkInOffset = LoadGenerator.this.pickCheckInOffset(this.random);
+            String email = customerEmail(this.random.nextInt(LoadGenerator.this.profile.getCustomers()));
+            if (measured) {
+                this.bookingAttempts++;
+            }
+            try {
+                LoadGenerator.this.hotelResource.bookARoom(email, room, LoadGenerator.this.dates[checkInOffset],
+                        LoadGenerator.this.dates[checkInOffset + this.pickStay()]);
+                this.bookings++;
+            } catch (IllegalArgumentException e) {
+                if (measured) {
+                    this.conflicts++;
+                }
+            }
+        }
+
+        /**
+         * Looks up the reservations of a customer
+         */
+        private void lookup() {
+            String email = customerEmail(this.random.nextInt(LoadGenerator.this.profile.getCustomers()));
+            LoadGenerator.this.adminResource.getCustomerReservations(
+                    LoadGenerator.this.hotelResource.getCustomer(email));
+        }
+
+        /**
+         * Picks the length of a stay
+         *
+         * @return the number of nights
+         */
+        private int pickStay() {
+            return 1 + this.random.nextInt(LoadGenerator.this.profile.getMaxStay());
+        }
+
+        /**
+         * Picks a room of the wanted type according to its popularity, falling back to the other type if
+         * there is no room of the wanted one
+         *
+         * @return the room
+         */
+        private IRoom pickRoom() {
+            boolean wantsDouble = this.random.nextDouble() < LoadGenerator.this.profile.getDoubleDemand();
+            if (wantsDouble ? this.doubleRoomDistribution == null : this.singleRoomDistribution == null) {
+                wantsDouble = !wantsDouble;
+            }
+            return wantsDouble
+                    ? LoadGenerator.this.doubleRooms.get(this.doubleRoomDistribution.sample(this.random))
+                    : LoadGenerator.this.singleRooms.get(this.singleRoomDistribution.sample(this.random));
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package simulation;
+
+import java.util.Map;
+
+/**
+ * Profile of the load generated by {@link LoadGenerator}: the size of the synthesized hotel, the mix of
+ * operations, how skewed the demand is and how long and from how many threads the load is driven.
+ * Options (all optional):
+ * <ul>
+ *     <li>--threads=&lt;n&gt;: number of client threads (defaults to the number of processors)</li>
+ *     <li>--warmup=&lt;seconds&gt;: time the load runs before it is measured (defaults to 5)</li>
+ *     <li>--duration=&lt;seconds&gt;: time the load is measured (defaults to 30)</li>
+ *     <li>--rooms=&lt;n&gt;: number of rooms (defaults to 1000)</li>
+ *     <li>--customers=&lt;n&gt;: number of customers (defaults to 10000)</li>
+ *     <li>--double-rooms=&lt;share&gt;: share of the rooms that are double rooms (defaults to 0.3)</li>
+ *     <li>--mix=&lt;search&gt;:&lt;book&gt;:&lt;lookup&gt;: relative weights of availability searches, bookings and
+ *     lookups of the reservations of a customer (defaults to 80:15:5)</li>
+ *     <li>--horizon=&lt;days&gt;: how far ahead check-in dates are picked (defaults to 365)</li>
+ *     <li>--max-stay=&lt;nights&gt;: longest stay (defaults to 7)</li>
+ *     <li>--date-skew=&lt;exponent&gt;: Zipf exponent of the popularity of check-in dates, 0 for uniform
+ *     (defaults to 1.0)</li>
+ *     <li>--room-skew=&lt;exponent&gt;: Zipf exponent of the popularity of the rooms of a type, 0 for
+ *     uniform (defaults to 0.8)</li>
+ *     <li>--double-demand=&lt;share&gt;: share of the bookings that want a double room (defaults to 0.6)</li>
+ *     <li>--seed=&lt;n&gt;: seed of the random choices, for repeatable runs (defaults to 42)</li>
+ * </ul>
+ *
+ * @author Cláudia Martins
+ */
+public final class LoadProfile {
+
+    /**
+     * Number of client threads
+     */
+    private final int threads;
+
+    /**
+     * Time the load runs before it is measured, in seconds
+     */
+    private final int warmupSeconds;
+
+    /**
+     * Time the load is measured, in seconds
+     */
+    private final int durationSeconds;
+
+    /**
+     * Number of rooms
+     */
+    private final int rooms;
+
+    /**
+     * Number of customers
+     */
+    private final int customers;
+
+    /**
+     * Share of the rooms that are double rooms
+     */
+    private final double doubleRoomShare;
+
+    /**
+     * Relative weight of availability searches
+     */
+    private final int searchWeight;
+
+    /**
+     * Relative weight of bookings
+     */
+    private final int bookWeight;
+
+    /**
+     * Relative weight of lookups of the reservations of a customer
+     */
+    private final int lookupWeight;
+
+    /**
+     * How far ahead check-in dates are picked, in days
+     */
+    private final int horizonDays;
+
+    /**
+     * Longest stay, in nights
+     */
+    private final int maxStay;
+
+    /**
+     * Zipf exponent of the popularity of check-in dates
+     */
+    private final double dateSkew;
+
+    /**
+     * Zipf exponent of the popularity of the rooms of a type
+     */
+    private final double roomSkew;
+
+    /**
+     * Share of the bookings that want a double room
+     */
+    private final double doubleDemand;
+
+    /**
+     * Seed of the random choices
+     */
+    private final long seed;
+
+    /**
+     * Constructor for the LoadProfile class, reading it from command-line options
+     *
+     * @param options: the command-line options by name, without the leading "--"
+     * @throws IllegalArgumentException if an option is not valid
+     */
+    public LoadProfile(Map<String, String> options) {
+        this.threads = parseInt(options, "threads", Runtime.getRuntime().availableProcessors(), 1);
+        this.warmupSeconds = parseInt(options, "warmup", 5, 0);
+        this.durationSeconds = parseInt(options, "duration", 30, 1);
+        this.rooms = parseInt(options, "rooms", 1000, 1);
+        this.customers = parseInt(options, "customers", 10000, 1);
+        this.doubleRoomShare = parseShare(options, "double-rooms", 0.3);
+        String[] mix = options.getOrDefault("mix", "80:15:5").split(":");
+        if (mix.length != 3) {
+            throw new IllegalArgumentException("The mix must be given as <search>:<book>:<lookup>.");
+        }
+        try {
+            this.searchWeight = Integer.parseInt(mix[0]);
+            this.bookWeight = Integer.parseInt(mix[1]);
+            this.lookupWeight = Integer.parseInt(mix[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The weights of the mix must be whole numbers.");
+        }
+        if (this.searchWeight < 0 || this.bookWeight < 0 || this.lookupWeight < 0
+                || this.searchWeight + this.bookWeight + this.lookupWeight == 0) {
+            throw new IllegalArgumentException("The weights of the mix cannot be negative nor all 0.");
+        }
+        this.horizonDays = parseInt(options, "horizon", 365, 1);
+        this.maxStay = parseInt(options, "max-stay", 7, 1);
+        this.dateSkew = parseSkew(options, "date-skew", 1.0);
+        this.roomSkew = parseSkew(options, "room-skew", 0.8);
+        this.doubleDemand = parseShare(options, "double-demand", 0.6);
+        try {
+            this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The seed must be a whole number.");
+        }
+    }
+
+    /**
+     * Retrieves the number of client threads
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Retrieves the time the load runs before it is measured
+     *
+     * @return the warm-up time in seconds
+     */
+    public int getWarmupSeconds() {
+        return this.warmupSeconds;
+    }
+
+    /**
+     * Retrieves the time the load is measured
+     *
+     * @return the measured time in seconds
+     */
+    public int getDurationSeconds() {
+        return this.durationSeconds;
+    }
+
+    /**
+     * Retrieves the number of rooms
+     *
+     * @return the number of rooms
+     */
+    public int getRooms() {
+        return this.rooms;
+    }
+
+    /**
+     * Retrieves the number of customers
+     *
+     * @return the number of customers
+     */
+    public int getCustomers() {
+        return this.customers;
+    }
+
+    /**
+     * Retrieves the share of the rooms that are double rooms
+     *
+     * @return the share, between 0 and 1
+     */
+    public double getDoubleRoomShare() {
+        return this.doubleRoomShare;
+    }
+
+    /**
+     * Retrieves the relative weight of availability searches
+     *
+     * @return the weight
+     */
+    public int getSearchWeight() {
+        return this.searchWeight;
+    }
+
+    /**
+     * Retrieves the relative weight of bookings
+     *
+     * @return the weight
+     */
+    public int getBookWeight() {
+        return this.bookWeight;
+    }
+
+    /**
+     * Retrieves the relative weight of lookups of the reservations of a customer
+     *
+     * @return the weight
+     */
+    public int getLookupWeight() {
+        return this.lookupWeight;
+    }
+
+    /**
+     * Retrieves how far ahead check-in dates are picked
+     *
+     * @return the horizon in days
+     */
+    public int getHorizonDays() {
+        return this.horizonDays;
+    }
+
+    /**
+     * Retrieves the longest stay
+     *
+     * @return the longest stay in nights
+     */
+    public int getMaxStay() {
+        return this.maxStay;
+    }
+
+    /**
+     * Retrieves the Zipf exponent of the popularity of check-in dates
+     *
+     * @return the exponent (0 for uniform)
+     */
+    public double getDateSkew() {
+        return this.dateSkew;
+    }
+
+    /**
+     * Retrieves the Zipf exponent of the popularity of the rooms of a type
+     *
+     * @return the exponent (0 for uniform)
+     */
+    public double getRoomSkew() {
+        return this.roomSkew;
+    }
+
+    /**
+     * Retrieves the share of the bookings that want a double room
+     *
+     * @return the share, between 0 and 1
+     */
+    public double getDoubleDemand() {
+        return this.doubleDemand;
+    }
+
+    /**
+     * Retrieves the seed of the random choices
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Returns a String representation for the profile
+     *
+     * @return the profile in String format
+     */
+    @Override
+    public String toString() {
+        return this.threads + " threads, " + this.warmupSeconds + "s warm-up + " + this.durationSeconds
+                + "s measured, " + this.rooms + " rooms (" + Math.round(this.doubleRoomShare * 100)
+                + "% double), " + this.customers + " customers, mix search:book:lookup " + this.searchWeight
+                + ":" + this.bookWeight + ":" + this.lookupWeight + ", stays of 1-" + this.maxStay
+                + " nights within " + this.horizonDays + " days, date skew " + this.dateSkew + ", room skew "
+                + this.roomSkew + ", " + Math.round(this.doubleDemand * 100) + "% double demand, seed "
+                + this.seed;
+    }
+
+    /**
+     * Parses a whole number option
+     *
+     * @param options: the options by name
+     * @param name: the name of the option
+     * @param defaultValue: the value if the option is not given
+     * @param minimum: the smallest valid value
+     * @return the value of the option
+     * @throws IllegalArgumentException if the option is not a whole number of at least the minimum
+     */
+    private static int parseInt(Map<String, String> options, String name, int defaultValue, int minimum) {
+        if (!options.containsKey(name)) {
+            return defaultValue;
+        }
+        int value;
+        try {
+            value = Integer.parseInt(options.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The " + name + " option must be a whole number.");
+        }
+        if (value < minimum) {
+            throw new IllegalArgumentException("The " + name + " option must be at least " + minimum + ".");
+        }
+        return value;
+    }
+
+    /**
+     * Parses an option that is a share between 0 and 1
+     *
+     * @param options: the options by name
+     * @param name: the name of the option
+     * @param defaultValue: the value if the option is not given
+     * @return the value of the option
+     * @throws IllegalArgumentException if the option is not a number between 0 and 1
+     */
+    private static double parseShare(Map<String, String> options, String name, double defaultValue) {
+        double value = parseDouble(options, name, defaultValue);
+        if (!(value >= 0.0 && value <= 1.0)) {
+            throw new IllegalArgumentException("The " + name + " option must be between 0 and 1.");
+        }
+        return value;
+    }
+
+    /**
+     * Parses an option that is a Zipf exponent
+     *
+     * @param options: the options by name
+     * @param name: the name of the option
+     * @param defaultValue: the value if the option is not given
+     * @return the value of the option
+     * @throws IllegalArgumentException if the option is not a number of at least 0
+     */
+    private static double parseSkew(Map<String, String> options, String name, double defaultValue) {
+        double value = parseDouble(options, name, defaultValue);
+        if (!(value >= 0.0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("The " + name + " option must be 0 or a positive number.");
+        }
+        return value;
+    }
+
+    /**
+     * Parses a number option
+     *
+     * @param options: the options by name
+     * @param name: the name of the option
+     * @param defaultValue: the value if the option is not given
+     * @return the value of the option
+     * @throws IllegalArgumentException if the option is not a number
+     */
+    private static double parseDouble(Map<String, String> options, String name, double defaultValue) {
+        if (!options.containsKey(name)) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(options.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The " + name + " option must be a number.");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package simulation;
+
+import metrics.HistogramSnapshot;
+
+import java.util.Locale;
+
+/**
+ * Report of a load generation run made by {@link LoadGenerator}: the throughput and latency percentiles of
+ * each kind of operation, how many bookings conflicted, and the violations of the booking invariants
+ * found once the load was over.
+ * @see LoadGenerator
+ * @author Cláudia Martins
+ */
+public final class LoadReport {
+
+    /**
+     * Percentiles reported for each kind of operation
+     */
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    /**
+     * The profile of the load
+     */
+    private final LoadProfile profile;
+
+    /**
+     * Names of the kinds of operations
+     */
+    private final String[] operationNames;
+
+    /**
+     * Latencies of the measured operations, by kind of operation
+     */
+    private final HistogramSnapshot[] latencies;
+
+    /**
+     * Number of measured booking attempts
+     */
+    private final long bookingAttempts;
+
+    /**
+     * Number of measured booking attempts rejected because the room was already reserved
+     */
+    private final long conflicts;
+
+    /**
+     * Number of operations that failed with an unexpected exception
+     */
+    private final long errors;
+
+    /**
+     * Message of the first unexpected exception, or null if there was none
+     */
+    private final String firstError;
+
+    /**
+     * Number of reservations overlapping an earlier reservation of the same room
+     */
+    private final long doubleBookings;
+
+    /**
+     * Difference between the number of reservations in the hotel and the number expected from the
+     * successful bookings (negative if bookings were lost)
+     */
+    private final long bookingCountMismatch;
+
+    /**
+     * Number of sampled availability searches whose answer did not match the reservations
+     */
+    private final int staleAvailabilityAnswers;
+
+    /**
+     * Number of sampled availability searches
+     */
+    private final int availabilitySamples;
+
+    /**
+     * Constructor for the LoadReport class
+     * @param profile: the profile of the load
+     * @param operationNames: the names of the kinds of operations
+     * @param latencies: the latencies of the measured operations, by kind of operation
+     * @param bookingAttempts: the number of measured booking attempts
+     * @param conflicts: the number of measured booking attempts rejected because the room was reserved
+     * @param errors: the number of operations that failed with an unexpected exception
+     * @param firstError: the message of the first unexpected exception, or null if there was none
+     * @param doubleBookings: the number of reservations overlapping an earlier one of the same room
+     * @param bookingCountMismatch: the difference between the number of reservations and the expected one
+     * @param staleAvailabilityAnswers: the number of sampled searches that did not match the reservations
+     * @param availabilitySamples: the number of sampled searches
+     */
+    LoadReport(LoadProfile profile, String[] operationNames, HistogramSnapshot[] latencies, long bookingAttempts,
+               long conflicts, long errors, String firstError, long doubleBookings, long bookingCountMismatch,
+               int staleAvailabilityAnswers, int availabilitySamples) {
+        this.profile = profile;
+        this.operationNames = operationNames;
+        this.latencies = latencies;
+        this.bookingAttempts = bookingAttempts;
+        this.conflicts = conflicts;
+        this.errors = errors;
+        this.firstError = firstError;
+        this.doubleBookings = doubleBookings;
+        this.bookingCountMismatch = bookingCountMismatch;
+        this.staleAvailabilityAnswers = staleAvailabilityAnswers;
+        this.availabilitySamples = availabilitySamples;
+    }
+
+    /**
+     * Retrieves the number of measured operations per second
+     * @return the throughput
+     */
+    public double getThroughput() {
+        long operations = 0;
+        for (HistogramSnapshot histogram : this.latencies) {
+            operations += histogram.getCount();
+        }
+        return (double) operations / this.profile.getDurationSeconds();
+    }
+
+    /**
+     * Retrieves the share of the measured booking attempts rejected because the room was already reserved
+     * @return the conflict rate, between 0 and 1
+     */
+    public double getConflictRate() {
+        return this.bookingAttempts == 0 ? 0.0 : (double) this.conflicts / this.bookingAttempts;
+    }
+
+    /**
+     * Retrieves the number of operations that failed with an unexpected exception
+     * @return the number of errors
+     */
+    public long getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * Retrieves the number of reservations overlapping an earlier reservation of the same room
+     * @return the number of double bookings
+     */
+    public long getDoubleBookings() {
+        return this.doubleBookings;
+    }
+
+    /**
+     * Retrieves the difference between the number of reservations in the hotel and the number expected
+     * from the successful bookings
+     * @return the difference, negative if bookings were lost
+     */
+    public long getBookingCountMismatch() {
+        return this.bookingCountMismatch;
+    }
+
+    /**
+     * Retrieves the number of sampled availability searches whose answer did not match the reservations
+     * @return the number of stale answers
+     */
+    public int getStaleAvailabilityAnswers() {
+        return this.staleAvailabilityAnswers;
+    }
+
+    /**
+     * Checks whether the booking invariants held and no operation failed unexpectedly
+     * @return true if no violation nor error was found, false otherwise
+     */
+    public boolean isConsistent() {
+        return this.errors == 0 && this.doubleBookings == 0 && this.bookingCountMismatch == 0
+                && this.staleAvailabilityAnswers == 0;
+    }
+
+    /**
+     * Returns a String representation for the report, with a line per kind of operation
+     * @return the report in String format
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder("--- LOAD GENERATION REPORT ---").append(System.lineSeparator())
+                .append("Profile: ").append(this.profile).append(System.lineSeparator())
+                .append(String.format(Locale.ROOT, "Throughput: %.1f ops/s", this.getThroughput()))
+                .append(System.lineSeparator())
+                .append(String.format(Locale.ROOT, "%-10s %10s %10s %10s %10s %10s %10s %10s %10s",
+                        "operation", "count", "ops/s", "mean", "p50", "p90", "p99", "p99.9", "max (us)"));
+        for (int i = 0; i < this.latencies.length; i++) {
+            HistogramSnapshot histogram = this.latencies[i];
+            report.append(System.lineSeparator())
+                    .append(String.format(Locale.ROOT, "%-10s %10d %10.1f %10.1f", this.operationNames[i],
+                            histogram.getCount(), (double) histogram.getCount() / this.profile.getDurationSeconds(),
+                            histogram.getMean() / 1000.0));
+            for (double percentile : PERCENTILES) {
+                report.append(String.format(Locale.ROOT, " %10.1f", histogram.getPercentile(percentile) / 1000.0));
+            }
+            report.append(String.format(Locale.ROOT, " %10.1f", histogram.getMax() / 1000.0));
+        }
+        report.append(System.lineSeparator())
+                .append(String.format(Locale.ROOT, "Bookings: %d attempts, %d conflicts (%.2f%%)",
+                        this.bookingAttempts, this.conflicts, this.getConflictRate() * 100))
+                .append(System.lineSeparator())
+                .append("Errors: ").append(this.errors)
+                .append(this.firstError == null ? "" : " (first: " + this.firstError + ")")
+                .append(System.lineSeparator())
+                .append("Double bookings: ").append(this.doubleBookings).append(System.lineSeparator())
+                .append("Booking count mismatch: ").append(this.bookingCountMismatch).append(System.lineSeparator())
+                .append("Stale availability answers: ").append(this.staleAvailabilityAnswers).append(" of ")
+                .append(this.availabilitySamples).append(" sampled searches").append(System.lineSeparator())
+                .append(this.isConsistent() ? "All booking invariants held." : "BOOKING INVARIANTS WERE VIOLATED.")
+                .append(System.lineSeparator())
+                .append("--- END LOAD GENERATION REPORT ---");
+        return report.toString();
+    }
+}
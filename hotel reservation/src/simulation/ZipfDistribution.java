@@ -0,0 +1,57 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution over the ranks 0 to size - 1, where the probability of rank k is proportional to
+ * 1 / (k + 1)^exponent.
+ * An exponent of 0 gives a uniform distribution, and the larger the exponent the more the first ranks are
+ * favoured. Samples are taken by a binary search over the precomputed cumulative probabilities.
+ *
+ * @author Cláudia Martins
+ */
+final class ZipfDistribution {
+
+    /**
+     * Cumulative probability of each rank
+     */
+    private final double[] cumulativeProbabilities;
+
+    /**
+     * Constructor for the ZipfDistribution class
+     *
+     * @param size: the number of ranks
+     * @param exponent: the skew of the distribution (0 for uniform)
+     * @throws IllegalArgumentException if the size is not positive or the exponent is negative
+     */
+    ZipfDistribution(int size, double exponent) {
+        if (size < 1) {
+            throw new IllegalArgumentException("A distribution needs at least one rank.");
+        }
+        if (!(exponent >= 0.0)) {
+            throw new IllegalArgumentException("The skew cannot be negative.");
+        }
+        this.cumulativeProbabilities = new double[size];
+        double total = 0.0;
+        for (int rank = 0; rank < size; rank++) {
+            total += 1.0 / Math.pow(rank + 1, exponent);
+            this.cumulativeProbabilities[rank] = total;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            this.cumulativeProbabilities[rank] /= total;
+        }
+        this.cumulativeProbabilities[size - 1] = 1.0;
+    }
+
+    /**
+     * Samples a rank
+     *
+     * @param random: the source of randomness
+     * @return a rank between 0 and size - 1
+     */
+    int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(this.cumulativeProbabilities, random.nextDouble());
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -0,0 +1,228 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streaming reader of CSV and TSV files in the hotel reservation application.
+ * Reads the file through a fixed-size buffer of a {@link ReadableByteChannel}, one record at a time, so
+ * that files of any size are read with bounded memory.
+ * Fields are separated by a delimiter (a comma for CSV, a tab for TSV) and records by line breaks. Fields
+ * can be enclosed in double quotes, in which case they can hold delimiters, line breaks and double quotes
+ * (written as two double quotes). Empty lines are skipped and the file must be encoded in UTF-8.
+ *
+ * @author Cláudia Martins
+ */
+public final class CsvReader implements Closeable {
+
+    /**
+     * Size of the buffer the channel is read into, in bytes
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The channel the records are read from
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * The byte separating the fields of a record
+     */
+    private final byte delimiter;
+
+    /**
+     * Buffer the channel is read into
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Bytes of the field being read
+     */
+    private byte[] field;
+
+    /**
+     * Number of bytes of the field being read
+     */
+    private int fieldLength;
+
+    /**
+     * Number of the line being read (starting at 1)
+     */
+    private long lineNumber;
+
+    /**
+     * Number of the line the last record read started at
+     */
+    private long recordLineNumber;
+
+    /**
+     * Whether the end of the channel has been reached
+     */
+    private boolean endOfInput;
+
+    /**
+     * Constructor for the CsvReader class
+     *
+     * @param channel:   the channel the records are read from
+     * @param delimiter: the character separating the fields of a record (must be an ASCII character)
+     * @throws IllegalArgumentException if the delimiter is not an ASCII character
+     */
+    public CsvReader(ReadableByteChannel channel, char delimiter) {
+        if (delimiter > 0x7F || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+        }
+        this.channel = channel;
+        this.delimiter = (byte) delimiter;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        this.field = new byte[256];
+        this.lineNumber = 1;
+    }
+
+    /**
+     * Opens a file for reading, using a tab as delimiter if its name ends in ".tsv" and a comma otherwise
+     *
+     * @param path: the path of the file
+     * @return the reader of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static CsvReader open(Path path) throws IOException {
+        boolean tabSeparated = path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".tsv");
+        return new CsvReader(FileChannel.open(path, StandardOpenOption.READ), tabSeparated ? '\t' : ',');
+    }
+
+    /**
+     * Reads the next record
+     *
+     * @param fields: the list the fields of the record are stored in (cleared first)
+     * @return true if a record was read, false if the end of the file has been reached
+     * @throws IOException if the channel cannot be read
+     */
+    public boolean readRecord(List<String> fields) throws IOException {
+        fields.clear();
+        boolean quoted = false;
+        boolean quoteClosing = false;
+        boolean fieldStarted = false;
+        this.fieldLength = 0;
+        this.recordLineNumber = this.lineNumber;
+        while (true) {
+            if (!this.buffer.hasRemaining() && !this.fill()) {
+                if (fieldStarted || !fields.isEmpty()) {
+                    fields.add(this.takeField());
+                    return true;
+                }
+                return false;
+            }
+            byte current = this.buffer.get();
+            if (current == '\n') {
+                this.lineNumber++;
+            }
+            if (quoted) {
+                if (quoteClosing) {
+                    quoteClosing = false;
+                    if (current == '"') {
+                        this.append(current);
+                        continue;
+                    }
+                    quoted = false;
+                } else {
+                    if (current == '"') {
+                        quoteClosing = true;
+                    } else {
+                        this.append(current);
+                    }
+                    continue;
+                }
+            }
+            if (current == this.delimiter) {
+                fields.add(this.takeField());
+                fieldStarted = true;
+            } else if (current == '\n') {
+                if (fieldStarted || !fields.isEmpty()) {
+                    fields.add(this.takeField());
+                    return true;
+                }
+                this.recordLineNumber = this.lineNumber;
+            } else if (current == '"' && this.fieldLength == 0) {
+                quoted = true;
+                fieldStarted = true;
+            } else if (current != '\r') {
+                this.append(current);
+                fieldStarted = true;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of the line the last record read started at
+     *
+     * @return the line number (starting at 1)
+     */
+    public long getLineNumber() {
+        return this.recordLineNumber;
+    }
+
+    /**
+     * Closes the channel
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Reads more bytes from the channel into the buffer
+     *
+     * @return true if bytes were read, false if the end of the channel has been reached
+     * @throws IOException if the channel cannot be read
+     */
+    private boolean fill() throws IOException {
+        if (this.endOfInput) {
+            return false;
+        }
+        this.buffer.clear();
+        int read;
+        do {
+            read = this.channel.read(this.buffer);
+        } while (read == 0);
+        this.buffer.flip();
+        if (read < 0) {
+            this.endOfInput = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Appends a byte to the field being read, growing it if needed
+     *
+     * @param current: the byte to be appended
+     */
+    private void append(byte current) {
+        if (this.fieldLength == this.field.length) {
+            this.field = Arrays.copyOf(this.field, this.field.length * 2);
+        }
+        this.field[this.fieldLength++] = current;
+    }
+
+    /**
+     * Decodes the field being read and starts a new one
+     *
+     * @return the decoded field
+     */
+    private String takeField() {
+        String value = new String(this.field, 0, this.fieldLength, StandardCharsets.UTF_8);
+        this.fieldLength = 0;
+        return value;
+    }
+}
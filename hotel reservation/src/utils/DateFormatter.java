@@ -1,17 +1,19 @@
 package utils;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.TimeZone;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Utility class for formatting and parsing dates in the hotel reservation
  * application.
- * Provides methods to format Date objects into strings and parse strings into
- * Date objects
+ * Provides methods to format LocalDate objects into strings and parse strings into
+ * LocalDate objects
  * using the "yyyy/MM/dd" format.
+ * All methods are thread-safe: dates are parsed by hand, without splitting the string,
+ * and formatted with an immutable DateTimeFormatter. The most recently formatted dates
+ * are kept in a small cache, since the same check-in and check-out dates are formatted
+ * over and over when listing reservations.
  * 
  * @author Cláudia Martins
  */
@@ -20,15 +22,23 @@ public class DateFormatter {
     /**
      * The date formatter using the "yyyy/MM/dd" pattern
      */
-    private static final SimpleDateFormat formatter = new SimpleDateFormat("yyyy/MM/dd");
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    /**
+     * Number of entries of the cache of formatted dates (must be a power of two)
+     */
+    private static final int CACHE_SIZE = 1024;
+
     /**
-     * The calendar instance for date manipulations
+     * Maximum number of digits of the year, month and day, so that they always fit in an int
      */
-    private static final Calendar calendar = Calendar.getInstance();
+    private static final int MAX_DIGITS = 9;
+
     /**
-     * The time zone set to Europe/Lisbon
+     * Cache of recently formatted dates, where each epoch day can only be stored in one slot
      */
-    private static final TimeZone timezone = TimeZone.getTimeZone("Europe/Lisbon");
+    private static final AtomicReferenceArray<FormattedDate> formattedDates =
+            new AtomicReferenceArray<>(CACHE_SIZE);
 
     /**
      * Private constructor to prevent instantiation
@@ -37,34 +47,43 @@ public class DateFormatter {
     }
 
     /**
-     * Formats a Date object into a string using the "yyyy/MM/dd" format
+     * Formats a LocalDate object into a string using the "yyyy/MM/dd" format
+     * 
+     * @param date: the LocalDate object to be formatted
+     * @return the formatted date string
+     */
+    public static String formatDate(LocalDate date) {
+        return format(date.toEpochDay());
+    }
+
+    /**
+     * Formats an epoch day into a string using the "yyyy/MM/dd" format
      * 
-     * @param date: the Date object to be formatted
+     * @param epochDay: the number of days since 1970/01/01
      * @return the formatted date string
      */
-    public static String formatDate(Date date) {
-        formatter.setTimeZone(timezone);
-        return formatter.format(date);
+    public static String formatDay(int epochDay) {
+        return format(epochDay);
     }
 
     /**
-     * Parses a date string in the "yyyy/MM/dd" format into a Date object
+     * Parses a date string in the "yyyy/MM/dd" format into a LocalDate object
      * 
      * @param dateString: the date string to be parsed
-     * @return the parsed Date object
+     * @return the parsed LocalDate object
      * @throws IllegalArgumentException if the date string is not in the correct
      *                                  format
      */
-    public static Date getDate(String dateString) throws IllegalArgumentException {
-        calendar.setTimeZone(timezone);
+    public static LocalDate getDate(String dateString) throws IllegalArgumentException {
         try {
-            String[] dateParts = dateString.split("/");
-            if (dateParts.length < 3) {
+            int firstSeparator = dateString.indexOf('/');
+            int secondSeparator = firstSeparator < 0 ? -1 : dateString.indexOf('/', firstSeparator + 1);
+            if (secondSeparator < 0) {
                 throw new IllegalArgumentException("Separator must be \"/\".");
             }
-            int year = Integer.parseInt(dateParts[0]);
-            int month = Integer.parseInt(dateParts[1]);
-            int day = Integer.parseInt(dateParts[2]);
+            int year = parseNumber(dateString, 0, firstSeparator);
+            int month = parseNumber(dateString, firstSeparator + 1, secondSeparator);
+            int day = parseNumber(dateString, secondSeparator + 1, dateString.length());
 
             if (year < 1 || month < 1 || day < 1) {
                 throw new IllegalArgumentException("Year, month and day must " +
@@ -78,15 +97,57 @@ public class DateFormatter {
 
             checkMonthLength(month, day, year);
 
-            Date date = formatter.parse(dateString);
-            calendar.setTime(date);
-            return calendar.getTime();
-        } catch (ParseException | IllegalArgumentException e) {
+            return LocalDate.of(year, month, day);
+        } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Invalid date format. Please input dates in the yyyy/MM/dd format. "
                     + e.getLocalizedMessage());
         }
     }
 
+    /**
+     * Formats an epoch day, going through the cache of recently formatted dates
+     * 
+     * @param epochDay: the number of days since 1970/01/01
+     * @return the formatted date string
+     */
+    private static String format(long epochDay) {
+        int slot = (int) epochDay & (CACHE_SIZE - 1);
+        FormattedDate cached = formattedDates.get(slot);
+        if (cached != null && cached.epochDay() == epochDay) {
+            return cached.text();
+        }
+        String text = formatter.format(LocalDate.ofEpochDay(epochDay));
+        formattedDates.set(slot, new FormattedDate(epochDay, text));
+        return text;
+    }
+
+    /**
+     * Parses the decimal digits between two positions of a string
+     * 
+     * @param text:  the string to be parsed
+     * @param start: the position of the first digit
+     * @param end:   the position after the last digit
+     * @return the parsed number
+     * @throws IllegalArgumentException if the range is empty, too long or has
+     *                                  characters other than digits
+     */
+    private static int parseNumber(String text, int start, int end) {
+        if (start == end || end - start > MAX_DIGITS) {
+            throw new IllegalArgumentException("Year, month and day must have " +
+                    "between 1 and " + MAX_DIGITS + " digits.");
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char digit = text.charAt(i);
+            if (digit < '0' || digit > '9') {
+                throw new IllegalArgumentException("Year, month and day must " +
+                        "only have digits.");
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return value;
+    }
+
     /**
      * Checks if the given day is valid for the specified month and year
      * 
@@ -147,4 +208,13 @@ public class DateFormatter {
         }
         return false;
     }
+
+    /**
+     * A date of the cache of recently formatted dates
+     * 
+     * @param epochDay: the number of days since 1970/01/01
+     * @param text:     the formatted date string
+     */
+    private record FormattedDate(long epochDay, String text) {
+    }
 }
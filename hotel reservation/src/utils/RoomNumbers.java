@@ -0,0 +1,96 @@
+package utils;
+
+import java.util.Comparator;
+
+/**
+ * Utility class for ordering room numbers the way people read them.
+ * Runs of digits are compared by their numeric value and everything else character by character, so
+ * "9" comes before "101", "101" before "1001" and "A2" before "A10". Room numbers that only differ by
+ * leading zeros (e.g. "07" and "7") are told apart by their plain String order, so the ordering is
+ * consistent with equals.
+ * Comparing does not allocate, since it is done for every room of a listing.
+ *
+ * @author Cláudia Martins
+ */
+public class RoomNumbers {
+
+    /**
+     * Comparator of room numbers in natural order
+     */
+    public static final Comparator<String> NATURAL_ORDER = RoomNumbers::compare;
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private RoomNumbers() {
+    }
+
+    /**
+     * Compares two room numbers in natural order
+     *
+     * @param first: the first room number
+     * @param second: the second room number
+     * @return a negative number, zero or a positive number if the first room number comes before, is equal
+     * to or comes after the second one
+     */
+    public static int compare(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            char a = first.charAt(i);
+            char b = second.charAt(j);
+            if (isDigit(a) && isDigit(b)) {
+                // Skip the leading zeros, then the longer run of digits is the larger number
+                int startA = i;
+                int startB = j;
+                while (startA < first.length() - 1 && first.charAt(startA) == '0'
+                        && isDigit(first.charAt(startA + 1))) {
+                    startA++;
+                }
+                while (startB < second.length() - 1 && second.charAt(startB) == '0'
+                        && isDigit(second.charAt(startB + 1))) {
+                    startB++;
+                }
+                int endA = startA;
+                int endB = startB;
+                while (endA < first.length() && isDigit(first.charAt(endA))) {
+                    endA++;
+                }
+                while (endB < second.length() && isDigit(second.charAt(endB))) {
+                    endB++;
+                }
+                if (endA - startA != endB - startB) {
+                    return (endA - startA) - (endB - startB);
+                }
+                for (int k = 0; k < endA - startA; k++) {
+                    int difference = first.charAt(startA + k) - second.charAt(startB + k);
+                    if (difference != 0) {
+                        return difference;
+                    }
+                }
+                i = endA;
+                j = endB;
+            } else {
+                if (a != b) {
+                    return a - b;
+                }
+                i++;
+                j++;
+            }
+        }
+        if (i < first.length() || j < second.length()) {
+            return i < first.length() ? 1 : -1;
+        }
+        return first.compareTo(second);
+    }
+
+    /**
+     * Checks if a character is an ASCII digit
+     *
+     * @param c: the character
+     * @return true if the character is between '0' and '9', false otherwise
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
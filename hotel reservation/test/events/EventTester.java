@@ -0,0 +1,153 @@
+package events;
+
+import model.Customer;
+import model.IRoom;
+import model.Room;
+import model.RoomType;
+import service.CustomerService;
+import service.ReservationService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tester class for EventBus
+ * @see EventBus
+ * @see HotelEvent
+ * @author Cláudia Martins
+ */
+public class EventTester {
+
+    /**
+     * Number of bookings made while the subscribers are listening
+     */
+    private static final int BOOKINGS = 2000;
+
+    /**
+     * Longest a booking may take for it not to have waited for a subscriber
+     */
+    private static final long MAX_BOOKING_MILLIS = 100;
+
+    /**
+     * Number of bookings made one at a time, each delivered alone, more than the buffer of the stalled
+     * subscriber can hold
+     */
+    private static final int SINGLE_EVENT_BATCHES = 2 * Flow.defaultBufferSize();
+
+    /**
+     * Longest the bookings made one at a time may take for none of them to have waited for the stalled
+     * subscriber
+     */
+    private static final long MAX_BATCHES_MILLIS = 10_000;
+
+    /**
+     * Main method to test the EventBus functionalities
+     * @param args: command line arguments
+     * @throws InterruptedException if the thread is interrupted while waiting for the events
+     */
+    public static void main(String[] args) throws InterruptedException {
+        EventBus eventBus = EventBus.getInstance();
+        CustomerService customerService = CustomerService.getInstance();
+        ReservationService reservationService = ReservationService.getInstance();
+        customerService.addCustomer("before@subscribing.org", "Before", "Subscribing");
+
+        int expectedEvents = 2 + BOOKINGS;
+        List<HotelEvent> receivedEvents = new ArrayList<>();
+        AtomicInteger receivedCount = new AtomicInteger();
+        List<Integer> batchSizes = new ArrayList<>();
+        CountDownLatch allReceived = new CountDownLatch(expectedEvents);
+        eventBus.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<HotelEvent> batch) {
+                receivedEvents.addAll(batch);
+                batchSizes.add(batch.size());
+                batch.forEach(event -> allReceived.countDown());
+                receivedCount.addAndGet(batch.size());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                System.out.println("Subscriber failed: " + throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        CountDownLatch slowSubscriberStarted = new CountDownLatch(1);
+        eventBus.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(List<HotelEvent> batch) {
+                slowSubscriberStarted.countDown();
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        customerService.addCustomer("events@tester.org", "Event", "Tester");
+        reservationService.addRoom(new Room("E1", 75.0, RoomType.SINGLE));
+        Customer customer = customerService.getCustomer("events@tester.org");
+        IRoom room = reservationService.getARoom("E1");
+        LocalDate checkIn = LocalDate.of(2030, 1, 1);
+        long slowestBookingNanos = 0;
+        for (int i = 0; i < BOOKINGS; i++) {
+            long startNanos = System.nanoTime();
+            reservationService.reserveARoom(customer, room, checkIn.plusDays(2L * i), checkIn.plusDays(2L * i));
+            slowestBookingNanos = Math.max(slowestBookingNanos, System.nanoTime() - startNanos);
+        }
+
+        boolean received = allReceived.await(30, TimeUnit.SECONDS);
+        System.out.println("Fast subscriber received all " + expectedEvents + " events: " + received
+                + ", in order: " + (receivedEvents.get(0) instanceof HotelEvent.CustomerAdded added
+                && added.customer() == customer && receivedEvents.get(1) instanceof HotelEvent.RoomAdded
+                && receivedEvents.get(expectedEvents - 1) instanceof HotelEvent.RoomReserved reserved
+                && reserved.reservation().getCheckInDate().equals(checkIn.plusDays(2L * (BOOKINGS - 1)))));
+        System.out.println("Events were batched: " + batchSizes.stream().anyMatch(size -> size > 1)
+                + ", slow subscriber got its first batch: " + slowSubscriberStarted.await(30, TimeUnit.SECONDS));
+        System.out.println("No booking waited for the slow subscriber: "
+                + (TimeUnit.NANOSECONDS.toMillis(slowestBookingNanos) < MAX_BOOKING_MILLIS));
+
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.SECONDS.toNanos(30);
+        int expectedCount = receivedCount.get();
+        checkIn = checkIn.plusDays(2L * BOOKINGS);
+        for (int i = 0; i < SINGLE_EVENT_BATCHES && System.nanoTime() < deadlineNanos; i++) {
+            reservationService.reserveARoom(customer, room, checkIn.plusDays(2L * i), checkIn.plusDays(2L * i));
+            expectedCount++;
+            while (receivedCount.get() < expectedCount && System.nanoTime() < deadlineNanos) {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+        System.out.println("Fast subscriber received " + SINGLE_EVENT_BATCHES + " more batches one by one: "
+                + (receivedCount.get() == expectedCount) + ", without waiting for the stalled subscriber: "
+                + (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < MAX_BATCHES_MILLIS)
+                + ", batches dropped for the stalled subscriber: " + (eventBus.getDroppedEventCount() > 0));
+    }
+}
@@ -0,0 +1,83 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Tester class for Histogram, OperationMetrics, MetricsRegistry and MetricsReporter
+ * @see Histogram
+ * @see OperationMetrics
+ * @see MetricsRegistry
+ * @see MetricsReporter
+ * @author Cláudia Martins
+ */
+public class MetricsTester {
+
+    /**
+     * Main method to test the Histogram, OperationMetrics, MetricsRegistry and MetricsReporter functionalities
+     * @param args: command line arguments
+     * @throws InterruptedException if the thread is interrupted while the histogram is filled
+     * @throws IOException if the metrics cannot be written
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int first = i;
+            threads[i] = new Thread(() -> {
+                for (long value = first + 1; value <= 100_000; value += threads.length) {
+                    histogram.record(value * 1000);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        System.out.println("Percentiles of 1..100000 us from 4 threads: count " + snapshot.getCount()
+                + ", p50 " + snapshot.getPercentile(50) / 1000 + ", p99 " + snapshot.getPercentile(99) / 1000
+                + ", max " + snapshot.getMax() / 1000 + ", mean " + Math.round(snapshot.getMean() / 1000));
+
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        OperationMetrics operation = registry.operation("tester", "operation");
+        System.out.println("Same metrics for the same operation: "
+                + (operation == registry.operation("tester", "operation")));
+        for (int i = 0; i < 3; i++) {
+            int call = i;
+            try {
+                operation.time(() -> {
+                    if (call == 0) {
+                        throw new IllegalArgumentException("Failed call");
+                    }
+                });
+            } catch (IllegalArgumentException e) {
+                System.out.println("Failed call rethrown: " + e.getLocalizedMessage());
+            }
+        }
+        System.out.println("Calls: " + operation.getLatencies().getCount() + ", errors: " + operation.getErrors());
+        registry.gauge("tester_value", "Value of the tester.", () -> 42);
+
+        for (String line : registry.toPrometheus().split("\n")) {
+            if (line.contains("tester") && !line.contains("quantile") && !line.contains("_sum")) {
+                System.out.println(line);
+            }
+        }
+
+        Path file = Files.createTempFile("metrics", ".txt");
+        MetricsReporter reporter = new MetricsReporter(file, Duration.ofMinutes(1));
+        reporter.stop();
+        String dump = Files.readString(file);
+        System.out.println("Dump written: " + (dump.contains("tester.operation") && dump.contains("tester_value")
+                && dump.contains("--- END METRICS ---")));
+        Files.delete(file);
+
+        try {
+            new MetricsReporter(file, Duration.ZERO);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+    }
+}
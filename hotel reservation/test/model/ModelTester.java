@@ -2,7 +2,7 @@ package model;
 
 import utils.DateFormatter;
 
-import java.util.Date;
+import java.time.LocalDate;
 
 /**
  * Class to test the classes present in the model package
@@ -44,7 +44,7 @@ public class ModelTester {
         }
 
         try {
-            Reservation reservationJane = new Reservation(customerJane, freeRoom, new Date(),
+            Reservation reservationJane = new Reservation(customerJane, freeRoom, LocalDate.now(),
                     DateFormatter.getDate("2026/01/01"));
             System.out.println(reservationJane);
         } catch (IllegalArgumentException e) {
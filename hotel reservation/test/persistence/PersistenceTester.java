@@ -0,0 +1,154 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tester class for WriteAheadLog and Snapshot
+ * @see WriteAheadLog
+ * @see Snapshot
+ * @author Cláudia Martins
+ */
+public class PersistenceTester {
+
+    /**
+     * Main method to test the WriteAheadLog and Snapshot functionalities
+     * @param args: command line arguments
+     * @throws IOException if the temporary log file cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        Path logFile = Files.createTempDirectory("hotel-wal").resolve("hotel.wal");
+
+        for (DurabilityLevel durability : DurabilityLevel.values()) {
+            testWriteAheadLog(logFile, durability);
+        }
+
+        System.out.println("Replaying after a torn write:");
+        Path segmentFile = WriteAheadLog.segmentPath(logFile, 0);
+        Files.write(segmentFile, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+        long validPosition = WriteAheadLog.replay(logFile, 0, System.out::println);
+        System.out.println("Valid position: " + validPosition + " of " + Files.size(segmentFile) + " bytes");
+        WriteAheadLog.open(logFile, validPosition, DurabilityLevel.NONE,
+                WriteAheadLog.DEFAULT_FLUSH_INTERVAL_MILLIS).close();
+        System.out.println("Size after reopening: " + Files.size(segmentFile) + " bytes");
+
+        testSegments(logFile);
+        testSnapshot(logFile.resolveSibling("hotel.snapshot"));
+    }
+
+    /**
+     * Starts a new segment at a checkpoint, deletes the segment it covers and replays the rest of the log
+     * @param logFile: the log to be used
+     * @throws IOException if the log cannot be used
+     */
+    private static void testSegments(Path logFile) throws IOException {
+        System.out.println("--- SEGMENTS");
+        Files.delete(WriteAheadLog.segmentPath(logFile, 0));
+        long checkpoint;
+        try (WriteAheadLog log = WriteAheadLog.open(logFile, 0, DurabilityLevel.NONE,
+                WriteAheadLog.DEFAULT_FLUSH_INTERVAL_MILLIS)) {
+            log.append(new LogRecord.CustomerAdded("jane@smith.org", "Jane", "Smith"));
+            log.append(new LogRecord.RoomAdded("101", 50.0, "SINGLE", false));
+            checkpoint = log.checkpoint();
+            List<String> segments = segmentNames(logFile);
+            System.out.println("Segments after the checkpoint: " + segments + ", none started by another one: "
+                    + (log.checkpoint() == checkpoint && segmentNames(logFile).equals(segments)));
+            log.append(new LogRecord.RoomReserved("jane@smith.org", "101", 20394, 20397));
+            System.out.println("Segments deleted: " + log.deleteSegmentsBefore(checkpoint) + ", left: "
+                    + segmentNames(logFile));
+        }
+        System.out.println("Replaying from the checkpoint at " + checkpoint + ":");
+        System.out.println("Valid position: " + WriteAheadLog.replay(logFile, checkpoint, System.out::println));
+        try {
+            WriteAheadLog.replay(logFile, 0, System.out::println);
+        } catch (IOException e) {
+            System.out.println("Replaying from the start: " + e.getLocalizedMessage()
+                    .replace(logFile.toString(), logFile.getFileName().toString()));
+        }
+    }
+
+    /**
+     * Lists the names of the segment files of a log
+     * @param logFile: the log
+     * @return the names of the segment files, sorted
+     * @throws IOException if the directory of the log cannot be listed
+     */
+    private static List<String> segmentNames(Path logFile) throws IOException {
+        try (Stream<Path> files = Files.list(logFile.getParent())) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(logFile.getFileName() + ".")).sorted().toList();
+        }
+    }
+
+    /**
+     * Writes a snapshot and loads it back
+     * @param snapshotFile: the snapshot file to be used
+     * @throws IOException if the snapshot file cannot be used
+     */
+    private static void testSnapshot(Path snapshotFile) throws IOException {
+        System.out.println("--- SNAPSHOT");
+        List<LogRecord.CustomerAdded> customers = new ArrayList<>(
+                List.of(new LogRecord.CustomerAdded("jane@smith.org", "Jane", "Smith")));
+        Iterator<LogRecord.RoomReserved> reservations = List.of(
+                new LogRecord.RoomReserved("jane@smith.org", "101", 20394, 20397),
+                new LogRecord.RoomReserved("jdoe@something.com", "001", 20394, 20397)).iterator();
+        Snapshot.write(snapshotFile, 115, new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return reservations.hasNext();
+                    }
+
+                    @Override
+                    public LogRecord.RoomReserved next() {
+                        LogRecord.RoomReserved reservation = reservations.next();
+                        if (reservation.customerEmail().equals("jdoe@something.com")) {
+                            customers.add(new LogRecord.CustomerAdded("jdoe@something.com", "John", "Doe"));
+                        }
+                        return reservation;
+                    }
+                },
+                () -> customers,
+                () -> List.of(new LogRecord.RoomAdded("101", 50.0, "SINGLE", false),
+                        new LogRecord.RoomAdded("102", 80.0, "DOUBLE", false),
+                        new LogRecord.RoomAdded("001", 0.0, "DOUBLE", true)));
+        long logPosition = Snapshot.load(snapshotFile, System.out::println);
+        System.out.println("Log position: " + logPosition);
+        try {
+            Snapshot.write(snapshotFile, 115,
+                    List.of(new LogRecord.RoomReserved("unknown@something.com", "101", 20394, 20397)).iterator(),
+                    () -> customers, () -> List.of(new LogRecord.RoomAdded("101", 50.0, "SINGLE", false)));
+        } catch (IOException e) {
+            System.out.println(e.getLocalizedMessage() + " Snapshot kept: "
+                    + (Snapshot.load(snapshotFile, record -> { }) == logPosition));
+        }
+    }
+
+    /**
+     * Appends records to a log with the given durability level and replays them
+     * @param logFile: the log file to be used
+     * @param durability: the durability level to be tested
+     * @throws IOException if the log file cannot be used
+     */
+    private static void testWriteAheadLog(Path logFile, DurabilityLevel durability) throws IOException {
+        System.out.println("--- " + durability);
+        Files.deleteIfExists(WriteAheadLog.segmentPath(logFile, 0));
+        try (WriteAheadLog log = WriteAheadLog.open(logFile, 0, durability,
+                WriteAheadLog.DEFAULT_FLUSH_INTERVAL_MILLIS)) {
+            log.append(new LogRecord.CustomerAdded("jane@smith.org", "Jane", "Smith"));
+            log.append(new LogRecord.RoomAdded("101", 50.0, "SINGLE", false));
+            log.append(new LogRecord.RoomReserved("jane@smith.org", "101", 20394, 20397));
+            log.append(new LogRecord.ReservationModified(
+                    new LogRecord.ReservationCancelled("jane@smith.org", "101", 20394, 20397),
+                    new LogRecord.RoomReserved("jane@smith.org", "101", 20394, 20399)));
+            long position = log.append(new LogRecord.ReservationCancelled("jane@smith.org", "101", 20394, 20399));
+            log.commit(position);
+        }
+        WriteAheadLog.replay(logFile, 0, System.out::println);
+    }
+}
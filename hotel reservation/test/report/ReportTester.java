@@ -0,0 +1,69 @@
+package report;
+
+import model.Customer;
+import model.IRoom;
+import model.Reservation;
+import model.Room;
+import model.RoomType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Tester class for Listing and ReportWriter
+ * @see Listing
+ * @see ReportWriter
+ * @author Cláudia Martins
+ */
+public class ReportTester {
+
+    /**
+     * Main method to test the Listing and ReportWriter functionalities
+     * @param args: command line arguments
+     * @throws IOException if the temporary report file cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        Customer customer = new Customer("Jane", "Smith", "jane@smith.org");
+        IRoom single = new Room("101", 50.0, RoomType.SINGLE);
+        IRoom twin = new Room("102", 75.0, RoomType.DOUBLE);
+        List<Reservation> reservations = List.of(new Reservation(customer, single, 20_000, 20_002),
+                new Reservation(customer, single, 20_010, 20_012), new Reservation(customer, twin, 20_000, 20_001));
+
+        try (ReportWriter console = ReportWriter.toConsole()) {
+            Listing<Reservation> listing = Listing.reservations(reservations.stream());
+            listing.writeHeader(console);
+            while (listing.hasNext()) {
+                int count = listing.writePage(console, 2);
+                console.flush();
+                System.out.println("(page of " + count + " records)");
+            }
+            listing.writeFooter(console);
+            Listing.customers(Stream.of(customer)).writeAll(console);
+            Listing.rooms(Stream.empty()).writeAll(console);
+            console.flush();
+
+            try {
+                Listing.rooms(Stream.of(single)).writePage(console, 0);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getLocalizedMessage());
+            }
+        }
+
+        Path file = Files.createTempFile("reservations", ".txt");
+        List<Reservation> manyReservations = IntStream.range(0, 100_000)
+                .mapToObj(i -> new Reservation(customer, i % 2 == 0 ? single : twin, 20_000 + i, 20_001 + i))
+                .toList();
+        long written;
+        try (ReportWriter writer = ReportWriter.toFile(file)) {
+            written = Listing.reservations(manyReservations.stream()).writeAll(writer);
+        }
+        List<String> lines = Files.readAllLines(file);
+        System.out.println("Written to a file: " + written + " records, " + lines.size() + " lines, last record "
+                + "matches toString: " + lines.get(lines.size() - 3).equals(manyReservations.get(99_999).toString()));
+        Files.delete(file);
+    }
+}
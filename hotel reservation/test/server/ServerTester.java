@@ -0,0 +1,129 @@
+package server;
+
+import api.AdminResource;
+import model.Room;
+import model.RoomType;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tester class for HotelServer
+ * @see HotelServer
+ * @author Cláudia Martins
+ */
+public class ServerTester {
+
+    /**
+     * Main method to test the HotelServer functionalities, sending requests to a server on a free port
+     * @param args: command line arguments
+     * @throws Exception if the server cannot be started or a request cannot be sent
+     */
+    public static void main(String[] args) throws Exception {
+        AdminResource.getInstance().addRoom(List.of(new Room("101", 50.0, RoomType.SINGLE),
+                new Room("102", 75.0, RoomType.DOUBLE)));
+        HotelServer server = new HotelServer(new InetSocketAddress("localhost", 0));
+        server.start();
+        try {
+            String baseUri = "http://localhost:" + server.getAddress().getPort();
+            HttpClient client = HttpClient.newHttpClient();
+
+            send(client, "POST", baseUri + "/customers",
+                    "{\"email\": \"jane@smith.org\", \"firstName\": \"Jane\", \"lastName\": \"Smith\"}");
+            send(client, "POST", baseUri + "/customers",
+                    "{\"email\": \"jane@smith.org\", \"firstName\": \"Jane\", \"lastName\": \"Smith\"}");
+            send(client, "POST", baseUri + "/customers", "{\"email\": \"not-an-email\", \"firstName\": \"Bob\","
+                    + " \"lastName\": \"Brown\"}");
+            send(client, "POST", baseUri + "/customers", "{\"email\": \"bob@email.com\"");
+            send(client, "GET", baseUri + "/customers/jane@smith.org", null);
+            send(client, "GET", baseUri + "/customers/bob@email.com", null);
+
+            send(client, "GET", baseUri + "/rooms?checkIn=2025/12/01&checkOut=2025/12/03", null);
+            send(client, "GET", baseUri + "/rooms?checkIn=2025/12/01", null);
+            send(client, "GET", baseUri + "/rooms/102", null);
+            send(client, "GET", baseUri + "/rooms?type=double&maxPrice=100", null);
+            send(client, "GET", baseUri + "/rooms?minPrice=abc", null);
+            send(client, "POST", baseUri + "/reservations", "{\"email\": \"jane@smith.org\", \"roomNumber\": "
+                    + "\"101\", \"checkIn\": \"2025/12/01\", \"checkOut\": \"2025/12/03\"}");
+            send(client, "POST", baseUri + "/reservations", "{\"email\": \"jane@smith.org\", \"roomNumber\": "
+                    + "\"999\", \"checkIn\": \"2025/12/01\", \"checkOut\": \"2025/12/03\"}");
+            send(client, "GET", baseUri + "/customers/jane@smith.org/reservations", null);
+            send(client, "POST", baseUri + "/reservations/modifications", "{\"email\": \"jane@smith.org\", "
+                    + "\"roomNumber\": \"101\", \"checkIn\": \"2025/12/01\", \"checkOut\": \"2025/12/03\", "
+                    + "\"newRoomNumber\": \"102\", \"newCheckIn\": \"2025/12/20\", \"newCheckOut\": \"2025/12/22\"}");
+            send(client, "POST", baseUri + "/reservations/cancellations", "{\"email\": \"jane@smith.org\", "
+                    + "\"roomNumber\": \"102\", \"checkIn\": \"2025/12/20\", \"checkOut\": \"2025/12/22\"}");
+            send(client, "POST", baseUri + "/reservations/cancellations", "{\"email\": \"jane@smith.org\", "
+                    + "\"roomNumber\": \"102\", \"checkIn\": \"2025/12/20\", \"checkOut\": \"2025/12/22\"}");
+
+            System.out.println("Concurrent bookings of room 102 for the same dates:");
+            ExecutorService clients = Executors.newFixedThreadPool(8);
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                statuses.add(clients.submit(() -> client.send(request("POST", baseUri + "/reservations",
+                                "{\"email\": \"jane@smith.org\", \"roomNumber\": \"102\", "
+                                        + "\"checkIn\": \"2025/12/10\", \"checkOut\": \"2025/12/12\"}"),
+                        HttpResponse.BodyHandlers.discarding()).statusCode()));
+            }
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> status : statuses) {
+                results.add(status.get());
+            }
+            clients.shutdown();
+            System.out.println(results.stream().sorted().toList());
+
+            send(client, "GET", baseUri + "/admin/reservations", null);
+            send(client, "GET", baseUri + "/admin/rooms", null);
+            send(client, "GET", baseUri + "/admin/customers?prefix=SMI&limit=5", null);
+            send(client, "GET", baseUri + "/admin/customers?prefix=jane&limit=x", null);
+            send(client, "DELETE", baseUri + "/admin/rooms", null);
+
+            HttpResponse<String> metrics = client.send(request("GET", baseUri + "/metrics", null),
+                    HttpResponse.BodyHandlers.ofString());
+            System.out.println("GET /metrics -> " + metrics.statusCode() + " "
+                    + metrics.headers().firstValue("Content-Type").orElse("") + ", bookARoom conflicts counted: "
+                    + metrics.body().contains("operation=\"bookARoom\",exception="));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Sends a request and prints its response
+     * @param client: the HTTP client
+     * @param method: the HTTP method
+     * @param uri: the URI of the request
+     * @param body: the JSON body, or null for none
+     * @throws IOException if the request cannot be sent
+     * @throws InterruptedException if the thread is interrupted while waiting for the response
+     */
+    private static void send(HttpClient client, String method, String uri, String body)
+            throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request(method, uri, body), HttpResponse.BodyHandlers.ofString());
+        System.out.println(method + " " + URI.create(uri).getRawPath() + " -> " + response.statusCode() + " "
+                + response.body());
+    }
+
+    /**
+     * Builds a request
+     * @param method: the HTTP method
+     * @param uri: the URI of the request
+     * @param body: the JSON body, or null for none
+     * @return the request
+     */
+    private static HttpRequest request(String method, String uri, String body) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -1,9 +1,37 @@
 package service;
 
+import model.BookingRequest;
 import model.Customer;
+import model.FreeRoom;
+import model.IRoom;
+import model.Reservation;
 import model.Room;
+import model.RoomSearch;
 import model.RoomType;
+import persistence.DurabilityLevel;
+import persistence.LogRecord;
+import persistence.Snapshot;
+import persistence.WriteAheadLog;
 import utils.DateFormatter;
+import utils.RoomNumbers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * Tester class for CustomerService and ReservationService
@@ -23,6 +51,20 @@ public class ServiceTester {
 
         ReservationService rs = ReservationService.getInstance();
         testReservationService(rs);
+        testRoomSchedule();
+        testBatchReservation(rs);
+        testImport(ImportService.getInstance());
+        testSearch(rs);
+        testEarliestCheckIn(rs);
+        testOccupancy(rs);
+        testRoomCatalog();
+        testArchive(rs, cs);
+        testIds(rs, cs);
+        testCancellation(rs, cs);
+        testAvailabilityIndex(rs, cs);
+        testConcurrentBookings(rs, cs);
+        testShards(cs);
+        testRestore(rs);
     }
 
     /**
@@ -37,6 +79,20 @@ public class ServiceTester {
 
         cs.addCustomer("jdoe@something.com", "John", "Doe");
         System.out.println(cs.getAllCustomers());
+
+        cs.addCustomer("claudia@martins.pt", "Cláudia", "Martins");
+        cs.addCustomer("jsmithson@email.com", "Jack", "Smithson");
+        for (String prefix : List.of("smi", "SMITH J", "j", "claud", "jane@", "x", " ")) {
+            System.out.println("Customers starting with \"" + prefix + "\": " + cs.findCustomers(prefix, 10).stream()
+                    .map(Customer::getEmail).toList());
+        }
+        System.out.println("First customer starting with \"j\": "
+                + cs.findCustomers("j", 1).stream().map(Customer::getEmail).toList());
+        try {
+            cs.findCustomers("j", 0);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
     }
 
     /**
@@ -107,10 +163,711 @@ public class ServiceTester {
             System.out.println(e.getLocalizedMessage());
         }
 
-        rs.printAllReservation();
+        rs.streamAllReservationsSorted().forEach(System.out::println);
 
         rs.reserveARoom(customerJohn, singleRoom, DateFormatter.getDate("2025/11/25"),
                 DateFormatter.getDate("2025/11/27"));
         System.out.println(rs.getCustomersReservation(customerJohn));
     }
+
+    /**
+     * Tests the conflict checks of RoomSchedule at the boundaries of the stays: the ranges are inclusive on
+     * both ends, so a stay that checks in on the day another one checks out (or the other way round) is a
+     * conflict, while one that checks in the day after is not
+     */
+    private static void testRoomSchedule() {
+        Customer customer = new Customer("Jane", "Smith", "jane@smith.org");
+        IRoom room = new Room("S1", 50.0, RoomType.SINGLE);
+        RoomSchedule roomSchedule = new RoomSchedule("S1");
+        Reservation first = new Reservation(customer, room, 100, 103);
+        Reservation second = new Reservation(customer, room, 110, 112);
+        roomSchedule.add(first);
+        roomSchedule.add(second);
+
+        System.out.println("Check-in on a check-out day conflicts: " + (roomSchedule.findConflict(103, 105) == first)
+                + ", check-out on a check-in day conflicts: " + (roomSchedule.findConflict(107, 110) == second)
+                + ", day after a check-out is free: " + (roomSchedule.findConflict(104, 109) == null)
+                + ", range around a stay conflicts: " + (roomSchedule.findConflict(95, 115) == second)
+                + ", single day inside a stay conflicts: " + (roomSchedule.findConflict(101, 101) == first));
+        System.out.println("Stay ignored when moved over its own dates: "
+                + (roomSchedule.findConflict(108, 113, second) == null)
+                + ", earlier stay still conflicts: " + (roomSchedule.findConflict(103, 111, second) == first)
+                + ", later stay still conflicts: " + (roomSchedule.findConflict(101, 110, first) == second)
+                + ", ignoring a stay of another room changes nothing: "
+                + (roomSchedule.findConflict(103, 105, new Reservation(customer, room, 103, 105)) == first));
+        System.out.println("Removed stay: " + roomSchedule.remove(first) + ", still in the schedule: "
+                + roomSchedule.contains(first) + ", its days are free: " + (roomSchedule.findConflict(100, 103) == null)
+                + ", removed twice: " + roomSchedule.remove(first));
+    }
+
+    /**
+     * Tests the batch reservation functionalities of ReservationService
+     * @param rs: the ReservationService instance to test
+     */
+    private static void testBatchReservation(ReservationService rs) {
+        Customer customerJane = new Customer("Jane", "Smith", "jane@smith.org");
+        Customer customerJohn = new Customer("John", "Doe", "jdoe@something.com");
+        try {
+            rs.reserveRooms(List.of(
+                    new BookingRequest(customerJane, rs.getARoom("102"), DateFormatter.getDate("2025/12/10"),
+                            DateFormatter.getDate("2025/12/12")),
+                    new BookingRequest(customerJohn, rs.getARoom("101"), DateFormatter.getDate("2025/11/26"),
+                            DateFormatter.getDate("2025/11/28")),
+                    new BookingRequest(customerJohn, rs.getARoom("102"), DateFormatter.getDate("2025/12/12"),
+                            DateFormatter.getDate("2025/12/14")),
+                    new BookingRequest(customerJohn, rs.getARoom("999"), DateFormatter.getDate("2025/12/12"),
+                            DateFormatter.getDate("2025/12/14"))));
+        } catch (BookingConflictException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        System.out.println(rs.getAvailableRooms(DateFormatter.getDate("2025/12/10"),
+                DateFormatter.getDate("2025/12/12")));
+
+        System.out.println(rs.reserveRooms(List.of(
+                new BookingRequest(customerJane, rs.getARoom("102"), DateFormatter.getDate("2025/12/10"),
+                        DateFormatter.getDate("2025/12/12")),
+                new BookingRequest(customerJohn, rs.getARoom("103"), DateFormatter.getDate("2025/12/10"),
+                        DateFormatter.getDate("2025/12/12")))));
+        System.out.println(rs.getAvailableRooms(DateFormatter.getDate("2025/12/10"),
+                DateFormatter.getDate("2025/12/12")));
+    }
+
+    /**
+     * Tests the ImportService functionalities, importing files with valid and invalid rows
+     * @param is: the ImportService instance to test
+     */
+    private static void testImport(ImportService is) {
+        try {
+            Path rooms = Files.createTempFile("rooms", ".csv");
+            Files.writeString(rooms, "room_number,price,room_type\n301,80.5,DOUBLE\n302,0,single\n"
+                    + "101,50,SINGLE\n303,-1,SINGLE\n304,abc,SINGLE\n305,60\n\"306\",\"65\",\"DOUBLE\"\n");
+            System.out.println(is.importRooms(rooms));
+
+            Path customers = Files.createTempFile("customers", ".tsv");
+            Files.writeString(customers, "alice@email.com\tAlice\tAnderson\njdoe@something.com\tJohn\tDoe\n"
+                    + "not-an-email\tBob\tBrown\n");
+            System.out.println(is.importCustomers(customers));
+
+            Path reservations = Files.createTempFile("reservations", ".csv");
+            Files.writeString(reservations, "email,room_number,check_in,check_out\r\n"
+                    + "alice@email.com,301,2025/12/01,2025/12/03\r\n"
+                    + "alice@email.com,301,2025/12/02,2025/12/04\r\n"
+                    + "alice@email.com,306,2025/12/05,2025/12/01\r\n"
+                    + "bob@email.com,306,2025/12/01,2025/12/03\r\n"
+                    + "jdoe@something.com,999,2025/12/01,2025/12/03\r\n"
+                    + "jdoe@something.com,306,2025/13/01,2025/12/03\r\n"
+                    + "jdoe@something.com,306,2025/12/01,2025/12/03\r\n");
+            System.out.println(is.importReservations(reservations));
+            System.out.println(ReservationService.getInstance().getAvailableRooms(
+                    DateFormatter.getDate("2025/12/01"), DateFormatter.getDate("2025/12/03")));
+
+            Files.delete(rooms);
+            Files.delete(customers);
+            Files.delete(reservations);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Tests the search for rooms by type, price and whether they are free
+     * @param rs: the ReservationService instance to test
+     */
+    private static void testSearch(ReservationService rs) {
+        List<RoomSearch> searches = List.of(
+                new RoomSearch(null, null, RoomType.DOUBLE, null, null, false, 10),
+                new RoomSearch(null, null, null, null, 60.0, false, 10),
+                new RoomSearch(null, null, null, 60.0, 80.5, false, 10),
+                new RoomSearch(null, null, RoomType.SINGLE, null, null, true, 10),
+                new RoomSearch(null, null, null, null, null, true, 10),
+                new RoomSearch(null, null, null, 10.0, null, true, 10),
+                new RoomSearch(DateFormatter.getDate("2025/12/01"), DateFormatter.getDate("2025/12/03"),
+                        RoomType.DOUBLE, null, null, false, 10),
+                new RoomSearch(null, null, null, null, null, false, 2));
+        for (RoomSearch search : searches) {
+            System.out.println(search + " -> " + rs.searchRooms(search).stream().map(IRoom::getRoomNumber).toList());
+        }
+
+        try {
+            new RoomSearch(null, null, null, 100.0, 50.0, false, 10);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        try {
+            new RoomSearch(DateFormatter.getDate("2025/12/01"), null, null, null, null, false, 10);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Tests the search for the earliest check-in at which a stay is available
+     * @param rs: the ReservationService instance to test
+     */
+    private static void testEarliestCheckIn(ReservationService rs) {
+        Customer customer = new Customer("Gap", "Finder", "gap@finder.com");
+        Room room = new Room("G1", 40.0, RoomType.SINGLE);
+        RoomSchedule schedule = new RoomSchedule(room.getRoomNumber());
+        schedule.add(new Reservation(customer, room, 100, 102));
+        schedule.add(new Reservation(customer, room, 105, 106));
+        schedule.add(new Reservation(customer, room, 110, 120));
+        System.out.println("Earliest windows from day 100: 0 nights " + schedule.findEarliestWindow(100, 0, 1000)
+                + ", 1 night " + schedule.findEarliestWindow(100, 1, 1000)
+                + ", 2 nights " + schedule.findEarliestWindow(100, 2, 1000)
+                + ", 3 nights " + schedule.findEarliestWindow(100, 3, 1000)
+                + ", 3 nights up to day 110 " + (schedule.findEarliestWindow(100, 3, 110) == RoomSchedule.NO_WINDOW));
+        System.out.println("Earliest windows from day 95: 4 nights " + schedule.findEarliestWindow(95, 4, 1000)
+                + ", 5 nights " + schedule.findEarliestWindow(95, 5, 1000));
+
+        LocalDate checkIn = DateFormatter.getDate("2025/12/01");
+        System.out.println("Earliest double room for 2 nights from 2025/12/01: "
+                + rs.findEarliestCheckIn(checkIn, 2, RoomType.DOUBLE));
+        try {
+            rs.findEarliestCheckIn(checkIn, -1, null);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Tests the occupancy per night, comparing the index with a count over all the reservations
+     * @param rs: the ReservationService instance to test
+     */
+    private static void testOccupancy(ReservationService rs) {
+        Customer customer = new Customer("Night", "Counter", "night@counter.com");
+        Room single = new Room("O1", 40.0, RoomType.SINGLE);
+        Room doubleRoom = new Room("O2", 70.0, RoomType.DOUBLE);
+        OccupancyIndex index = new OccupancyIndex();
+        int[][] counts = new int[RoomType.values().length][20_000];
+        Random random = new Random(18);
+        for (int i = 0; i < 2_000; i++) {
+            // Spread over 20000 days so the window of the trees has to grow on both sides
+            int checkIn = 10_000 + (i % 2 == 0 ? 1 : -1) * random.nextInt(9_900);
+            int checkOut = checkIn + 1 + random.nextInt(30);
+            Room room = random.nextBoolean() ? single : doubleRoom;
+            index.addReservation(new Reservation(customer, room, checkIn, checkOut));
+            for (int night = checkIn; night < checkOut; night++) {
+                counts[room.getRoomType().ordinal()][night]++;
+            }
+        }
+        int mismatches = 0;
+        for (int query = 0; query < 500; query++) {
+            int first = random.nextInt(20_000);
+            int last = Math.min(19_999, first + random.nextInt(400));
+            RoomType roomType = query % 3 == 2 ? null : RoomType.values()[query % 3];
+            long roomNights = 0;
+            int peak = -1;
+            int peakNight = first;
+            for (int night = first; night <= last; night++) {
+                int occupancy = roomType == null ? counts[0][night] + counts[1][night]
+                        : counts[roomType.ordinal()][night];
+                roomNights += occupancy;
+                if (occupancy > peak) {
+                    peak = occupancy;
+                    peakNight = night;
+                }
+                if (index.getOccupancy(night, roomType) != occupancy) {
+                    mismatches++;
+                }
+            }
+            if (index.getRoomNights(first, last, roomType) != roomNights
+                    || index.getPeakNight(first, last, roomType) != peakNight) {
+                mismatches++;
+            }
+        }
+        System.out.println("Occupancy index mismatches: " + mismatches);
+
+        LocalDate firstNight = DateFormatter.getDate("2025/12/01");
+        System.out.println(rs.getOccupancyReport(firstNight, firstNight.plusDays(3), null));
+        System.out.println("Double rooms booked on 2025/12/10: "
+                + rs.getOccupancy(DateFormatter.getDate("2025/12/10"), RoomType.DOUBLE));
+        try {
+            rs.getOccupancyReport(firstNight, firstNight.minusDays(1), null);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        try {
+            rs.getRoomNights(firstNight, firstNight.plusYears(2), null);
+            rs.getOccupancyReport(firstNight, firstNight.plusYears(2), null);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Tests that the room catalog keeps the rooms sorted by room number in natural order
+     */
+    private static void testRoomCatalog() {
+        RoomCatalog catalog = new RoomCatalog();
+        catalog.addRooms(List.of(new RegisteredRoom(new Room("1001", 90.0, RoomType.DOUBLE), 0, null),
+                new RegisteredRoom(new Room("101", 50.0, RoomType.SINGLE), 1, null),
+                new RegisteredRoom(new Room("A10", 60.0, RoomType.SINGLE), 2, null)));
+        List<IRoom> firstSnapshot = catalog.getRooms();
+        catalog.addRoom(new RegisteredRoom(new Room("9", 45.0, RoomType.SINGLE), 3, null));
+        catalog.addRooms(List.of(new RegisteredRoom(new Room("A2", 60.0, RoomType.DOUBLE), 4, null),
+                new RegisteredRoom(new Room("0101", 50.0, RoomType.SINGLE), 5, null)));
+        System.out.println("Room catalog: " + catalog.getRooms().stream().map(IRoom::getRoomNumber).toList()
+                + ", " + catalog.size() + " rooms, first snapshot still has " + firstSnapshot.size());
+        try {
+            catalog.getRooms().clear();
+        } catch (UnsupportedOperationException e) {
+            System.out.println("The room catalog cannot be modified by its readers.");
+        }
+    }
+
+    /**
+     * Tests that archived stays are still found by the lookups and taken into account by the bookings
+     * @param rs: the ReservationService instance to test
+     * @param cs: the CustomerService instance to test
+     */
+    private static void testArchive(ReservationService rs, CustomerService cs) {
+        Customer customerJane = cs.getCustomer("jane@smith.org");
+        LocalDate checkIn = DateFormatter.getDate("2025/11/02");
+        LocalDate checkOut = DateFormatter.getDate("2025/11/05");
+        String allReservations = rs.getAllReservationsSorted().toString();
+        String janeReservations = rs.getCustomersReservation(customerJane).toString();
+        String availableRooms = rs.getAvailableRooms(checkIn, checkOut).toString();
+        LocalDate earliestCheckIn = rs.findEarliestCheckIn(checkIn, 3, RoomType.SINGLE);
+        long reservationCount = rs.getReservationCount();
+
+        int archivedCount = rs.archiveReservations(DateFormatter.getDate("2025/12/02"));
+        System.out.println("Archived " + archivedCount + " reservations, " + rs.getArchivedReservationCount()
+                + " in the archive, no longer counted as live: "
+                + (rs.getReservationCount() == reservationCount - archivedCount));
+        System.out.println("Same reservations after archiving: "
+                + allReservations.equals(rs.getAllReservationsSorted().toString())
+                + ", same reservations of Jane: "
+                + janeReservations.equals(rs.getCustomersReservation(customerJane).toString())
+                + ", same available rooms: " + availableRooms.equals(rs.getAvailableRooms(checkIn, checkOut).toString())
+                + ", same earliest check-in: "
+                + earliestCheckIn.equals(rs.findEarliestCheckIn(checkIn, 3, RoomType.SINGLE)));
+        try {
+            rs.reserveARoom(customerJane, rs.getARoom("101"), checkIn.plusDays(1), checkOut);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        rs.reserveARoom(customerJane, rs.getARoom("101"), DateFormatter.getDate("2025/10/01"),
+                DateFormatter.getDate("2025/10/03"));
+        System.out.println("Reservations of room 101 after booking before an archived stay: "
+                + rs.getAllReservationsSorted().stream().filter(reservation -> reservation.getRoom()
+                .getRoomNumber().equals("101")).map(Reservation::getCheckInDate).toList());
+        try {
+            rs.archiveReservations(LocalDate.now().plusDays(1));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Tests that rooms and customers are given ids in the copies the services register, leaving the added
+     * objects untouched, and that requests referring to them by other objects with the same room number or
+     * email (or by the copies of another service) are resolved to the registered ones
+     * @param rs: the ReservationService instance to test
+     * @param cs: the CustomerService instance to test
+     */
+    private static void testIds(ReservationService rs, CustomerService cs) {
+        Room room = new Room("7001", 89.99, RoomType.SINGLE);
+        System.out.println("Room price in cents: " + room.getRoomPriceCents());
+        rs.addRoom(room);
+        rs.addRooms(List.of(new Room("7002", 0.1 + 0.2, RoomType.DOUBLE), new FreeRoom("7003", RoomType.SINGLE)));
+        RegisteredRoom registeredRoom = (RegisteredRoom) rs.getARoom("7001");
+        System.out.println("Room ids: " + registeredRoom.getRoomId() + ", "
+                + ((RegisteredRoom) rs.getARoom("7002")).getRoomId() + ", "
+                + ((RegisteredRoom) rs.getARoom("7003")).getRoomId() + " of " + rs.getRoomCount()
+                + " rooms, prices in cents: " + rs.getARoom("7002").getRoomPriceCents() + ", "
+                + rs.getARoom("7003").getRoomPriceCents());
+        System.out.println("Registered copy of the added room handed out: " + (registeredRoom.getRoom() == room)
+                + ", " + (rs.getARoom("7001") == registeredRoom));
+        System.out.println("Customer ids: " + ((RegisteredCustomer) cs.getCustomer("jane@smith.org")).getCustomerId()
+                + ", " + ((RegisteredCustomer) cs.getCustomer("jdoe@something.com")).getCustomerId());
+
+        Customer unregisteredJane = new Customer("Jane", "Smith", "jane@smith.org");
+        Reservation reservation = rs.reserveARoom(unregisteredJane, new Room("7001", 89.99, RoomType.SINGLE),
+                DateFormatter.getDate("2026/03/01"), DateFormatter.getDate("2026/03/04"));
+        System.out.println("Reservation refers to the registered customer and room: "
+                + (reservation.getCustomer() == cs.getCustomer("jane@smith.org")) + ", "
+                + (reservation.getRoom() == registeredRoom));
+        try {
+            rs.reserveARoom(new Customer("No", "One", "no@one.org"), room, DateFormatter.getDate("2026/04/01"),
+                    DateFormatter.getDate("2026/04/02"));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        ScheduledExecutorService otherCompactor = Executors.newSingleThreadScheduledExecutor();
+        ReservationService otherService = new ReservationService(cs, otherCompactor);
+        otherService.addRooms(List.of(new Room("9101", 40.0, RoomType.SINGLE), new Room("101", 40.0, RoomType.SINGLE)));
+        IRoom otherRoom = otherService.getARoom("101");
+        Reservation otherReservation = rs.reserveARoom(cs.getCustomer("jane@smith.org"), otherRoom,
+                DateFormatter.getDate("2026/03/10"), DateFormatter.getDate("2026/03/11"));
+        System.out.println("Room of another service with id " + ((RegisteredRoom) otherRoom).getRoomId()
+                + " resolved by number: " + (otherReservation.getRoom() == rs.getARoom("101")));
+        otherService.addRoom(room);
+        Reservation sharedReservation = otherService.reserveARoom(cs.getCustomer("jane@smith.org"),
+                otherService.getARoom("7001"), DateFormatter.getDate("2026/03/01"),
+                DateFormatter.getDate("2026/03/04"));
+        System.out.println("Room added to both services, ids: " + registeredRoom.getRoomId() + ", "
+                + ((RegisteredRoom) otherService.getARoom("7001")).getRoomId() + ", booked in each: "
+                + (rs.getReservation(room, DateFormatter.getDate("2026/03/01")) == reservation) + ", "
+                + (otherService.getReservation(registeredRoom, DateFormatter.getDate("2026/03/01"))
+                == sharedReservation));
+        try {
+            rs.reserveARoom(cs.getCustomer("jane@smith.org"), otherService.getARoom("9101"),
+                    DateFormatter.getDate("2026/03/10"), DateFormatter.getDate("2026/03/11"));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        try {
+            rs.reserveARoom(null, room, DateFormatter.getDate("2026/04/01"), DateFormatter.getDate("2026/04/02"));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        try {
+            rs.reserveARoom(cs.getCustomer("jane@smith.org"), room, DateFormatter.getDate("2026/04/02"),
+                    DateFormatter.getDate("2026/04/01"));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        otherCompactor.shutdown();
+    }
+
+    /**
+     * Tests that reservations are modified only when the room is available for the new dates, that
+     * cancelled reservations free their rooms at once and that their tombstones are compacted away
+     * @param rs: the ReservationService instance to test
+     * @param cs: the CustomerService instance to test
+     */
+    private static void testCancellation(ReservationService rs, CustomerService cs) {
+        Customer customerJane = cs.getCustomer("jane@smith.org");
+        LocalDate checkIn = DateFormatter.getDate("2026/06/01");
+        LocalDate checkOut = DateFormatter.getDate("2026/06/05");
+        Reservation reservation = rs.reserveARoom(customerJane, rs.getARoom("7001"), checkIn, checkOut);
+        rs.reserveARoom(cs.getCustomer("jdoe@something.com"), rs.getARoom("7001"), checkIn.plusDays(9),
+                checkOut.plusDays(9));
+        long reservationCount = rs.getReservationCount();
+
+        Reservation extended = rs.modifyReservation(reservation, reservation.getRoom(), checkIn, checkOut.plusDays(3));
+        System.out.println("Extended over its own dates: " + extended + ", still available: "
+                + rs.getAvailableRooms(checkIn, checkIn).stream().anyMatch(room -> room.getRoomNumber().equals("7001")));
+        try {
+            rs.modifyReservation(extended, extended.getRoom(), checkIn, checkOut.plusDays(5));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+        Reservation moved = rs.modifyReservation(extended, rs.getARoom("7002"), checkIn, checkOut);
+        System.out.println("Moved: " + moved + ", room 7001 available again: "
+                + rs.getAvailableRooms(checkIn, checkOut).stream().anyMatch(room -> room.getRoomNumber().equals("7001"))
+                + ", " + rs.getOccupancy(checkIn, RoomType.DOUBLE) + " double room(s) booked on "
+                + DateFormatter.formatDate(checkIn));
+        try {
+            rs.cancelReservation(reservation);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+
+        rs.cancelReservation(new Reservation(new Customer("Jane", "Smith", "jane@smith.org"),
+                new Room("7002", 0.3, RoomType.DOUBLE), checkIn, checkOut));
+        String janeReservations = rs.getCustomersReservation(customerJane).toString();
+        System.out.println("Cancelled reservations left Jane's: " + !janeReservations.contains("7002")
+                + ", one reservation fewer than before: " + (rs.getReservationCount() == reservationCount - 1)
+                + ", room 7002 available again: "
+                + rs.getAvailableRooms(checkIn, checkOut).stream().anyMatch(room -> room.getRoomNumber().equals("7002"))
+                + ", " + rs.getOccupancy(checkIn, RoomType.DOUBLE) + " double room(s) booked on "
+                + DateFormatter.formatDate(checkIn));
+        rs.compactCancelledReservations();
+        System.out.println("Same reservations of Jane after compacting: "
+                + janeReservations.equals(rs.getCustomersReservation(customerJane).toString()));
+
+        Reservation archived = rs.getAllReservationsSorted().stream()
+                .filter(stay -> stay.getRoom().getRoomNumber().equals("101")
+                        && stay.getCheckInDate().equals(DateFormatter.getDate("2025/11/02")))
+                .findFirst().orElseThrow();
+        try {
+            rs.cancelReservation(archived);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Tests the per-day occupancy bitmaps of the availability index with dates relative to today, so that
+     * they fall within its horizon: on their own, with rooms spread over more than one 64-bit word, and
+     * through the service, comparing its answers with the schedules of the rooms as stays are booked, moved
+     * and cancelled
+     * @param rs: the ReservationService instance to test
+     * @param cs: the CustomerService instance to test
+     */
+    private static void testAvailabilityIndex(ReservationService rs, CustomerService cs) {
+        int today = (int) LocalDate.now().toEpochDay();
+        Customer customerJane = cs.getCustomer("jane@smith.org");
+        List<RoomSchedule> schedules = new ArrayList<>();
+        List<RegisteredRoom> rooms = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            RegisteredRoom room = new RegisteredRoom(new Room("I" + i, 50.0, RoomType.SINGLE), i, null);
+            rooms.add(room);
+            schedules.add(new RoomSchedule(room.getRoomNumber()));
+        }
+        AvailabilityIndex availabilityIndex = new AvailabilityIndex(schedules::get, AvailabilityIndex.DEFAULT_HORIZON_DAYS);
+        availabilityIndex.addRooms(rooms);
+        Reservation firstWord = new Reservation(customerJane, rooms.get(3), today + 10, today + 12);
+        Reservation secondWord = new Reservation(customerJane, rooms.get(65), today + 11, today + 20);
+        schedules.get(3).add(firstWord);
+        schedules.get(65).add(secondWord);
+        availabilityIndex.addReservation(firstWord);
+        availabilityIndex.addReservation(secondWord);
+        Collection<RegisteredRoom> available = availabilityIndex.findAvailableRooms(today + 10, today + 12);
+        System.out.println("Index: " + available.size() + " of 70 rooms available, booked rooms excluded: "
+                + !(available.contains(rooms.get(3)) || available.contains(rooms.get(65)))
+                + ", only room I65 booked the day after: "
+                + (availabilityIndex.findAvailableRooms(today + 13, today + 13).size() == 69));
+        schedules.get(3).remove(firstWord);
+        availabilityIndex.removeReservation(firstWord);
+        System.out.println("Index: room I3 available after its stay is removed: "
+                + availabilityIndex.findAvailableRooms(today + 10, today + 12).contains(rooms.get(3))
+                + ", room I65 still booked: "
+                + !availabilityIndex.findAvailableRooms(today + 10, today + 12).contains(rooms.get(65))
+                + ", range beyond the horizon left to the schedules: "
+                + (availabilityIndex.findAvailableRooms(today + 700, today + 800) == null));
+
+        rs.addRooms(List.of(new Room("A1", 60.0, RoomType.SINGLE), new Room("A2", 60.0, RoomType.SINGLE)));
+        LocalDate checkIn = LocalDate.now().plusDays(10);
+        LocalDate checkOut = checkIn.plusDays(2);
+        Reservation reservation = rs.reserveARoom(customerJane, rs.getARoom("A1"), checkIn, checkOut);
+        System.out.println("Service after booking A1: " + availableRoomNumbers(rs, checkIn, checkOut));
+        Reservation moved = rs.modifyReservation(reservation, rs.getARoom("A2"), checkIn.plusDays(1), checkOut.plusDays(1));
+        System.out.println("Service after moving it to A2: " + availableRoomNumbers(rs, checkIn, checkOut));
+        rs.cancelReservation(moved);
+        System.out.println("Service after cancelling it: " + availableRoomNumbers(rs, checkIn, checkOut));
+        rs.addRooms(List.of(new Room("A10", 60.0, RoomType.SINGLE), new Room("A3", 60.0, RoomType.SINGLE)));
+        List<IRoom> nearRooms = List.copyOf(rs.getAvailableRooms(checkIn, checkOut));
+        List<IRoom> farRooms = List.copyOf(rs.getAvailableRooms(checkIn.plusYears(3), checkOut.plusYears(3)));
+        System.out.println("Same order within and beyond the horizon: " + nearRooms.equals(farRooms)
+                + ", by room number: " + nearRooms.equals(nearRooms.stream()
+                .sorted(Comparator.comparing(IRoom::getRoomNumber, RoomNumbers.NATURAL_ORDER)).toList()));
+    }
+
+    /**
+     * Tests the room locks with several threads booking at once: when they all book the same room for the
+     * same dates exactly one of them succeeds, and when each books a room of its own they all succeed
+     * @param rs: the ReservationService instance to test
+     * @param cs: the CustomerService instance to test
+     */
+    private static void testConcurrentBookings(ReservationService rs, CustomerService cs) {
+        int threadCount = 16;
+        List<IRoom> rooms = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            rooms.add(new Room("C" + i, 70.0, RoomType.DOUBLE));
+        }
+        rs.addRooms(rooms);
+        Customer customerJane = cs.getCustomer("jane@smith.org");
+        LocalDate checkIn = LocalDate.now().plusDays(40);
+        LocalDate checkOut = checkIn.plusDays(3);
+        long reservationCount = rs.getReservationCount();
+
+        ExecutorService threads = Executors.newFixedThreadPool(threadCount);
+        try {
+            for (boolean sameRoom : new boolean[]{true, false}) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> bookings = new ArrayList<>();
+                for (int i = 0; i < threadCount; i++) {
+                    IRoom room = rs.getARoom(sameRoom ? "C0" : "C" + i);
+                    LocalDate roomCheckIn = sameRoom ? checkIn : checkIn.plusDays(10);
+                    bookings.add(threads.submit(() -> {
+                        start.await();
+                        try {
+                            rs.reserveARoom(customerJane, room, roomCheckIn, roomCheckIn.plusDays(3));
+                            return true;
+                        } catch (IllegalArgumentException e) {
+                            return false;
+                        }
+                    }));
+                }
+                start.countDown();
+                int succeeded = 0;
+                for (Future<Boolean> booking : bookings) {
+                    if (booking.get(30, TimeUnit.SECONDS)) {
+                        succeeded++;
+                    }
+                }
+                System.out.println(threadCount + " threads booking " + (sameRoom ? "the same room" : "a room each")
+                        + " at once: " + succeeded + " succeeded");
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            threads.shutdown();
+        }
+        System.out.println("Reservations made: " + (rs.getReservationCount() - reservationCount)
+                + ", room C0 booked once for the dates: " + rs.getAllReservationsSorted().stream()
+                .filter(reservation -> reservation.getRoom().getRoomNumber().equals("C0")
+                        && reservation.getCheckInDate().equals(checkIn)).count()
+                + ", available rooms agree with the schedules: "
+                + availableRoomNumbers(rs, checkIn, checkOut).endsWith("true"));
+    }
+
+    /**
+     * Retrieves the numbers of the rooms available between two dates among those starting with "A", checking
+     * that the availability index agrees with the schedules of all the rooms
+     * @param rs: the ReservationService instance
+     * @param checkInDate: the check-in date
+     * @param checkOutDate: the check-out date
+     * @return the available room numbers, followed by whether the index agrees with the schedules
+     */
+    private static String availableRoomNumbers(ReservationService rs, LocalDate checkInDate, LocalDate checkOutDate) {
+        Collection<IRoom> available = rs.getAvailableRooms(checkInDate, checkOutDate);
+        List<IRoom> free = rs.getAllRooms().stream().filter(room -> rs.findConflict(room,
+                (int) checkInDate.toEpochDay(), (int) checkOutDate.toEpochDay()) == null).toList();
+        return available.stream().map(IRoom::getRoomNumber).filter(number -> number.startsWith("A")).sorted().toList()
+                + ", same as the schedules: " + (available.size() == free.size() && available.containsAll(free));
+    }
+
+    /**
+     * Tests that the rooms of several properties are partitioned across the shards of an engine, that
+     * bookings are routed to the shard of their room and that the queries gather every shard
+     * @param cs: the CustomerService instance the engine shares
+     */
+    private static void testShards(CustomerService cs) {
+        Customer customerJane = cs.getCustomer("jane@smith.org");
+        LocalDate checkIn = DateFormatter.getDate("2026/05/01");
+        LocalDate checkOut = DateFormatter.getDate("2026/05/03");
+        try (ShardedReservationService engine = new ShardedReservationService(4, RoomPartitioning.PROPERTY)) {
+            engine.addRooms(List.of(new Room("LIS-101", 80.0, RoomType.SINGLE), new Room("LIS-102", 120.0, RoomType.DOUBLE),
+                    new Room("MAD-101", 70.0, RoomType.SINGLE), new Room("MAD-201", 95.0, RoomType.DOUBLE),
+                    new FreeRoom("PAR-101", RoomType.SINGLE)));
+            System.out.println("Rooms by shard: " + engine.getRoomCounts() + ", same shard for LIS-101 and LIS-102: "
+                    + (engine.shardOf("LIS-101") == engine.shardOf("LIS-102")));
+            engine.reserveARoom(customerJane, engine.getARoom("LIS-101"), checkIn, checkOut);
+            engine.reserveARoom(customerJane, engine.getARoom("MAD-101"), checkIn.plusDays(5), checkOut.plusDays(5));
+            try {
+                engine.reserveARoom(customerJane, engine.getARoom("LIS-101"), checkOut, checkOut.plusDays(1));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getLocalizedMessage());
+            }
+            try {
+                engine.reserveARoom(customerJane, null, checkIn, checkOut);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getLocalizedMessage());
+            }
+            System.out.println("Batch booked on two shards: " + engine.reserveRooms(List.of(
+                    new BookingRequest(customerJane, engine.getARoom("LIS-102"), checkIn, checkOut),
+                    new BookingRequest(customerJane, engine.getARoom("MAD-201"), checkIn, checkOut))).size()
+                    + " reservations");
+            long reservationCount = engine.getReservationCount();
+            try {
+                engine.reserveRooms(List.of(
+                        new BookingRequest(customerJane, engine.getARoom("PAR-101"), checkIn, checkOut),
+                        new BookingRequest(customerJane, engine.getARoom("LIS-101"), checkIn, checkOut)));
+            } catch (BookingConflictException e) {
+                System.out.println("Requests in conflict: " + e.getConflicts().size() + ", reservations made: " + (engine.getReservationCount() - reservationCount)
+                        + ", PAR-101 booked: " + (engine.getOccupancy(checkIn, RoomType.SINGLE) > 1));
+            }
+            System.out.println("Available rooms on all the properties: " + engine.getAvailableRooms(checkIn, checkOut)
+                    .stream().map(IRoom::getRoomNumber).toList());
+            System.out.println("Cheapest single rooms: " + engine.searchRooms(new RoomSearch(checkIn, checkOut,
+                    RoomType.SINGLE, null, null, false, 2)).stream().map(IRoom::getRoomNumber).toList());
+            System.out.println("Reservations of Jane on the properties: " + engine.getCustomersReservation(customerJane)
+                    .stream().map(reservation -> reservation.getRoom().getRoomNumber()).toList()
+                    + ", " + engine.getReservationCount() + " reservations, " + engine.getOccupancy(checkIn, null)
+                    + " room(s) booked on " + DateFormatter.formatDate(checkIn));
+            IReservationService service = engine;
+            OccupancyReport report = service.getOccupancyReport(checkIn, checkOut.plusDays(5), null);
+            System.out.println("Room-nights booked on the properties: " + report.getRoomNights() + ", peak night: "
+                    + DateFormatter.formatDate(report.getPeakNight()) + ", all reservations: "
+                    + service.getAllReservationsSorted().stream()
+                    .map(reservation -> reservation.getRoom().getRoomNumber()).toList());
+            service.cancelReservation(service.getAllReservationsSorted().get(0));
+            Thread.sleep(1500);
+            System.out.println("Reservations of Jane once the shard compacted its cancellation: "
+                    + service.getCustomersReservation(customerJane).stream()
+                    .map(reservation -> reservation.getRoom().getRoomNumber()).toList());
+            Reservation moved = service.modifyReservation(service.getAllReservationsSorted().get(0),
+                    engine.getARoom("PAR-101"), checkIn, checkOut);
+            System.out.println("Reservation moved to another shard: " + moved.getRoom().getRoomNumber()
+                    + ", reservations of Jane: " + service.getCustomersReservation(customerJane).stream()
+                    .map(reservation -> reservation.getRoom().getRoomNumber()).toList()
+                    + ", rooms of the engine: " + engine.getAllRooms().stream().map(IRoom::getRoomNumber).toList());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Path dataDirectory = Files.createTempDirectory("hotel-shards");
+            try (ShardedReservationService engine = new ShardedReservationService(2, RoomPartitioning.HASH)) {
+                engine.startPersistence(dataDirectory, DurabilityLevel.NONE, null);
+                engine.addRooms(List.of(new Room("9101", 60.0, RoomType.SINGLE), new Room("9102", 90.0, RoomType.DOUBLE)));
+                engine.reserveRooms(List.of(new BookingRequest(customerJane, engine.getARoom("9101"), checkIn, checkOut),
+                        new BookingRequest(customerJane, engine.getARoom("9102"), checkIn, checkOut)));
+            }
+            try (ShardedReservationService engine = new ShardedReservationService(2, RoomPartitioning.HASH)) {
+                engine.startPersistence(dataDirectory, DurabilityLevel.NONE, null);
+                System.out.println("Shards restored from their own logs: " + engine.getAllReservationsSorted().stream()
+                        .map(reservation -> reservation.getRoom().getRoomNumber()).toList()
+                        + ", rooms: " + engine.getAllRooms().stream().map(IRoom::getRoomNumber).toList());
+            }
+            try (ShardedReservationService engine = new ShardedReservationService(3, RoomPartitioning.HASH)) {
+                engine.startPersistence(dataDirectory, DurabilityLevel.NONE, null);
+            } catch (IOException e) {
+                System.out.println(e.getLocalizedMessage());
+            }
+        } catch (IOException e) {
+            System.out.println("Could not persist the shards: " + e.getLocalizedMessage());
+        }
+        try (ShardedReservationService otherEngine = new ShardedReservationService(1, RoomPartitioning.HASH)) {
+            ReservationService.setActiveService(otherEngine);
+        } catch (IllegalStateException e) {
+            System.out.println(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Tests that the state is restored when reservations were cancelled and modified after the checkpoint
+     * of a snapshot but before the snapshot read them, so that the snapshot already holds the new state
+     * while the log still holds the original bookings
+     * @param rs: the ReservationService instance to test
+     */
+    private static void testRestore(ReservationService rs) {
+        int firstDay = (int) LocalDate.now().plusDays(30).toEpochDay();
+        try {
+            Path dataDirectory = Files.createTempDirectory("hotel-restore");
+            long checkpoint;
+            try (WriteAheadLog log = WriteAheadLog.open(dataDirectory.resolve(PersistenceService.LOG_FILE_NAME), 0,
+                    DurabilityLevel.NONE, WriteAheadLog.DEFAULT_FLUSH_INTERVAL_MILLIS)) {
+                log.append(new LogRecord.CustomerAdded("restore@tester.org", "Restore", "Tester"));
+                log.append(new LogRecord.RoomAdded("8001", 60.0, "SINGLE", false));
+                log.append(new LogRecord.RoomAdded("8002", 90.0, "DOUBLE", false));
+                checkpoint = log.checkpoint();
+                log.append(new LogRecord.RoomReserved("restore@tester.org", "8001", firstDay, firstDay + 2));
+                log.append(new LogRecord.RoomReserved("restore@tester.org", "8002", firstDay, firstDay + 2));
+                log.append(new LogRecord.ReservationModified(
+                        new LogRecord.ReservationCancelled("restore@tester.org", "8001", firstDay, firstDay + 2),
+                        new LogRecord.RoomReserved("restore@tester.org", "8001", firstDay + 1, firstDay + 4)));
+                log.append(new LogRecord.ReservationCancelled("restore@tester.org", "8002", firstDay, firstDay + 2));
+                log.append(new LogRecord.RoomReserved("jane@smith.org", "8002", firstDay + 1, firstDay + 3));
+            }
+            Snapshot.write(dataDirectory.resolve(PersistenceService.SNAPSHOT_FILE_NAME), checkpoint,
+                    List.of(new LogRecord.RoomReserved("restore@tester.org", "8001", firstDay + 1, firstDay + 4),
+                            new LogRecord.RoomReserved("jane@smith.org", "8002", firstDay + 1, firstDay + 3)).iterator(),
+                    () -> List.of(new LogRecord.CustomerAdded("restore@tester.org", "Restore", "Tester"),
+                            new LogRecord.CustomerAdded("jane@smith.org", "Jane", "Smith")),
+                    () -> List.of(new LogRecord.RoomAdded("8001", 60.0, "SINGLE", false),
+                            new LogRecord.RoomAdded("8002", 90.0, "DOUBLE", false)));
+
+            PersistenceService persistenceService = PersistenceService.getInstance();
+            persistenceService.start(dataDirectory, DurabilityLevel.NONE, null);
+            persistenceService.takeSnapshot();
+            persistenceService.stop();
+            try (Stream<Path> files = Files.list(dataDirectory)) {
+                System.out.println("Log segments left after a snapshot: " + files
+                        .filter(file -> file.getFileName().toString().startsWith(PersistenceService.LOG_FILE_NAME))
+                        .count());
+            }
+            System.out.println("Restored after changes made while the snapshot was written: " + rs
+                    .getAllReservationsSorted().stream()
+                    .filter(reservation -> reservation.getRoom().getRoomNumber().startsWith("800"))
+                    .map(reservation -> reservation.getRoom().getRoomNumber() + " "
+                            + (reservation.getCheckInDay() - firstDay) + "-" + (reservation.getCheckOutDay() - firstDay)
+                            + " " + reservation.getCustomer().getEmail())
+                    .toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Tester class for ZipfDistribution and LoadGenerator
+ * @see ZipfDistribution
+ * @see LoadGenerator
+ * @author Cláudia Martins
+ */
+public class SimulationTester {
+
+    /**
+     * Main method to test the ZipfDistribution and LoadGenerator functionalities
+     * @param args: command line arguments
+     * @throws InterruptedException if the thread is interrupted while the load runs
+     */
+    public static void main(String[] args) throws InterruptedException {
+        ZipfDistribution uniform = new ZipfDistribution(4, 0.0);
+        ZipfDistribution skewed = new ZipfDistribution(4, 2.0);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] uniformCounts = new int[4];
+        int[] skewedCounts = new int[4];
+        for (int i = 0; i < 100_000; i++) {
+            uniformCounts[uniform.sample(random)]++;
+            skewedCounts[skewed.sample(random)]++;
+        }
+        System.out.println("Uniform: " + Arrays.toString(uniformCounts));
+        System.out.println("Skewed: " + Arrays.toString(skewedCounts));
+
+        LoadReport report = new LoadGenerator(new LoadProfile(Map.of("threads", "4", "warmup", "0",
+                "duration", "1", "rooms", "20", "customers", "100", "horizon", "30"))).run();
+        System.out.println("Load consistent: " + report.isConsistent() + ", conflict rate above 0: "
+                + (report.getConflictRate() > 0));
+    }
+}